@@ -0,0 +1,25 @@
+package com.github.wildfly.flyway.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of {@code benchmarks.jar}: runs JMH with the GC profiler enabled, so every
+ * result reports {@code gc.alloc.rate.norm} (bytes allocated per operation) next to the
+ * timing. Pass {@code -noprof} to run without it; all other arguments go to JMH unchanged.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.remove("-noprof")) {
+            jmhArgs.add(0, "gc");
+            jmhArgs.add(0, "-prof");
+        }
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.wildfly.flyway.config;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-deployment configuration and security checks, one benchmark per production method.
+ * Run with {@code -prof gc} (the default of {@code benchmarks.jar}) to see bytes allocated
+ * per call next to the timings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigurationHotPathBenchmark {
+
+    private Properties deploymentProperties;
+    private Map<String, String> flywayProperties;
+    private ClassLoader classLoader;
+
+    @Setup
+    public void setUp() throws Exception {
+        Properties subsystem = new Properties();
+        subsystem.setProperty("enabled", "true");
+        subsystem.setProperty("default-datasource", "java:jboss/datasources/ExampleDS");
+        subsystem.setProperty("locations", "classpath:db/migration");
+        SubsystemConfigurationHolder.setConfiguration(subsystem);
+
+        deploymentProperties = new Properties();
+        deploymentProperties.setProperty("flyway.datasource", "java:jboss/datasources/AppDS");
+        deploymentProperties.setProperty("flyway.locations", "classpath:db/migration,classpath:db/{vendor}");
+        deploymentProperties.setProperty("spring.flyway.baseline-on-migrate", "true");
+        deploymentProperties.setProperty("spring.flyway.placeholders.schema", "${sys.app.schema:public}");
+
+        flywayProperties = new FlywayConfigurationBuilder("app.war", null, deploymentProperties)
+                .build().getFlywayProperties();
+        classLoader = getClass().getClassLoader();
+    }
+
+    @TearDown
+    public void tearDown() {
+        SubsystemConfigurationHolder.setConfiguration(new Properties());
+    }
+
+    @Benchmark
+    public Object build() throws Exception {
+        return new FlywayConfigurationBuilder("app.war", null, deploymentProperties).build();
+    }
+
+    @Benchmark
+    public String resolveSimpleExpression() {
+        return FlywayConfigurationBuilder.resolveSimpleExpression("${sys.app.schema:public}_${env.APP_TENANT:default}");
+    }
+
+    @Benchmark
+    public String resolveSimpleExpressionLiteral() {
+        return FlywayConfigurationBuilder.resolveSimpleExpression("classpath:db/migration");
+    }
+
+    @Benchmark
+    public String normalizeKey() {
+        return FlywayConfigurationBuilder.normalizeKey("flyway.baseline-on-migrate");
+    }
+
+    @Benchmark
+    public String sanitizePropertyValue() {
+        return FlywayConfigurationBuilder.sanitizePropertyValue("classpath:db/migration,classpath:db/common");
+    }
+
+    @Benchmark
+    public void validateJndiName() {
+        FlywayConfigurationBuilder.validateJndiName("java:jboss/datasources/ExampleDS");
+    }
+
+    @Benchmark
+    public String maskDataSource() {
+        return FlywayConfigurationBuilder.maskDataSource("java:jboss/datasources/ExampleDS");
+    }
+
+    @Benchmark
+    public FluentConfiguration applyTo() {
+        FluentConfiguration flywayConfig = new FluentConfiguration(classLoader);
+        new FlywayConfiguration(flywayProperties).applyTo(flywayConfig);
+        return flywayConfig;
+    }
+
+    @Benchmark
+    public String detectVendor() {
+        return SpringBootPropertyResolver.detectVendor("jdbc:postgresql://db.example.com:5432/app?ssl=true");
+    }
+}
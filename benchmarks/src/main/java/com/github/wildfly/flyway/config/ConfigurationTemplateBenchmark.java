@@ -0,0 +1,97 @@
+package com.github.wildfly.flyway.config;
+
+import com.github.wildfly.flyway.config.FlywayConfigurationBuilder.ConfigurationResult;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Configuration path of a server deploying {@value #DEPLOYMENTS} applications: subsystem
+ * template, deployment overlay, {@link FlywayConfiguration} and {@link FluentConfiguration}.
+ *
+ * <p>{@code overrides} is the number of distinct deployment property sets; with 0 every
+ * deployment runs on the subsystem configuration alone.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigurationTemplateBenchmark {
+
+    static final int DEPLOYMENTS = 500;
+
+    @Param({"0", "5", "500"})
+    int overrides;
+
+    private String[] names;
+    private Properties[] deploymentProperties;
+
+    @Setup
+    public void setUp() {
+        Properties subsystem = new Properties();
+        subsystem.setProperty("enabled", "true");
+        subsystem.setProperty("default-datasource", "java:jboss/datasources/ExampleDS");
+        subsystem.setProperty("baseline-on-migrate", "false");
+        subsystem.setProperty("clean-disabled", "true");
+        subsystem.setProperty("validate-on-migrate", "true");
+        subsystem.setProperty("locations", "classpath:db/migration");
+        subsystem.setProperty("table", "flyway_schema_history");
+        SubsystemConfigurationHolder.setConfiguration(subsystem);
+
+        names = new String[DEPLOYMENTS];
+        deploymentProperties = new Properties[DEPLOYMENTS];
+        for (int i = 0; i < DEPLOYMENTS; i++) {
+            names[i] = "app-" + i + ".war";
+            Properties properties = new Properties();
+            if (overrides > 0) {
+                int variant = i % overrides;
+                properties.setProperty("flyway.locations", "classpath:db/migration,classpath:db/app" + variant);
+                properties.setProperty("flyway.table", "history_" + variant);
+                properties.setProperty("spring.flyway.placeholders.tenant", "tenant" + variant);
+            }
+            deploymentProperties[i] = properties;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        SubsystemConfigurationHolder.setConfiguration(new Properties());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DEPLOYMENTS)
+    public void buildConfiguration(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < DEPLOYMENTS; i++) {
+            ConfigurationResult result = new FlywayConfigurationBuilder(names[i], null, deploymentProperties[i]).build();
+            blackhole.consume(result);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DEPLOYMENTS)
+    public void buildAndApplyConfiguration(Blackhole blackhole) throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        for (int i = 0; i < DEPLOYMENTS; i++) {
+            ConfigurationResult result = new FlywayConfigurationBuilder(names[i], null, deploymentProperties[i]).build();
+            FluentConfiguration flywayConfig = new FluentConfiguration(classLoader);
+            new FlywayConfiguration(result.getFlywayProperties()).applyTo(flywayConfig);
+            blackhole.consume(flywayConfig);
+        }
+    }
+}
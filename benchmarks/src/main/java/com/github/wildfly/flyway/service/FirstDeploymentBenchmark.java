@@ -0,0 +1,49 @@
+package com.github.wildfly.flyway.service;
+
+import java.util.concurrent.TimeUnit;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of the first {@code Flyway.configure(...).load()} in a fresh JVM, i.e. what the first
+ * deployment pays, with and without {@link FlywayPrewarm}.
+ *
+ * <p>Every fork is a new JVM measured exactly once. With {@code prewarm=true} the warm-up runs to
+ * completion first, which is the common case on a real server where it overlaps with the rest of
+ * the boot; the result is therefore the lower bound.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class FirstDeploymentBenchmark {
+
+    @Param({"false", "true"})
+    boolean prewarm;
+
+    @Setup
+    public void setUp() {
+        if (prewarm) {
+            FlywayPrewarm.run();
+        }
+    }
+
+    @Benchmark
+    public Flyway firstLoad() {
+        return Flyway.configure(getClass().getClassLoader())
+                .locations("classpath:db/migration")
+                .load();
+    }
+}
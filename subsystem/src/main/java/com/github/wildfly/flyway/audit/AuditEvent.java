@@ -0,0 +1,205 @@
+package com.github.wildfly.flyway.audit;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.output.MigrateOutput;
+import org.flywaydb.core.api.output.MigrateResult;
+
+/**
+ * One migration run as recorded in the audit log. Immutable; created on the migration thread
+ * and serialized to a JSON line on the audit writer thread.
+ */
+public final class AuditEvent {
+
+    /** Origin of a migration run. */
+    public enum Source {
+        DEPLOYMENT("deployment"),
+        SERVER_MIGRATION("server-migration"),
+        OPERATION("operation");
+
+        private final String value;
+
+        Source(String value) {
+            this.value = value;
+        }
+    }
+
+    private final Instant timestamp;
+    private final Source source;
+    private final String name;
+    private final String datasource;
+    private final boolean success;
+    private final long durationMs;
+    private final String database;
+    private final String initialSchemaVersion;
+    private final String targetSchemaVersion;
+    private final int migrationsExecuted;
+    private final List<Migration> migrations;
+    private final String error;
+
+    private AuditEvent(Source source, String name, String datasource, boolean success, long durationMs,
+                       MigrateResult result, List<Migration> migrations, String error) {
+        this.timestamp = Instant.now();
+        this.source = source;
+        this.name = name;
+        this.datasource = datasource;
+        this.success = success;
+        this.durationMs = durationMs;
+        this.database = result != null ? result.database : null;
+        this.initialSchemaVersion = result != null ? result.initialSchemaVersion : null;
+        this.targetSchemaVersion = result != null ? result.targetSchemaVersion : null;
+        this.migrationsExecuted = result != null ? result.migrationsExecuted : 0;
+        this.migrations = migrations;
+        this.error = error;
+    }
+
+    /**
+     * A completed run. The migrations are those of {@code result}; their checksums and
+     * installed-by are taken from the matching entry of {@code history}.
+     *
+     * @param history the applied schema history entries, or {@code null} if they could not be read
+     */
+    public static AuditEvent success(Source source, String name, String datasource, long durationMs,
+                                     MigrateResult result, MigrationInfo[] history) {
+        List<Migration> migrations = new ArrayList<>();
+        if (result != null && result.migrations != null) {
+            for (MigrateOutput output : result.migrations) {
+                migrations.add(new Migration(output, historyEntry(history, output)));
+            }
+        }
+        return new AuditEvent(source, name, datasource, result == null || result.success, durationMs, result,
+                Collections.unmodifiableList(migrations), null);
+    }
+
+    /**
+     * A failed run.
+     */
+    public static AuditEvent failure(Source source, String name, String datasource, long durationMs,
+                                     Throwable failure) {
+        String message = failure == null ? null
+                : failure.getMessage() != null ? failure.getMessage() : failure.getClass().getName();
+        return new AuditEvent(source, name, datasource, false, durationMs, null, Collections.emptyList(), message);
+    }
+
+    /**
+     * @return the latest history entry of the migration of {@code output}: the same version, or
+     *         for a repeatable migration the same description
+     */
+    private static MigrationInfo historyEntry(MigrationInfo[] history, MigrateOutput output) {
+        if (history == null) {
+            return null;
+        }
+        boolean versioned = output.version != null && !output.version.isEmpty();
+        for (int i = history.length - 1; i >= 0; i--) {
+            MigrationInfo info = history[i];
+            if (versioned ? info.getVersion() != null && output.version.equals(info.getVersion().getVersion())
+                    : info.getVersion() == null && output.description != null
+                    && output.description.equals(info.getDescription())) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Serialize as a single JSON line (without line terminator).
+     */
+    String toJson() {
+        StringBuilder json = new StringBuilder(256);
+        json.append('{');
+        field(json, "timestamp", timestamp.toString()).append(',');
+        field(json, "source", source.value).append(',');
+        field(json, "name", name).append(',');
+        field(json, "datasource", datasource).append(',');
+        field(json, "outcome", success ? "success" : "failure").append(',');
+        json.append("\"durationMs\":").append(durationMs).append(',');
+        field(json, "database", database).append(',');
+        field(json, "initialSchemaVersion", initialSchemaVersion).append(',');
+        field(json, "targetSchemaVersion", targetSchemaVersion).append(',');
+        json.append("\"migrationsExecuted\":").append(migrationsExecuted).append(',');
+        json.append("\"migrations\":[");
+        for (int i = 0; i < migrations.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            migrations.get(i).appendJson(json);
+        }
+        json.append(']');
+        if (error != null) {
+            json.append(',');
+            field(json, "error", error);
+        }
+        return json.append('}').toString();
+    }
+
+    private static StringBuilder field(StringBuilder json, String key, String value) {
+        json.append('"').append(key).append("\":");
+        if (value == null) {
+            return json.append("null");
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"');
+    }
+
+    /** A history entry written by the run. */
+    private static final class Migration {
+        private final String version;
+        private final String description;
+        private final String type;
+        private final String script;
+        private final Integer checksum;
+        private final String installedBy;
+        private final Integer executionTime;
+
+        Migration(MigrateOutput output, MigrationInfo info) {
+            this.version = output.version != null && !output.version.isEmpty() ? output.version : null;
+            this.description = output.description;
+            this.type = output.type;
+            this.script = info != null ? info.getScript() : output.filepath;
+            this.checksum = info != null ? info.getChecksum() : null;
+            this.installedBy = info != null ? info.getInstalledBy() : null;
+            this.executionTime = output.executionTime;
+        }
+
+        void appendJson(StringBuilder json) {
+            json.append('{');
+            field(json, "version", version).append(',');
+            field(json, "description", description).append(',');
+            field(json, "type", type).append(',');
+            field(json, "script", script).append(',');
+            json.append("\"checksum\":").append(checksum).append(',');
+            field(json, "installedBy", installedBy).append(',');
+            json.append("\"executionTimeMs\":").append(executionTime);
+            json.append('}');
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.wildfly.flyway.audit;
+
+import org.jboss.msc.Service;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.StartContext;
+import org.jboss.msc.service.StopContext;
+
+import java.util.function.Consumer;
+
+/**
+ * Owns the {@link AuditLogWriter} of the subsystem: starts it with the service and drains and
+ * syncs it when the service stops, on subsystem removal as well as on server shutdown. Migration
+ * services depend on it, so it stops only after the last run was recorded.
+ */
+public final class AuditLogService implements Service {
+
+    public static final ServiceName SERVICE_NAME = ServiceName.JBOSS.append("flyway", "audit-log");
+
+    private final Consumer<AuditLogService> serviceConsumer;
+    private final boolean enabled;
+    private final String logDir;
+
+    /**
+     * @param serviceConsumer receives this service while it is up
+     * @param enabled the {@code audit-log-enabled} attribute
+     * @param logDir  the server log directory; the audit log stays off if {@code null}
+     */
+    public AuditLogService(Consumer<AuditLogService> serviceConsumer, boolean enabled, String logDir) {
+        this.serviceConsumer = serviceConsumer;
+        this.enabled = enabled;
+        this.logDir = logDir;
+    }
+
+    @Override
+    public void start(StartContext context) {
+        MigrationAuditLog.configure(enabled, logDir);
+        serviceConsumer.accept(this);
+    }
+
+    @Override
+    public void stop(StopContext context) {
+        serviceConsumer.accept(null);
+        // Draining waits for file I/O, so it does not run on the MSC thread
+        context.asynchronous();
+        Thread shutdown = new Thread(() -> {
+            try {
+                MigrationAuditLog.shutdown();
+            } finally {
+                context.complete();
+            }
+        }, "flyway-audit-shutdown");
+        shutdown.start();
+    }
+}
@@ -0,0 +1,228 @@
+package com.github.wildfly.flyway.audit;
+
+import com.github.wildfly.flyway.logging.FlywayLogger;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends audit events as JSON lines from a dedicated thread.
+ *
+ * <p>Producers only offer to a bounded queue and never block: when the queue is full the event
+ * is dropped and counted. The writer thread drains up to {@code batchSize} events at a time,
+ * writes them with one channel write, then syncs according to the {@link FsyncPolicy}. Before a
+ * batch would grow the file beyond {@code maxFileSize} the file is rotated to {@code .1} (older
+ * backups shift up to {@code maxBackups}).</p>
+ */
+final class AuditLogWriter {
+
+    /** When written batches are forced to disk. */
+    enum FsyncPolicy {
+        /** After every batch. */
+        ALWAYS,
+        /** At most once per {@link #FSYNC_INTERVAL_MS}, and on shutdown. */
+        INTERVAL,
+        /** Left to the operating system (still forced on shutdown and rotation). */
+        NEVER
+    }
+
+    static final long FSYNC_INTERVAL_MS = 1000;
+
+    private static final AuditEvent POISON = AuditEvent.failure(AuditEvent.Source.DEPLOYMENT, null, null, 0, null);
+
+    private final Path file;
+    private final int batchSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long maxFileSize;
+    private final int maxBackups;
+    private final BlockingQueue<AuditEvent> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread thread;
+
+    private FileChannel channel;
+    private long size;
+    private long lastSync;
+    private boolean unsynced;
+
+    AuditLogWriter(Path file, int queueCapacity, int batchSize, FsyncPolicy fsyncPolicy,
+                   long maxFileSize, int maxBackups) {
+        this.file = file;
+        this.batchSize = Math.max(1, batchSize);
+        this.fsyncPolicy = fsyncPolicy;
+        this.maxFileSize = maxFileSize;
+        this.maxBackups = Math.max(0, maxBackups);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.thread = new Thread(this::run, "flyway-audit-writer");
+        this.thread.setDaemon(true);
+    }
+
+    void start() throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        open();
+        thread.start();
+    }
+
+    /**
+     * Queue an event without blocking.
+     *
+     * @return {@code false} if the queue was full and the event was dropped
+     */
+    boolean offer(AuditEvent event) {
+        if (queue.offer(event)) {
+            return true;
+        }
+        long count = dropped.incrementAndGet();
+        if (count == 1 || count % 100 == 0) {
+            FlywayLogger.warnf("Flyway audit log queue full, %d events dropped so far", count);
+        }
+        return false;
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Write all queued events, force them to disk and stop the writer thread.
+     */
+    void shutdown(long timeoutMs) {
+        try {
+            if (queue.offer(POISON, timeoutMs, TimeUnit.MILLISECONDS)) {
+                thread.join(timeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            FlywayLogger.warnf("Flyway audit writer did not finish within %d ms", timeoutMs);
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        boolean running = true;
+        try {
+            while (running) {
+                AuditEvent first = queue.poll(FSYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    running = write(batch);
+                    batch.clear();
+                }
+                syncIfDue();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * @return {@code false} once the shutdown marker was seen
+     */
+    private boolean write(List<AuditEvent> batch) {
+        StringBuilder lines = new StringBuilder(batch.size() * 256);
+        boolean running = true;
+        for (AuditEvent event : batch) {
+            if (event == POISON) {
+                running = false;
+                continue;
+            }
+            lines.append(event.toJson()).append('\n');
+        }
+        if (lines.length() == 0) {
+            return running;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            if (size > 0 && size + buffer.remaining() > maxFileSize) {
+                rotate();
+            }
+            while (buffer.hasRemaining()) {
+                size += channel.write(buffer);
+            }
+            unsynced = true;
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                sync();
+            }
+        } catch (IOException e) {
+            FlywayLogger.errorf(e, "Failed to write %d Flyway audit events to %s", batch.size(), file);
+        }
+        return running;
+    }
+
+    private void syncIfDue() {
+        if (unsynced && fsyncPolicy == FsyncPolicy.INTERVAL
+                && System.currentTimeMillis() - lastSync >= FSYNC_INTERVAL_MS) {
+            sync();
+        }
+    }
+
+    private void sync() {
+        try {
+            channel.force(false);
+            unsynced = false;
+            lastSync = System.currentTimeMillis();
+        } catch (IOException e) {
+            FlywayLogger.errorf(e, "Failed to sync Flyway audit log %s", file);
+        }
+    }
+
+    private void rotate() throws IOException {
+        sync();
+        channel.close();
+        try {
+            if (maxBackups == 0) {
+                Files.deleteIfExists(file);
+            } else {
+                Files.deleteIfExists(backup(maxBackups));
+                for (int i = maxBackups - 1; i >= 1; i--) {
+                    if (Files.exists(backup(i))) {
+                        Files.move(backup(i), backup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }
+                Files.move(file, backup(1), StandardCopyOption.REPLACE_EXISTING);
+            }
+            FlywayLogger.debugf("Rotated Flyway audit log %s", file);
+        } finally {
+            // Keep writing, to the old file if the rotation failed
+            open();
+        }
+    }
+
+    private Path backup(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+        lastSync = System.currentTimeMillis();
+        unsynced = false;
+    }
+
+    private void close() {
+        if (channel != null && channel.isOpen()) {
+            sync();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                FlywayLogger.debugf("Failed to close Flyway audit log %s: %s", file, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.wildfly.flyway.audit;
+
+import com.github.wildfly.flyway.logging.FlywayLogger;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.output.MigrateResult;
+
+/**
+ * Optional audit log of migration runs, enabled with the subsystem attribute
+ * {@code audit-log-enabled}.
+ *
+ * <p>Each run is recorded as one JSON line in {@value #FILE_NAME} under
+ * {@code jboss.server.log.dir}: origin, name, datasource, outcome, duration, schema versions and
+ * the migrations executed by the run (version, script, checksum, installed-by). Recording
+ * only queues the event; an {@link AuditLogWriter} thread does all file I/O.</p>
+ *
+ * <p>Writer tuning is read from system properties when the subsystem boots:</p>
+ * <ul>
+ *   <li>{@value #QUEUE_SIZE_PROPERTY} (default 1024): queued events before new ones are dropped</li>
+ *   <li>{@value #BATCH_SIZE_PROPERTY} (default 64): events written per batch</li>
+ *   <li>{@value #FSYNC_PROPERTY} (default {@code interval}): {@code always}, {@code interval} or {@code never}</li>
+ *   <li>{@value #MAX_FILE_SIZE_PROPERTY} (default 10485760): bytes before the file is rotated</li>
+ *   <li>{@value #MAX_BACKUPS_PROPERTY} (default 5): rotated files kept</li>
+ * </ul>
+ */
+public final class MigrationAuditLog {
+
+    public static final String FILE_NAME = "flyway-audit.log";
+
+    static final String PREFIX = "com.github.wildfly.flyway.audit.";
+    public static final String QUEUE_SIZE_PROPERTY = PREFIX + "queue-size";
+    public static final String BATCH_SIZE_PROPERTY = PREFIX + "batch-size";
+    public static final String FSYNC_PROPERTY = PREFIX + "fsync";
+    public static final String MAX_FILE_SIZE_PROPERTY = PREFIX + "max-file-size";
+    public static final String MAX_BACKUPS_PROPERTY = PREFIX + "max-backups";
+
+    private static final long SHUTDOWN_TIMEOUT_MS = 5000;
+
+    private static volatile AuditLogWriter writer;
+
+    private MigrationAuditLog() {
+    }
+
+    /**
+     * Start or stop the audit log. Called when the {@link AuditLogService} starts.
+     *
+     * @param enabled the {@code audit-log-enabled} attribute
+     * @param logDir  the server log directory; the audit log stays off if {@code null}
+     */
+    public static synchronized void configure(boolean enabled, String logDir) {
+        shutdown();
+        if (!enabled) {
+            return;
+        }
+        if (logDir == null) {
+            FlywayLogger.warn("Flyway audit log enabled but jboss.server.log.dir is not set; audit log disabled");
+            return;
+        }
+
+        Path file = Paths.get(logDir, FILE_NAME);
+        AuditLogWriter.FsyncPolicy fsync;
+        try {
+            fsync = AuditLogWriter.FsyncPolicy.valueOf(
+                    System.getProperty(FSYNC_PROPERTY, "interval").trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            FlywayLogger.warnf("Invalid value for %s, using 'interval'", FSYNC_PROPERTY);
+            fsync = AuditLogWriter.FsyncPolicy.INTERVAL;
+        }
+        AuditLogWriter started = new AuditLogWriter(file,
+                Integer.getInteger(QUEUE_SIZE_PROPERTY, 1024),
+                Integer.getInteger(BATCH_SIZE_PROPERTY, 64),
+                fsync,
+                Long.getLong(MAX_FILE_SIZE_PROPERTY, 10L * 1024 * 1024),
+                Integer.getInteger(MAX_BACKUPS_PROPERTY, 5));
+        try {
+            started.start();
+            writer = started;
+            FlywayLogger.infof("Flyway audit log enabled: %s (fsync=%s)", file, fsync.name().toLowerCase(Locale.ROOT));
+        } catch (IOException e) {
+            FlywayLogger.errorf(e, "Failed to open Flyway audit log %s; audit log disabled", file);
+        }
+    }
+
+    /**
+     * Write the queued events, force them to disk and stop the writer. Called when the
+     * {@link AuditLogService} stops.
+     */
+    public static synchronized void shutdown() {
+        AuditLogWriter previous = writer;
+        writer = null;
+        if (previous != null) {
+            previous.shutdown(SHUTDOWN_TIMEOUT_MS);
+        }
+    }
+
+    public static boolean isEnabled() {
+        return writer != null;
+    }
+
+    /**
+     * Record a completed run. The migrations come from {@code result}; the schema history is read
+     * from {@code flyway.info()} for their checksums, and only if the audit log is enabled.
+     *
+     * @param startTime {@link System#currentTimeMillis()} when the run started
+     */
+    public static void recordSuccess(AuditEvent.Source source, String name, String datasource, long startTime,
+                                     Flyway flyway, MigrateResult result) {
+        AuditLogWriter current = writer;
+        if (current == null) {
+            return;
+        }
+        current.offer(AuditEvent.success(source, name, datasource, System.currentTimeMillis() - startTime,
+                result, history(flyway, result)));
+    }
+
+    /**
+     * Record a failed run.
+     *
+     * @param startTime {@link System#currentTimeMillis()} when the run started
+     */
+    public static void recordFailure(AuditEvent.Source source, String name, String datasource, long startTime,
+                                     Throwable failure) {
+        AuditLogWriter current = writer;
+        if (current == null) {
+            return;
+        }
+        current.offer(AuditEvent.failure(source, name, datasource, System.currentTimeMillis() - startTime, failure));
+    }
+
+    private static MigrationInfo[] history(Flyway flyway, MigrateResult result) {
+        if (flyway == null || result == null || result.migrationsExecuted <= 0) {
+            return null;
+        }
+        try {
+            return flyway.info().applied();
+        } catch (RuntimeException e) {
+            FlywayLogger.debugf("Could not read the schema history for the audit log: %s", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.github.wildfly.flyway.backfill;
+
+import com.github.wildfly.flyway.logging.FlywayLogger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+/**
+ * The checkpoint table of backfills: one row per backfill name with the key of the last committed
+ * chunk, the number of rows processed and whether the backfill has completed.
+ */
+final class BackfillCheckpoints {
+
+    /** State of a backfill as stored. */
+    static final class Checkpoint {
+        final String lastKey;
+        final long rows;
+        final boolean completed;
+
+        Checkpoint(String lastKey, long rows, boolean completed) {
+            this.lastKey = lastKey;
+            this.rows = rows;
+            this.completed = completed;
+        }
+    }
+
+    private final String table;
+
+    BackfillCheckpoints(String table) {
+        this.table = table;
+    }
+
+    /**
+     * Create the table if it does not exist. Runs on a connection in auto-commit mode.
+     */
+    void ensureTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeQuery("SELECT name FROM " + table + " WHERE 1 = 0").close();
+            return;
+        } catch (SQLException e) {
+            FlywayLogger.debugf("Backfill checkpoint table %s not readable (%s), creating it", table, e.getMessage());
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + table + " ("
+                    + "name VARCHAR(200) NOT NULL PRIMARY KEY, "
+                    + "last_key VARCHAR(4000), "
+                    + "rows_processed NUMERIC(19) NOT NULL, "
+                    + "completed NUMERIC(1) NOT NULL, "
+                    + "updated_at TIMESTAMP NOT NULL)");
+        } catch (SQLException e) {
+            // Another node may have created it in the meantime
+            try (Statement statement = connection.createStatement()) {
+                statement.executeQuery("SELECT name FROM " + table + " WHERE 1 = 0").close();
+            } catch (SQLException again) {
+                e.addSuppressed(again);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return the checkpoint of {@code name}, or {@code null} if the backfill has not run yet
+     */
+    Checkpoint load(Connection connection, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT last_key, rows_processed, completed FROM " + table + " WHERE name = ?")) {
+            statement.setString(1, name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                return new Checkpoint(resultSet.getString(1), resultSet.getLong(2), resultSet.getInt(3) == 1);
+            }
+        }
+    }
+
+    /**
+     * Insert an empty checkpoint of {@code name} unless there is one, so that it can be locked.
+     * Runs on a connection in auto-commit mode.
+     */
+    void create(Connection connection, String name) throws SQLException {
+        if (load(connection, name) != null) {
+            return;
+        }
+        try {
+            insert(connection, name, null, 0, false);
+        } catch (SQLException e) {
+            // Another node may have inserted it in the meantime
+            if (load(connection, name) == null) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Lock the checkpoint of {@code name} until the end of the current transaction and read it.
+     * Nodes running the same backfill wait for each other here and each continue after the key
+     * the other committed, so no chunk is processed twice.
+     *
+     * @return the checkpoint, or {@code null} if there is none
+     */
+    Checkpoint lock(Connection connection, String name) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE " + table + " SET updated_at = ? WHERE name = ?")) {
+            update.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+            update.setString(2, name);
+            if (update.executeUpdate() == 0) {
+                return null;
+            }
+        }
+        return load(connection, name);
+    }
+
+    /**
+     * Store the checkpoint of {@code name} in the current transaction.
+     */
+    void save(Connection connection, String name, String lastKey, long rows, boolean completed)
+            throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + table
+                + " SET last_key = ?, rows_processed = ?, completed = ?, updated_at = ? WHERE name = ?")) {
+            update.setString(1, lastKey);
+            update.setLong(2, rows);
+            update.setInt(3, completed ? 1 : 0);
+            update.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+            update.setString(5, name);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        insert(connection, name, lastKey, rows, completed);
+    }
+
+    private void insert(Connection connection, String name, String lastKey, long rows, boolean completed)
+            throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table
+                + " (name, last_key, rows_processed, completed, updated_at) VALUES (?, ?, ?, ?, ?)")) {
+            insert.setString(1, name);
+            insert.setString(2, lastKey);
+            insert.setLong(3, rows);
+            insert.setInt(4, completed ? 1 : 0);
+            insert.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
+            insert.executeUpdate();
+        }
+    }
+}
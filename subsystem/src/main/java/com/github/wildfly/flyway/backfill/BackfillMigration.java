@@ -0,0 +1,56 @@
+package com.github.wildfly.flyway.backfill;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A data backfill that runs in the background after the schema migration of its deployment has
+ * completed, e.g. filling a new column across a large table without locking it in one transaction.
+ *
+ * <p>The subsystem pages through {@link #getTable()} by {@link #getKeyColumn()} (keyset
+ * pagination, no {@code OFFSET}) and calls {@link #processChunk} once per chunk of
+ * {@link #getChunkSize()} keys. Each chunk is committed together with a checkpoint, so a backfill
+ * interrupted by undeployment or a restart resumes after the last committed chunk, and a completed
+ * backfill is not run again.</p>
+ *
+ * <p>Implementations are listed in {@code spring.flyway.backfills} and instantiated from the
+ * deployment with their public no-arg constructor. The deployment needs
+ * {@code Dependencies: com.github.wildfly.flyway} in its {@code MANIFEST.MF}.</p>
+ */
+public interface BackfillMigration {
+
+    /**
+     * @return unique name of the backfill; its checkpoint is stored under this name
+     */
+    String getName();
+
+    /**
+     * @return the table to page through, optionally schema-qualified
+     */
+    String getTable();
+
+    /**
+     * @return a unique, indexed numeric or character column of {@link #getTable()}; its keys are
+     *         passed as {@link Long} for integer columns, {@link java.math.BigDecimal} for
+     *         {@code NUMERIC} and {@code DECIMAL} columns and as returned by the driver otherwise
+     */
+    String getKeyColumn();
+
+    /**
+     * @return number of keys per chunk and transaction
+     */
+    default int getChunkSize() {
+        return 1000;
+    }
+
+    /**
+     * Process the rows whose key is greater than {@code lowerExclusive} and at most
+     * {@code upperInclusive}. Runs in the chunk's transaction, which is committed by the caller
+     * together with the checkpoint; do not commit or change the auto-commit mode.
+     *
+     * @param lowerExclusive key of the last row of the previous chunk, {@code null} for the first chunk
+     * @param upperInclusive key of the last row of this chunk
+     * @return the number of rows changed, for progress reporting
+     */
+    int processChunk(Connection connection, Object lowerExclusive, Object upperInclusive) throws SQLException;
+}
@@ -0,0 +1,284 @@
+package com.github.wildfly.flyway.backfill;
+
+import com.github.wildfly.flyway.jdbc.SessionProfile;
+import com.github.wildfly.flyway.logging.FlywayLogger;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Runs one {@link BackfillMigration}: keyset-paginated chunks, each committed with its checkpoint,
+ * paced by a {@link Throttle}. Every chunk locks the checkpoint row first and starts after its
+ * key, so nodes of a cluster running the same backfill take turns instead of repeating chunks.
+ */
+final class BackfillRunner {
+
+    /** Bounds of the pause before a chunk that timed out on the checkpoint lock is repeated. */
+    private static final long MIN_LOCK_BACKOFF_MILLIS = 100;
+    private static final long MAX_LOCK_BACKOFF_MILLIS = 5_000;
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*(\\.[A-Za-z_][A-Za-z0-9_$]*)?");
+
+    private final String deploymentName;
+    private final BackfillMigration migration;
+    private final DataSource dataSource;
+    private final BackfillCheckpoints checkpoints;
+    private final Throttle throttle;
+
+    private volatile boolean stopped;
+    private volatile BackfillStatus.State state = BackfillStatus.State.PENDING;
+    private volatile long rowsProcessed;
+    private volatile long rowsChanged;
+    private volatile String lastKey;
+    private volatile long lastChunkMillis;
+    private volatile String failure;
+    private volatile long startNanos;
+    private volatile long rowsAtStart;
+
+    BackfillRunner(String deploymentName, BackfillMigration migration, DataSource dataSource,
+                   BackfillCheckpoints checkpoints, Throttle throttle) {
+        this.deploymentName = deploymentName;
+        this.migration = migration;
+        this.dataSource = dataSource;
+        this.checkpoints = checkpoints;
+        this.throttle = throttle;
+    }
+
+    /** Finish the current chunk and return; ends a throttle pause at once. */
+    void stop() {
+        stopped = true;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private synchronized void pause(long millis) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        for (long left = millis; left > 0 && !stopped;
+             left = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime())) {
+            wait(left);
+        }
+    }
+
+    BackfillStatus status() {
+        long elapsedMillis = startNanos == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        long rowsPerSecond = elapsedMillis == 0 ? 0 : (rowsProcessed - rowsAtStart) * 1000 / elapsedMillis;
+        return new BackfillStatus(deploymentName, migration.getName(), state, rowsProcessed, rowsChanged, lastKey,
+                rowsPerSecond, throttle.getRate(), lastChunkMillis, failure);
+    }
+
+    void run() {
+        String name = migration.getName();
+        if (stopped) {
+            state = BackfillStatus.State.STOPPED;
+            return;
+        }
+        state = BackfillStatus.State.RUNNING;
+        try {
+            String table = identifier(migration.getTable(), "table");
+            String keyColumn = identifier(migration.getKeyColumn(), "key column");
+            int chunkSize = Math.max(1, migration.getChunkSize());
+
+            int keyType;
+            try (Connection connection = dataSource.getConnection()) {
+                checkpoints.ensureTable(connection);
+                BackfillCheckpoints.Checkpoint checkpoint = checkpoints.load(connection, name);
+                if (checkpoint != null && checkpoint.completed) {
+                    rowsProcessed = checkpoint.rows;
+                    lastKey = checkpoint.lastKey;
+                    state = BackfillStatus.State.COMPLETED;
+                    FlywayLogger.debugf("Backfill %s of deployment %s already completed", name, deploymentName);
+                    return;
+                }
+                if (checkpoint == null) {
+                    checkpoints.create(connection, name);
+                }
+                keyType = keyType(connection, table, keyColumn);
+                rowsProcessed = checkpoint != null ? checkpoint.rows : 0;
+                lastKey = checkpoint != null ? checkpoint.lastKey : null;
+            }
+            rowsAtStart = rowsProcessed;
+            startNanos = System.nanoTime();
+            FlywayLogger.infof("Starting backfill %s of deployment %s %s", name, deploymentName,
+                    lastKey == null ? "from the beginning" : "after key " + lastKey);
+
+            long lockBackoffMillis = 0;
+            while (!stopped) {
+                long chunkStart = System.nanoTime();
+                int keys;
+                try (Connection connection = dataSource.getConnection()) {
+                    boolean autoCommit = connection.getAutoCommit();
+                    connection.setAutoCommit(false);
+                    try {
+                        // Other nodes may have advanced the checkpoint since the last chunk
+                        BackfillCheckpoints.Checkpoint checkpoint = checkpoints.lock(connection, name);
+                        if (checkpoint == null) {
+                            throw new SQLException("Checkpoint of backfill " + name + " not found");
+                        }
+                        rowsProcessed = checkpoint.rows;
+                        lastKey = checkpoint.lastKey;
+                        if (checkpoint.completed) {
+                            connection.commit();
+                            state = BackfillStatus.State.COMPLETED;
+                            FlywayLogger.infof("Backfill %s of deployment %s completed by another node", name,
+                                    deploymentName);
+                            return;
+                        }
+                        Object lower = lastKey == null ? null : restoreKey(lastKey, keyType);
+                        Object[] chunk = nextChunk(connection, table, keyColumn, keyType, lower, chunkSize);
+                        if (chunk == null) {
+                            checkpoints.save(connection, name, lastKey, rowsProcessed, true);
+                            connection.commit();
+                            state = BackfillStatus.State.COMPLETED;
+                            FlywayLogger.infof("Backfill %s of deployment %s completed: %d rows", name, deploymentName,
+                                    rowsProcessed);
+                            return;
+                        }
+                        Object upper = chunk[0];
+                        keys = (Integer) chunk[1];
+                        int changed = migration.processChunk(connection, lower, upper);
+                        checkpoints.save(connection, name, String.valueOf(upper), rowsProcessed + keys, false);
+                        connection.commit();
+                        rowsChanged += Math.max(0, changed);
+                        rowsProcessed += keys;
+                        lastKey = String.valueOf(upper);
+                    } catch (SQLException e) {
+                        rollback(connection);
+                        if (!SessionProfile.isLockTimeout(e)) {
+                            throw e;
+                        }
+                        FlywayLogger.debugf("Backfill %s of deployment %s waiting for a lock: %s", name,
+                                deploymentName, e.getMessage());
+                        keys = -1;
+                    } catch (RuntimeException e) {
+                        rollback(connection);
+                        throw e;
+                    } finally {
+                        connection.setAutoCommit(autoCommit);
+                    }
+                }
+                if (keys < 0) {
+                    // Another node holds the checkpoint for a long chunk; the chunk is repeated
+                    // after a pause that doubles while the lock stays taken
+                    if (stopped) {
+                        break;
+                    }
+                    lockBackoffMillis = Math.min(MAX_LOCK_BACKOFF_MILLIS,
+                            Math.max(MIN_LOCK_BACKOFF_MILLIS, lockBackoffMillis * 2));
+                    pause(lockBackoffMillis);
+                    continue;
+                }
+                lockBackoffMillis = 0;
+                lastChunkMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - chunkStart);
+                pause(throttle.afterChunk(keys, lastChunkMillis));
+            }
+            state = BackfillStatus.State.STOPPED;
+            FlywayLogger.infof("Backfill %s of deployment %s stopped after key %s; it resumes on the next start",
+                    name, deploymentName, lastKey);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state = BackfillStatus.State.STOPPED;
+        } catch (Exception e) {
+            failure = e.getMessage();
+            state = BackfillStatus.State.FAILED;
+            FlywayLogger.errorf(e, "Backfill %s of deployment %s failed after key %s", name, deploymentName, lastKey);
+        }
+    }
+
+    /**
+     * @return the last key and the number of keys of the chunk after {@code lower}, or {@code null}
+     *         if there are no more rows
+     */
+    private static Object[] nextChunk(Connection connection, String table, String keyColumn, int keyType,
+                                      Object lower, int chunkSize) throws SQLException {
+        String sql = "SELECT " + keyColumn + " FROM " + table
+                + (lower == null ? "" : " WHERE " + keyColumn + " > ?") + " ORDER BY " + keyColumn;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setMaxRows(chunkSize);
+            statement.setFetchSize(Math.min(chunkSize, 1000));
+            if (lower != null) {
+                statement.setObject(1, lower, keyType);
+            }
+            Object upper = null;
+            int keys = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    upper = readKey(resultSet, keyType);
+                    keys++;
+                }
+            }
+            return keys == 0 ? null : new Object[]{upper, keys};
+        }
+    }
+
+    /**
+     * @return the JDBC type of the key column
+     */
+    private static int keyType(Connection connection, String table, String keyColumn) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(
+                     "SELECT " + keyColumn + " FROM " + table + " WHERE 1 = 0")) {
+            return resultSet.getMetaData().getColumnType(1);
+        }
+    }
+
+    /**
+     * Read a key as the value {@link #restoreKey} returns for its stored form, so that a resumed
+     * backfill passes the same types to {@link BackfillMigration#processChunk}.
+     */
+    private static Object readKey(ResultSet resultSet, int keyType) throws SQLException {
+        switch (keyType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return resultSet.getLong(1);
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return resultSet.getBigDecimal(1);
+            default:
+                return resultSet.getObject(1);
+        }
+    }
+
+    /**
+     * Convert a stored key back to a value of the key column, bound with {@code keyType}.
+     */
+    static Object restoreKey(String key, int keyType) {
+        switch (keyType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return Long.valueOf(key);
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return new BigDecimal(key);
+            default:
+                return key;
+        }
+    }
+
+    private static String identifier(String value, String kind) {
+        if (value == null || !IDENTIFIER.matcher(value).matches()) {
+            throw new IllegalArgumentException("Invalid backfill " + kind + ": " + value);
+        }
+        return value;
+    }
+
+    private static void rollback(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            FlywayLogger.debugf("Rollback of backfill chunk failed: %s", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.wildfly.flyway.backfill;
+
+import com.github.wildfly.flyway.config.FlywayConfiguration;
+import com.github.wildfly.flyway.logging.FlywayLogger;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Runs the {@link BackfillMigration}s of deployments in the background once their schema migration
+ * has completed: one daemon thread per deployment, running its backfills one after another.
+ */
+public final class BackfillScheduler {
+
+    /**
+     * The last backfills started for each deployment, keyed by deployment name. Finished jobs are
+     * kept until the deployment stops, so that their outcome can still be read.
+     */
+    private static final ConcurrentMap<String, Job> JOBS = new ConcurrentHashMap<>();
+
+    private BackfillScheduler() {
+    }
+
+    /**
+     * Instantiate the backfills configured in {@code spring.flyway.backfills}. Called before the
+     * schema migration, so that a missing or broken class fails the deployment before anything
+     * was migrated.
+     *
+     * @param classLoader the deployment class loader the backfill classes are loaded from
+     * @throws IllegalArgumentException if a class cannot be loaded or instantiated
+     */
+    public static List<BackfillMigration> load(String[] classNames, ClassLoader classLoader) {
+        List<BackfillMigration> migrations = new ArrayList<>();
+        for (String className : classNames) {
+            migrations.add(instantiate(className, classLoader));
+        }
+        return migrations;
+    }
+
+    /**
+     * Start {@code migrations}, if any. They replace the last backfills of the same deployment,
+     * which are stopped first if still running.
+     *
+     * @param deploymentName the deployment name, e.g. {@code myapp.war}
+     * @param migrations     the backfills as returned by {@link #load}
+     * @param classLoader    the context class loader of the backfill thread
+     */
+    public static void start(String deploymentName, DataSource dataSource, List<BackfillMigration> migrations,
+                             ClassLoader classLoader, FlywayConfiguration configuration) {
+        if (migrations.isEmpty()) {
+            return;
+        }
+        List<BackfillRunner> runners = new ArrayList<>();
+        BackfillCheckpoints checkpoints = new BackfillCheckpoints(configuration.getBackfillTable());
+        for (BackfillMigration migration : migrations) {
+            Throttle throttle = new Throttle(configuration.getBackfillRateLimit(),
+                    configuration.getBackfillTargetChunkMillis());
+            runners.add(new BackfillRunner(deploymentName, migration, dataSource, checkpoints, throttle));
+        }
+
+        Job job = new Job(runners);
+        Thread thread = new Thread(() -> {
+            Thread.currentThread().setContextClassLoader(classLoader);
+            try {
+                for (BackfillRunner runner : runners) {
+                    runner.run();
+                    if (runner.status().getState() != BackfillStatus.State.COMPLETED) {
+                        // Later backfills may depend on the data of this one
+                        break;
+                    }
+                }
+            } finally {
+                job.finished();
+            }
+        }, "flyway-backfill-" + deploymentName);
+        thread.setDaemon(true);
+
+        Job previous = JOBS.put(deploymentName, job);
+        if (previous != null) {
+            // Both may run a chunk for a moment; the checkpoint lock keeps them apart
+            previous.stop(() -> { });
+        }
+        FlywayLogger.infof("Starting %d backfills for deployment: %s", runners.size(), deploymentName);
+        thread.start();
+    }
+
+    /**
+     * Stop the backfills of a deployment after their current chunk; they resume from their
+     * checkpoint on the next start. Does not wait: {@code onStopped} runs on the backfill thread
+     * once the chunk has committed, or at once if no backfills are running.
+     */
+    public static void stop(String deploymentName, Runnable onStopped) {
+        Job job = JOBS.remove(deploymentName);
+        if (job == null) {
+            onStopped.run();
+            return;
+        }
+        FlywayLogger.infof("Stopping backfills for deployment: %s", deploymentName);
+        job.stop(onStopped);
+    }
+
+    /**
+     * @return the status of the last backfills of all running deployments, including finished ones
+     */
+    public static List<BackfillStatus> status() {
+        List<BackfillStatus> status = new ArrayList<>();
+        for (Job job : JOBS.values()) {
+            for (BackfillRunner runner : job.runners) {
+                status.add(runner.status());
+            }
+        }
+        return status;
+    }
+
+    private static BackfillMigration instantiate(String className, ClassLoader classLoader) {
+        try {
+            Class<?> type = Class.forName(className, true, classLoader);
+            if (!BackfillMigration.class.isAssignableFrom(type)) {
+                throw new IllegalArgumentException("Backfill " + className + " does not implement "
+                        + BackfillMigration.class.getName());
+            }
+            return (BackfillMigration) type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new IllegalArgumentException("Cannot instantiate backfill " + className, e);
+        }
+    }
+
+    private static final class Job {
+        final List<BackfillRunner> runners;
+        private final List<Runnable> onStopped = new ArrayList<>();
+        private boolean finished;
+
+        Job(List<BackfillRunner> runners) {
+            this.runners = runners;
+        }
+
+        void stop(Runnable callback) {
+            runners.forEach(BackfillRunner::stop);
+            synchronized (this) {
+                if (!finished) {
+                    onStopped.add(callback);
+                    return;
+                }
+            }
+            callback.run();
+        }
+
+        void finished() {
+            List<Runnable> callbacks;
+            synchronized (this) {
+                finished = true;
+                callbacks = new ArrayList<>(onStopped);
+            }
+            callbacks.forEach(Runnable::run);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.wildfly.flyway.backfill;
+
+/**
+ * Snapshot of the progress of one backfill, as reported by the {@code backfill-status} operation.
+ */
+public final class BackfillStatus {
+
+    /** Lifecycle of a backfill within one deployment. */
+    public enum State {
+        PENDING, RUNNING, COMPLETED, STOPPED, FAILED
+    }
+
+    private final String deployment;
+    private final String name;
+    private final State state;
+    private final long rowsProcessed;
+    private final long rowsChanged;
+    private final String lastKey;
+    private final long rowsPerSecond;
+    private final long rateLimit;
+    private final long lastChunkMillis;
+    private final String failure;
+
+    BackfillStatus(String deployment, String name, State state, long rowsProcessed, long rowsChanged,
+                   String lastKey, long rowsPerSecond, long rateLimit, long lastChunkMillis, String failure) {
+        this.deployment = deployment;
+        this.name = name;
+        this.state = state;
+        this.rowsProcessed = rowsProcessed;
+        this.rowsChanged = rowsChanged;
+        this.lastKey = lastKey;
+        this.rowsPerSecond = rowsPerSecond;
+        this.rateLimit = rateLimit;
+        this.lastChunkMillis = lastChunkMillis;
+        this.failure = failure;
+    }
+
+    public String getDeployment() {
+        return deployment;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return keys paged through so far, including runs before a restart
+     */
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    /**
+     * @return rows reported changed by the backfill since the deployment started
+     */
+    public long getRowsChanged() {
+        return rowsChanged;
+    }
+
+    /**
+     * @return key of the last committed chunk, {@code null} before the first chunk
+     */
+    public String getLastKey() {
+        return lastKey;
+    }
+
+    /**
+     * @return throughput since the deployment started
+     */
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    /**
+     * @return the current, possibly reduced rate limit; {@code 0} if unlimited
+     */
+    public long getRateLimit() {
+        return rateLimit;
+    }
+
+    public long getLastChunkMillis() {
+        return lastChunkMillis;
+    }
+
+    /**
+     * @return the error message if {@link #getState()} is {@link State#FAILED}
+     */
+    public String getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.wildfly.flyway.backfill;
+
+/**
+ * Rate limit of a backfill with adaptive back-off.
+ *
+ * <p>The rate starts at the configured limit (unlimited if {@code 0}). A chunk that takes longer
+ * than the target latency, a sign of contention on the table, halves the rate; a chunk faster than
+ * half the target raises it by a quarter, up to the limit. Between chunks the runner sleeps as long
+ * as needed to stay below the current rate.</p>
+ */
+final class Throttle {
+
+    private static final double MIN_RATE = 1;
+
+    private final double maxRate;
+    private final long targetChunkMillis;
+    private double rate;
+
+    /**
+     * @param rateLimit         rows per second, {@code 0} for no limit
+     * @param targetChunkMillis chunk latency above which the rate is reduced
+     */
+    Throttle(int rateLimit, long targetChunkMillis) {
+        this.maxRate = rateLimit > 0 ? rateLimit : Double.POSITIVE_INFINITY;
+        this.targetChunkMillis = targetChunkMillis;
+        this.rate = maxRate;
+    }
+
+    /**
+     * Adjust the rate after a chunk.
+     *
+     * @return milliseconds to wait before the next chunk
+     */
+    long afterChunk(int rows, long chunkMillis) {
+        if (targetChunkMillis > 0 && chunkMillis > targetChunkMillis) {
+            double observed = rows * 1000.0 / Math.max(1, chunkMillis);
+            rate = Math.max(MIN_RATE, Math.min(rate, observed) / 2);
+        } else if (chunkMillis < targetChunkMillis / 2) {
+            rate = Math.min(maxRate, rate * 1.25);
+        }
+        if (Double.isInfinite(rate)) {
+            return 0;
+        }
+        long minimumMillis = (long) Math.ceil(rows * 1000.0 / rate);
+        return Math.max(0, minimumMillis - chunkMillis);
+    }
+
+    /**
+     * @return the current rate in rows per second, {@code 0} if unlimited
+     */
+    long getRate() {
+        return Double.isInfinite(rate) ? 0 : (long) rate;
+    }
+}
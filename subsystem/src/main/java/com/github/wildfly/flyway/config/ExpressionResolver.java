@@ -0,0 +1,112 @@
+package com.github.wildfly.flyway.config;
+
+/**
+ * Resolves {@code ${...}} expressions against system properties and environment variables.
+ *
+ * <p>Supported forms are {@code ${NAME}}, {@code ${sys.NAME}}, {@code ${env.NAME}}, each with
+ * an optional default after the first {@code :}. Defaults may themselves contain expressions,
+ * e.g. {@code ${env.DB_SCHEMA:${sys.db.schema:public}}}. A missing value without default
+ * resolves to the empty string; an unterminated {@code ${} is kept literally.</p>
+ *
+ * <p>The value is tokenized in a single pass into a per-thread builder; nested defaults are
+ * resolved in place without substring copies. Results are not remembered here; the
+ * {@link SubsystemConfiguration} memoizes them for its lifetime.</p>
+ */
+public final class ExpressionResolver {
+
+    /** Builders larger than this are not kept for reuse. */
+    private static final int MAX_BUILDER_CAPACITY = 1024;
+
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    private ExpressionResolver() {
+    }
+
+    /**
+     * Resolve all expressions in the given value.
+     *
+     * @param value the value, may be {@code null}
+     * @return the resolved value; the value itself if it contains no expression
+     */
+    public static String resolve(String value) {
+        if (value == null || value.indexOf("${") < 0) {
+            return value;
+        }
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        resolveRange(value, 0, value.length(), builder);
+        String resolved = builder.toString();
+        if (builder.capacity() > MAX_BUILDER_CAPACITY) {
+            BUILDER.remove();
+        }
+
+        return resolved;
+    }
+
+    private static void resolveRange(String value, int from, int to, StringBuilder out) {
+        int position = from;
+        while (position < to) {
+            int start = value.indexOf("${", position);
+            if (start < 0 || start + 2 > to) {
+                out.append(value, position, to);
+                return;
+            }
+            int end = findClosingBrace(value, start + 2, to);
+            if (end < 0) {
+                // Unterminated expression: keep the remainder as-is
+                out.append(value, position, to);
+                return;
+            }
+            out.append(value, position, start);
+            resolveExpression(value, start + 2, end, out);
+            position = end + 1;
+        }
+    }
+
+    /**
+     * Resolve the body of one {@code ${...}} (between the braces) into {@code out}.
+     */
+    private static void resolveExpression(String value, int from, int to, StringBuilder out) {
+        int separator = findDefaultSeparator(value, from, to);
+        int nameEnd = separator < 0 ? to : separator;
+
+        String resolved;
+        if (nameEnd == from) {
+            resolved = null;
+        } else if (value.startsWith("env.", from)) {
+            resolved = System.getenv(value.substring(from + 4, nameEnd));
+        } else if (value.startsWith("sys.", from)) {
+            resolved = System.getProperty(value.substring(from + 4, nameEnd));
+        } else {
+            resolved = System.getProperty(value.substring(from, nameEnd));
+        }
+
+        if (resolved != null) {
+            out.append(resolved);
+        } else if (separator >= 0) {
+            resolveRange(value, separator + 1, to, out);
+        }
+    }
+
+    private static int findClosingBrace(String value, int from, int to) {
+        int depth = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            if (c == '$' && i + 1 < to && value.charAt(i + 1) == '{') {
+                depth++;
+                i++;
+            } else if (c == '}') {
+                if (depth == 0) {
+                    return i;
+                }
+                depth--;
+            }
+        }
+        return -1;
+    }
+
+    private static int findDefaultSeparator(String value, int from, int to) {
+        int separator = value.indexOf(':', from);
+        return separator < to ? separator : -1;
+    }
+}
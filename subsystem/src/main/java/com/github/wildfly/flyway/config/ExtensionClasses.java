@@ -0,0 +1,227 @@
+package com.github.wildfly.flyway.config;
+
+import com.github.wildfly.flyway.logging.FlywayLogger;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.resolver.MigrationResolver;
+import org.jboss.as.server.deployment.annotation.CompositeIndex;
+import org.jboss.jandex.ClassInfo;
+import org.jboss.jandex.DotName;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The callback and resolver classes configured with {@code spring.flyway.callbacks} and
+ * {@code spring.flyway.resolvers}.
+ *
+ * <p>For deployments the names are checked against the deployment's Jandex index when the
+ * deployment is processed, without loading any class. Names found in the index that are not
+ * concrete implementations of {@link Callback} or {@link MigrationResolver} are dropped with an
+ * error. Names not in the index (classes of module dependencies) are checked when the migration
+ * runs.</p>
+ *
+ * <p>{@link #applyTo(FluentConfiguration)} loads the classes on the configuration's class loader,
+ * i.e. the deployment class loader, and hands Flyway the instances. Loaded classes are
+ * remembered, so a deployment resolves each name once.</p>
+ */
+public final class ExtensionClasses {
+
+    static final DotName CALLBACK = DotName.createSimple(Callback.class.getName());
+    static final DotName RESOLVER = DotName.createSimple(MigrationResolver.class.getName());
+    private static final DotName OBJECT = DotName.createSimple(Object.class.getName());
+
+    /** No callbacks or resolvers. */
+    public static final ExtensionClasses NONE = new ExtensionClasses(Collections.emptyList(), Collections.emptyList());
+
+    private final List<String> callbacks;
+    private final List<String> resolvers;
+    private final ConcurrentMap<String, Class<?>> loaded = new ConcurrentHashMap<>();
+
+    private ExtensionClasses(List<String> callbacks, List<String> resolvers) {
+        this.callbacks = callbacks;
+        this.resolvers = resolvers;
+    }
+
+    /**
+     * Take the class names from the properties as they are; they are checked when loaded.
+     *
+     * @param properties Flyway properties in {@code spring.flyway.*} form
+     */
+    public static ExtensionClasses of(Map<String, String> properties) {
+        List<String> callbacks = split(properties.get(FlywayConfiguration.CALLBACKS));
+        List<String> resolvers = split(properties.get(FlywayConfiguration.RESOLVERS));
+        if (callbacks.isEmpty() && resolvers.isEmpty()) {
+            return NONE;
+        }
+        return new ExtensionClasses(callbacks, resolvers);
+    }
+
+    /**
+     * Check the class names from the properties against deployment indexes.
+     *
+     * @param properties     Flyway properties in {@code spring.flyway.*} form
+     * @param deploymentName for messages only
+     * @param indexes        composite annotation indexes of the deployments taking part in the run
+     */
+    public static ExtensionClasses of(Map<String, String> properties, String deploymentName,
+                                      List<CompositeIndex> indexes) {
+        List<String> callbacks = validate(split(properties.get(FlywayConfiguration.CALLBACKS)),
+                CALLBACK, "callback", deploymentName, indexes);
+        List<String> resolvers = validate(split(properties.get(FlywayConfiguration.RESOLVERS)),
+                RESOLVER, "resolver", deploymentName, indexes);
+        if (callbacks.isEmpty() && resolvers.isEmpty()) {
+            return NONE;
+        }
+        return new ExtensionClasses(callbacks, resolvers);
+    }
+
+    public List<String> getCallbacks() {
+        return callbacks;
+    }
+
+    public List<String> getResolvers() {
+        return resolvers;
+    }
+
+    /**
+     * Instantiate the classes on the class loader of {@code config} and register the instances.
+     * Classes that cannot be loaded or instantiated are logged and skipped.
+     */
+    public void applyTo(FluentConfiguration config) {
+        if (!callbacks.isEmpty()) {
+            List<Callback> instances = instantiate(callbacks, Callback.class, "callback", config.getClassLoader());
+            if (!instances.isEmpty()) {
+                config.callbacks(instances.toArray(new Callback[0]));
+            }
+        }
+        if (!resolvers.isEmpty()) {
+            List<MigrationResolver> instances = instantiate(resolvers, MigrationResolver.class, "resolver",
+                    config.getClassLoader());
+            if (!instances.isEmpty()) {
+                config.resolvers(instances.toArray(new MigrationResolver[0]));
+            }
+        }
+    }
+
+    private <T> List<T> instantiate(List<String> classNames, Class<T> type, String kind, ClassLoader classLoader) {
+        List<T> instances = new ArrayList<>(classNames.size());
+        for (String className : classNames) {
+            try {
+                Class<?> clazz = loaded.get(className);
+                if (clazz == null) {
+                    clazz = Class.forName(className, false, classLoader);
+                    if (!type.isAssignableFrom(clazz)) {
+                        FlywayLogger.errorf("Flyway %s class %s does not implement %s", kind, className, type.getName());
+                        continue;
+                    }
+                    loaded.putIfAbsent(className, clazz);
+                }
+                instances.add(type.cast(clazz.getDeclaredConstructor().newInstance()));
+                FlywayLogger.debugf("Registered %s class: %s", kind, className);
+            } catch (ClassNotFoundException e) {
+                FlywayLogger.errorf(e, "Failed to find %s class: %s", kind, className);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                FlywayLogger.errorf(e, "Failed to instantiate %s class: %s", kind, className);
+            }
+        }
+        return instances;
+    }
+
+    private static List<String> validate(List<String> classNames, DotName type, String kind, String deploymentName,
+                                         List<CompositeIndex> indexes) {
+        if (classNames.isEmpty()) {
+            return classNames;
+        }
+        List<String> valid = new ArrayList<>(classNames.size());
+        for (String className : classNames) {
+            ClassInfo info = find(DotName.createSimple(className), indexes);
+            if (info == null) {
+                // Not part of the deployment, may come from a module dependency
+                FlywayLogger.debugf("Flyway %s class %s not in the index of deployment %s; checked when loaded",
+                        kind, className, deploymentName);
+                valid.add(className);
+                continue;
+            }
+            if (Modifier.isInterface(info.flags()) || Modifier.isAbstract(info.flags())) {
+                FlywayLogger.errorf("Flyway %s class %s of deployment %s is not a concrete class",
+                        kind, className, deploymentName);
+                continue;
+            }
+            if (implementsType(info, type, indexes) == Boolean.FALSE) {
+                FlywayLogger.errorf("Flyway %s class %s of deployment %s does not implement %s",
+                        kind, className, deploymentName, type);
+                continue;
+            }
+            FlywayLogger.debugf("Validated %s class %s against the index of deployment %s",
+                    kind, className, deploymentName);
+            valid.add(className);
+        }
+        return Collections.unmodifiableList(valid);
+    }
+
+    /**
+     * @return whether {@code info} implements {@code type}, or {@code null} if the hierarchy leaves
+     *         the indexes before that is known
+     */
+    static Boolean implementsType(ClassInfo info, DotName type, List<CompositeIndex> indexes) {
+        boolean complete = true;
+        for (DotName interfaceName : info.interfaceNames()) {
+            if (interfaceName.equals(type)) {
+                return Boolean.TRUE;
+            }
+            ClassInfo superInterface = find(interfaceName, indexes);
+            if (superInterface == null) {
+                complete = false;
+                continue;
+            }
+            Boolean inherited = implementsType(superInterface, type, indexes);
+            if (inherited == null) {
+                complete = false;
+            } else if (inherited) {
+                return Boolean.TRUE;
+            }
+        }
+        DotName superName = info.superName();
+        if (superName != null && !superName.equals(OBJECT)) {
+            ClassInfo superClass = find(superName, indexes);
+            if (superClass == null) {
+                return null;
+            }
+            Boolean inherited = implementsType(superClass, type, indexes);
+            if (inherited == null || inherited) {
+                return inherited;
+            }
+        }
+        return complete ? Boolean.FALSE : null;
+    }
+
+    private static ClassInfo find(DotName name, List<CompositeIndex> indexes) {
+        for (CompositeIndex index : indexes) {
+            ClassInfo info = index.getClassByName(name);
+            if (info != null) {
+                return info;
+            }
+        }
+        return null;
+    }
+
+    private static List<String> split(String classNames) {
+        if (classNames == null || classNames.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> names = new ArrayList<>();
+        for (String className : classNames.split(",")) {
+            String trimmed = className.trim();
+            if (!trimmed.isEmpty()) {
+                names.add(trimmed);
+            }
+        }
+        return Collections.unmodifiableList(names);
+    }
+}
@@ -1,15 +1,28 @@
 package com.github.wildfly.flyway.config;
 
+import com.github.wildfly.flyway.jdbc.BatchingDataSource;
+import com.github.wildfly.flyway.jdbc.RetryPolicy;
+import com.github.wildfly.flyway.jdbc.SessionProfile;
+import com.github.wildfly.flyway.jdbc.SessionProfileCallback;
 import com.github.wildfly.flyway.logging.FlywayLogger;
+import com.github.wildfly.flyway.resource.CsvDataMigration;
+import com.github.wildfly.flyway.resource.MigrationResourceProvider;
+import com.github.wildfly.flyway.resource.ModuleMigrationCache;
+import com.github.wildfly.flyway.resource.StreamingSqlMigration;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import org.flywaydb.core.api.FlywayException;
 import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.callback.Callback;
 import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.migration.JavaMigration;
 import org.flywaydb.core.api.pattern.ValidatePattern;
 
 /**
@@ -54,8 +67,10 @@ public class FlywayConfiguration {
     public static final String OUT_OF_ORDER = PREFIX + "out-of-order";
     public static final String SKIP_DEFAULT_CALLBACKS = PREFIX + "skip-default-callbacks";
     public static final String SKIP_DEFAULT_RESOLVERS = PREFIX + "skip-default-resolvers";
+    public static final String SKIP_EXECUTING_MIGRATIONS = PREFIX + "skip-executing-migrations";
     public static final String MIXED = PREFIX + "mixed";
     public static final String GROUP = PREFIX + "group";
+    public static final String COMMIT_CHUNK_SIZE = PREFIX + "commit-chunk-size";
     public static final String INSTALLED_BY = PREFIX + "installed-by";
     public static final String CREATE_SCHEMAS = PREFIX + "create-schemas";
     public static final String ENCODING = PREFIX + "encoding";
@@ -64,6 +79,29 @@ public class FlywayConfiguration {
     public static final String CONNECT_RETRIES = PREFIX + "connect-retries";
     public static final String CONNECT_RETRIES_INTERVAL = PREFIX + "connect-retries-interval";
     
+    // Deployment ordering properties (consumed by FlywayDeploymentProcessor, not passed to Flyway)
+    public static final String DEPENDS_ON = PREFIX + "depends-on";
+    
+    // Dedicated datasource for migration connections (consumed by FlywayDeploymentProcessor, not passed to Flyway)
+    public static final String MIGRATION_DATASOURCE = PREFIX + "migration-datasource";
+    
+    // INSERT batching (applied by wrapping the datasource, not passed to Flyway)
+    public static final String BATCH_INSERTS = PREFIX + "batch-inserts";
+    public static final String BATCH_SIZE = PREFIX + "batch-size";
+    
+    // CSV data migrations (db/data/V<version>__<table>.csv[.gz])
+    public static final String DATA_LOCATIONS = PREFIX + "data-locations";
+    
+    // Streaming SQL migrations for scripts too large to be parsed in memory
+    public static final String STREAM_LOCATIONS = PREFIX + "stream-locations";
+    public static final String PARALLEL_THREADS = PREFIX + "parallel-threads";
+    
+    // Background backfills, run after migration (consumed by FlywayMigrationService, not passed to Flyway)
+    public static final String BACKFILLS = PREFIX + "backfills";
+    public static final String BACKFILL_RATE_LIMIT = PREFIX + "backfill-rate-limit";
+    public static final String BACKFILL_TARGET_CHUNK_MILLIS = PREFIX + "backfill-target-chunk-millis";
+    public static final String BACKFILL_TABLE = PREFIX + "backfill-table";
+    
     // Database-specific properties
     public static final String ORACLE_SQLPLUS = PREFIX + "oracle-sqlplus";
     public static final String ORACLE_SQLPLUS_WARN = PREFIX + "oracle-sqlplus-warn";
@@ -90,55 +128,143 @@ public class FlywayConfiguration {
     // Resolver properties
     public static final String RESOLVERS = PREFIX + "resolvers";
     
+    // Session profiles of the migration connection (applied by a callback)
+    public static final String SESSION_PROFILE = PREFIX + "session-profile";
+    public static final String SESSION_PROFILES = PREFIX + "session-profiles.";
+    public static final String LOCK_TIMEOUT_RETRIES = PREFIX + "lock-timeout-retries";
+    
+    // Retry of migrations failing on deadlocks and serialization failures (applied by the migration services)
+    public static final String RETRY_MAX_ATTEMPTS = PREFIX + "retry-max-attempts";
+    public static final String RETRY_SQL_STATES = PREFIX + "retry-sql-states";
+    public static final String RETRY_BACKOFF_MILLIS = PREFIX + "retry-backoff-millis";
+    public static final String RETRY_MAX_BACKOFF_MILLIS = PREFIX + "retry-max-backoff-millis";
+    
     // JDBC properties
     public static final String JDBC_PROPERTIES = PREFIX + "jdbc-properties.";
     
-    // Defaults
-    private static final Map<String, String> DEFAULTS = new ConcurrentHashMap<>();
+    // Defaults (read-only after class initialization)
+    private static final Map<String, String> DEFAULTS;
     
     static {
         // Initialize defaults
-        DEFAULTS.put(ENABLED, "true");
-        DEFAULTS.put(LOCATIONS, "classpath:db/migration");
-        DEFAULTS.put(TABLE, "flyway_schema_history");
-        DEFAULTS.put(BASELINE_ON_MIGRATE, "false");
-        DEFAULTS.put(BASELINE_VERSION, "1");
-        DEFAULTS.put(BASELINE_DESCRIPTION, "<< Flyway Baseline >>");
-        DEFAULTS.put(VALIDATE_ON_MIGRATE, "true");
-        DEFAULTS.put(VALIDATE_MIGRATION_NAMING, "false");
-        DEFAULTS.put(CLEAN_DISABLED, "true");
-        DEFAULTS.put(CLEAN_ON_VALIDATION_ERROR, "false");
-        DEFAULTS.put(SQL_MIGRATION_PREFIX, "V");
-        DEFAULTS.put(SQL_MIGRATION_SUFFIXES, ".sql");
-        DEFAULTS.put(SQL_MIGRATION_SEPARATOR, "__");
-        DEFAULTS.put(REPEATABLE_SQL_MIGRATION_PREFIX, "R");
-        DEFAULTS.put(OUT_OF_ORDER, "false");
-        DEFAULTS.put(SKIP_DEFAULT_CALLBACKS, "false");
-        DEFAULTS.put(SKIP_DEFAULT_RESOLVERS, "false");
-        DEFAULTS.put(MIXED, "false");
-        DEFAULTS.put(GROUP, "false");
-        DEFAULTS.put(CREATE_SCHEMAS, "true");
-        DEFAULTS.put(ENCODING, StandardCharsets.UTF_8.name());
-        DEFAULTS.put(DETECT_ENCODING, "false");
-        DEFAULTS.put(PLACEHOLDER_REPLACEMENT, "true");
-        DEFAULTS.put(PLACEHOLDER_PREFIX, "${");
-        DEFAULTS.put(PLACEHOLDER_SUFFIX, "}");
-        DEFAULTS.put(PLACEHOLDER_SEPARATOR, ":");
-        DEFAULTS.put(SCRIPT_PLACEHOLDER_PREFIX, "FP__");
-        DEFAULTS.put(SCRIPT_PLACEHOLDER_SUFFIX, "__");
-        DEFAULTS.put(LOCK_RETRY_COUNT, "50");
-        DEFAULTS.put(CONNECT_RETRIES, "3");
-        DEFAULTS.put(CONNECT_RETRIES_INTERVAL, "120");
-        DEFAULTS.put(ORACLE_SQLPLUS, "false");
-        DEFAULTS.put(ORACLE_SQLPLUS_WARN, "false");
-        DEFAULTS.put(POSTGRESQL_TRANSACTIONAL_LOCK, "true");
+        Map<String, String> defaults = new HashMap<>();
+        defaults.put(ENABLED, "true");
+        defaults.put(LOCATIONS, "classpath:db/migration");
+        defaults.put(TABLE, "flyway_schema_history");
+        defaults.put(BASELINE_ON_MIGRATE, "false");
+        defaults.put(BASELINE_VERSION, "1");
+        defaults.put(BASELINE_DESCRIPTION, "<< Flyway Baseline >>");
+        defaults.put(VALIDATE_ON_MIGRATE, "true");
+        defaults.put(VALIDATE_MIGRATION_NAMING, "false");
+        defaults.put(CLEAN_DISABLED, "true");
+        defaults.put(CLEAN_ON_VALIDATION_ERROR, "false");
+        defaults.put(SQL_MIGRATION_PREFIX, "V");
+        defaults.put(SQL_MIGRATION_SUFFIXES, ".sql");
+        defaults.put(SQL_MIGRATION_SEPARATOR, "__");
+        defaults.put(REPEATABLE_SQL_MIGRATION_PREFIX, "R");
+        defaults.put(OUT_OF_ORDER, "false");
+        defaults.put(SKIP_DEFAULT_CALLBACKS, "false");
+        defaults.put(SKIP_DEFAULT_RESOLVERS, "false");
+        defaults.put(SKIP_EXECUTING_MIGRATIONS, "false");
+        defaults.put(MIXED, "false");
+        defaults.put(GROUP, "false");
+        defaults.put(COMMIT_CHUNK_SIZE, "0");
+        defaults.put(CREATE_SCHEMAS, "true");
+        defaults.put(ENCODING, StandardCharsets.UTF_8.name());
+        defaults.put(DETECT_ENCODING, "false");
+        defaults.put(PLACEHOLDER_REPLACEMENT, "true");
+        defaults.put(PLACEHOLDER_PREFIX, "${");
+        defaults.put(PLACEHOLDER_SUFFIX, "}");
+        defaults.put(PLACEHOLDER_SEPARATOR, ":");
+        defaults.put(SCRIPT_PLACEHOLDER_PREFIX, "FP__");
+        defaults.put(SCRIPT_PLACEHOLDER_SUFFIX, "__");
+        defaults.put(LOCK_RETRY_COUNT, "50");
+        defaults.put(CONNECT_RETRIES, "3");
+        defaults.put(CONNECT_RETRIES_INTERVAL, "120");
+        defaults.put(ORACLE_SQLPLUS, "false");
+        defaults.put(ORACLE_SQLPLUS_WARN, "false");
+        defaults.put(POSTGRESQL_TRANSACTIONAL_LOCK, "true");
+        defaults.put(BATCH_INSERTS, "false");
+        defaults.put(BATCH_SIZE, "500");
+        defaults.put(DATA_LOCATIONS, "classpath:db/data");
+        defaults.put(STREAM_LOCATIONS, "classpath:db/stream");
+        defaults.put(PARALLEL_THREADS, "0");
+        defaults.put(LOCK_TIMEOUT_RETRIES, "3");
+        defaults.put(RETRY_MAX_ATTEMPTS, "3");
+        defaults.put(RETRY_SQL_STATES, "40001,40P01");
+        defaults.put(RETRY_BACKOFF_MILLIS, "500");
+        defaults.put(RETRY_MAX_BACKOFF_MILLIS, "10000");
+        defaults.put(BACKFILL_RATE_LIMIT, "0");
+        defaults.put(BACKFILL_TARGET_CHUNK_MILLIS, "500");
+        defaults.put(BACKFILL_TABLE, "flyway_backfill");
+        DEFAULTS = Collections.unmodifiableMap(defaults);
     }
     
     private final Map<String, String> properties;
+    private final ExtensionClasses extensionClasses;
+    /** Boolean and integer values, parsed on first use; shared by copies with the same properties. */
+    private final Map<String, Object> parsed;
     
+    /**
+     * @param properties Flyway properties in {@code spring.flyway.*} form; not copied, so callers
+     *                   must not modify the map afterwards. Missing keys fall back to the defaults.
+     */
     public FlywayConfiguration(Map<String, String> properties) {
-        this.properties = new ConcurrentHashMap<>(properties);
-        applyDefaults();
+        this(properties, null);
+    }
+
+    /**
+     * @param extensionClasses callbacks and resolvers already validated for the deployment, or
+     *                         {@code null} to take them from {@code properties}
+     */
+    public FlywayConfiguration(Map<String, String> properties, ExtensionClasses extensionClasses) {
+        this(Collections.unmodifiableMap(properties), extensionClasses, new ConcurrentHashMap<>());
+    }
+
+    private FlywayConfiguration(Map<String, String> properties, ExtensionClasses extensionClasses,
+                                Map<String, Object> parsed) {
+        this.properties = properties;
+        this.extensionClasses = extensionClasses;
+        this.parsed = parsed;
+    }
+
+    /**
+     * Wrap a map that is already unmodifiable, so that {@link #getProperties()} returns it as-is.
+     */
+    static FlywayConfiguration ofUnmodifiable(Map<String, String> properties) {
+        return new FlywayConfiguration(properties, null, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @return this configuration with callbacks and resolvers already validated for the deployment;
+     *         the parsed values are shared
+     */
+    public FlywayConfiguration withExtensionClasses(ExtensionClasses extensionClasses) {
+        return new FlywayConfiguration(properties, extensionClasses, parsed);
+    }
+
+    /**
+     * @return a copy with one property replaced
+     */
+    public FlywayConfiguration withProperty(String key, String value) {
+        Map<String, String> copy = new HashMap<>(properties);
+        copy.put(key, value);
+        return new FlywayConfiguration(Collections.unmodifiableMap(copy), extensionClasses,
+                new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @return the Flyway properties in {@code spring.flyway.*} form; unmodifiable
+     */
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return the validated callbacks and resolvers, or {@code null} to take them from the properties
+     */
+    public ExtensionClasses getExtensionClasses() {
+        return extensionClasses;
     }
     
     /**
@@ -179,10 +305,20 @@ public class FlywayConfiguration {
             
             // Callback and resolver configuration
             applyCallbacksAndResolvers(config);
+            applySessionProfile(config);
             
             // JDBC properties
             applyJdbcProperties(config);
             
+            // INSERT batching (wraps the datasource set by the caller)
+            applyInsertBatching(config);
+            
+            // module: locations and compressed scripts (need the encoding and suffixes applied above)
+            applyModuleLocations(config);
+            
+            // CSV data and streaming SQL migrations (need encoding and migration naming applied above)
+            applyStreamedMigrations(config);
+            
             FlywayLogger.logConfig(org.jboss.logging.Logger.Level.INFO, 
                 "Applied %d configuration properties", properties.size());
                 
@@ -191,22 +327,74 @@ public class FlywayConfiguration {
         }
     }
     
-    private void applyDefaults() {
-        DEFAULTS.forEach(properties::putIfAbsent);
-    }
-    
     private void applyLocations(FluentConfiguration config) {
         String locations = getProperty(LOCATIONS);
         if (locations != null && !locations.trim().isEmpty()) {
-            String[] locationArray = locations.split(",");
-            for (int i = 0; i < locationArray.length; i++) {
-                locationArray[i] = locationArray[i].trim();
+            // module: locations are unknown to Flyway and served by applyModuleLocations()
+            List<String> flywayLocations = new ArrayList<>();
+            for (String location : getArray(LOCATIONS)) {
+                if (!location.startsWith(ModuleMigrationCache.MODULE_PREFIX)) {
+                    flywayLocations.add(location);
+                }
+            }
+            if (!flywayLocations.isEmpty()) {
+                config.locations(flywayLocations.toArray(new String[0]));
             }
-            config.locations(locationArray);
             FlywayLogger.debugf("Configured locations: %s", locations);
         }
     }
     
+    private void applyModuleLocations(FluentConfiguration config) {
+        String[] locations = getArray(LOCATIONS);
+        if (MigrationResourceProvider.hasModuleLocation(locations)
+                || MigrationResourceProvider.hasCompressedSuffix(config.getSqlMigrationSuffixes())) {
+            config.resourceProvider(MigrationResourceProvider.create(
+                    locations, config.getClassLoader(), config.getEncoding()));
+            FlywayLogger.debugf("Configured resource provider for locations %s and suffixes %s",
+                    getProperty(LOCATIONS), getProperty(SQL_MIGRATION_SUFFIXES));
+        }
+    }
+    
+    private void applyStreamedMigrations(FluentConfiguration config) {
+        if (getParallelThreads() > 0 && (config.isGroup() || getCommitChunkSize() > 0)) {
+            // Rolling back a group or chunk transaction would not undo the committed parallel groups
+            throw new FlywayException(PARALLEL_THREADS + " cannot be combined with " + GROUP + " or "
+                    + COMMIT_CHUNK_SIZE);
+        }
+        List<JavaMigration> migrations = new ArrayList<>();
+        String[] dataLocations = getArray(DATA_LOCATIONS);
+        if (dataLocations.length > 0) {
+            List<JavaMigration> data = CsvDataMigration.find(dataLocations, config.getClassLoader(),
+                    config.getEncoding(), config.getSqlMigrationPrefix(), config.getSqlMigrationSeparator(),
+                    getInt(BATCH_SIZE, 500));
+            FlywayLogger.debugf("Found %d CSV data migrations in %s", data.size(), getProperty(DATA_LOCATIONS));
+            migrations.addAll(data);
+        }
+        String[] streamLocations = getArray(STREAM_LOCATIONS);
+        if (streamLocations.length > 0) {
+            List<JavaMigration> scripts = StreamingSqlMigration.find(streamLocations, config.getClassLoader(),
+                    config.getEncoding(), config.getSqlMigrationPrefix(), config.getSqlMigrationSeparator(),
+                    config.getSqlMigrationSuffixes(), getParallelThreads());
+            FlywayLogger.debugf("Found %d streaming SQL migrations in %s", scripts.size(), getProperty(STREAM_LOCATIONS));
+            migrations.addAll(scripts);
+        }
+        if (!migrations.isEmpty()) {
+            config.javaMigrations(migrations.toArray(new JavaMigration[0]));
+        }
+    }
+    
+    private String[] getArray(String key) {
+        String value = getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return new String[0];
+        }
+        String[] array = value.split(",");
+        for (int i = 0; i < array.length; i++) {
+            array[i] = array[i].trim();
+        }
+        return array;
+    }
+    
     private void applySchemas(FluentConfiguration config) {
         String schemas = getProperty(SCHEMAS);
         if (schemas != null && !schemas.trim().isEmpty()) {
@@ -295,7 +483,8 @@ public class FlywayConfiguration {
         
         String suffixes = getProperty(SQL_MIGRATION_SUFFIXES);
         if (suffixes != null) {
-            config.sqlMigrationSuffixes(suffixes.split(","));
+            // Compressed suffixes (.sql.gz, .sql.zst) are served by applyModuleLocations()
+            config.sqlMigrationSuffixes(getArray(SQL_MIGRATION_SUFFIXES));
         }
         
         FlywayLogger.debugf("Configured migration: prefix=%s, separator=%s, suffixes=%s",
@@ -321,6 +510,7 @@ public class FlywayConfiguration {
         config.outOfOrder(getBoolean(OUT_OF_ORDER));
         config.skipDefaultCallbacks(getBoolean(SKIP_DEFAULT_CALLBACKS));
         config.skipDefaultResolvers(getBoolean(SKIP_DEFAULT_RESOLVERS));
+        config.skipExecutingMigrations(getBoolean(SKIP_EXECUTING_MIGRATIONS));
         config.mixed(getBoolean(MIXED));
         config.group(getBoolean(GROUP));
         config.createSchemas(getBoolean(CREATE_SCHEMAS));
@@ -403,43 +593,34 @@ public class FlywayConfiguration {
     }
     
     private void applyCallbacksAndResolvers(FluentConfiguration config) {
-        String callbacks = getProperty(CALLBACKS);
-        if (callbacks != null && !callbacks.trim().isEmpty()) {
-            // Validate and pass callback class names to Flyway
-            List<String> validCallbacks = validateClassNames(callbacks.split(","), "callback");
-            if (!validCallbacks.isEmpty()) {
-                config.callbacks(validCallbacks.toArray(new String[0]));
-            }
-        }
-
-        String resolvers = getProperty(RESOLVERS);
-        if (resolvers != null && !resolvers.trim().isEmpty()) {
-            // Validate and pass resolver class names to Flyway
-            List<String> validResolvers = validateClassNames(resolvers.split(","), "resolver");
-            if (!validResolvers.isEmpty()) {
-                config.resolvers(validResolvers.toArray(new String[0]));
-            }
+        // Classes are loaded on the configuration's (deployment) class loader and passed as instances
+        ExtensionClasses classes = extensionClasses != null ? extensionClasses : ExtensionClasses.of(properties);
+        classes.applyTo(config);
+    }
+    
+    private void applySessionProfile(FluentConfiguration config) {
+        String profile = getProperty(SESSION_PROFILE);
+        if (profile == null || profile.trim().isEmpty()) {
+            return;
         }
+        List<Callback> callbacks = new ArrayList<>(Arrays.asList(config.getCallbacks()));
+        callbacks.add(new SessionProfileCallback(SessionProfile.fromProperties(properties, SESSION_PROFILES),
+                profile.trim()));
+        config.callbacks(callbacks.toArray(new Callback[0]));
+        FlywayLogger.debugf("Configured session profile: %s", profile);
     }
-
-    /**
-     * Validate that class names can be loaded (without instantiating them).
-     * Flyway will handle instantiation itself.
-     */
-    private List<String> validateClassNames(String[] classNames, String type) {
-        List<String> valid = new ArrayList<>();
-        for (String className : classNames) {
-            String trimmed = className.trim();
-            if (trimmed.isEmpty()) continue;
-            try {
-                Class.forName(trimmed);
-                valid.add(trimmed);
-                FlywayLogger.debugf("Validated %s class: %s", type, trimmed);
-            } catch (ClassNotFoundException e) {
-                FlywayLogger.errorf(e, "Failed to find %s class: %s", type, trimmed);
-            }
+    
+    private void applyInsertBatching(FluentConfiguration config) {
+        if (!getBoolean(BATCH_INSERTS)) {
+            return;
         }
-        return valid;
+        if (config.getDataSource() == null) {
+            FlywayLogger.warnf("%s ignored: no datasource configured", BATCH_INSERTS);
+            return;
+        }
+        int batchSize = getInt(BATCH_SIZE, 500);
+        config.dataSource(BatchingDataSource.wrap(config.getDataSource(), batchSize));
+        FlywayLogger.debugf("Batching single-row INSERT statements in batches of up to %d", batchSize);
     }
     
     private void applyJdbcProperties(FluentConfiguration config) {
@@ -459,23 +640,27 @@ public class FlywayConfiguration {
     
     // Helper methods
     private String getProperty(String key) {
-        return properties.get(key);
+        String value = properties.get(key);
+        return value != null ? value : DEFAULTS.get(key);
     }
 
     /**
      * Returns the built-in default value for the given Flyway property key, or {@code null}
-     * if the key has no default. This is the same map that {@link #applyDefaults()} consults.
+     * if the key has no default. This is the same map that {@link #getProperty(String)} falls back to.
      */
     public static String getDefault(String key) {
         return DEFAULTS.get(key);
     }
     
     private boolean getBoolean(String key) {
-        String value = getProperty(key);
-        return Boolean.parseBoolean(value);
+        return (Boolean) parsed.computeIfAbsent(key, k -> Boolean.parseBoolean(getProperty(k)));
     }
     
     private int getInt(String key, int defaultValue) {
+        return (Integer) parsed.computeIfAbsent(key, k -> parseInt(k, defaultValue));
+    }
+
+    private int parseInt(String key, int defaultValue) {
         String value = getProperty(key);
         if (value != null && !value.trim().isEmpty()) {
             try {
@@ -491,5 +676,65 @@ public class FlywayConfiguration {
     public boolean isEnabled() {
         return getBoolean(ENABLED);
     }
+    
+    /**
+     * @return number of transactional migrations applied per transaction, {@code 0} to leave
+     *         transactions to {@code group}. Applied by the migration services as successive
+     *         {@code target} steps, not passed to Flyway.
+     */
+    public int getCommitChunkSize() {
+        return Math.max(0, getInt(COMMIT_CHUNK_SIZE, 0));
+    }
+    
+    /**
+     * @return how often a migration run that failed on a lock timeout is repeated, on databases
+     *         that roll back failed migrations completely
+     */
+    public int getLockTimeoutRetries() {
+        return Math.max(0, getInt(LOCK_TIMEOUT_RETRIES, 3));
+    }
+    
+    /**
+     * @return the policy for repeating migrations that failed on deadlocks, serialization failures
+     *         or lock timeouts
+     */
+    public RetryPolicy getRetryPolicy() {
+        return new RetryPolicy(getInt(RETRY_MAX_ATTEMPTS, 3), getLockTimeoutRetries(),
+                getInt(RETRY_BACKOFF_MILLIS, 500), getInt(RETRY_MAX_BACKOFF_MILLIS, 10000),
+                Arrays.asList(getArray(RETRY_SQL_STATES)));
+    }
+    
+    /**
+     * @return maximum number of streamed scripts of a parallel group run at once, {@code 0} if
+     *         parallel groups are disabled
+     */
+    public int getParallelThreads() {
+        return Math.max(0, getInt(PARALLEL_THREADS, 0));
+    }
+    
+    /**
+     * @return class names of the configured {@code BackfillMigration}s, in execution order
+     */
+    public String[] getBackfills() {
+        return getArray(BACKFILLS);
+    }
+    
+    /**
+     * @return maximum rows per second of a backfill, {@code 0} for no limit
+     */
+    public int getBackfillRateLimit() {
+        return Math.max(0, getInt(BACKFILL_RATE_LIMIT, 0));
+    }
+    
+    /**
+     * @return chunk latency in milliseconds above which a backfill slows down
+     */
+    public int getBackfillTargetChunkMillis() {
+        return getInt(BACKFILL_TARGET_CHUNK_MILLIS, 500);
+    }
+    
+    public String getBackfillTable() {
+        return getProperty(BACKFILL_TABLE);
+    }
 
 }
@@ -1,6 +1,8 @@
 package com.github.wildfly.flyway.config;
 
+import com.github.wildfly.flyway.logging.FlywayLogCreator;
 import com.github.wildfly.flyway.logging.FlywayLogger;
+import com.github.wildfly.flyway.logging.LogMasker;
 import org.flywaydb.core.api.configuration.FluentConfiguration;
 import org.jboss.as.ee.metadata.property.Attachments;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
@@ -29,20 +31,32 @@ import java.util.regex.Pattern;
  */
 public class FlywayConfigurationBuilder {
 
-    private final DeploymentPhaseContext phaseContext;
-    private final DeploymentUnit deploymentUnit;
+    private final String deploymentName;
+    private final PropertyReplacer propertyReplacer;
     private final Properties deploymentProperties;
     
     // Configuration state
     private String datasourceJndiName;
-    private final Map<String, String> flywayProperties = new HashMap<>();
+    private SubsystemConfiguration template;
+    private Map<String, String> flywayProperties;
+    private boolean copied;
     private boolean isFromSubsystem;
     
     public FlywayConfigurationBuilder(DeploymentPhaseContext phaseContext, 
                                     DeploymentUnit deploymentUnit,
                                     Properties deploymentProperties) {
-        this.phaseContext = phaseContext;
-        this.deploymentUnit = deploymentUnit;
+        this(deploymentUnit.getName(), deploymentUnit.getAttachment(Attachments.FINAL_PROPERTY_REPLACER),
+                deploymentProperties);
+    }
+
+    /**
+     * @param propertyReplacer the deployment's property replacer, or {@code null} to resolve
+     *                         system properties and environment variables only
+     */
+    FlywayConfigurationBuilder(String deploymentName, PropertyReplacer propertyReplacer,
+                               Properties deploymentProperties) {
+        this.deploymentName = deploymentName;
+        this.propertyReplacer = propertyReplacer;
         this.deploymentProperties = deploymentProperties != null ? deploymentProperties : new Properties();
         
         FlywayLogger.debugf("FlywayConfigurationBuilder initialized");
@@ -52,7 +66,8 @@ public class FlywayConfigurationBuilder {
      * Build the complete Flyway configuration following the two-tier hierarchy.
      *
      * IMPORTANT: The hierarchy works as follows:
-     * 1. ALWAYS start with subsystem configuration as the base
+     * 1. ALWAYS start with subsystem configuration as the base (the precompiled template,
+     *    shared until a deployment property overlays it)
      * 2. Overlay deployment properties on top
      * 3. Determine datasource from: deployment properties > subsystem default-datasource
      *
@@ -63,21 +78,12 @@ public class FlywayConfigurationBuilder {
      * @throws Exception if configuration cannot be determined or validation fails
      */
     public ConfigurationResult build() throws Exception {
-        FlywayLogger.infof("Building Flyway configuration for deployment: %s", deploymentUnit.getName());
+        FlywayLogger.infof("Building Flyway configuration for deployment: %s", deploymentName);
         
         // ALWAYS start with subsystem configuration as the base
-        Properties subsystemProps = readSubsystemConfiguration();
-        
-        // Add all subsystem properties as base configuration
-        for (String key : subsystemProps.stringPropertyNames()) {
-            String value = subsystemProps.getProperty(key);
-            String flywayKey = convertToFlywayKey(key);
-            if (flywayKey != null) {
-                flywayProperties.put(flywayKey, value);
-                FlywayLogger.debugf("Base config from subsystem: %s = %s", flywayKey, 
-                                  key.contains("datasource") ? maskDataSource(value) : value);
-            }
-        }
+        template = readSubsystemConfiguration();
+        flywayProperties = template.getFlywayProperties();
+        copied = false;
         
         // Overlay deployment properties (they override subsystem defaults)
         collectDeploymentProperties();
@@ -93,17 +99,17 @@ public class FlywayConfigurationBuilder {
             datasourceJndiName = resolveExpression(ds);
             validateJndiName(datasourceJndiName);
             isFromSubsystem = false;
-            FlywayLogger.infof("Using datasource from deployment properties: %s", maskDataSource(datasourceJndiName));
+            FlywayLogger.infof("Using datasource from deployment properties: %s", LogMasker.lazyDataSource(datasourceJndiName));
             return createResult();
         }
 
         // 2. Use subsystem default-datasource if available
-        ds = subsystemProps.getProperty("default-datasource");
-        if (ds != null && !ds.trim().isEmpty()) {
+        ds = template.getDefaultDatasource();
+        if (ds != null) {
             datasourceJndiName = resolveExpression(ds);
             validateJndiName(datasourceJndiName);
             isFromSubsystem = true;
-            FlywayLogger.infof("Using default datasource from subsystem configuration: %s", maskDataSource(datasourceJndiName));
+            FlywayLogger.infof("Using default datasource from subsystem configuration: %s", LogMasker.lazyDataSource(datasourceJndiName));
             return createResult();
         }
         
@@ -119,25 +125,50 @@ public class FlywayConfigurationBuilder {
                                    DataSource dataSource, 
                                    ClassLoader classLoader,
                                    Map<String, String> properties) {
+        applyToFlyway(flywayConfig, dataSource, classLoader, properties, null);
+    }
+
+    /**
+     * Apply configuration to a Flyway FluentConfiguration, with callbacks and resolvers already
+     * validated for the deployment.
+     *
+     * @param extensionClasses validated callbacks and resolvers, or {@code null} to take them from
+     *                         {@code properties}
+     */
+    public static void applyToFlyway(FluentConfiguration flywayConfig,
+                                   DataSource dataSource,
+                                   ClassLoader classLoader,
+                                   Map<String, String> properties,
+                                   ExtensionClasses extensionClasses) {
+        applyToFlyway(flywayConfig, dataSource, classLoader, new FlywayConfiguration(properties, extensionClasses));
+    }
+
+    /**
+     * Apply an already parsed configuration to a Flyway FluentConfiguration.
+     */
+    public static void applyToFlyway(FluentConfiguration flywayConfig,
+                                   DataSource dataSource,
+                                   ClassLoader classLoader,
+                                   FlywayConfiguration configuration) {
+        // Route Flyway's own logging to JBoss Logging
+        FlywayLogCreator.install();
+        
         // Set datasource
         flywayConfig.dataSource(dataSource);
         
         // Detect database vendor for {vendor} placeholder replacement
         String vendor = detectVendorStatic(dataSource);
         
-        // Replace {vendor} placeholders in locations if needed
-        Map<String, String> processedProperties = new HashMap<>(properties);
-        if (processedProperties.containsKey("spring.flyway.locations") && vendor != null) {
-            String locations = processedProperties.get("spring.flyway.locations");
-            if (locations.contains("{vendor}")) {
-                locations = locations.replace("{vendor}", vendor);
-                processedProperties.put("spring.flyway.locations", locations);
-                FlywayLogger.debugf("Replaced vendor placeholder in locations: %s", locations);
-            }
+        // Replace {vendor} placeholders in locations if needed (copying only then)
+        FlywayConfiguration config = configuration;
+        String locations = config.getProperties().get("spring.flyway.locations");
+        if (locations != null && vendor != null && locations.contains("{vendor}")) {
+            locations = locations.replace("{vendor}", vendor);
+            config = config.withProperty("spring.flyway.locations", locations);
+            FlywayLogger.debugf("Replaced vendor placeholder in locations: %s", locations);
         }
         
         // Apply all Flyway properties
-        FlywayConfiguration config = new FlywayConfiguration(processedProperties);
         config.applyTo(flywayConfig);
     }
     
@@ -167,7 +198,7 @@ public class FlywayConfigurationBuilder {
                 // Normalize to spring.flyway.*
                 String normalizedKey = normalizeKey(key);
 
-                FlywayLogger.debugf("Processing deployment property: %s = %s", key, value);
+                FlywayLogger.debugf("Processing deployment property: %s = %s", key, LogMasker.lazyProperty(key, value));
 
                 // Resolve expressions using WildFly's expression resolver
                 String resolvedValue = resolveExpression(value);
@@ -175,44 +206,47 @@ public class FlywayConfigurationBuilder {
                 // Sanitize the resolved value
                 resolvedValue = sanitizePropertyValue(resolvedValue);
 
-                FlywayLogger.debugf("After expression resolution: %s = %s", key, resolvedValue);
+                FlywayLogger.debugf("After expression resolution: %s = %s", key, LogMasker.lazyProperty(key, resolvedValue));
 
                 // Store (will override any existing value from subsystem)
-                flywayProperties.put(normalizedKey, resolvedValue);
+                mutableProperties().put(normalizedKey, resolvedValue);
 
                 FlywayLogger.debugf("Deployment property: %s = %s", normalizedKey,
-                                  key.toLowerCase().contains("password") ? "***" : resolvedValue);
+                                  LogMasker.lazyProperty(key, resolvedValue));
             }
         }
     }
     
     
-    private Properties readSubsystemConfiguration() {
-        FlywayLogger.debugf("Reading subsystem configuration for deployment: %s", deploymentUnit.getName());
+    private SubsystemConfiguration readSubsystemConfiguration() {
+        FlywayLogger.debugf("Reading subsystem configuration for deployment: %s", deploymentName);
 
-        Properties props = SubsystemConfigurationHolder.getConfiguration();
+        SubsystemConfiguration configuration = SubsystemConfigurationHolder.getTemplate();
 
-        if (props.isEmpty()) {
+        if (configuration.size() == 0) {
             FlywayLogger.debugf("No subsystem configuration available (subsystem not configured or disabled)");
         } else {
-            FlywayLogger.debugf("Loaded %d subsystem properties from boot-phase configuration", props.size());
-            for (String key : props.stringPropertyNames()) {
-                String value = props.getProperty(key);
-                FlywayLogger.debugf("Subsystem property: %s = %s", key,
-                                  key.contains("datasource") ? maskDataSource(value) : value);
-            }
+            FlywayLogger.debugf("Using %d subsystem properties from boot-phase configuration", configuration.size());
         }
 
-        return props;
+        return configuration;
+    }
+
+    /**
+     * The subsystem template is shared by all deployments; copy it on the first write.
+     */
+    private Map<String, String> mutableProperties() {
+        if (!copied) {
+            flywayProperties = new HashMap<>(flywayProperties);
+            copied = true;
+        }
+        return flywayProperties;
     }
 
     /**
      * Normalize a deployment property key to the canonical {@code spring.flyway.*} format.
      * Keys already in that format are returned as-is; keys in the {@code flyway.*} namespace
      * are converted; anything else returns {@code null}.
-     *
-     * <p>Package-visible so that unit tests in the same package can invoke the production logic
-     * directly.</p>
      */
     static String normalizeKey(String key) {
         if (key == null) {
@@ -226,115 +260,32 @@ public class FlywayConfigurationBuilder {
         return null;
     }
     
-    private String convertToFlywayKey(String subsystemKey) {
-        // Map subsystem attributes to flyway properties
-        switch (subsystemKey) {
-            case "enabled":
-                return "spring.flyway.enabled";
-            case "default-datasource":
-                return "spring.flyway.datasource";
-            case "baseline-on-migrate":
-                return "spring.flyway.baseline-on-migrate";
-            case "clean-disabled":
-                return "spring.flyway.clean-disabled";
-            case "validate-on-migrate":
-                return "spring.flyway.validate-on-migrate";
-            case "locations":
-                return "spring.flyway.locations";
-            case "table":
-                return "spring.flyway.table";
-            default:
-                return null;
-        }
-    }
-    
     private String resolveExpression(String value) {
-        if (value == null) {
-            return null;
-        }
-        
-        // Check if value contains expressions like ${...}
-        if (!value.contains("${")) {
-            return value;
-        }
-        
-        // Get PropertyReplacer from deployment unit
-        PropertyReplacer propertyReplacer = deploymentUnit.getAttachment(Attachments.FINAL_PROPERTY_REPLACER);
-        if (propertyReplacer != null) {
-            try {
-                return propertyReplacer.replaceProperties(value);
-            } catch (Exception e) {
-                FlywayLogger.debugf("Failed to resolve expression '%s': %s", value, e.getMessage());
-            }
-        }
-        
-        // Fallback to simple system property resolution
-        return resolveSimpleExpression(value);
+        return template.resolveExpression(value, propertyReplacer);
     }
     
     /**
-     * Simple fallback expression resolution for system properties and environment variables.
+     * Simple fallback expression resolution for system properties and environment variables,
+     * see {@link ExpressionResolver}.
      */
-    private String resolveSimpleExpression(String value) {
-        if (value == null || !value.contains("${")) {
-            return value;
-        }
-        
-        String result = value;
-        int startIdx = 0;
-        while (startIdx < result.length()) {
-            int start = result.indexOf("${", startIdx);
-            if (start == -1) {
-                break;
-            }
-            int end = result.indexOf("}", start);
-            if (end == -1) {
-                break;
-            }
-            
-            String expression = result.substring(start + 2, end);
-            String replacement = null;
-            
-            // Handle ${env.NAME:default} pattern
-            if (expression.startsWith("env.")) {
-                String[] parts = expression.substring(4).split(":", 2);
-                String envName = parts[0];
-                String defaultValue = parts.length > 1 ? parts[1] : "";
-                replacement = System.getenv(envName);
-                if (replacement == null) {
-                    replacement = defaultValue;
-                }
-            }
-            // Handle ${sys.NAME:default} or ${NAME:default} pattern for system properties
-            else {
-                String propExpression = expression.startsWith("sys.") ? expression.substring(4) : expression;
-                String[] parts = propExpression.split(":", 2);
-                String propName = parts[0];
-                String defaultValue = parts.length > 1 ? parts[1] : "";
-                replacement = System.getProperty(propName);
-                if (replacement == null) {
-                    replacement = defaultValue;
-                }
-            }
-            
-            if (replacement != null) {
-                result = result.substring(0, start) + replacement + result.substring(end + 1);
-                startIdx = start + replacement.length();
-            } else {
-                startIdx = end + 1;
-            }
-        }
-        
-        return result;
+    static String resolveSimpleExpression(String value) {
+        return ExpressionResolver.resolve(value);
     }
     
     private ConfigurationResult createResult() {
         // Always set enabled=true if we have a datasource
         if (!flywayProperties.containsKey("spring.flyway.enabled")) {
-            flywayProperties.put("spring.flyway.enabled", "true");
+            mutableProperties().put("spring.flyway.enabled", "true");
+        }
+        String migrationDatasource = flywayProperties.get(FlywayConfiguration.MIGRATION_DATASOURCE);
+        if (migrationDatasource != null && !migrationDatasource.isBlank()) {
+            validateJndiName(migrationDatasource.trim());
+            FlywayLogger.infof("Using dedicated migration datasource: %s",
+                    LogMasker.lazyDataSource(migrationDatasource.trim()));
         }
         
-        return new ConfigurationResult(datasourceJndiName, flywayProperties, isFromSubsystem);
+        // Deployments with identical effective settings share one immutable map
+        return new ConfigurationResult(datasourceJndiName, template.intern(flywayProperties), isFromSubsystem);
     }
     
     // ===== JNDI Validation =====
@@ -395,40 +346,82 @@ public class FlywayConfigurationBuilder {
         return sanitized;
     }
 
-    private String maskDataSource(String value) {
-        if (value == null || !value.contains("datasources")) {
-            return value;
-        }
-        // Mask the datasource name but keep the structure visible
-        return value.replaceAll("/([^/]+)$", "/***");
+    /**
+     * Mask the datasource name of a JNDI name for logging, see {@link LogMasker#maskDataSource(String)}.
+     */
+    static String maskDataSource(String value) {
+        return LogMasker.maskDataSource(value);
     }
     
     /**
-     * Result of configuration building.
+     * Result of configuration building. Immutable; the configuration may be shared with
+     * other deployments.
      */
     public static class ConfigurationResult {
         private final String datasourceJndiName;
-        private final Map<String, String> flywayProperties;
+        private final FlywayConfiguration configuration;
         private final boolean fromSubsystem;
         
         public ConfigurationResult(String datasourceJndiName, 
                                  Map<String, String> flywayProperties,
                                  boolean fromSubsystem) {
+            this(datasourceJndiName, new FlywayConfiguration(new HashMap<>(flywayProperties)), fromSubsystem);
+        }
+
+        ConfigurationResult(String datasourceJndiName,
+                            FlywayConfiguration configuration,
+                            boolean fromSubsystem) {
             this.datasourceJndiName = datasourceJndiName;
-            this.flywayProperties = new HashMap<>(flywayProperties);
+            this.configuration = configuration;
             this.fromSubsystem = fromSubsystem;
         }
+
+        /**
+         * @return this result with callbacks and resolvers validated for the deployment
+         */
+        public ConfigurationResult withExtensionClasses(ExtensionClasses extensionClasses) {
+            return new ConfigurationResult(datasourceJndiName, configuration.withExtensionClasses(extensionClasses),
+                    fromSubsystem);
+        }
         
         public String getDatasourceJndiName() {
             return datasourceJndiName;
         }
+
+        /**
+         * @return the JNDI name of the datasource migrations take their connections from: the
+         *         dedicated {@code spring.flyway.migration-datasource} if set, otherwise the datasource
+         */
+        public String getMigrationDatasourceJndiName() {
+            String migrationDatasource = getFlywayProperties().get(FlywayConfiguration.MIGRATION_DATASOURCE);
+            return migrationDatasource != null && !migrationDatasource.isBlank()
+                    ? migrationDatasource.trim() : datasourceJndiName;
+        }
         
+        /**
+         * @return the Flyway properties in {@code spring.flyway.*} form; unmodifiable
+         */
         public Map<String, String> getFlywayProperties() {
-            return new HashMap<>(flywayProperties);
+            return configuration.getProperties();
+        }
+
+        /**
+         * @return the typed configuration, parsed once per distinct set of properties
+         */
+        public FlywayConfiguration getFlywayConfiguration() {
+            return configuration;
         }
         
         public boolean isFromSubsystem() {
             return fromSubsystem;
         }
+
+        /**
+         * @return the validated callbacks and resolvers, or {@code null} if not validated against
+         *         a deployment index
+         */
+        public ExtensionClasses getExtensionClasses() {
+            return configuration.getExtensionClasses();
+        }
     }
 }
\ No newline at end of file
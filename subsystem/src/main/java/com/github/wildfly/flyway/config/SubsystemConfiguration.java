@@ -0,0 +1,216 @@
+package com.github.wildfly.flyway.config;
+
+import com.github.wildfly.flyway.logging.FlywayLogger;
+import org.jboss.metadata.property.PropertyReplacer;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable, precompiled form of the subsystem configuration.
+ *
+ * <p>Compiled once in {@code FlywaySubsystemAdd.performBoottime(...)} from the resolved
+ * subsystem attributes. The attribute names are mapped to their {@code spring.flyway.*}
+ * keys up front, so {@link FlywayConfigurationBuilder} can hand the template's
+ * {@link FlywayConfiguration} to every deployment that does not override anything, and only
+ * copies the properties when a deployment overlays its own.</p>
+ *
+ * <p>Effective per-deployment property maps are interned through {@link #intern(Map)}:
+ * deployments that end up with identical settings share one {@link FlywayConfiguration},
+ * whose boolean and integer values are parsed once for all of them. {@code ${...}} expressions
+ * resolved without a deployment property replacer are memoized as well. Both tables belong to
+ * the template, so they are dropped together with the template when a reload compiles a new
+ * one; system properties changed at runtime are picked up then, like any other configuration
+ * change.</p>
+ */
+public final class SubsystemConfiguration {
+
+    /** Template used before the subsystem has been added (or when it has no attributes). */
+    static final SubsystemConfiguration EMPTY = compile(new Properties());
+
+    /** Upper bound for the intern table; beyond it maps are returned un-interned. */
+    private static final int MAX_INTERNED = 1024;
+
+    /** Upper bound for the expression memo; beyond it values are resolved without being remembered. */
+    private static final int MAX_EXPRESSIONS = 4096;
+
+    private final Map<String, String> attributes;
+    private final FlywayConfiguration configuration;
+    private final String defaultDatasource;
+    private final boolean enabled;
+    private final Map<Map<String, String>, FlywayConfiguration> interned = new ConcurrentHashMap<>();
+    private final Map<String, String> expressions = new ConcurrentHashMap<>();
+
+    private SubsystemConfiguration(Map<String, String> attributes, Map<String, String> flywayProperties,
+                                   String defaultDatasource, boolean enabled) {
+        this.attributes = attributes;
+        this.configuration = FlywayConfiguration.ofUnmodifiable(flywayProperties);
+        this.defaultDatasource = defaultDatasource;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Compile the resolved subsystem attribute values.
+     *
+     * @param properties resolved subsystem attribute values keyed by attribute name
+     * @return the immutable template
+     */
+    public static SubsystemConfiguration compile(Properties properties) {
+        Map<String, String> attributes = new HashMap<>();
+        if (properties != null) {
+            for (String key : properties.stringPropertyNames()) {
+                attributes.put(key, properties.getProperty(key));
+            }
+        }
+
+        Map<String, String> flywayProperties = new HashMap<>();
+        attributes.forEach((key, value) -> {
+            String flywayKey = convertToFlywayKey(key);
+            if (flywayKey != null) {
+                flywayProperties.put(flywayKey, value);
+            }
+        });
+        // A configuration result only exists once a datasource was found, and then
+        // migrations are on unless switched off explicitly.
+        flywayProperties.putIfAbsent(FlywayConfiguration.ENABLED, "true");
+
+        String defaultDatasource = attributes.get("default-datasource");
+        if (defaultDatasource != null && defaultDatasource.trim().isEmpty()) {
+            defaultDatasource = null;
+        }
+        boolean enabled = !"false".equalsIgnoreCase(attributes.get("enabled"));
+
+        FlywayLogger.debugf("Compiled subsystem configuration template with %d Flyway properties",
+                flywayProperties.size());
+        return new SubsystemConfiguration(Collections.unmodifiableMap(attributes),
+                Collections.unmodifiableMap(flywayProperties),
+                defaultDatasource, enabled);
+    }
+
+    /**
+     * Map a subsystem attribute name to its {@code spring.flyway.*} key, or {@code null}
+     * if the attribute is not a Flyway property.
+     */
+    static String convertToFlywayKey(String subsystemKey) {
+        switch (subsystemKey) {
+            case "enabled":
+                return "spring.flyway.enabled";
+            case "default-datasource":
+                return "spring.flyway.datasource";
+            case "baseline-on-migrate":
+                return "spring.flyway.baseline-on-migrate";
+            case "clean-disabled":
+                return "spring.flyway.clean-disabled";
+            case "validate-on-migrate":
+                return "spring.flyway.validate-on-migrate";
+            case "locations":
+                return "spring.flyway.locations";
+            case "table":
+                return "spring.flyway.table";
+            case "session-profile":
+                return "spring.flyway.session-profile";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * The subsystem attributes in {@code spring.flyway.*} form. Unmodifiable and shared by
+     * all deployments; callers overlaying deployment properties must copy it first.
+     */
+    public Map<String, String> getFlywayProperties() {
+        return configuration.getProperties();
+    }
+
+    /**
+     * @return the typed configuration of the subsystem attributes, shared by all deployments
+     *         that do not override anything
+     */
+    public FlywayConfiguration getFlywayConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * @return the {@code default-datasource} attribute, or {@code null} if not configured
+     */
+    public String getDefaultDatasource() {
+        return defaultDatasource;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the number of subsystem attributes the template was compiled from
+     */
+    public int size() {
+        return attributes.size();
+    }
+
+    /**
+     * @return a copy of the raw subsystem attribute values
+     */
+    public Properties toProperties() {
+        Properties copy = new Properties();
+        copy.putAll(attributes);
+        return copy;
+    }
+
+    /**
+     * Resolve the {@code ${...}} expressions in a deployment property value, with the deployment's
+     * property replacer if there is one and {@link ExpressionResolver} otherwise.
+     *
+     * <p>Only results of {@link ExpressionResolver} are memoized. A deployment's property replacer
+     * also reads sources of that deployment, such as {@code META-INF/jboss.properties}, and may
+     * resolve credentials, so its results are neither shared nor kept.</p>
+     */
+    String resolveExpression(String value, PropertyReplacer propertyReplacer) {
+        if (value == null || !value.contains("${")) {
+            return value;
+        }
+        if (propertyReplacer != null) {
+            return replace(value, propertyReplacer);
+        }
+        String resolved = expressions.get(value);
+        if (resolved == null) {
+            resolved = ExpressionResolver.resolve(value);
+            if (expressions.size() < MAX_EXPRESSIONS) {
+                expressions.put(value, resolved);
+            }
+        }
+        return resolved;
+    }
+
+    private static String replace(String value, PropertyReplacer propertyReplacer) {
+        try {
+            return propertyReplacer.replaceProperties(value);
+        } catch (RuntimeException e) {
+            FlywayLogger.debugf("Failed to resolve expression '%s': %s", value, e.getMessage());
+            return ExpressionResolver.resolve(value);
+        }
+    }
+
+    /**
+     * Return the canonical configuration for the given effective property map. The template's
+     * own map yields the template's configuration; other maps are interned on first sight.
+     */
+    FlywayConfiguration intern(Map<String, String> properties) {
+        if (properties == configuration.getProperties()) {
+            return configuration;
+        }
+        FlywayConfiguration existing = interned.get(properties);
+        if (existing != null) {
+            return existing;
+        }
+        FlywayConfiguration frozen = FlywayConfiguration.ofUnmodifiable(Collections.unmodifiableMap(properties));
+        if (interned.size() >= MAX_INTERNED) {
+            return frozen;
+        }
+        existing = interned.putIfAbsent(frozen.getProperties(), frozen);
+        return existing != null ? existing : frozen;
+    }
+}
@@ -7,8 +7,9 @@ import java.util.concurrent.atomic.AtomicReference;
  * Holds subsystem configuration read during the boot phase.
  *
  * <p>The SubsystemAdd handler populates this holder with resolved attribute values
- * during server startup. The FlywayConfigurationBuilder reads from it during
- * deployment processing.</p>
+ * during server startup; they are compiled once into an immutable
+ * {@link SubsystemConfiguration} template. The FlywayConfigurationBuilder reads the
+ * template during deployment processing without copying it.</p>
  *
  * <p>This replaces the previous approach of reading the management model via
  * ModelControllerClient, which was removed in WildFly 35.</p>
@@ -26,7 +27,8 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 public final class SubsystemConfigurationHolder {
 
-    private static final AtomicReference<Properties> CONFIGURATION = new AtomicReference<>(new Properties());
+    private static final AtomicReference<SubsystemConfiguration> CONFIGURATION =
+            new AtomicReference<>(SubsystemConfiguration.EMPTY);
 
     private SubsystemConfigurationHolder() {
         // Utility class
@@ -38,19 +40,26 @@ public final class SubsystemConfigurationHolder {
      * @param properties resolved subsystem attribute values
      */
     public static void setConfiguration(Properties properties) {
-        CONFIGURATION.set(properties != null ? properties : new Properties());
+        CONFIGURATION.set(SubsystemConfiguration.compile(properties));
     }
 
     /**
-     * Retrieve the subsystem configuration. Called from FlywayConfigurationBuilder
+     * Retrieve the compiled subsystem configuration. Called from FlywayConfigurationBuilder
      * during deployment processing.
      *
+     * @return the current immutable template, never {@code null}
+     */
+    public static SubsystemConfiguration getTemplate() {
+        return CONFIGURATION.get();
+    }
+
+    /**
+     * Retrieve the raw subsystem attribute values.
+     *
      * @return a copy of the current subsystem configuration
      */
     public static Properties getConfiguration() {
-        Properties copy = new Properties();
-        copy.putAll(CONFIGURATION.get());
-        return copy;
+        return CONFIGURATION.get().toProperties();
     }
 
 }
@@ -1,15 +1,21 @@
 package com.github.wildfly.flyway.deployment;
 
+import com.github.wildfly.flyway.audit.AuditLogService;
+import com.github.wildfly.flyway.config.ExtensionClasses;
+import com.github.wildfly.flyway.config.FlywayConfiguration;
 import com.github.wildfly.flyway.config.FlywayConfigurationBuilder;
 import com.github.wildfly.flyway.config.FlywayConfigurationBuilder.ConfigurationResult;
 import com.github.wildfly.flyway.logging.FlywayLogger;
 import com.github.wildfly.flyway.service.FlywayMigrationService;
+import com.github.wildfly.flyway.service.FlywayServerMigrationService;
 import org.jboss.as.naming.ManagedReferenceFactory;
 import org.jboss.as.naming.deployment.ContextNames;
 import org.jboss.as.server.deployment.DeploymentPhaseContext;
 import org.jboss.as.server.deployment.DeploymentUnit;
 import org.jboss.as.server.deployment.DeploymentUnitProcessingException;
 import org.jboss.as.server.deployment.DeploymentUnitProcessor;
+import org.jboss.as.server.deployment.Services;
+import org.jboss.as.server.deployment.annotation.CompositeIndex;
 import org.jboss.as.server.deployment.module.ResourceRoot;
 import org.jboss.msc.service.ServiceBuilder;
 import org.jboss.msc.service.ServiceName;
@@ -19,15 +25,30 @@ import org.jboss.vfs.VirtualFile;
 import javax.sql.DataSource;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.function.Supplier;
 
 /**
  * Deployment processor that discovers DataSources and creates Flyway migration services.
  * This processor is responsible for:
- * 1. Loading deployment properties from META-INF/flyway.properties
+ * 1. Loading deployment properties from META-INF/flyway.properties of the deployment and of
+ *    each EAR subdeployment
  * 2. Building the complete configuration using FlywayConfigurationBuilder
- * 3. Creating the FlywayMigrationService with the resolved configuration
+ * 3. Creating the FlywayMigrationService with the resolved configuration; subdeployments that
+ *    share a datasource and history table are merged into one run
+ * 4. Wiring MSC dependencies on the migration services of deployments listed in
+ *    {@code flyway.depends-on}, so only truly dependent migrations wait for each other
+ * 5. Registering the migration service as a next-phase dependency, so the persistence units
+ *    and EJB startup beans installed in {@link org.jboss.as.server.deployment.Phase#INSTALL}
+ *    never observe an unmigrated schema
  */
 public class FlywayDeploymentProcessor implements DeploymentUnitProcessor {
 
@@ -35,11 +56,37 @@ public class FlywayDeploymentProcessor implements DeploymentUnitProcessor {
     public void deploy(DeploymentPhaseContext phaseContext) throws DeploymentUnitProcessingException {
         final DeploymentUnit deploymentUnit = phaseContext.getDeploymentUnit();
 
-        // Only process top-level deployments
+        // Subdeployments are handled together with their top-level deployment, because
+        // subdeployments sharing a datasource and history table must be merged into one run.
+        // By the time the top-level unit reaches this phase its subdeployments have their modules.
         if (deploymentUnit.getParent() != null) {
             return;
         }
 
+        // Collect every unit of the deployment that needs a migration: the top-level unit
+        // (including EAR/lib) and each subdeployment with its own migrations and datasource.
+        List<MigrationUnit> migrationUnits = new ArrayList<>();
+        addMigrationUnit(phaseContext, deploymentUnit, migrationUnits);
+        for (DeploymentUnit subDeployment : deploymentUnit.getAttachmentList(
+                org.jboss.as.server.deployment.Attachments.SUB_DEPLOYMENTS)) {
+            addMigrationUnit(phaseContext, subDeployment, migrationUnits);
+        }
+
+        // Independent runs are separate MSC services and are therefore started concurrently
+        for (List<MigrationUnit> run : groupRuns(migrationUnits)) {
+            createMigrationService(phaseContext, deploymentUnit, run);
+        }
+    }
+
+    /**
+     * Determine whether the given (sub)deployment needs a migration and, if so, build its
+     * configuration and add it to {@code migrationUnits}.
+     */
+    private void addMigrationUnit(DeploymentPhaseContext phaseContext,
+                                  DeploymentUnit deploymentUnit,
+                                  List<MigrationUnit> migrationUnits) throws DeploymentUnitProcessingException {
+        final String name = displayName(deploymentUnit);
+
         // Load deployment properties from META-INF/flyway.properties
         Properties deploymentProperties = loadFlywayProperties(deploymentUnit);
 
@@ -48,13 +95,13 @@ public class FlywayDeploymentProcessor implements DeploymentUnitProcessor {
         // running JNDI validation, datasource lookup and service installation
         // for deployments that just happen to ship a db/migration directory.
         if (isExplicitlyDisabled(deploymentProperties)) {
-            FlywayLogger.debug("Flyway explicitly disabled for deployment: " + deploymentUnit.getName());
+            FlywayLogger.debug("Flyway explicitly disabled for deployment: " + name);
             return;
         }
 
         // Check if migrations exist or Flyway is explicitly enabled
         if (!hasMigrations(deploymentUnit) && !isExplicitlyEnabled(deploymentProperties)) {
-            FlywayLogger.debug("No Flyway migrations found and not explicitly enabled for deployment: " + deploymentUnit.getName());
+            FlywayLogger.debug("No Flyway migrations found and not explicitly enabled for deployment: " + name);
             return;
         }
 
@@ -66,28 +113,28 @@ public class FlywayDeploymentProcessor implements DeploymentUnitProcessor {
             // Log configuration source for transparency
             String configSource = config.isFromSubsystem() ? "subsystem configuration" : "deployment properties";
             FlywayLogger.infof("Flyway enabled for deployment '%s' using datasource '%s' from %s", 
-                             deploymentUnit.getName(), config.getDatasourceJndiName(), configSource);
+                             name, config.getDatasourceJndiName(), configSource);
             
-            // Create migration service with the complete configuration
-            createMigrationService(phaseContext, deploymentUnit, config);
+            migrationUnits.add(new MigrationUnit(deploymentUnit, name, config));
             
         } catch (Exception e) {
             // If no datasource is configured, log appropriately based on whether migrations exist
             if (hasMigrations(deploymentUnit)) {
                 throw new DeploymentUnitProcessingException(
-                    "Flyway migrations found but no datasource configured for deployment: " + deploymentUnit.getName() + 
+                    "Flyway migrations found but no datasource configured for deployment: " + name + 
                     ". Please configure a datasource in META-INF/flyway.properties or subsystem configuration.", e);
             } else {
                 // Deployment explicitly enabled Flyway but didn't configure datasource
                 FlywayLogger.warnf("Flyway explicitly enabled but no datasource configured for deployment: %s", 
-                                 deploymentUnit.getName());
+                                 name);
             }
         }
     }
 
     @Override
     public void undeploy(DeploymentUnit deploymentUnit) {
-        // Service will be automatically removed by MSC
+        // Service will be automatically removed by MSC; subdeployments are undeployed one by one
+        FlywayMigrationService.unregister(displayName(deploymentUnit));
     }
 
     /**
@@ -130,20 +177,25 @@ public class FlywayDeploymentProcessor implements DeploymentUnitProcessor {
      * 2. VFS-based check on the deployment's resource root as fallback
      */
     private boolean hasMigrations(DeploymentUnit deploymentUnit) {
-        // Strategy 1: ClassLoader-based directory check
-        ClassLoader classLoader = deploymentUnit.getAttachment(
-                org.jboss.as.server.deployment.Attachments.MODULE
-        ).getClassLoader();
-
         String[] locations = {
                 "db/migration",
                 "WEB-INF/classes/db/migration",
-                "META-INF/db/migration"
+                "META-INF/db/migration",
+                "db/data",
+                "WEB-INF/classes/db/data",
+                "META-INF/db/data",
+                "db/stream",
+                "WEB-INF/classes/db/stream",
+                "META-INF/db/stream"
         };
 
-        for (String location : locations) {
-            if (classLoader.getResource(location) != null) {
-                return true;
+        // Strategy 1: ClassLoader-based directory check
+        ClassLoader classLoader = ownedClassLoader(deploymentUnit);
+        if (classLoader != null) {
+            for (String location : locations) {
+                if (classLoader.getResource(location) != null) {
+                    return true;
+                }
             }
         }
 
@@ -190,14 +242,20 @@ public class FlywayDeploymentProcessor implements DeploymentUnitProcessor {
     }
 
     /**
-     * Create the Flyway migration service
+     * Create the Flyway migration service for one run. A run covers a single (sub)deployment,
+     * or several subdeployments of the same deployment that share a datasource and history
+     * table; those are merged so that Flyway sees all of their migrations at once.
      */
     private void createMigrationService(DeploymentPhaseContext phaseContext,
-                                      DeploymentUnit deploymentUnit,
-                                      ConfigurationResult config) throws DeploymentUnitProcessingException {
+                                      DeploymentUnit topLevelUnit,
+                                      List<MigrationUnit> run) throws DeploymentUnitProcessingException {
+
+        final MigrationUnit primary = run.get(0);
+        final ConfigurationResult config = withExtensionClasses(
+                run.size() == 1 ? primary.config : mergeConfigurations(run), run);
 
         final ServiceTarget serviceTarget = phaseContext.getRequirementServiceTarget();
-        final ServiceName serviceName = deploymentUnit.getServiceName().append("flyway", "migration");
+        final ServiceName serviceName = FlywayMigrationService.serviceName(primary.deploymentUnit.getServiceName());
 
         // Resolve the datasource binder service name from its JNDI name
         final String jndiName = config.getDatasourceJndiName();
@@ -205,18 +263,76 @@ public class FlywayDeploymentProcessor implements DeploymentUnitProcessor {
         FlywayLogger.infof("Using datasource service name: %s for JNDI name: %s",
                          dataSourceServiceName, jndiName);
 
-        // Get the deployment classloader
-        final ClassLoader deploymentClassLoader = deploymentUnit.getAttachment(
-                org.jboss.as.server.deployment.Attachments.MODULE
-        ).getClassLoader();
+        // Get the deployment classloader; a merged run sees the resources of all its members
+        List<ClassLoader> classLoaders = new ArrayList<>();
+        List<String> deploymentNames = new ArrayList<>();
+        for (MigrationUnit unit : run) {
+            ClassLoader classLoader = getClassLoader(unit.deploymentUnit);
+            if (classLoader != null) {
+                classLoaders.add(classLoader);
+            }
+            deploymentNames.add(unit.name);
+        }
+        // EAR/lib belongs to the run of the top-level unit; other runs do not see its migrations
+        boolean ownsSharedLibraries = false;
+        for (MigrationUnit unit : run) {
+            ownsSharedLibraries |= unit.deploymentUnit == topLevelUnit;
+        }
+        final ClassLoader shared = ownsSharedLibraries ? null : getClassLoader(topLevelUnit);
+        final ClassLoader deploymentClassLoader = classLoaders.isEmpty()
+                ? null
+                : classLoaders.size() == 1 && shared == null
+                        ? classLoaders.get(0)
+                        : new MergedDeploymentClassLoader(classLoaders, shared);
 
         // Build the service: declare the datasource binder dependency, install the migration service.
+        // Every member keeps its well-known migration service name, so flyway.depends-on and
+        // next-phase dependencies work no matter which run a subdeployment was merged into.
         ServiceBuilder<?> serviceBuilder = serviceTarget.addService(serviceName);
+        for (MigrationUnit unit : run.subList(1, run.size())) {
+            serviceBuilder.provides(FlywayMigrationService.serviceName(unit.deploymentUnit.getServiceName()));
+        }
         Supplier<ManagedReferenceFactory> dataSourceRefSupplier = serviceBuilder.requires(dataSourceServiceName);
+        serviceBuilder.requires(AuditLogService.SERVICE_NAME);
+
+        // A dedicated migration datasource keeps migration connections, including those of nodes
+        // waiting for the schema history lock, out of the pool serving application requests
+        final String migrationJndiName = config.getMigrationDatasourceJndiName();
+        final Supplier<ManagedReferenceFactory> migrationRefSupplier = migrationJndiName.equals(jndiName)
+                ? dataSourceRefSupplier
+                : serviceBuilder.requires(ContextNames.bindInfoFor(migrationJndiName).getBinderServiceName());
+        if (!migrationJndiName.equals(jndiName)) {
+            FlywayLogger.infof("Flyway migration of deployment '%s' will use migration datasource: %s",
+                             primary.name, migrationJndiName);
+        }
+
+        // Wait for the migrations of the deployments this one depends on. Independent
+        // deployments have no such edge and keep migrating in parallel.
+        Set<String> dependencies = new LinkedHashSet<>();
+        for (MigrationUnit unit : run) {
+            dependencies.addAll(parseDependsOn(unit.config.getFlywayProperties().get(FlywayConfiguration.DEPENDS_ON)));
+        }
+        for (String dependency : dependencies) {
+            if (deploymentNames.contains(dependency)) {
+                FlywayLogger.warnf("Ignoring self-reference in flyway.depends-on of deployment: %s", dependency);
+                continue;
+            }
+            serviceBuilder.requires(FlywayMigrationService.serviceName(deploymentServiceName(dependency)));
+            FlywayLogger.infof("Flyway migration of deployment '%s' will wait for migration of deployment '%s'",
+                             primary.name, dependency);
+        }
+
+        // Server-managed migrations (migration=* resources) own the shared schema of their
+        // datasource; deployments on the same datasource migrate on top of it.
+        for (ServiceName serverMigration : FlywayServerMigrationService.serviceNamesFor(jndiName)) {
+            serviceBuilder.requires(serverMigration);
+            FlywayLogger.debugf("Flyway migration of deployment '%s' will wait for server migration %s",
+                             primary.name, serverMigration);
+        }
 
         // Wrap the binder reference into a DataSource supplier
         Supplier<DataSource> dataSourceSupplier = () -> {
-            ManagedReferenceFactory factory = dataSourceRefSupplier.get();
+            ManagedReferenceFactory factory = migrationRefSupplier.get();
             if (factory != null) {
                 Object reference = factory.getReference().getInstance();
                 if (reference instanceof DataSource) {
@@ -227,15 +343,181 @@ public class FlywayDeploymentProcessor implements DeploymentUnitProcessor {
         };
 
         FlywayMigrationService migrationService = new FlywayMigrationService(
-                deploymentUnit.getName(),
+                deploymentNames,
                 dataSourceSupplier,
                 deploymentClassLoader,
                 config
         );
 
         serviceBuilder.setInstance(migrationService);
+        FlywayMigrationService.register(deploymentNames);
         serviceBuilder.install();
 
-        FlywayLogger.infof("Created Flyway migration service for deployment: %s", deploymentUnit.getName());
+        // JPA persistence unit services and @Startup singletons are installed in the INSTALL
+        // phase; making that phase wait for the migration removes the need for sleeps or a
+        // fully serialized deployment start.
+        topLevelUnit.addToAttachmentList(org.jboss.as.server.deployment.Attachments.NEXT_PHASE_DEPS, serviceName);
+        for (MigrationUnit unit : run) {
+            if (unit.deploymentUnit != topLevelUnit) {
+                unit.deploymentUnit.addToAttachmentList(org.jboss.as.server.deployment.Attachments.NEXT_PHASE_DEPS, serviceName);
+            }
+        }
+
+        FlywayLogger.infof("Created Flyway migration service for deployment: %s", String.join(", ", deploymentNames));
+    }
+
+    /**
+     * Merge the configurations of a run. The first member (the top-level unit if it takes
+     * part) provides the configuration; the locations of all members are combined.
+     */
+    private ConfigurationResult mergeConfigurations(List<MigrationUnit> run) {
+        Set<String> locations = new LinkedHashSet<>();
+        for (MigrationUnit unit : run) {
+            String unitLocations = unit.config.getFlywayProperties().get(FlywayConfiguration.LOCATIONS);
+            if (unitLocations == null) {
+                unitLocations = FlywayConfiguration.getDefault(FlywayConfiguration.LOCATIONS);
+            }
+            for (String location : unitLocations.split(",")) {
+                if (!location.trim().isEmpty()) {
+                    locations.add(location.trim());
+                }
+            }
+        }
+
+        ConfigurationResult primary = run.get(0).config;
+        Map<String, String> properties = new HashMap<>(primary.getFlywayProperties());
+        properties.put(FlywayConfiguration.LOCATIONS, String.join(",", locations));
+        FlywayLogger.infof("Merged Flyway migrations of %d subdeployments sharing datasource '%s', locations: %s",
+                         run.size(), primary.getDatasourceJndiName(), properties.get(FlywayConfiguration.LOCATIONS));
+        return new ConfigurationResult(primary.getDatasourceJndiName(), properties, primary.isFromSubsystem());
+    }
+
+    /**
+     * Check the configured callbacks and resolvers against the Jandex indexes of the run's
+     * deployments, once per deployment and without loading classes. Subdeployments get their
+     * composite index only in their own POST_MODULE pass, after the top-level unit's; their
+     * classes are checked when the migration loads them.
+     */
+    static ConfigurationResult withExtensionClasses(ConfigurationResult config, List<MigrationUnit> run) {
+        Map<String, String> properties = config.getFlywayProperties();
+        if (!properties.containsKey(FlywayConfiguration.CALLBACKS)
+                && !properties.containsKey(FlywayConfiguration.RESOLVERS)) {
+            return config.withExtensionClasses(ExtensionClasses.NONE);
+        }
+        List<CompositeIndex> indexes = new ArrayList<>();
+        for (MigrationUnit unit : run) {
+            CompositeIndex index = unit.deploymentUnit.getAttachment(
+                    org.jboss.as.server.deployment.Attachments.COMPOSITE_ANNOTATION_INDEX);
+            if (index != null) {
+                indexes.add(index);
+            } else {
+                FlywayLogger.debugf("No annotation index for %s yet, skipping index validation of its "
+                        + "Flyway callbacks and resolvers", unit.name);
+            }
+        }
+        return config.withExtensionClasses(ExtensionClasses.of(properties, run.get(0).name, indexes));
+    }
+
+    private static ClassLoader getClassLoader(DeploymentUnit deploymentUnit) {
+        org.jboss.modules.Module module = deploymentUnit.getAttachment(org.jboss.as.server.deployment.Attachments.MODULE);
+        return module != null ? module.getClassLoader() : null;
+    }
+
+    /**
+     * The classloader of a unit without the EAR/lib resources a subdeployment sees through
+     * its parent, so that only the top-level unit finds the migrations shipped there.
+     */
+    private static ClassLoader ownedClassLoader(DeploymentUnit deploymentUnit) {
+        ClassLoader classLoader = getClassLoader(deploymentUnit);
+        ClassLoader parent = deploymentUnit.getParent() != null ? getClassLoader(deploymentUnit.getParent()) : null;
+        return classLoader != null && parent != null
+                ? new MergedDeploymentClassLoader(Collections.singletonList(classLoader), parent)
+                : classLoader;
+    }
+
+    /**
+     * Name used in logs, {@code flyway.depends-on} and {@link FlywayMigrationService#migrationCompletion(String)}:
+     * the deployment name for top-level units, {@code <ear>/<subdeployment>} for subdeployments.
+     */
+    static String displayName(DeploymentUnit deploymentUnit) {
+        DeploymentUnit parent = deploymentUnit.getParent();
+        return parent == null ? deploymentUnit.getName() : parent.getName() + "/" + deploymentUnit.getName();
+    }
+
+    /**
+     * Service name of the deployment unit named in {@code flyway.depends-on}, accepting
+     * {@code <ear>/<subdeployment>} for subdeployments.
+     */
+    private static ServiceName deploymentServiceName(String name) {
+        int separator = name.indexOf('/');
+        return separator < 0
+                ? Services.deploymentUnitName(name)
+                : Services.deploymentUnitName(name.substring(0, separator), name.substring(separator + 1));
+    }
+
+    /**
+     * Parse the comma-separated deployment names of {@code flyway.depends-on}.
+     * Blank entries and duplicates are dropped; declaration order is kept.
+     */
+    static List<String> parseDependsOn(String value) {
+        if (value == null || value.isBlank()) {
+            return Collections.emptyList();
+        }
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : value.split(",")) {
+            String trimmed = name.trim();
+            if (!trimmed.isEmpty()) {
+                names.add(trimmed);
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Group the units of a deployment into runs: units targeting the same datasource, schemas
+     * and history table are migrated by one Flyway run, in the order they were found.
+     */
+    static List<List<MigrationUnit>> groupRuns(List<MigrationUnit> migrationUnits) {
+        Map<String, List<MigrationUnit>> runs = new LinkedHashMap<>();
+        for (MigrationUnit unit : migrationUnits) {
+            runs.computeIfAbsent(unit.runKey(), key -> new ArrayList<>()).add(unit);
+        }
+        return new ArrayList<>(runs.values());
+    }
+
+    /**
+     * A (sub)deployment that needs a migration, with its resolved configuration.
+     */
+    static final class MigrationUnit {
+        final DeploymentUnit deploymentUnit;
+        final String name;
+        final ConfigurationResult config;
+
+        MigrationUnit(DeploymentUnit deploymentUnit, String name, ConfigurationResult config) {
+            this.deploymentUnit = deploymentUnit;
+            this.name = name;
+            this.config = config;
+        }
+
+        /**
+         * Units with the same key share a datasource, schemas and history table, however the
+         * datasource JNDI name and the schema list are spelled.
+         */
+        String runKey() {
+            Map<String, String> properties = config.getFlywayProperties();
+            String table = properties.getOrDefault(FlywayConfiguration.TABLE,
+                    FlywayConfiguration.getDefault(FlywayConfiguration.TABLE));
+            List<String> schemas = new ArrayList<>();
+            String schemaList = properties.get(FlywayConfiguration.SCHEMAS);
+            if (schemaList != null) {
+                for (String schema : schemaList.split(",")) {
+                    if (!schema.trim().isEmpty()) {
+                        schemas.add(schema.trim());
+                    }
+                }
+            }
+            return FlywayServerMigrationService.normalizeJndiName(config.getDatasourceJndiName())
+                    + '|' + String.join(",", schemas) + '|' + table.trim();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+package com.github.wildfly.flyway.deployment;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ClassLoader used when several EAR subdeployments are merged into one Flyway run.
+ *
+ * <p>Classes and single resources are looked up in the member classloaders in order.
+ * {@link #getResources(String)} returns the union of all members with duplicates removed,
+ * so a location such as {@code db/migration} shipped in EAR/lib (visible to every member)
+ * is scanned only once.</p>
+ *
+ * <p>EAR/lib belongs to the run of the top-level deployment. A run of subdeployments only
+ * passes the EAR's classloader as {@code shared}; resources it also provides are hidden, so
+ * their migrations are not applied a second time to another datasource.</p>
+ */
+final class MergedDeploymentClassLoader extends ClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final List<ClassLoader> delegates;
+    private final ClassLoader shared;
+
+    MergedDeploymentClassLoader(List<ClassLoader> delegates) {
+        this(delegates, null);
+    }
+
+    /**
+     * @param shared classloader whose resources are hidden, or {@code null}
+     */
+    MergedDeploymentClassLoader(List<ClassLoader> delegates, ClassLoader shared) {
+        super(null);
+        this.delegates = List.copyOf(delegates);
+        this.shared = shared;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        for (ClassLoader delegate : delegates) {
+            try {
+                return delegate.loadClass(name);
+            } catch (ClassNotFoundException e) {
+                // try the next member
+            }
+        }
+        throw new ClassNotFoundException(name);
+    }
+
+    @Override
+    protected URL findResource(String name) {
+        if (shared != null) {
+            try {
+                Enumeration<URL> urls = findResources(name);
+                return urls.hasMoreElements() ? urls.nextElement() : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        for (ClassLoader delegate : delegates) {
+            URL url = delegate.getResource(name);
+            if (url != null) {
+                return url;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected Enumeration<URL> findResources(String name) throws IOException {
+        // Compared by external form: URL.equals may resolve host names
+        Set<String> hidden = new HashSet<>();
+        if (shared != null) {
+            for (URL url : Collections.list(shared.getResources(name))) {
+                hidden.add(url.toExternalForm());
+            }
+        }
+        Map<String, URL> urls = new LinkedHashMap<>();
+        for (ClassLoader delegate : delegates) {
+            for (URL url : Collections.list(delegate.getResources(name))) {
+                String key = url.toExternalForm();
+                if (!hidden.contains(key)) {
+                    urls.putIfAbsent(key, url);
+                }
+            }
+        }
+        return Collections.enumeration(urls.values());
+    }
+}
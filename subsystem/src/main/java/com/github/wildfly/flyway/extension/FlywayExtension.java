@@ -19,7 +19,7 @@ public class FlywayExtension implements Extension {
     
     private static final String RESOURCE_NAME = FlywayExtension.class.getPackage().getName() + ".LocalDescriptions";
     
-    private static final ModelVersion CURRENT_MODEL_VERSION = ModelVersion.create(1, 0, 0);
+    private static final ModelVersion CURRENT_MODEL_VERSION = ModelVersion.create(1, 1, 0);
     
     static final PathElement SUBSYSTEM_PATH = PathElement.pathElement(SUBSYSTEM, SUBSYSTEM_NAME);
     
@@ -39,7 +39,10 @@ public class FlywayExtension implements Extension {
     public void initializeParsers(ExtensionParsingContext context) {
         context.setSubsystemXmlMapping(SUBSYSTEM_NAME, 
                 FlywaySubsystemNamespace.FLYWAY_1_0.getUriString(), 
-                FlywaySubsystemParser.INSTANCE);
+                FlywaySubsystemParser.VERSION_1_0);
+        context.setSubsystemXmlMapping(SUBSYSTEM_NAME,
+                FlywaySubsystemNamespace.FLYWAY_1_1.getUriString(),
+                FlywaySubsystemParser.VERSION_1_1);
     }
 
     @Override
@@ -1,10 +1,13 @@
 package com.github.wildfly.flyway.extension;
 
 import com.github.wildfly.flyway.deployment.FlywayDeploymentProcessor;
+import com.github.wildfly.flyway.management.BackfillStatusOperation;
 import com.github.wildfly.flyway.management.FlywayManagementResourceDefinition;
+import com.github.wildfly.flyway.management.MigrationConnectionMetricsOperation;
 import org.jboss.as.controller.AbstractBoottimeAddStepHandler;
 import org.jboss.as.controller.AbstractRemoveStepHandler;
 import org.jboss.as.controller.AttributeDefinition;
+import org.jboss.as.controller.CapabilityServiceBuilder;
 import org.jboss.as.controller.OperationContext;
 import org.jboss.as.controller.OperationFailedException;
 import org.jboss.as.controller.ReloadRequiredWriteAttributeHandler;
@@ -18,12 +21,16 @@ import org.jboss.as.server.deployment.Phase;
 import org.jboss.dmr.ModelNode;
 import org.jboss.dmr.ModelType;
 
+import com.github.wildfly.flyway.audit.AuditLogService;
 import com.github.wildfly.flyway.config.SubsystemConfigurationHolder;
+import com.github.wildfly.flyway.resource.ModuleMigrationCache;
+import com.github.wildfly.flyway.service.FlywayPrewarm;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Properties;
+import java.util.function.Consumer;
 
 /**
  * Flyway subsystem definition - simple subsystem with minimal configuration.
@@ -85,9 +92,24 @@ public class FlywaySubsystemDefinition extends SimpleResourceDefinition {
             .setRestartAllServices()
             .build();
     
+    static final AttributeDefinition AUDIT_LOG_ENABLED = SimpleAttributeDefinitionBuilder
+            .create("audit-log-enabled", ModelType.BOOLEAN)
+            .setDefaultValue(ModelNode.FALSE)
+            .setRequired(false)
+            .setAllowExpression(true)
+            .setRestartAllServices()
+            .build();
+    
+    static final AttributeDefinition SESSION_PROFILE = SimpleAttributeDefinitionBuilder
+            .create("session-profile", ModelType.STRING)
+            .setRequired(false)
+            .setAllowExpression(true)
+            .setRestartAllServices()
+            .build();
+    
     private static final Collection<AttributeDefinition> ATTRIBUTES = Collections.unmodifiableList(
             Arrays.asList(ENABLED, DEFAULT_DATASOURCE, BASELINE_ON_MIGRATE, CLEAN_DISABLED, 
-                    VALIDATE_ON_MIGRATE, LOCATIONS, TABLE));
+                    VALIDATE_ON_MIGRATE, LOCATIONS, TABLE, AUDIT_LOG_ENABLED, SESSION_PROFILE));
     
     FlywaySubsystemDefinition() {
         super(FlywayExtension.SUBSYSTEM_PATH,
@@ -110,6 +132,12 @@ public class FlywaySubsystemDefinition extends SimpleResourceDefinition {
         resourceRegistration.registerOperationHandler(
                 GenericSubsystemDescribeHandler.DEFINITION,
                 GenericSubsystemDescribeHandler.INSTANCE);
+        resourceRegistration.registerOperationHandler(
+                BackfillStatusOperation.DEFINITION,
+                BackfillStatusOperation.INSTANCE);
+        resourceRegistration.registerOperationHandler(
+                MigrationConnectionMetricsOperation.DEFINITION,
+                MigrationConnectionMetricsOperation.INSTANCE);
     }
     
     @Override
@@ -143,9 +171,14 @@ public class FlywaySubsystemDefinition extends SimpleResourceDefinition {
                 }
             }
             SubsystemConfigurationHolder.setConfiguration(subsystemConfig);
+            ModuleMigrationCache.clear();
             com.github.wildfly.flyway.logging.FlywayLogger.debugf(
                     "Subsystem configuration stored with %d properties", subsystemConfig.size());
 
+            // Migration services depend on the audit service, so the writer starts before any
+            // migration runs and is drained after the last one
+            installAuditLog(context, model);
+
             // Check if subsystem is enabled
             boolean enabled = ENABLED.resolveModelAttribute(context, model).asBoolean();
             if (!enabled) {
@@ -153,6 +186,9 @@ public class FlywaySubsystemDefinition extends SimpleResourceDefinition {
                 return;
             }
 
+            // Load Flyway classes in the background while the rest of the server boots
+            FlywayPrewarm.start();
+
             // Register deployment processor
             context.addStep(new AbstractDeploymentChainStep() {
                 @Override
@@ -167,8 +203,17 @@ public class FlywaySubsystemDefinition extends SimpleResourceDefinition {
         }
     }
     
+    private static void installAuditLog(OperationContext context, ModelNode model) throws OperationFailedException {
+        CapabilityServiceBuilder<?> builder = context.getCapabilityServiceTarget().addService();
+        Consumer<AuditLogService> service = builder.provides(AuditLogService.SERVICE_NAME);
+        builder.setInstance(new AuditLogService(service,
+                AUDIT_LOG_ENABLED.resolveModelAttribute(context, model).asBoolean(),
+                System.getProperty("jboss.server.log.dir")));
+        builder.install();
+    }
+
     /**
-     * Handler for removing the subsystem.
+     * Handler for removing the subsystem. Stops the audit log, which drains its queue.
      *
      * Intentionally does not clear {@link SubsystemConfigurationHolder}: the holder is a
      * boot-phase artefact and may still be queried by Flyway deployment services that
@@ -181,5 +226,17 @@ public class FlywaySubsystemDefinition extends SimpleResourceDefinition {
 
         private FlywaySubsystemRemove() {
         }
+
+        @Override
+        protected void performRuntime(OperationContext context, ModelNode operation, ModelNode model)
+                throws OperationFailedException {
+            context.removeService(AuditLogService.SERVICE_NAME);
+        }
+
+        @Override
+        protected void recoverServices(OperationContext context, ModelNode operation, ModelNode model)
+                throws OperationFailedException {
+            installAuditLog(context, model);
+        }
     }
 }
@@ -5,7 +5,12 @@ package com.github.wildfly.flyway.extension;
  */
 public enum FlywaySubsystemNamespace {
     
-    FLYWAY_1_0("urn:wildfly:flyway:1.0");
+    FLYWAY_1_0("urn:wildfly:flyway:1.0"),
+    /** Adds {@code audit-log-enabled}, {@code session-profile} and {@code <migration>} elements. */
+    FLYWAY_1_1("urn:wildfly:flyway:1.1");
+
+    /** The namespace the subsystem is written in. */
+    public static final FlywaySubsystemNamespace CURRENT = FLYWAY_1_1;
     
     private final String uriString;
     
@@ -16,4 +21,11 @@ public enum FlywaySubsystemNamespace {
     public String getUriString() {
         return uriString;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return whether this namespace contains everything {@code version} does
+     */
+    public boolean since(FlywaySubsystemNamespace version) {
+        return compareTo(version) >= 0;
+    }
+}
@@ -1,27 +1,37 @@
 package com.github.wildfly.flyway.extension;
 
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.ADD;
+import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.NAME;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.OP_ADDR;
 import static org.jboss.as.controller.descriptions.ModelDescriptionConstants.SUBSYSTEM;
+import static org.jboss.as.controller.parsing.ParseUtils.missingRequired;
 import static org.jboss.as.controller.parsing.ParseUtils.requireNoContent;
 import static org.jboss.as.controller.parsing.ParseUtils.unexpectedAttribute;
+import static org.jboss.as.controller.parsing.ParseUtils.unexpectedElement;
 
+import com.github.wildfly.flyway.management.FlywayManagementResourceDefinition;
+import java.util.Collections;
 import java.util.List;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
+import org.jboss.as.controller.AttributeDefinition;
 import org.jboss.dmr.ModelNode;
 import org.jboss.staxmapper.XMLElementReader;
 import org.jboss.staxmapper.XMLExtendedStreamReader;
 
 /**
- * Parser for Flyway subsystem configuration.
+ * Parser for Flyway subsystem configuration, one instance per namespace version.
  */
 final class FlywaySubsystemParser implements XMLStreamConstants, XMLElementReader<List<ModelNode>> {
 
-    static final FlywaySubsystemParser INSTANCE = new FlywaySubsystemParser();
+    static final FlywaySubsystemParser VERSION_1_0 = new FlywaySubsystemParser(FlywaySubsystemNamespace.FLYWAY_1_0);
+    static final FlywaySubsystemParser VERSION_1_1 = new FlywaySubsystemParser(FlywaySubsystemNamespace.FLYWAY_1_1);
 
-    private FlywaySubsystemParser() {
+    private final FlywaySubsystemNamespace namespace;
+
+    private FlywaySubsystemParser(FlywaySubsystemNamespace namespace) {
+        this.namespace = namespace;
     }
 
     @Override
@@ -53,6 +63,10 @@ final class FlywaySubsystemParser implements XMLStreamConstants, XMLElementReade
                 subsystemAdd.get("locations").set(attrValue);
             } else if ("table".equals(attrName)) {
                 subsystemAdd.get("table").set(attrValue);
+            } else if ("audit-log-enabled".equals(attrName) && namespace.since(FlywaySubsystemNamespace.FLYWAY_1_1)) {
+                subsystemAdd.get("audit-log-enabled").set(attrValue);
+            } else if ("session-profile".equals(attrName) && namespace.since(FlywaySubsystemNamespace.FLYWAY_1_1)) {
+                subsystemAdd.get("session-profile").set(attrValue);
             } else {
                 throw unexpectedAttribute(reader, i);
             }
@@ -60,7 +74,55 @@ final class FlywaySubsystemParser implements XMLStreamConstants, XMLElementReade
         
         operations.add(subsystemAdd);
 
-        // For now, we have a simple subsystem with no child elements
+        // Child elements: server-managed migrations
+        while (reader.hasNext() && reader.nextTag() != END_ELEMENT) {
+            if (FlywayManagementResourceDefinition.MIGRATION.equals(reader.getLocalName())
+                    && namespace.since(FlywaySubsystemNamespace.FLYWAY_1_1)) {
+                readMigration(reader, address, operations);
+            } else {
+                throw unexpectedElement(reader);
+            }
+        }
+    }
+
+    /**
+     * Parse a {@code <migration name="..." .../>} element into a {@code migration=<name>:add} operation.
+     */
+    private void readMigration(XMLExtendedStreamReader reader, ModelNode parentAddress, List<ModelNode> operations)
+            throws XMLStreamException {
+        ModelNode migrationAdd = new ModelNode();
+        migrationAdd.get(OP).set(ADD);
+
+        String name = null;
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String attrName = reader.getAttributeLocalName(i);
+            String attrValue = reader.getAttributeValue(i);
+
+            if (NAME.equals(attrName)) {
+                name = attrValue;
+                continue;
+            }
+            AttributeDefinition attribute = null;
+            for (AttributeDefinition candidate : FlywayManagementResourceDefinition.ATTRIBUTES) {
+                if (candidate.getName().equals(attrName)) {
+                    attribute = candidate;
+                    break;
+                }
+            }
+            if (attribute == null) {
+                throw unexpectedAttribute(reader, i);
+            }
+            migrationAdd.get(attrName).set(attrValue);
+        }
+        if (name == null) {
+            throw missingRequired(reader, Collections.singleton(NAME));
+        }
+
+        ModelNode address = parentAddress.clone();
+        address.add(FlywayManagementResourceDefinition.MIGRATION, name);
+        migrationAdd.get(OP_ADDR).set(address);
+        operations.add(migrationAdd);
+
         requireNoContent(reader);
     }
 }
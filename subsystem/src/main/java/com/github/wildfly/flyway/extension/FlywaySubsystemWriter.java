@@ -1,8 +1,10 @@
 package com.github.wildfly.flyway.extension;
 
+import com.github.wildfly.flyway.management.FlywayManagementResourceDefinition;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
 import org.jboss.as.controller.AttributeDefinition;
+import org.jboss.dmr.Property;
 import org.jboss.as.controller.persistence.SubsystemMarshallingContext;
 import org.jboss.dmr.ModelNode;
 import org.jboss.staxmapper.XMLElementWriter;
@@ -30,6 +32,8 @@ final class FlywaySubsystemWriter implements XMLStreamConstants, XMLElementWrite
             FlywaySubsystemDefinition.VALIDATE_ON_MIGRATE,
             FlywaySubsystemDefinition.LOCATIONS,
             FlywaySubsystemDefinition.TABLE,
+            FlywaySubsystemDefinition.AUDIT_LOG_ENABLED,
+            FlywaySubsystemDefinition.SESSION_PROFILE,
     };
 
     private FlywaySubsystemWriter() {
@@ -37,13 +41,24 @@ final class FlywaySubsystemWriter implements XMLStreamConstants, XMLElementWrite
 
     @Override
     public void writeContent(XMLExtendedStreamWriter writer, SubsystemMarshallingContext context) throws XMLStreamException {
-        context.startSubsystemElement(FlywaySubsystemNamespace.FLYWAY_1_0.getUriString(), false);
+        context.startSubsystemElement(FlywaySubsystemNamespace.CURRENT.getUriString(), false);
 
         ModelNode node = context.getModelNode();
         for (AttributeDefinition attribute : ATTRIBUTES) {
             attribute.getMarshaller().marshallAsAttribute(attribute, node, false, writer);
         }
 
+        if (node.hasDefined(FlywayManagementResourceDefinition.MIGRATION)) {
+            for (Property migration : node.get(FlywayManagementResourceDefinition.MIGRATION).asPropertyList()) {
+                writer.writeStartElement(FlywayManagementResourceDefinition.MIGRATION);
+                writer.writeAttribute("name", migration.getName());
+                for (AttributeDefinition attribute : FlywayManagementResourceDefinition.ATTRIBUTES) {
+                    attribute.getMarshaller().marshallAsAttribute(attribute, migration.getValue(), false, writer);
+                }
+                writer.writeEndElement();
+            }
+        }
+
         writer.writeEndElement();
     }
 }
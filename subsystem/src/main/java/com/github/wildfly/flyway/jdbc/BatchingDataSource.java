@@ -0,0 +1,303 @@
+package com.github.wildfly.flyway.jdbc;
+
+import com.github.wildfly.flyway.logging.FlywayLogger;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * DataSource that turns runs of structurally identical single-row INSERT statements into
+ * {@link PreparedStatement} batches.
+ *
+ * <p>Flyway executes every statement of an SQL migration with {@link Statement#execute(String)}
+ * on a new statement of the same connection. Statements recognized by {@link InsertStatement}
+ * are not sent; their values are bound to a prepared statement of their template and added to
+ * the connection's batch, and Flyway sees an update count of 1. The batch is executed when it
+ * reaches {@code batchSize}, when a statement with another template or any other statement
+ * runs, and before any other use of the connection (commit, prepared statements, metadata
+ * queries of the schema history, close). A rollback discards it.</p>
+ *
+ * <p>If a batch fails, the exception names the original INSERT that failed and its position in
+ * the batch, so errors can still be traced to a statement of the script.</p>
+ */
+public final class BatchingDataSource implements DataSource {
+
+    /** Connection methods that neither observe nor change the database state. */
+    private static final Set<String> PASSIVE_METHODS = new HashSet<>(List.of(
+            "isClosed", "isValid", "getAutoCommit", "getWarnings", "clearWarnings", "unwrap", "isWrapperFor",
+            "toString", "hashCode", "equals", "getMetaData", "getCatalog", "getSchema",
+            "getTransactionIsolation", "isReadOnly", "getHoldability", "getClientInfo", "getNetworkTimeout"));
+
+    private final DataSource delegate;
+    private final int batchSize;
+
+    private BatchingDataSource(DataSource delegate, int batchSize) {
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param batchSize maximum number of INSERTs sent in one batch
+     */
+    public static DataSource wrap(DataSource dataSource, int batchSize) {
+        if (dataSource instanceof BatchingDataSource) {
+            dataSource = ((BatchingDataSource) dataSource).delegate;
+        }
+        return new BatchingDataSource(dataSource, Math.max(1, batchSize));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(delegate.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(delegate.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(BatchingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection, batchSize));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Holds the pending batch of one connection.
+     */
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+        private final int batchSize;
+        private final List<String> batchedSql = new ArrayList<>();
+        private Boolean untypedParameters;
+        private PreparedStatement statement;
+        private String template;
+        private long batches;
+        private long inserts;
+
+        ConnectionHandler(Connection connection, int batchSize) {
+            this.connection = connection;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("createStatement") && method.getParameterCount() == 0) {
+                // Flyway creates a statement per SQL statement; the batch goes on across them
+                Statement created = connection.createStatement();
+                return Proxy.newProxyInstance(BatchingDataSource.class.getClassLoader(),
+                        new Class<?>[]{Statement.class}, new StatementHandler(this, created));
+            }
+            if (name.equals("rollback")) {
+                discard();
+            } else if (name.equals("close")) {
+                try {
+                    flush();
+                } finally {
+                    closeStatement();
+                    if (inserts > 0) {
+                        FlywayLogger.debugf("Sent %d INSERT statements in %d batches", inserts, batches);
+                    }
+                }
+            } else if (!PASSIVE_METHODS.contains(name)) {
+                flush();
+            }
+            return BatchingDataSource.invoke(connection, method, args);
+        }
+
+        void add(InsertStatement insert, String sql) throws SQLException {
+            if (!insert.getTemplate().equals(template)) {
+                flush();
+                closeStatement();
+                statement = connection.prepareStatement(insert.getTemplate());
+                template = insert.getTemplate();
+            }
+            bind(insert.getValues());
+            statement.addBatch();
+            batchedSql.add(sql);
+            if (batchedSql.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void bind(List<Object> values) throws SQLException {
+            if (untypedParameters == null) {
+                // PostgreSQL types parameters strictly; send them untyped so the server converts them like literals
+                String product = connection.getMetaData().getDatabaseProductName();
+                untypedParameters = product != null && product.toLowerCase(Locale.ROOT).contains("postgres");
+            }
+            for (int i = 0; i < values.size(); i++) {
+                Object value = values.get(i);
+                int index = i + 1;
+                if (value == InsertStatement.NULL) {
+                    statement.setNull(index, untypedParameters ? Types.OTHER : Types.VARCHAR);
+                } else if (untypedParameters) {
+                    statement.setObject(index, value instanceof BigDecimal
+                            ? ((BigDecimal) value).toString() : value, Types.OTHER);
+                } else if (value instanceof BigDecimal) {
+                    statement.setBigDecimal(index, (BigDecimal) value);
+                } else {
+                    statement.setString(index, (String) value);
+                }
+            }
+        }
+
+        void flush() throws SQLException {
+            if (batchedSql.isEmpty()) {
+                return;
+            }
+            List<String> sent = new ArrayList<>(batchedSql);
+            batchedSql.clear();
+            try {
+                statement.executeBatch();
+                batches++;
+                inserts += sent.size();
+            } catch (BatchUpdateException e) {
+                int failed = failedIndex(e.getUpdateCounts(), sent.size());
+                throw new SQLException("INSERT " + (failed + 1) + " of a batch of " + sent.size()
+                        + " failed: " + sent.get(failed) + ": " + e.getMessage(),
+                        e.getSQLState(), e.getErrorCode(), e);
+            }
+        }
+
+        private void discard() throws SQLException {
+            batchedSql.clear();
+            if (statement != null) {
+                statement.clearBatch();
+            }
+        }
+
+        private void closeStatement() throws SQLException {
+            if (statement != null) {
+                statement.close();
+                statement = null;
+                template = null;
+            }
+        }
+
+        /**
+         * Drivers either stop at the first failure (fewer counts than statements) or continue and
+         * mark failures with {@link Statement#EXECUTE_FAILED}.
+         */
+        static int failedIndex(int[] updateCounts, int size) {
+            if (updateCounts == null) {
+                return 0;
+            }
+            for (int i = 0; i < updateCounts.length; i++) {
+                if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+                    return i;
+                }
+            }
+            return Math.min(updateCounts.length, size - 1);
+        }
+    }
+
+    /**
+     * Diverts batchable INSERTs to the connection's batch and reports an update count of 1 for
+     * them; everything else goes to the real statement after the batch has been sent.
+     */
+    private static final class StatementHandler implements InvocationHandler {
+        private final ConnectionHandler connection;
+        private final Statement statement;
+        private int batchedUpdateCount = -2;
+
+        StatementHandler(ConnectionHandler connection, Statement statement) {
+            this.connection = connection;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ((name.equals("execute") || name.equals("executeUpdate")) && method.getParameterCount() == 1) {
+                String sql = (String) args[0];
+                InsertStatement insert = InsertStatement.parse(sql);
+                if (insert != null) {
+                    connection.add(insert, sql);
+                    batchedUpdateCount = 1;
+                    return name.equals("execute") ? Boolean.FALSE : Integer.valueOf(1);
+                }
+            }
+            if (batchedUpdateCount != -2) {
+                // Answer the result queries Flyway makes after executing a batched INSERT
+                switch (name) {
+                    case "getUpdateCount":
+                        return batchedUpdateCount;
+                    case "getMoreResults":
+                        batchedUpdateCount = -1;
+                        return Boolean.FALSE;
+                    case "getResultSet":
+                        return null;
+                    default:
+                        break;
+                }
+            }
+            if (!name.equals("close") && !name.equals("setEscapeProcessing") && !name.equals("getWarnings")) {
+                batchedUpdateCount = -2;
+                connection.flush();
+            }
+            return BatchingDataSource.invoke(statement, method, args);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.github.wildfly.flyway.jdbc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single-row {@code INSERT INTO table [(columns)] VALUES (literals)} statement split into a
+ * parameterized template and its values.
+ *
+ * <p>Only statements whose values are plain literals are recognized: string literals without
+ * prefix or backslash (whose meaning differs between databases), numbers and {@code NULL}.
+ * Everything else (expressions, functions, casts, multi-row {@code VALUES},
+ * {@code INSERT ... SELECT}) is left to the database as written.</p>
+ */
+final class InsertStatement {
+
+    /** Marker for an SQL {@code NULL} value. */
+    static final Object NULL = new Object() {
+        @Override
+        public String toString() {
+            return "NULL";
+        }
+    };
+
+    private final String template;
+    private final List<Object> values;
+
+    private InsertStatement(String template, List<Object> values) {
+        this.template = template;
+        this.values = values;
+    }
+
+    /**
+     * @return the statement with {@code ?} in place of every value; statements with the same
+     *         template are structurally identical
+     */
+    String getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return the values: {@link String}, {@link BigDecimal} or {@link #NULL}
+     */
+    List<Object> getValues() {
+        return values;
+    }
+
+    /**
+     * @return the parsed statement, or {@code null} if {@code sql} is not a batchable INSERT
+     */
+    static InsertStatement parse(String sql) {
+        return new Parser(sql).parse();
+    }
+
+    private static final class Parser {
+        private final String sql;
+        private int pos;
+
+        Parser(String sql) {
+            this.sql = sql;
+        }
+
+        InsertStatement parse() {
+            skipSpace();
+            if (!keyword("INSERT") || !keyword("INTO")) {
+                return null;
+            }
+            StringBuilder template = new StringBuilder(sql.length());
+            template.append("INSERT INTO ");
+            String table = qualifiedName();
+            if (table == null) {
+                return null;
+            }
+            template.append(table);
+
+            if (peek() == '(') {
+                pos++;
+                template.append(" (");
+                boolean first = true;
+                do {
+                    skipSpace();
+                    String column = name();
+                    if (column == null) {
+                        return null;
+                    }
+                    template.append(first ? "" : ", ").append(column);
+                    first = false;
+                    skipSpace();
+                } while (consume(','));
+                if (!consume(')')) {
+                    return null;
+                }
+                template.append(')');
+                skipSpace();
+            }
+
+            if (!keyword("VALUES") || !consume('(')) {
+                return null;
+            }
+            template.append(" VALUES (");
+            List<Object> values = new ArrayList<>();
+            do {
+                skipSpace();
+                Object value = literal();
+                if (value == null) {
+                    return null;
+                }
+                values.add(value);
+                template.append(values.size() == 1 ? "?" : ", ?");
+                skipSpace();
+            } while (consume(','));
+            if (!consume(')')) {
+                return null;
+            }
+            template.append(')');
+
+            skipSpace();
+            consume(';');
+            skipSpace();
+            if (pos != sql.length()) {
+                return null;
+            }
+            return new InsertStatement(template.toString(), Collections.unmodifiableList(values));
+        }
+
+        private Object literal() {
+            char c = peek();
+            if (c == '\'') {
+                return string();
+            }
+            if (Character.isDigit(c) || c == '-' || c == '+' || c == '.') {
+                return number();
+            }
+            int start = pos;
+            if (keyword("NULL")) {
+                return NULL;
+            }
+            pos = start;
+            return null;
+        }
+
+        private String string() {
+            StringBuilder value = new StringBuilder();
+            pos++;
+            while (pos < sql.length()) {
+                char c = sql.charAt(pos++);
+                if (c == '\\') {
+                    return null;
+                }
+                if (c == '\'') {
+                    if (peek() == '\'') {
+                        value.append('\'');
+                        pos++;
+                        continue;
+                    }
+                    return value.toString();
+                }
+                value.append(c);
+            }
+            return null;
+        }
+
+        private BigDecimal number() {
+            int start = pos;
+            if (peek() == '-' || peek() == '+') {
+                pos++;
+            }
+            int digits = 0;
+            while (Character.isDigit(peek())) {
+                pos++;
+                digits++;
+            }
+            if (peek() == '.') {
+                pos++;
+                while (Character.isDigit(peek())) {
+                    pos++;
+                    digits++;
+                }
+            }
+            if (digits == 0) {
+                return null;
+            }
+            if (peek() == 'e' || peek() == 'E') {
+                pos++;
+                if (peek() == '-' || peek() == '+') {
+                    pos++;
+                }
+                if (!Character.isDigit(peek())) {
+                    return null;
+                }
+                while (Character.isDigit(peek())) {
+                    pos++;
+                }
+            }
+            try {
+                return new BigDecimal(sql.substring(start, pos));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        private String qualifiedName() {
+            StringBuilder name = new StringBuilder();
+            do {
+                String part = name();
+                if (part == null) {
+                    return null;
+                }
+                if (name.length() > 0) {
+                    name.append('.');
+                }
+                name.append(part);
+            } while (consume('.'));
+            skipSpace();
+            return name.toString();
+        }
+
+        /** A plain or quoted identifier, as written. */
+        private String name() {
+            int start = pos;
+            char c = peek();
+            char close = c == '"' ? '"' : c == '`' ? '`' : c == '[' ? ']' : 0;
+            if (close != 0) {
+                int end = sql.indexOf(close, pos + 1);
+                if (end < 0) {
+                    return null;
+                }
+                pos = end + 1;
+                return sql.substring(start, pos);
+            }
+            if (!Character.isLetter(c) && c != '_') {
+                return null;
+            }
+            while (Character.isLetterOrDigit(peek()) || peek() == '_' || peek() == '$') {
+                pos++;
+            }
+            return sql.substring(start, pos);
+        }
+
+        private boolean keyword(String keyword) {
+            if (!sql.regionMatches(true, pos, keyword, 0, keyword.length())) {
+                return false;
+            }
+            int end = pos + keyword.length();
+            if (end < sql.length() && (Character.isLetterOrDigit(sql.charAt(end)) || sql.charAt(end) == '_')) {
+                return false;
+            }
+            pos = end;
+            skipSpace();
+            return true;
+        }
+
+        private boolean consume(char c) {
+            if (peek() == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private char peek() {
+            return pos < sql.length() ? sql.charAt(pos) : 0;
+        }
+
+        /** Whitespace and comments. */
+        private void skipSpace() {
+            while (pos < sql.length()) {
+                char c = sql.charAt(pos);
+                if (Character.isWhitespace(c)) {
+                    pos++;
+                } else if (sql.startsWith("--", pos)) {
+                    int end = sql.indexOf('\n', pos);
+                    pos = end < 0 ? sql.length() : end + 1;
+                } else if (sql.startsWith("/*", pos)) {
+                    int end = sql.indexOf("*/", pos + 2);
+                    pos = end < 0 ? sql.length() : end + 2;
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+}
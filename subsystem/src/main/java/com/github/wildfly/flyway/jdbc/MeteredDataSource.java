@@ -0,0 +1,247 @@
+package com.github.wildfly.flyway.jdbc;
+
+import com.github.wildfly.flyway.logging.FlywayLogger;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * DataSource that measures how long migrations wait for connections of a datasource and how
+ * many they hold, as reported by the {@code migration-connection-metrics} operation.
+ *
+ * <p>The wait is the time spent in {@code getConnection()}: pool borrow wait for a pooled
+ * datasource, connect time for an unpooled one. Metrics are kept per datasource JNDI name for
+ * the lifetime of the server, so they cover all migration runs against that datasource.</p>
+ */
+public final class MeteredDataSource implements DataSource {
+
+    /** A borrow waiting longer than this is logged, as it means migrations compete for the pool. */
+    private static final long SLOW_BORROW_MILLIS = 1000;
+
+    private static final ConcurrentMap<String, Metrics> METRICS = new ConcurrentHashMap<>();
+
+    private final DataSource delegate;
+    private final Metrics metrics;
+
+    private MeteredDataSource(DataSource delegate, Metrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param name the JNDI name of the datasource the metrics are recorded under
+     */
+    public static DataSource wrap(DataSource dataSource, String name) {
+        if (dataSource instanceof MeteredDataSource) {
+            dataSource = ((MeteredDataSource) dataSource).delegate;
+        }
+        return new MeteredDataSource(dataSource, METRICS.computeIfAbsent(name, Metrics::new));
+    }
+
+    /**
+     * @return the metrics of all datasources migrations have borrowed connections from, by name
+     */
+    public static List<Metrics> metrics() {
+        List<Metrics> metrics = new ArrayList<>(METRICS.values());
+        metrics.sort(Comparator.comparing(Metrics::getName));
+        return metrics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return borrowed(delegate.getConnection(), start);
+        } catch (SQLException | RuntimeException e) {
+            metrics.failed(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return borrowed(delegate.getConnection(username, password), start);
+        } catch (SQLException | RuntimeException e) {
+            metrics.failed(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private Connection borrowed(Connection connection, long start) {
+        long waitNanos = System.nanoTime() - start;
+        metrics.borrowed(waitNanos);
+        long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        if (waitMillis >= SLOW_BORROW_MILLIS) {
+            FlywayLogger.warnf("Migration waited %d ms for a connection of %s; consider a dedicated "
+                    + "spring.flyway.migration-datasource", waitMillis, metrics.getName());
+        }
+        return (Connection) Proxy.newProxyInstance(MeteredDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new ConnectionHandler(connection, metrics));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+
+    /**
+     * Counts the connection as held until it is closed.
+     */
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+        private final Metrics metrics;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        ConnectionHandler(Connection connection, Metrics metrics) {
+            this.connection = connection;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+                metrics.returned();
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Borrow statistics of one datasource.
+     */
+    public static final class Metrics {
+        private final String name;
+        private final LongAdder borrows = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder totalWaitNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger peakActive = new AtomicInteger();
+
+        Metrics(String name) {
+            this.name = name;
+        }
+
+        void borrowed(long waitNanos) {
+            borrows.increment();
+            waited(waitNanos);
+            peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        }
+
+        void failed(long waitNanos) {
+            failures.increment();
+            waited(waitNanos);
+        }
+
+        void returned() {
+            active.decrementAndGet();
+        }
+
+        private void waited(long waitNanos) {
+            totalWaitNanos.add(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return connections obtained
+         */
+        public long getBorrows() {
+            return borrows.sum();
+        }
+
+        /**
+         * @return attempts to obtain a connection that failed, e.g. on a pool timeout
+         */
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * @return time spent waiting for connections, including failed attempts
+         */
+        public long getTotalWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum());
+        }
+
+        public long getMaxWaitMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+        }
+
+        public double getAverageWaitMillis() {
+            long attempts = getBorrows() + getFailures();
+            return attempts == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / attempts;
+        }
+
+        /**
+         * @return connections currently held by migrations
+         */
+        public int getActive() {
+            return active.get();
+        }
+
+        /**
+         * @return the most connections migrations held at the same time
+         */
+        public int getPeakActive() {
+            return peakActive.get();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.wildfly.flyway.jdbc;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a failed migration is repeated and how long to wait before repeating it.
+ *
+ * <p>Deadlocks and serialization failures ({@code 40001}, {@code 40P01} and further configured
+ * SQLStates, plus SQL Server's deadlock error code, reported without such a state) are transient:
+ * the database aborted the transaction and running it again usually succeeds. Lock timeouts are
+ * retried with their own budget, as they mostly mean a long transaction is still running. Retries
+ * are only safe on databases that roll back a failed migration including its DDL, see
+ * {@link #canRetry(String)}; on the others nothing is classified as retryable.</p>
+ *
+ * <p>The wait grows exponentially from {@code backoffMillis} up to {@code maxBackoffMillis}; a
+ * random half of it is dropped so that nodes that failed together do not retry together.</p>
+ */
+public final class RetryPolicy {
+
+    /** Why a migration failed, if it is worth repeating. */
+    public enum Reason {
+        /** Deadlock or serialization failure; the database aborted the transaction. */
+        DEADLOCK,
+        /** A lock could not be obtained in time. */
+        LOCK_TIMEOUT
+    }
+
+    private final int maxAttempts;
+    private final int lockTimeoutRetries;
+    private final long backoffMillis;
+    private final long maxBackoffMillis;
+    private final Set<String> sqlStates;
+
+    /**
+     * @param maxAttempts        attempts of a migration failing on deadlocks, including the first
+     * @param lockTimeoutRetries repetitions of a migration failing on lock timeouts
+     * @param backoffMillis      wait before the first retry
+     * @param maxBackoffMillis   upper bound of the wait
+     * @param sqlStates          SQLStates of deadlocks and serialization failures
+     */
+    public RetryPolicy(int maxAttempts, int lockTimeoutRetries, long backoffMillis, long maxBackoffMillis,
+                       Collection<String> sqlStates) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.lockTimeoutRetries = Math.max(0, lockTimeoutRetries);
+        this.backoffMillis = Math.max(1, backoffMillis);
+        this.maxBackoffMillis = Math.max(this.backoffMillis, maxBackoffMillis);
+        this.sqlStates = new HashSet<>(sqlStates);
+    }
+
+    /**
+     * @param vendor the vendor as detected from the JDBC URL; may be {@code null}
+     * @return why {@code e} or one of its causes failed, or {@code null} if it is not retryable
+     *         or {@code vendor} cannot {@linkplain #canRetry(String) retry}
+     */
+    public Reason classify(Throwable e, String vendor) {
+        if (!canRetry(vendor)) {
+            return null;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && isDeadlock((SQLException) cause, vendor)) {
+                return Reason.DEADLOCK;
+            }
+        }
+        return SessionProfile.isLockTimeout(e) ? Reason.LOCK_TIMEOUT : null;
+    }
+
+    private boolean isDeadlock(SQLException e, String vendor) {
+        if (e.getSQLState() != null && sqlStates.contains(e.getSQLState())) {
+            return true;
+        }
+        return "sqlserver".equals(vendor) && e.getErrorCode() == 1205;    // chosen as deadlock victim
+    }
+
+    /**
+     * @return the attempts a migration failing for {@code reason} gets, including the first
+     */
+    public int maxAttempts(Reason reason) {
+        return reason == Reason.LOCK_TIMEOUT ? lockTimeoutRetries + 1 : maxAttempts;
+    }
+
+    /**
+     * @param attempt the failed attempt, starting at {@code 1}
+     * @return the jittered wait before the next attempt
+     */
+    public long backoffMillis(int attempt) {
+        return backoffMillis(attempt, ThreadLocalRandom.current().nextDouble());
+    }
+
+    long backoffMillis(int attempt, double random) {
+        long delay = Math.min(maxBackoffMillis, backoffMillis << Math.min(30, Math.max(0, attempt - 1)));
+        return delay / 2 + (long) (random * (delay - delay / 2));
+    }
+
+    /**
+     * @return whether a failed migration is rolled back completely, including its DDL, so that it
+     *         can simply be run again; elsewhere Flyway records it as failed and it needs a repair
+     */
+    public static boolean canRetry(String vendor) {
+        return SessionProfile.hasTransactionalDdl(vendor);
+    }
+}
@@ -0,0 +1,311 @@
+package com.github.wildfly.flyway.jdbc;
+
+import org.flywaydb.core.api.FlywayException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Session settings applied to the migration connection, rendered as SQL for the database vendor.
+ *
+ * <p>A profile has portable settings ({@code lock-timeout}, {@code statement-timeout},
+ * {@code work-mem}, {@code maintenance-work-mem}) and optional raw statements ({@code sql}, or
+ * {@code sql.<vendor>} for one vendor). Settings a vendor has no session equivalent for are
+ * skipped. Profiles are defined as {@code spring.flyway.session-profiles.<name>.<setting>};
+ * the built-in profiles {@value #DEFAULT}, {@value #ONLINE} and {@value #HEAVY_DDL} can be
+ * adjusted the same way.</p>
+ */
+public final class SessionProfile {
+
+    /** No settings; only resets what a per-script profile changed. */
+    public static final String DEFAULT = "default";
+    /** A bounded lock timeout, so migrations do not queue behind production traffic. */
+    public static final String ONLINE = "online";
+    /** A bounded lock timeout, no statement timeout and generous sort and maintenance memory. */
+    public static final String HEAVY_DDL = "heavy-ddl";
+
+    private static final Pattern DURATION = Pattern.compile("(\\d+)\\s*(ms|s|m|min|h)?");
+    /** A raw {@code SET [SESSION] name = value} or {@code SET name TO value}, not {@code SET LOCAL}. */
+    private static final Pattern SET_PARAMETER = Pattern.compile(
+            "SET\\s+(?:SESSION\\s+)?([A-Za-z_][\\w.]*)\\s*(?:=|\\s+TO\\s)", Pattern.CASE_INSENSITIVE);
+
+    private final String name;
+    private final Map<String, String> settings;
+
+    SessionProfile(String name, Map<String, String> settings) {
+        this.name = name;
+        this.settings = Collections.unmodifiableMap(new HashMap<>(settings));
+    }
+
+    /**
+     * Build the built-in profiles overlaid with the profiles defined in {@code properties}.
+     *
+     * @param prefix the property prefix of the profiles, {@code spring.flyway.session-profiles.}
+     */
+    public static Map<String, SessionProfile> fromProperties(Map<String, String> properties, String prefix) {
+        Map<String, Map<String, String>> definitions = new HashMap<>();
+        definitions.put(DEFAULT, new HashMap<>());
+        Map<String, String> online = new HashMap<>();
+        online.put("lock-timeout", "5s");
+        definitions.put(ONLINE, online);
+        Map<String, String> heavyDdl = new HashMap<>();
+        heavyDdl.put("lock-timeout", "5s");
+        heavyDdl.put("statement-timeout", "0");
+        heavyDdl.put("work-mem", "256MB");
+        heavyDdl.put("maintenance-work-mem", "2GB");
+        definitions.put(HEAVY_DDL, heavyDdl);
+
+        properties.forEach((key, value) -> {
+            if (key.startsWith(prefix)) {
+                String rest = key.substring(prefix.length());
+                int dot = rest.indexOf('.');
+                if (dot > 0 && dot < rest.length() - 1) {
+                    definitions.computeIfAbsent(rest.substring(0, dot), name -> new HashMap<>())
+                            .put(rest.substring(dot + 1), value.trim());
+                }
+            }
+        });
+
+        Map<String, SessionProfile> profiles = new HashMap<>();
+        definitions.forEach((name, settings) -> profiles.put(name, new SessionProfile(name, settings)));
+        return profiles;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param vendor the vendor as detected from the JDBC URL, e.g. {@code postgresql}; may be {@code null}
+     * @return the statements that apply this profile to a session
+     */
+    public List<String> applyStatements(String vendor) {
+        List<String> statements = new ArrayList<>();
+        String v = vendor != null ? vendor : "";
+        Long lockTimeout = millis("lock-timeout");
+        Long statementTimeout = millis("statement-timeout");
+        String workMem = settings.get("work-mem");
+        String maintenanceWorkMem = settings.get("maintenance-work-mem");
+        switch (v) {
+            case "postgresql":
+                if (lockTimeout != null) {
+                    statements.add("SET lock_timeout = '" + lockTimeout + "ms'");
+                }
+                if (statementTimeout != null) {
+                    statements.add("SET statement_timeout = '" + statementTimeout + "ms'");
+                }
+                if (workMem != null) {
+                    statements.add("SET work_mem = '" + memory(workMem) + "'");
+                }
+                if (maintenanceWorkMem != null) {
+                    statements.add("SET maintenance_work_mem = '" + memory(maintenanceWorkMem) + "'");
+                }
+                break;
+            case "mysql":
+            case "mariadb":
+                if (lockTimeout != null) {
+                    long seconds = Math.max(1, (lockTimeout + 999) / 1000);
+                    statements.add("SET SESSION lock_wait_timeout = " + seconds);
+                    statements.add("SET SESSION innodb_lock_wait_timeout = " + seconds);
+                }
+                if (statementTimeout != null) {
+                    statements.add("mysql".equals(v)
+                            ? "SET SESSION max_execution_time = " + statementTimeout
+                            : "SET SESSION max_statement_time = " + statementTimeout / 1000.0);
+                }
+                break;
+            case "sqlserver":
+                if (lockTimeout != null) {
+                    statements.add("SET LOCK_TIMEOUT " + lockTimeout);
+                }
+                break;
+            case "oracle":
+                if (lockTimeout != null) {
+                    statements.add("ALTER SESSION SET ddl_lock_timeout = " + Math.min(1_000_000, lockTimeout / 1000));
+                }
+                break;
+            case "db2":
+                if (lockTimeout != null) {
+                    statements.add("SET CURRENT LOCK TIMEOUT = " + Math.max(1, (lockTimeout + 999) / 1000));
+                }
+                break;
+            default:
+                break;
+        }
+        statements.addAll(split(settings.get("sql")));
+        statements.addAll(split(settings.get("sql." + v)));
+        return statements;
+    }
+
+    /**
+     * @return the statements that return the settings of this profile to the session defaults;
+     *         of the raw {@code sql} statements only {@code SET} of a parameter is reset, on
+     *         PostgreSQL, MySQL and MariaDB
+     */
+    public List<String> resetStatements(String vendor) {
+        List<String> statements = new ArrayList<>();
+        String v = vendor != null ? vendor : "";
+        boolean lockTimeout = settings.containsKey("lock-timeout");
+        boolean statementTimeout = settings.containsKey("statement-timeout");
+        switch (v) {
+            case "postgresql":
+                if (lockTimeout) {
+                    statements.add("RESET lock_timeout");
+                }
+                if (statementTimeout) {
+                    statements.add("RESET statement_timeout");
+                }
+                if (settings.containsKey("work-mem")) {
+                    statements.add("RESET work_mem");
+                }
+                if (settings.containsKey("maintenance-work-mem")) {
+                    statements.add("RESET maintenance_work_mem");
+                }
+                break;
+            case "mysql":
+            case "mariadb":
+                if (lockTimeout) {
+                    statements.add("SET SESSION lock_wait_timeout = DEFAULT");
+                    statements.add("SET SESSION innodb_lock_wait_timeout = DEFAULT");
+                }
+                if (statementTimeout) {
+                    statements.add("mysql".equals(v)
+                            ? "SET SESSION max_execution_time = DEFAULT" : "SET SESSION max_statement_time = DEFAULT");
+                }
+                break;
+            case "sqlserver":
+                if (lockTimeout) {
+                    statements.add("SET LOCK_TIMEOUT -1");
+                }
+                break;
+            case "oracle":
+                if (lockTimeout) {
+                    statements.add("ALTER SESSION SET ddl_lock_timeout = 0");
+                }
+                break;
+            case "db2":
+                if (lockTimeout) {
+                    statements.add("SET CURRENT LOCK TIMEOUT = NULL");
+                }
+                break;
+            default:
+                break;
+        }
+        for (String parameter : setParameters(v)) {
+            if ("postgresql".equals(v)) {
+                statements.add("RESET " + parameter);
+            } else if ("mysql".equals(v) || "mariadb".equals(v)) {
+                statements.add("SET SESSION " + parameter + " = DEFAULT");
+            }
+        }
+        return statements;
+    }
+
+    /**
+     * @return the reset statements of each of {@code profiles}, once each; settings no profile
+     *         changed, such as those of the datasource's {@code new-connection-sql}, are kept
+     */
+    public static List<String> resetAllStatements(String vendor, SessionProfile... profiles) {
+        Set<String> statements = new LinkedHashSet<>();
+        for (SessionProfile profile : profiles) {
+            if (profile != null) {
+                statements.addAll(profile.resetStatements(vendor));
+            }
+        }
+        return new ArrayList<>(statements);
+    }
+
+    /**
+     * @return whether {@code e} or one of its causes reports a lock timeout
+     */
+    public static boolean isLockTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                SQLException sql = (SQLException) cause;
+                int code = sql.getErrorCode();
+                if ("55P03".equals(sql.getSQLState())           // PostgreSQL lock_not_available
+                        || code == 1205 || code == 3572           // MySQL/MariaDB lock wait timeout, NOWAIT
+                        || code == 1222                           // SQL Server lock request time out
+                        || code == 30006 || code == 54) {         // Oracle resource busy
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether a failed migration is rolled back completely, including its DDL, so that it
+     *         can simply be run again
+     */
+    public static boolean hasTransactionalDdl(String vendor) {
+        return "postgresql".equals(vendor) || "sqlserver".equals(vendor) || "db2".equals(vendor)
+                || "h2".equals(vendor);
+    }
+
+    private Long millis(String setting) {
+        String value = settings.get(setting);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        Matcher matcher = DURATION.matcher(value.toLowerCase(Locale.ROOT));
+        if (!matcher.matches()) {
+            throw new FlywayException("Invalid " + setting + " of session profile " + name + ": " + value);
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        String unit = matcher.group(2);
+        if (unit == null || "ms".equals(unit)) {
+            return amount;
+        }
+        switch (unit) {
+            case "s":
+                return amount * 1000;
+            case "m":
+            case "min":
+                return amount * 60_000;
+            default:
+                return amount * 3_600_000;
+        }
+    }
+
+    private String memory(String value) {
+        if (!value.matches("\\d+\\s*(kB|MB|GB|TB)?")) {
+            throw new FlywayException("Invalid memory setting of session profile " + name + ": " + value);
+        }
+        return value.replace(" ", "");
+    }
+
+    private List<String> setParameters(String vendor) {
+        List<String> parameters = new ArrayList<>();
+        List<String> statements = split(settings.get("sql"));
+        statements.addAll(split(settings.get("sql." + vendor)));
+        for (String statement : statements) {
+            Matcher matcher = SET_PARAMETER.matcher(statement);
+            if (matcher.lookingAt()) {
+                parameters.add(matcher.group(1));
+            }
+        }
+        return parameters;
+    }
+
+    private static List<String> split(String sql) {
+        List<String> statements = new ArrayList<>();
+        if (sql != null) {
+            for (String statement : sql.split(";")) {
+                if (!statement.trim().isEmpty()) {
+                    statements.add(statement.trim());
+                }
+            }
+        }
+        return statements;
+    }
+}
@@ -0,0 +1,199 @@
+package com.github.wildfly.flyway.jdbc;
+
+import com.github.wildfly.flyway.config.SpringBootPropertyResolver;
+import com.github.wildfly.flyway.logging.FlywayLogger;
+import com.github.wildfly.flyway.resource.ScriptHeader;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.Location;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.resource.LoadableResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies session profiles to the migration connection: the base profile before the migration
+ * run, and the profile a SQL script declares with {@code -- flyway:session-profile=<name>} around
+ * that script, after which the base profile is restored. After the run the session defaults are
+ * restored, so the pooled connection goes back clean.
+ */
+public final class SessionProfileCallback implements Callback {
+
+    static final String DIRECTIVE = "session-profile";
+
+    private final Map<String, SessionProfile> profiles;
+    private final SessionProfile base;
+    private String vendor;
+    private SessionProfile override;
+
+    /**
+     * @param profiles the available profiles by name
+     * @param baseName the profile applied to all migrations
+     * @throws FlywayException if there is no profile {@code baseName}
+     */
+    public SessionProfileCallback(Map<String, SessionProfile> profiles, String baseName) {
+        this.profiles = profiles;
+        this.base = profile(baseName);
+    }
+
+    @Override
+    public boolean supports(Event event, Context context) {
+        return event == Event.BEFORE_MIGRATE
+                || event == Event.BEFORE_EACH_MIGRATE
+                || event == Event.AFTER_EACH_MIGRATE
+                || event == Event.AFTER_EACH_MIGRATE_ERROR
+                || event == Event.AFTER_MIGRATE
+                || event == Event.AFTER_MIGRATE_ERROR;
+    }
+
+    @Override
+    public boolean canHandleInTransaction(Event event, Context context) {
+        return true;
+    }
+
+    @Override
+    public void handle(Event event, Context context) {
+        try {
+            switch (event) {
+                case BEFORE_MIGRATE:
+                    vendor = SpringBootPropertyResolver.detectVendor(context.getConnection().getMetaData().getURL());
+                    override = null;
+                    execute(context.getConnection(), base.applyStatements(vendor));
+                    FlywayLogger.debugf("Applied session profile %s for %s", base.getName(), vendor);
+                    break;
+                case BEFORE_EACH_MIGRATE:
+                    String name = directive(context.getConfiguration(), context.getMigrationInfo());
+                    if (name != null && !name.equals(base.getName())) {
+                        SessionProfile profile = profile(name);
+                        execute(context.getConnection(), profile.applyStatements(vendor));
+                        override = profile;
+                        FlywayLogger.debugf("Applied session profile %s for %s", name,
+                                context.getMigrationInfo().getScript());
+                    }
+                    break;
+                case AFTER_MIGRATE:
+                case AFTER_MIGRATE_ERROR:
+                    reset(context.getConnection(), event == Event.AFTER_MIGRATE_ERROR);
+                    break;
+                default:
+                    if (override != null) {
+                        SessionProfile previous = override;
+                        override = null;
+                        restore(context.getConnection(), previous, event == Event.AFTER_EACH_MIGRATE_ERROR);
+                    }
+                    break;
+            }
+        } catch (SQLException e) {
+            throw new FlywayException("Unable to apply session profile: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String getCallbackName() {
+        return "session-profile";
+    }
+
+    private void restore(Connection connection, SessionProfile previous, boolean afterError) throws SQLException {
+        try {
+            execute(connection, previous.resetStatements(vendor));
+            execute(connection, base.applyStatements(vendor));
+        } catch (SQLException e) {
+            if (!afterError) {
+                throw e;
+            }
+            // An aborted transaction rejects statements; its rollback restores the session on
+            // databases with transactional SET, and the run stops anyway
+            FlywayLogger.debugf("Session profile %s not reset after failed migration: %s",
+                    previous.getName(), e.getMessage());
+        }
+    }
+
+    private void reset(Connection connection, boolean afterError) throws SQLException {
+        SessionProfile previous = override;
+        override = null;
+        try {
+            execute(connection, SessionProfile.resetAllStatements(vendor, previous, base));
+            FlywayLogger.debugf("Reset session profile %s for %s", base.getName(), vendor);
+        } catch (SQLException e) {
+            if (!afterError) {
+                throw e;
+            }
+            FlywayLogger.warnf("Session profile %s not reset after failed migration run: %s",
+                    base.getName(), e.getMessage());
+        }
+    }
+
+    private SessionProfile profile(String name) {
+        SessionProfile profile = profiles.get(name);
+        if (profile == null) {
+            throw new FlywayException("Unknown session profile: " + name);
+        }
+        return profile;
+    }
+
+    private static void execute(Connection connection, List<String> statements) throws SQLException {
+        if (statements.isEmpty()) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * @return the session profile declared by the script of {@code info}, or {@code null}
+     */
+    static String directive(Configuration configuration, MigrationInfo info) {
+        // Java migrations have their class name as script and are not found
+        if (info == null || info.getScript() == null) {
+            return null;
+        }
+        try (Reader reader = open(configuration, info.getScript())) {
+            return reader != null ? ScriptHeader.directive(reader, DIRECTIVE) : null;
+        } catch (IOException e) {
+            FlywayLogger.debugf("Unable to read header of %s: %s", info.getScript(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static Reader open(Configuration configuration, String script) throws IOException {
+        if (configuration.getResourceProvider() != null) {
+            LoadableResource resource = configuration.getResourceProvider().getResource(script);
+            if (resource != null) {
+                return resource.read();
+            }
+        }
+        for (Location location : configuration.getLocations()) {
+            String root = location.getRootPath();
+            if (location.isClassPath()) {
+                InputStream in = configuration.getClassLoader()
+                        .getResourceAsStream(root.isEmpty() ? script : root + "/" + script);
+                if (in != null) {
+                    return new InputStreamReader(in, configuration.getEncoding());
+                }
+            } else if (location.isFileSystem()) {
+                Path path = Paths.get(root, script);
+                if (Files.isRegularFile(path)) {
+                    return Files.newBufferedReader(path, configuration.getEncoding());
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.wildfly.flyway.logging;
+
+import org.flywaydb.core.api.logging.Log;
+import org.flywaydb.core.api.logging.LogCreator;
+import org.flywaydb.core.api.logging.LogFactory;
+import org.jboss.logging.Logger;
+
+/**
+ * Routes Flyway's own log output to JBoss Logging under the
+ * {@code com.github.wildfly.flyway.migration} category, one child category per Flyway class
+ * (e.g. {@code com.github.wildfly.flyway.migration.org.flywaydb.core.internal.command.DbMigrate}).
+ *
+ * <p>Every call checks the target level first, so disabled messages are dropped before they
+ * reach a handler. Lines are tagged with the migrating deployment and datasource through the
+ * MDC set by {@link FlywayLogger#migrationContext(String, String)}; add
+ * {@code %X{flyway.deployment}} to a formatter pattern to show it.</p>
+ */
+public final class FlywayLogCreator implements LogCreator {
+
+    static final FlywayLogCreator INSTANCE = new FlywayLogCreator();
+
+    private static volatile boolean installed;
+
+    private FlywayLogCreator() {
+    }
+
+    /**
+     * Make this the log creator of the Flyway module. Flyway keeps its log creator in a static
+     * field of {@link LogFactory}, so installing it once covers every configuration; calling this
+     * again is a no-op.
+     */
+    public static void install() {
+        if (!installed) {
+            synchronized (FlywayLogCreator.class) {
+                if (!installed) {
+                    LogFactory.setLogCreator(INSTANCE);
+                    installed = true;
+                    FlywayLogger.debug("Installed JBoss Logging log creator for Flyway");
+                }
+            }
+        }
+    }
+
+    @Override
+    public Log createLogger(Class<?> clazz) {
+        return new JBossLog(FlywayLogger.flywayCategory(clazz));
+    }
+
+    private static final class JBossLog implements Log {
+
+        private final Logger logger;
+
+        JBossLog(Logger logger) {
+            this.logger = logger;
+        }
+
+        @Override
+        public boolean isDebugEnabled() {
+            return logger.isDebugEnabled();
+        }
+
+        @Override
+        public void debug(String message) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(message);
+            }
+        }
+
+        @Override
+        public void info(String message) {
+            if (logger.isInfoEnabled()) {
+                logger.info(message);
+            }
+        }
+
+        @Override
+        public void warn(String message) {
+            if (logger.isEnabled(Logger.Level.WARN)) {
+                logger.warn(message);
+            }
+        }
+
+        @Override
+        public void error(String message) {
+            if (logger.isEnabled(Logger.Level.ERROR)) {
+                logger.error(message);
+            }
+        }
+
+        @Override
+        public void error(String message, Exception e) {
+            if (logger.isEnabled(Logger.Level.ERROR)) {
+                logger.error(message, e);
+            }
+        }
+
+        @Override
+        public void notice(String message) {
+            info(message);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.github.wildfly.flyway.logging;
 
 import org.jboss.logging.Logger;
 import org.jboss.logging.Logger.Level;
+import org.jboss.logging.MDC;
 
 /**
  * Flyway subsystem logger with enhanced capabilities.
@@ -17,6 +18,10 @@ public class FlywayLogger {
     private static final Logger SECURITY_LOGGER = Logger.getLogger("com.github.wildfly.flyway.security");
     private static final Logger PERFORMANCE_LOGGER = Logger.getLogger("com.github.wildfly.flyway.performance");
     
+    // MDC keys set while a migration runs
+    public static final String MDC_DEPLOYMENT = "flyway.deployment";
+    public static final String MDC_DATASOURCE = "flyway.datasource";
+    
     // Log level checks for performance
     public static boolean isDebugEnabled() {
         return ROOT_LOGGER.isDebugEnabled();
@@ -103,6 +108,21 @@ public class FlywayLogger {
         }
     }
     
+    /**
+     * Category for Flyway's own output from the given class, below the migration category.
+     */
+    static Logger flywayCategory(Class<?> clazz) {
+        return Logger.getLogger(MIGRATION_LOGGER.getName() + "." + clazz.getName());
+    }
+    
+    /**
+     * Tag all log output of the current thread with the deployment (or server migration) and
+     * datasource until the returned context is closed; previous MDC values are restored then.
+     */
+    public static MigrationContext migrationContext(String deployment, String datasource) {
+        return new MigrationContext(deployment, datasource);
+    }
+    
     // Performance tracking methods
     public static long startOperation(String operation) {
         debugf("Starting operation: %s", operation);
@@ -126,19 +146,42 @@ public class FlywayLogger {
         return "***MASKED***";
     }
     
+    /**
+     * Mask credentials in a JDBC URL, see {@link LogMasker#maskJdbcUrl(String)}.
+     */
     public static String maskJdbcUrl(String jdbcUrl) {
-        if (jdbcUrl == null) {
-            return null;
+        return LogMasker.maskJdbcUrl(jdbcUrl);
+    }
+    
+    /**
+     * MDC scope of a running migration, see {@link #migrationContext(String, String)}.
+     */
+    public static final class MigrationContext implements AutoCloseable {
+        private final Object previousDeployment;
+        private final Object previousDatasource;
+        
+        private MigrationContext(String deployment, String datasource) {
+            previousDeployment = put(MDC_DEPLOYMENT, deployment);
+            previousDatasource = put(MDC_DATASOURCE, datasource);
         }
         
-        // Mask password in JDBC URL
-        String masked = jdbcUrl.replaceAll("password=[^;&]*", "password=***")
-                               .replaceAll(":[^:@]+@", ":***@"); // user:password@host pattern
+        @Override
+        public void close() {
+            restore(MDC_DEPLOYMENT, previousDeployment);
+            restore(MDC_DATASOURCE, previousDatasource);
+        }
         
-        // Mask any query parameters that might contain sensitive data
-        masked = masked.replaceAll("(secret|token|key|pwd)=[^&]*", "$1=***");
+        private static Object put(String key, String value) {
+            return value != null ? MDC.put(key, value) : MDC.get(key);
+        }
         
-        return masked;
+        private static void restore(String key, Object previous) {
+            if (previous != null) {
+                MDC.put(key, previous);
+            } else {
+                MDC.remove(key);
+            }
+        }
     }
     
     // Deployment context logging
@@ -0,0 +1,206 @@
+package com.github.wildfly.flyway.logging;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * Masks credentials and resource names before they are logged.
+ *
+ * <p>All patterns are compiled once. Masked results are cached per input, since the same
+ * JNDI names and JDBC URLs are logged for every deployment. A JDBC URL that holds credentials
+ * is cached under its SHA-256 digest, so the cache never keeps the credentials themselves.
+ * The {@code lazy*} factories
+ * return an argument for the {@code *f} methods of {@link FlywayLogger} that masks only when
+ * the message is actually formatted, i.e. when the target level is enabled.</p>
+ *
+ * <p>Two system properties, read once when this class is initialized, adjust the defaults:</p>
+ * <ul>
+ *   <li>{@value #PARAMETERS_PROPERTY}: comma-separated names of URL parameters whose values
+ *       are masked (default {@value #DEFAULT_PARAMETERS}).</li>
+ *   <li>{@value #KEYS_PROPERTY}: comma-separated substrings of property keys whose values are
+ *       masked (default {@value #DEFAULT_KEYS}).</li>
+ * </ul>
+ */
+public final class LogMasker {
+
+    public static final String PARAMETERS_PROPERTY = "com.github.wildfly.flyway.mask.parameters";
+    public static final String KEYS_PROPERTY = "com.github.wildfly.flyway.mask.keys";
+
+    static final String DEFAULT_PARAMETERS = "password,secret,token,key,pwd";
+    static final String DEFAULT_KEYS = "password,secret,token,credential";
+
+    private static final String MASK = "***";
+
+    /** Upper bound for each result cache; beyond it results are computed but not remembered. */
+    private static final int MAX_CACHED = 512;
+
+    /** {@code user:password@host} */
+    private static final Pattern USER_INFO = Pattern.compile(":[^:@/]+@");
+
+    /** Last segment of a JNDI name, e.g. {@code java:jboss/datasources/ExampleDS}. */
+    private static final Pattern JNDI_LAST_SEGMENT = Pattern.compile("/([^/]+)$");
+
+    private static final Pattern PARAMETERS = parameterPattern(
+            System.getProperty(PARAMETERS_PROPERTY, DEFAULT_PARAMETERS));
+
+    private static final String[] SENSITIVE_KEYS = split(System.getProperty(KEYS_PROPERTY, DEFAULT_KEYS));
+
+    /** JDBC URLs without anything to mask, which are their own masked form. */
+    static final Map<String, String> JDBC_URLS = new ConcurrentHashMap<>();
+    /** Masked JDBC URLs by the SHA-256 digest of the URL. */
+    static final Map<ByteBuffer, String> MASKED_JDBC_URLS = new ConcurrentHashMap<>();
+    private static final Map<String, String> DATASOURCES = new ConcurrentHashMap<>();
+
+    private LogMasker() {
+    }
+
+    /**
+     * Mask credentials in a JDBC URL: {@code password=} style parameters, other configured
+     * parameters and {@code user:password@} user info.
+     */
+    public static String maskJdbcUrl(String jdbcUrl) {
+        if (jdbcUrl == null) {
+            return null;
+        }
+        String masked = JDBC_URLS.get(jdbcUrl);
+        if (masked != null) {
+            return masked;
+        }
+        ByteBuffer digest = digest(jdbcUrl);
+        masked = MASKED_JDBC_URLS.get(digest);
+        if (masked != null) {
+            return masked;
+        }
+        masked = computeJdbcUrl(jdbcUrl);
+        if (masked.equals(jdbcUrl)) {
+            put(JDBC_URLS, jdbcUrl, jdbcUrl);
+            return jdbcUrl;
+        }
+        put(MASKED_JDBC_URLS, digest, masked);
+        return masked;
+    }
+
+    /**
+     * Mask the last segment of a datasource JNDI name, keeping the structure visible.
+     */
+    public static String maskDataSource(String jndiName) {
+        if (jndiName == null || !jndiName.contains("datasources")) {
+            return jndiName;
+        }
+        return cached(DATASOURCES, jndiName, value -> JNDI_LAST_SEGMENT.matcher(value).replaceFirst("/" + MASK));
+    }
+
+    /**
+     * Mask the value of a property whose key looks sensitive.
+     */
+    public static String maskProperty(String key, String value) {
+        return value != null && isSensitiveKey(key) ? MASK : value;
+    }
+
+    static boolean isSensitiveKey(String key) {
+        if (key == null) {
+            return false;
+        }
+        String lowerCase = key.toLowerCase(Locale.ROOT);
+        for (String sensitive : SENSITIVE_KEYS) {
+            if (lowerCase.contains(sensitive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return a log argument that renders as {@link #maskJdbcUrl(String)} when formatted
+     */
+    public static Object lazyJdbcUrl(String jdbcUrl) {
+        return new Lazy(() -> maskJdbcUrl(jdbcUrl));
+    }
+
+    /**
+     * @return a log argument that renders as {@link #maskDataSource(String)} when formatted
+     */
+    public static Object lazyDataSource(String jndiName) {
+        return new Lazy(() -> maskDataSource(jndiName));
+    }
+
+    /**
+     * @return a log argument that renders as {@link #maskProperty(String, String)} when formatted
+     */
+    public static Object lazyProperty(String key, String value) {
+        return new Lazy(() -> maskProperty(key, value));
+    }
+
+    private static String computeJdbcUrl(String jdbcUrl) {
+        String masked = PARAMETERS == null ? jdbcUrl : PARAMETERS.matcher(jdbcUrl).replaceAll("$1=" + MASK);
+        return USER_INFO.matcher(masked).replaceAll(":" + MASK + "@");
+    }
+
+    private static String cached(Map<String, String> cache, String value, UnaryOperator<String> mask) {
+        String masked = cache.get(value);
+        if (masked == null) {
+            masked = mask.apply(value);
+            put(cache, value, masked);
+        }
+        return masked;
+    }
+
+    private static <K> void put(Map<K, String> cache, K key, String masked) {
+        if (cache.size() < MAX_CACHED) {
+            cache.put(key, masked);
+        }
+    }
+
+    private static ByteBuffer digest(String value) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform implements SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * {@code (name1|name2)=value} up to the next {@code ;} or {@code &}, or {@code null} if
+     * no parameter names are configured.
+     */
+    static Pattern parameterPattern(String names) {
+        String[] parameters = split(names);
+        if (parameters.length == 0) {
+            return null;
+        }
+        StringBuilder alternatives = new StringBuilder();
+        for (String parameter : parameters) {
+            if (alternatives.length() > 0) {
+                alternatives.append('|');
+            }
+            alternatives.append(Pattern.quote(parameter));
+        }
+        return Pattern.compile("(?i)(" + alternatives + ")=[^;&]*");
+    }
+
+    private static String[] split(String list) {
+        return list.trim().isEmpty() ? new String[0] : list.trim().toLowerCase(Locale.ROOT).split("\\s*,\\s*");
+    }
+
+    private static final class Lazy {
+        private final Supplier<String> supplier;
+
+        Lazy(Supplier<String> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(supplier.get());
+        }
+    }
+}
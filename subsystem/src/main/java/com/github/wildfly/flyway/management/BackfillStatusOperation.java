@@ -0,0 +1,56 @@
+package com.github.wildfly.flyway.management;
+
+import com.github.wildfly.flyway.backfill.BackfillScheduler;
+import com.github.wildfly.flyway.backfill.BackfillStatus;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.OperationStepHandler;
+import org.jboss.as.controller.SimpleOperationDefinition;
+import org.jboss.as.controller.SimpleOperationDefinitionBuilder;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+
+/**
+ * Reports the progress of the background backfills of all deployments.
+ * Example: /subsystem=flyway:backfill-status
+ */
+public class BackfillStatusOperation implements OperationStepHandler {
+
+    public static final BackfillStatusOperation INSTANCE = new BackfillStatusOperation();
+
+    public static final SimpleOperationDefinition DEFINITION = new SimpleOperationDefinitionBuilder("backfill-status",
+            FlywayManagementResourceDefinition.RESOLVER)
+            .setRuntimeOnly()
+            .setReadOnly()
+            .setReplyType(ModelType.LIST)
+            .setReplyValueType(ModelType.OBJECT)
+            .build();
+
+    private BackfillStatusOperation() {
+    }
+
+    @Override
+    public void execute(OperationContext context, ModelNode operation) throws OperationFailedException {
+        context.addStep((context1, operation1) -> {
+            ModelNode result = context1.getResult().setEmptyList();
+            for (BackfillStatus status : BackfillScheduler.status()) {
+                ModelNode node = new ModelNode();
+                node.get("deployment").set(status.getDeployment());
+                node.get("name").set(status.getName());
+                node.get("state").set(status.getState().name());
+                node.get("rowsProcessed").set(status.getRowsProcessed());
+                node.get("rowsChanged").set(status.getRowsChanged());
+                if (status.getLastKey() != null) {
+                    node.get("lastKey").set(status.getLastKey());
+                }
+                node.get("rowsPerSecond").set(status.getRowsPerSecond());
+                node.get("rateLimit").set(status.getRateLimit());
+                node.get("lastChunkMillis").set(status.getLastChunkMillis());
+                if (status.getFailure() != null) {
+                    node.get("failure").set(status.getFailure());
+                }
+                result.add(node);
+            }
+        }, OperationContext.Stage.RUNTIME);
+    }
+}
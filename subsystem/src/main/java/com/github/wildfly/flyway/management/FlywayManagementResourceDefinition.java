@@ -1,23 +1,45 @@
 package com.github.wildfly.flyway.management;
 
+import com.github.wildfly.flyway.audit.AuditLogService;
+import com.github.wildfly.flyway.config.FlywayConfiguration;
 import com.github.wildfly.flyway.extension.FlywayExtension;
 import com.github.wildfly.flyway.logging.FlywayLogger;
+import com.github.wildfly.flyway.service.FlywayServerMigrationService;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
 import org.jboss.as.controller.*;
+import org.jboss.as.controller.capability.RuntimeCapability;
 import org.jboss.as.controller.descriptions.StandardResourceDescriptionResolver;
 import org.jboss.as.controller.registry.ManagementResourceRegistration;
+import org.jboss.as.controller.registry.Resource;
 import org.jboss.dmr.ModelNode;
 import org.jboss.dmr.ModelType;
 
 /**
  * Management resource definition for Flyway operations.
  * Provides CLI commands for migration management.
+ *
+ * <p>Each {@code migration=*} resource is also a server-managed migration: at boot it installs a
+ * {@link FlywayServerMigrationService} that depends on its datasource capability and migrates
+ * scripts from a filesystem path or a JBoss module, independent of any deployment.</p>
  */
 public class FlywayManagementResourceDefinition extends SimpleResourceDefinition {
     
-    static final PathElement PATH_ELEMENT = PathElement.pathElement("migration", "flyway");
+    public static final String MIGRATION = "migration";
+
+    static final PathElement PATH_ELEMENT = PathElement.pathElement(MIGRATION);
+
+    /** The data-source capability name from WildFly. */
+    static final String DATA_SOURCE_CAPABILITY_NAME = "org.wildfly.data-source";
+
+    /** Capability of a server-managed migration; deployments and other services may depend on it. */
+    public static final RuntimeCapability<Void> MIGRATION_CAPABILITY =
+            RuntimeCapability.Builder.of("org.wildfly.flyway.server-migration", true).build();
     
     static final StandardResourceDescriptionResolver RESOLVER = 
         new StandardResourceDescriptionResolver(
@@ -60,14 +82,53 @@ public class FlywayManagementResourceDefinition extends SimpleResourceDefinition
             .setRestartAllServices()
             .build();
     
-    static final Collection<AttributeDefinition> ATTRIBUTES = Collections.unmodifiableCollection(
-        Arrays.asList(DATASOURCE, ENABLED, LOCATIONS, BASELINE_ON_MIGRATE, CLEAN_DISABLED));
+    static final SimpleAttributeDefinition MODULE = new SimpleAttributeDefinitionBuilder("module", ModelType.STRING)
+            .setRequired(false)
+            .setAllowExpression(true)
+            .setRestartAllServices()
+            .build();
+    
+    public static final Collection<AttributeDefinition> ATTRIBUTES = Collections.unmodifiableCollection(
+        Arrays.asList(DATASOURCE, ENABLED, LOCATIONS, BASELINE_ON_MIGRATE, CLEAN_DISABLED, MODULE));
     
     public FlywayManagementResourceDefinition() {
         super(new Parameters(PATH_ELEMENT, RESOLVER)
                 .setAddHandler(FlywayMigrationAddHandler.INSTANCE)
                 .setRemoveHandler(FlywayMigrationRemoveHandler.INSTANCE));
     }
+
+    /**
+     * Whether a resource installs a server migration at boot; {@link #MIGRATION_CAPABILITY} is only
+     * registered for those, so that depending on a disabled migration fails instead of waiting.
+     */
+    static boolean installsMigration(OperationContext context, ModelNode model) throws OperationFailedException {
+        if (!ENABLED.resolveModelAttribute(context, model).asBoolean()) {
+            return false;
+        }
+        ModelNode datasource = DATASOURCE.resolveModelAttribute(context, model);
+        return datasource.isDefined() && !datasource.asString().isBlank();
+    }
+
+    /**
+     * Derive the dynamic name of the {@code org.wildfly.data-source} capability from a
+     * datasource JNDI name by stripping the well-known JNDI prefixes.
+     */
+    static String dataSourceCapabilityName(String jndiName) {
+        if (jndiName.startsWith("java:jboss/datasources/")) {
+            return jndiName.substring("java:jboss/datasources/".length());
+        } else if (jndiName.startsWith("java:/")) {
+            return jndiName.substring("java:/".length());
+        }
+        return jndiName;
+    }
+    
+    /**
+     * The name of the {@code org.wildfly.data-source} capability a migration resource requires.
+     */
+    static String dataSourceRequirement(OperationContext context, ModelNode model) throws OperationFailedException {
+        return RuntimeCapability.buildDynamicCapabilityName(DATA_SOURCE_CAPABILITY_NAME,
+                dataSourceCapabilityName(DATASOURCE.resolveModelAttribute(context, model).asString()));
+    }
     
     public Collection<AttributeDefinition> getAttributes() {
         return ATTRIBUTES;
@@ -89,6 +150,22 @@ public class FlywayManagementResourceDefinition extends SimpleResourceDefinition
         // TODO: Add other operations (validate, info, repair, baseline, clean) as needed
     }
     
+    /**
+     * The Flyway properties of a migration resource in {@code spring.flyway.*} form, shared by its
+     * boot-time migration and the {@code :migrate} operation.
+     */
+    static Map<String, String> flywayProperties(OperationContext context, ModelNode model)
+            throws OperationFailedException {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(FlywayConfiguration.ENABLED, "true");
+        properties.put(FlywayConfiguration.LOCATIONS, LOCATIONS.resolveModelAttribute(context, model).asString());
+        properties.put(FlywayConfiguration.BASELINE_ON_MIGRATE,
+                BASELINE_ON_MIGRATE.resolveModelAttribute(context, model).asString());
+        properties.put(FlywayConfiguration.CLEAN_DISABLED,
+                CLEAN_DISABLED.resolveModelAttribute(context, model).asString());
+        return properties;
+    }
+
     // Add handler
     static class FlywayMigrationAddHandler extends AbstractAddStepHandler {
         static final FlywayMigrationAddHandler INSTANCE = new FlywayMigrationAddHandler();
@@ -97,23 +174,82 @@ public class FlywayManagementResourceDefinition extends SimpleResourceDefinition
             super();
         }
         
+        @Override
+        protected void recordCapabilitiesAndRequirements(OperationContext context, ModelNode operation,
+                                                         Resource resource) throws OperationFailedException {
+            super.recordCapabilitiesAndRequirements(context, operation, resource);
+            if (installsMigration(context, resource.getModel())) {
+                context.registerCapability(MIGRATION_CAPABILITY.fromBaseCapability(context.getCurrentAddress()));
+                context.registerAdditionalCapabilityRequirement(dataSourceRequirement(context, resource.getModel()),
+                        MIGRATION_CAPABILITY.getDynamicName(context.getCurrentAddress()), DATASOURCE.getName());
+            }
+        }
+
         @Override
         protected void performRuntime(OperationContext context, ModelNode operation, ModelNode model) 
                 throws OperationFailedException {
-            FlywayLogger.ROOT_LOGGER.info("Adding Flyway migration configuration");
-            // Service installation would happen here
+            final String name = context.getCurrentAddressValue();
+
+            if (!installsMigration(context, model)) {
+                // A resource without a datasource only serves the :migrate operation
+                FlywayLogger.ROOT_LOGGER.infof("Flyway server migration '%s' is disabled or has no datasource, "
+                        + "not migrating at boot", name);
+                return;
+            }
+            final String datasource = DATASOURCE.resolveModelAttribute(context, model).asString();
+            ModelNode resolvedModule = MODULE.resolveModelAttribute(context, model);
+            final String module = resolvedModule.isDefined() ? resolvedModule.asString() : null;
+
+            Map<String, String> properties = flywayProperties(context, model);
+
+            FlywayServerMigrationService.register(name, datasource,
+                    MIGRATION_CAPABILITY.getCapabilityServiceName(name));
+            CapabilityServiceBuilder<?> builder = context.getCapabilityServiceTarget().addService();
+            builder.provides(MIGRATION_CAPABILITY);
+            Supplier<DataSource> dataSource = builder.requiresCapability(
+                    DATA_SOURCE_CAPABILITY_NAME, DataSource.class, dataSourceCapabilityName(datasource));
+            builder.requires(AuditLogService.SERVICE_NAME);
+            builder.setInstance(new FlywayServerMigrationService(name, datasource, dataSource, module, properties));
+            builder.install();
+            FlywayLogger.ROOT_LOGGER.infof("Installed Flyway server migration '%s' for datasource %s", name, datasource);
+        }
+
+        @Override
+        protected void rollbackRuntime(OperationContext context, ModelNode operation, Resource resource) {
+            FlywayServerMigrationService.unregister(context.getCurrentAddressValue());
+            context.removeService(MIGRATION_CAPABILITY.getCapabilityServiceName(context.getCurrentAddressValue()));
         }
     }
     
     // Remove handler
     static class FlywayMigrationRemoveHandler extends AbstractRemoveStepHandler {
         static final FlywayMigrationRemoveHandler INSTANCE = new FlywayMigrationRemoveHandler();
+
+        @Override
+        protected void recordCapabilitiesAndRequirements(OperationContext context, ModelNode operation,
+                                                         Resource resource) throws OperationFailedException {
+            super.recordCapabilitiesAndRequirements(context, operation, resource);
+            if (installsMigration(context, resource.getModel())) {
+                String dependent = MIGRATION_CAPABILITY.getDynamicName(context.getCurrentAddress());
+                context.deregisterCapabilityRequirement(dataSourceRequirement(context, resource.getModel()), dependent,
+                        DATASOURCE.getName());
+                context.deregisterCapability(dependent);
+            }
+        }
         
         @Override
         protected void performRuntime(OperationContext context, ModelNode operation, ModelNode model) 
                 throws OperationFailedException {
-            FlywayLogger.ROOT_LOGGER.info("Removing Flyway migration configuration");
-            // Service removal would happen here
+            final String name = context.getCurrentAddressValue();
+            FlywayLogger.ROOT_LOGGER.infof("Removing Flyway server migration '%s'", name);
+            FlywayServerMigrationService.unregister(name);
+            context.removeService(MIGRATION_CAPABILITY.getCapabilityServiceName(name));
+        }
+
+        @Override
+        protected void recoverServices(OperationContext context, ModelNode operation, ModelNode model)
+                throws OperationFailedException {
+            FlywayMigrationAddHandler.INSTANCE.performRuntime(context, operation, model);
         }
     }
 }
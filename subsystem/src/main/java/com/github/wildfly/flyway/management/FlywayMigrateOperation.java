@@ -1,13 +1,22 @@
 package com.github.wildfly.flyway.management;
 
+import com.github.wildfly.flyway.audit.AuditEvent;
+import com.github.wildfly.flyway.audit.MigrationAuditLog;
+import com.github.wildfly.flyway.config.FlywayConfiguration;
+import com.github.wildfly.flyway.config.FlywayConfigurationBuilder;
+import com.github.wildfly.flyway.jdbc.MeteredDataSource;
 import com.github.wildfly.flyway.logging.FlywayLogger;
+import com.github.wildfly.flyway.service.MigrationRunner;
+import java.util.Map;
 import javax.sql.DataSource;
 import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
 import org.flywaydb.core.api.output.MigrateResult;
 import org.jboss.as.controller.*;
 import org.jboss.as.controller.capability.RuntimeCapability;
 import org.jboss.dmr.ModelNode;
 import org.jboss.dmr.ModelType;
+import org.jboss.modules.Module;
 import org.jboss.msc.service.ServiceController;
 import org.jboss.msc.service.ServiceName;
 
@@ -19,9 +28,6 @@ public class FlywayMigrateOperation implements OperationStepHandler {
     
     public static final FlywayMigrateOperation INSTANCE = new FlywayMigrateOperation();
     
-    // The data-source capability name from WildFly
-    private static final String DATA_SOURCE_CAPABILITY_NAME = "org.wildfly.data-source";
-    
     private static final SimpleAttributeDefinition TARGET = new SimpleAttributeDefinitionBuilder("target", ModelType.STRING)
             .setRequired(false)
             .setAllowExpression(true)
@@ -81,68 +87,55 @@ public class FlywayMigrateOperation implements OperationStepHandler {
                     "Datasource name is empty. Provide a valid JNDI name (e.g., 'java:jboss/datasources/MyDS').");
             }
 
-            // Get optional operation parameters
+            // The properties of the resource's boot-time migration, with the operation parameters on top
+            final Map<String, String> properties = FlywayManagementResourceDefinition.flywayProperties(context1, model);
             ModelNode targetNode = TARGET.resolveModelAttribute(context1, operation1);
-            final String target = targetNode.isDefined() ? targetNode.asString() : null;
-            final boolean outOfOrder = OUT_OF_ORDER.resolveModelAttribute(context1, operation1).asBoolean();
-            final boolean skipExecutingMigrations = SKIP_EXECUTING_MIGRATIONS.resolveModelAttribute(context1, operation1).asBoolean();
-
-            // Read configurable attributes from the management resource
-            ModelNode resolvedLocations = FlywayManagementResourceDefinition.LOCATIONS
-                    .resolveModelAttribute(context1, model);
-            final String locations = resolvedLocations.isDefined()
-                    ? resolvedLocations.asString() : "classpath:db/migration";
-
-            ModelNode resolvedBaseline = FlywayManagementResourceDefinition.BASELINE_ON_MIGRATE
-                    .resolveModelAttribute(context1, model);
-            final boolean baselineOnMigrate = resolvedBaseline.isDefined()
-                    && resolvedBaseline.asBoolean();
-
-            ModelNode resolvedCleanDisabled = FlywayManagementResourceDefinition.CLEAN_DISABLED
-                    .resolveModelAttribute(context1, model);
-            final boolean cleanDisabled = !resolvedCleanDisabled.isDefined()
-                    || resolvedCleanDisabled.asBoolean();
+            if (targetNode.isDefined()) {
+                properties.put(FlywayConfiguration.TARGET, targetNode.asString());
+            }
+            properties.put(FlywayConfiguration.OUT_OF_ORDER,
+                    OUT_OF_ORDER.resolveModelAttribute(context1, operation1).asString());
+            properties.put(FlywayConfiguration.SKIP_EXECUTING_MIGRATIONS,
+                    SKIP_EXECUTING_MIGRATIONS.resolveModelAttribute(context1, operation1).asString());
 
+            final String resourceName = context1.getCurrentAddressValue();
+            final long startTime = System.currentTimeMillis();
             try {
                 // Resolve datasource: if it looks like a JNDI name, strip the prefix for capability lookup
-                String capabilityName = datasourceName;
-                if (capabilityName.startsWith("java:jboss/datasources/")) {
-                    capabilityName = capabilityName.substring("java:jboss/datasources/".length());
-                } else if (capabilityName.startsWith("java:/")) {
-                    capabilityName = capabilityName.substring("java:/".length());
-                }
+                String capabilityName = FlywayManagementResourceDefinition.dataSourceCapabilityName(datasourceName);
 
                 // Get the datasource using capability service name
                 ServiceName datasourceServiceName = context1.getCapabilityServiceName(
-                    DATA_SOURCE_CAPABILITY_NAME, capabilityName, DataSource.class);
+                    FlywayManagementResourceDefinition.DATA_SOURCE_CAPABILITY_NAME, capabilityName, DataSource.class);
                 ServiceController<?> datasourceService = context1.getServiceRegistry(false)
                     .getRequiredService(datasourceServiceName);
 
                 // For runtime operations, getValue() is still the standard approach
                 // as the service is already started and we need immediate access
-                DataSource dataSource = (DataSource) datasourceService.getValue();
-
-                // Configure Flyway using the management resource attributes
-                String[] locationArray = locations.split(",");
-                for (int i = 0; i < locationArray.length; i++) {
-                    locationArray[i] = locationArray[i].trim();
-                }
-
-                var flywayConfig = Flyway.configure()
-                        .dataSource(dataSource)
-                        .locations(locationArray)
-                        .baselineOnMigrate(baselineOnMigrate)
-                        .cleanDisabled(cleanDisabled)
-                        .outOfOrder(outOfOrder)
-                        .skipExecutingMigrations(skipExecutingMigrations);
-                if (target != null) {
-                    flywayConfig.target(target);
-                }
+                DataSource dataSource = MeteredDataSource.wrap((DataSource) datasourceService.getValue(),
+                        datasourceName);
+
+                // Scripts of a module-backed resource are resolved against that module
+                ModelNode resolvedModule = FlywayManagementResourceDefinition.MODULE
+                        .resolveModelAttribute(context1, model);
+                ClassLoader classLoader = resolvedModule.isDefined()
+                        ? Module.getBootModuleLoader().loadModule(resolvedModule.asString()).getClassLoader()
+                        : FlywayMigrateOperation.class.getClassLoader();
+                FluentConfiguration flywayConfig = Flyway.configure(classLoader);
+                FlywayConfigurationBuilder.applyToFlyway(flywayConfig, dataSource, classLoader, properties);
                 Flyway flyway = flywayConfig.load();
 
                 // Execute migration
                 FlywayLogger.ROOT_LOGGER.infof("Executing Flyway migration for datasource: %s", datasourceName);
-                MigrateResult result = flyway.migrate();
+                MigrateResult result;
+                FlywayLogger.MigrationContext logContext = FlywayLogger.migrationContext(resourceName, datasourceName);
+                try {
+                    result = MigrationRunner.migrate(flyway, properties);
+                } finally {
+                    logContext.close();
+                }
+                MigrationAuditLog.recordSuccess(AuditEvent.Source.OPERATION, resourceName, datasourceName,
+                        startTime, flyway, result);
 
                 // Build result
                 ModelNode resultNode = new ModelNode();
@@ -178,6 +171,8 @@ public class FlywayMigrateOperation implements OperationStepHandler {
                         result.migrationsExecuted);
 
             } catch (Exception e) {
+                MigrationAuditLog.recordFailure(AuditEvent.Source.OPERATION, resourceName, datasourceName,
+                        startTime, e);
                 throw new OperationFailedException("Failed to execute migration: " + e.getMessage(), e);
             }
         }, OperationContext.Stage.RUNTIME);
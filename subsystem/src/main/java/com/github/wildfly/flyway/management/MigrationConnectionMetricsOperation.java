@@ -0,0 +1,49 @@
+package com.github.wildfly.flyway.management;
+
+import com.github.wildfly.flyway.jdbc.MeteredDataSource;
+import org.jboss.as.controller.OperationContext;
+import org.jboss.as.controller.OperationFailedException;
+import org.jboss.as.controller.OperationStepHandler;
+import org.jboss.as.controller.SimpleOperationDefinition;
+import org.jboss.as.controller.SimpleOperationDefinitionBuilder;
+import org.jboss.dmr.ModelNode;
+import org.jboss.dmr.ModelType;
+
+/**
+ * Reports how long migrations waited for connections of each datasource and how many they held.
+ * Example: /subsystem=flyway:migration-connection-metrics
+ */
+public class MigrationConnectionMetricsOperation implements OperationStepHandler {
+
+    public static final MigrationConnectionMetricsOperation INSTANCE = new MigrationConnectionMetricsOperation();
+
+    public static final SimpleOperationDefinition DEFINITION = new SimpleOperationDefinitionBuilder(
+            "migration-connection-metrics", FlywayManagementResourceDefinition.RESOLVER)
+            .setRuntimeOnly()
+            .setReadOnly()
+            .setReplyType(ModelType.LIST)
+            .setReplyValueType(ModelType.OBJECT)
+            .build();
+
+    private MigrationConnectionMetricsOperation() {
+    }
+
+    @Override
+    public void execute(OperationContext context, ModelNode operation) throws OperationFailedException {
+        context.addStep((context1, operation1) -> {
+            ModelNode result = context1.getResult().setEmptyList();
+            for (MeteredDataSource.Metrics metrics : MeteredDataSource.metrics()) {
+                ModelNode node = new ModelNode();
+                node.get("datasource").set(metrics.getName());
+                node.get("borrows").set(metrics.getBorrows());
+                node.get("failures").set(metrics.getFailures());
+                node.get("totalWaitMillis").set(metrics.getTotalWaitMillis());
+                node.get("averageWaitMillis").set(metrics.getAverageWaitMillis());
+                node.get("maxWaitMillis").set(metrics.getMaxWaitMillis());
+                node.get("active").set(metrics.getActive());
+                node.get("peakActive").set(metrics.getPeakActive());
+                result.add(node);
+            }
+        }, OperationContext.Stage.RUNTIME);
+    }
+}
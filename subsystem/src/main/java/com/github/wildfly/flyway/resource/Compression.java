@@ -0,0 +1,83 @@
+package com.github.wildfly.flyway.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Transparent decompression of migration resources by file extension: {@code .gz} (gzip) and
+ * {@code .zst} (Zstandard).
+ *
+ * <p>Zstandard is not part of the JDK. The decoder is taken from the deployment: aircompressor
+ * ({@code io.airlift:aircompressor}, pure Java) or zstd-jni ({@code com.github.luben:zstd-jni}),
+ * whichever the deployment class loader can load.</p>
+ */
+final class Compression {
+
+    static final String GZIP = ".gz";
+    static final String ZSTD = ".zst";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String[] ZSTD_DECODERS = {
+            "io.airlift.compress.zstd.ZstdInputStream",
+            "com.github.luben.zstd.ZstdInputStream"
+    };
+
+    private Compression() {
+        // Utility class
+    }
+
+    static boolean isCompressed(String name) {
+        return name.endsWith(GZIP) || name.endsWith(ZSTD);
+    }
+
+    /**
+     * @return whether any suffix names a compressed script, e.g. {@code .sql.gz}
+     */
+    static boolean hasCompressedSuffix(String[] suffixes) {
+        for (String suffix : suffixes) {
+            if (isCompressed(suffix.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code content}, decompressed on every open if {@code name} has a compression extension
+     */
+    static StreamResource.Content decompressing(String name, StreamResource.Content content, ClassLoader classLoader) {
+        if (name.endsWith(GZIP)) {
+            return () -> new GZIPInputStream(content.open(), BUFFER_SIZE);
+        }
+        if (name.endsWith(ZSTD)) {
+            return () -> zstd(content.open(), name, classLoader);
+        }
+        return content;
+    }
+
+    private static InputStream zstd(InputStream in, String name, ClassLoader classLoader) throws IOException {
+        for (String decoder : ZSTD_DECODERS) {
+            Constructor<?> constructor;
+            try {
+                constructor = Class.forName(decoder, true, classLoader).getConstructor(InputStream.class);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                continue;
+            }
+            try {
+                return (InputStream) constructor.newInstance(in);
+            } catch (InvocationTargetException e) {
+                in.close();
+                throw new IOException("Unable to decompress " + name + ": " + e.getCause().getMessage(), e.getCause());
+            } catch (ReflectiveOperationException e) {
+                in.close();
+                throw new IOException("Unable to decompress " + name + ": " + e.getMessage(), e);
+            }
+        }
+        in.close();
+        throw new IOException("Unable to decompress " + name + ": no Zstandard decoder available; "
+                + "add io.airlift:aircompressor or com.github.luben:zstd-jni to the deployment");
+    }
+}
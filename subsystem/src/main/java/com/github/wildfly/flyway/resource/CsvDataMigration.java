@@ -0,0 +1,286 @@
+package com.github.wildfly.flyway.resource;
+
+import com.github.wildfly.flyway.config.SpringBootPropertyResolver;
+import com.github.wildfly.flyway.logging.FlywayLogger;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.flywaydb.core.api.resource.LoadableResource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.Charset;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned migration that loads a CSV file into a table, for seed and reference data too large
+ * for INSERT scripts.
+ *
+ * <p>The file name gives version and table: {@code V<version>__<table>.csv}, optionally compressed
+ * ({@code .csv.gz}, {@code .csv.zst}), with the configured SQL migration prefix and separator; the
+ * table may be schema-qualified ({@code V3__ref.country.csv}). The first record names the columns.
+ * The file is streamed from the deployment (VFS) or the filesystem and never held in memory:</p>
+ * <ul>
+ *   <li>on PostgreSQL (as reported by {@link SpringBootPropertyResolver#detectVendor(String)}) the
+ *       records are passed to {@code COPY ... FROM STDIN} through the driver's {@code CopyManager};</li>
+ *   <li>on other databases, or if the driver's copy API is not reachable, they are inserted with
+ *       {@link PreparedStatement} batches of {@code batchSize} rows.</li>
+ * </ul>
+ *
+ * <p>The migration runs in Flyway's migration transaction, so a failing file leaves the table
+ * unchanged. The checksum is a CRC32 of the uncompressed content.</p>
+ */
+public final class CsvDataMigration implements JavaMigration {
+
+    private static final String POSTGRESQL = "postgresql";
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final StreamResource resource;
+    private final MigrationVersion version;
+    private final String table;
+    private final Charset encoding;
+    private final int batchSize;
+    private volatile Integer checksum;
+
+    private CsvDataMigration(StreamResource resource, MigrationVersion version, String table,
+                             Charset encoding, int batchSize) {
+        this.resource = resource;
+        this.version = version;
+        this.table = table;
+        this.encoding = encoding;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Find the CSV files of the given locations.
+     *
+     * @param locations   {@code classpath:} or {@code filesystem:} locations
+     * @param classLoader the deployment classloader
+     * @param prefix      versioned migration prefix, usually {@code V}
+     * @param separator   separator of version and table, usually {@code __}
+     * @param batchSize   rows per JDBC batch when {@code COPY} is not used
+     */
+    public static List<JavaMigration> find(String[] locations, ClassLoader classLoader, Charset encoding,
+                                           String prefix, String separator, int batchSize) {
+        List<LoadableResource> resources = MigrationResourceProvider.scan(locations, classLoader, encoding, "data");
+        Pattern name = namePattern(prefix, separator);
+        List<JavaMigration> migrations = new ArrayList<>();
+        for (LoadableResource resource : resources) {
+            CsvDataMigration migration = of((StreamResource) resource, name, encoding, batchSize);
+            if (migration != null) {
+                migrations.add(migration);
+            }
+        }
+        return Collections.unmodifiableList(migrations);
+    }
+
+    /**
+     * @return the pattern of CSV file names; group 1 is the version, group 2 the table
+     */
+    static Pattern namePattern(String prefix, String separator) {
+        return Pattern.compile(Pattern.quote(prefix) + "(.+?)" + Pattern.quote(separator)
+                + "(.+)\\.csv(?:" + Pattern.quote(Compression.GZIP) + "|" + Pattern.quote(Compression.ZSTD) + ")?");
+    }
+
+    /**
+     * @return the migration for {@code resource}, or {@code null} if its name does not match
+     */
+    static CsvDataMigration of(StreamResource resource, Pattern name, Charset encoding, int batchSize) {
+        Matcher matcher = name.matcher(resource.getFilename());
+        if (!matcher.matches()) {
+            return null;
+        }
+        String table = matcher.group(2);
+        for (String part : table.split("\\.", -1)) {
+            if (!IDENTIFIER.matcher(part).matches()) {
+                throw new FlywayException("Invalid table name '" + table + "' in CSV data migration "
+                        + resource.getAbsolutePath());
+            }
+        }
+        MigrationVersion version;
+        try {
+            version = MigrationVersion.fromVersion(matcher.group(1));
+        } catch (FlywayException e) {
+            throw new FlywayException("Invalid version in CSV data migration " + resource.getAbsolutePath()
+                    + ": " + e.getMessage(), e);
+        }
+        return new CsvDataMigration(resource, version, table, encoding, Math.max(1, batchSize));
+    }
+
+    @Override
+    public MigrationVersion getVersion() {
+        return version;
+    }
+
+    @Override
+    public String getDescription() {
+        return table;
+    }
+
+    @Override
+    public Integer getChecksum() {
+        Integer result = checksum;
+        if (result == null) {
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream in = open()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                throw new FlywayException("Unable to read CSV data migration " + resource.getAbsolutePath()
+                        + ": " + e.getMessage(), e);
+            }
+            result = (int) crc.getValue();
+            checksum = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        String vendor = SpringBootPropertyResolver.detectVendor(connection.getMetaData().getURL());
+        long startTime = System.nanoTime();
+        try (CsvReader csv = new CsvReader(new BufferedReader(new InputStreamReader(open(), encoding), BUFFER_SIZE))) {
+            List<String> columns = csv.next();
+            if (columns == null) {
+                throw new FlywayException("CSV data migration " + resource.getAbsolutePath() + " has no header");
+            }
+            for (String column : columns) {
+                if (column == null || !IDENTIFIER.matcher(column).matches()) {
+                    throw new FlywayException("Invalid column name '" + column + "' in the header of CSV data migration "
+                            + resource.getAbsolutePath());
+                }
+            }
+            Object copyManager = POSTGRESQL.equals(vendor) ? copyManager(connection) : null;
+            long rows = copyManager != null
+                    ? copy(copyManager, columns, csv.remaining())
+                    : insert(connection, columns, csv, POSTGRESQL.equals(vendor));
+            FlywayLogger.infof("Loaded %d rows into %s from %s in %d ms%s", rows, table, resource.getFilename(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime),
+                    copyManager != null ? " (COPY)" : "");
+        }
+    }
+
+    private InputStream open() throws IOException {
+        return resource.open();
+    }
+
+    private long insert(Connection connection, List<String> columns, CsvReader csv, boolean untypedParameters)
+            throws IOException, SQLException {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (")
+                .append(String.join(", ", columns)).append(") VALUES (");
+        for (int i = 0; i < columns.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+
+        long rows = 0;
+        int pending = 0;
+        try (PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            List<String> record;
+            while ((record = csv.next()) != null) {
+                if (record.size() != columns.size()) {
+                    throw new FlywayException(resource.getFilename() + " line " + csv.getRecordLine() + " has "
+                            + record.size() + " fields, the header has " + columns.size());
+                }
+                for (int i = 0; i < record.size(); i++) {
+                    String value = record.get(i);
+                    // Untyped parameters let PostgreSQL convert them like literals, as COPY does
+                    if (value == null) {
+                        statement.setNull(i + 1, untypedParameters ? Types.OTHER : Types.VARCHAR);
+                    } else if (untypedParameters) {
+                        statement.setObject(i + 1, value, Types.OTHER);
+                    } else {
+                        statement.setString(i + 1, value);
+                    }
+                }
+                statement.addBatch();
+                rows++;
+                if (++pending == batchSize) {
+                    executeBatch(statement, rows, pending);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                executeBatch(statement, rows, pending);
+            }
+        }
+        return rows;
+    }
+
+    private void executeBatch(PreparedStatement statement, long rows, int pending) throws SQLException {
+        try {
+            statement.executeBatch();
+        } catch (BatchUpdateException e) {
+            throw new SQLException("Loading rows " + (rows - pending + 1) + " to " + rows + " of "
+                    + resource.getFilename() + " into " + table + " failed: " + e.getMessage(),
+                    e.getSQLState(), e.getErrorCode(), e);
+        }
+    }
+
+    private long copy(Object copyManager, List<String> columns, Reader records) throws Exception {
+        String sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)";
+        try {
+            return (Long) copyManager.getClass().getMethod("copyIn", String.class, Reader.class, int.class)
+                    .invoke(copyManager, sql, records, BUFFER_SIZE);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The PostgreSQL driver is not visible to this module; its {@code PGConnection} interface is
+     * loaded from the driver's class loader and the pooled connection unwrapped to it.
+     *
+     * @return the driver's {@code CopyManager}, or {@code null} if it cannot be reached
+     */
+    private static Object copyManager(Connection connection) {
+        List<ClassLoader> classLoaders = new ArrayList<>(2);
+        try {
+            classLoaders.add(connection.getMetaData().getConnection().getClass().getClassLoader());
+        } catch (SQLException e) {
+            FlywayLogger.debugf("Unable to reach the physical connection: %s", e.getMessage());
+        }
+        classLoaders.add(Thread.currentThread().getContextClassLoader());
+        for (ClassLoader classLoader : classLoaders) {
+            try {
+                Class<?> pgConnection = Class.forName("org.postgresql.PGConnection", false, classLoader);
+                Object unwrapped = connection.unwrap(pgConnection);
+                return pgConnection.getMethod("getCopyAPI").invoke(unwrapped);
+            } catch (ReflectiveOperationException | SQLException | LinkageError e) {
+                FlywayLogger.debugf("PostgreSQL copy API not available from %s: %s", classLoader, e);
+            }
+        }
+        FlywayLogger.debugf("Loading CSV data with JDBC batches instead of COPY");
+        return null;
+    }
+}
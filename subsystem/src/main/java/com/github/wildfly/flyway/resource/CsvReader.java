@@ -0,0 +1,107 @@
+package com.github.wildfly.flyway.resource;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader for RFC 4180 CSV: comma separated, fields optionally enclosed in double quotes,
+ * {@code ""} for a quote inside a quoted field, quoted fields may span lines, records end with
+ * {@code \n} or {@code \r\n}.
+ *
+ * <p>An empty unquoted field is read as {@code null} (SQL {@code NULL}), an empty quoted field
+ * ({@code ""}) as the empty string. These are the rules of PostgreSQL's {@code COPY ... (FORMAT csv)},
+ * so the JDBC and the {@code COPY} path of {@link CsvDataMigration} load the same values.</p>
+ *
+ * <p>Only one record is held at a time. After {@link #next()} the underlying reader is positioned
+ * at the start of the following record.</p>
+ */
+final class CsvReader implements Closeable {
+
+    private final BufferedReader reader;
+    private final StringBuilder field = new StringBuilder();
+    private long line = 1;
+    private long recordLine;
+
+    CsvReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return the fields of the next record, or {@code null} at the end of the input
+     * @throws IOException if reading fails or the input is not valid CSV
+     */
+    List<String> next() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        while (true) {
+            field.setLength(0);
+            boolean quoted = c == '"';
+            if (quoted) {
+                while (true) {
+                    c = reader.read();
+                    if (c == -1) {
+                        throw new IOException("Unterminated quoted field in line " + recordLine);
+                    }
+                    if (c == '"') {
+                        c = reader.read();
+                        if (c != '"') {
+                            break;
+                        }
+                    } else if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else {
+                while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                    field.append((char) c);
+                    c = reader.read();
+                }
+            }
+            fields.add(quoted || field.length() > 0 ? field.toString() : null);
+
+            if (c == ',') {
+                c = reader.read();
+                continue;
+            }
+            if (c == '\r') {
+                reader.mark(1);
+                if (reader.read() != '\n') {
+                    reader.reset();
+                }
+            } else if (c != '\n' && c != -1) {
+                throw new IOException("Unexpected character '" + (char) c + "' after quoted field in line " + line);
+            }
+            if (c != -1) {
+                line++;
+            }
+            return fields;
+        }
+    }
+
+    /**
+     * @return the line the record last returned by {@link #next()} starts in, 1-based
+     */
+    long getRecordLine() {
+        return recordLine;
+    }
+
+    /**
+     * @return the underlying reader, positioned after the last record read
+     */
+    BufferedReader remaining() {
+        return reader;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,226 @@
+package com.github.wildfly.flyway.resource;
+
+import com.github.wildfly.flyway.logging.FlywayLogger;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.ResourceProvider;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.jboss.modules.Module;
+import org.jboss.modules.ModuleLoader;
+import org.jboss.vfs.VFS;
+import org.jboss.vfs.VirtualFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Flyway {@link ResourceProvider} used when a deployment references {@code module:} locations or
+ * compressed script suffixes ({@code .sql.gz}, {@code .sql.zst}).
+ *
+ * <p>Flyway replaces its own location scanning with a configured resource provider, so this
+ * provider serves all SQL resources of the deployment: the scripts of {@code module:} locations
+ * come from the server-wide {@link ModuleMigrationCache}, while {@code classpath:} (VFS, file or
+ * jar URLs) and {@code filesystem:} locations of the deployment are listed here.</p>
+ *
+ * <p>Compressed resources are decompressed as they are read (see {@link Compression}), so Flyway
+ * parses and checksums the uncompressed script: compressing a script does not change its
+ * checksum.</p>
+ */
+public final class MigrationResourceProvider implements ResourceProvider {
+
+    private static final String CLASSPATH_PREFIX = "classpath:";
+    private static final String FILESYSTEM_PREFIX = "filesystem:";
+
+    private final List<LoadableResource> resources;
+
+    private MigrationResourceProvider(List<LoadableResource> resources) {
+        this.resources = resources;
+    }
+
+    /**
+     * Returns whether any suffix names a compressed script, which Flyway's own scanner would read
+     * without decompressing.
+     */
+    public static boolean hasCompressedSuffix(String[] suffixes) {
+        return Compression.hasCompressedSuffix(suffixes);
+    }
+
+    /**
+     * Returns whether any of the locations uses the {@code module:} scheme.
+     */
+    public static boolean hasModuleLocation(String[] locations) {
+        for (String location : locations) {
+            if (location.startsWith(ModuleMigrationCache.MODULE_PREFIX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create a provider for the given locations.
+     *
+     * @param locations all configured locations, {@code {vendor}} already replaced
+     * @param classLoader the deployment classloader
+     * @param encoding the script encoding
+     */
+    public static MigrationResourceProvider create(String[] locations, ClassLoader classLoader, Charset encoding) {
+        List<LoadableResource> resources = new ArrayList<>();
+        for (String location : locations) {
+            if (location.startsWith(ModuleMigrationCache.MODULE_PREFIX)) {
+                for (ModuleMigrationCache.Script script
+                        : ModuleMigrationCache.getScripts(location, moduleLoader(classLoader))) {
+                    byte[] content = script.content;
+                    resources.add(new StreamResource(script.path, location + '/' + script.relativePath,
+                            script.relativePath, Compression.decompressing(script.relativePath,
+                                    () -> new ByteArrayInputStream(content), classLoader), encoding));
+                }
+            } else if (location.startsWith(FILESYSTEM_PREFIX)) {
+                addFilesystemResources(Paths.get(location.substring(FILESYSTEM_PREFIX.length())), classLoader,
+                        resources, encoding);
+            } else {
+                String path = location.startsWith(CLASSPATH_PREFIX)
+                        ? location.substring(CLASSPATH_PREFIX.length()) : location;
+                addClasspathResources(path, classLoader, resources, encoding);
+            }
+        }
+        FlywayLogger.debugf("Resource provider created with %d resources", resources.size());
+        return new MigrationResourceProvider(List.copyOf(resources));
+    }
+
+    @Override
+    public LoadableResource getResource(String name) {
+        for (LoadableResource resource : resources) {
+            if (resource.getRelativePath().equals(name) || resource.getAbsolutePath().equals(name)) {
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Collection<LoadableResource> getResources(String prefix, String[] suffixes) {
+        List<LoadableResource> matching = new ArrayList<>();
+        for (LoadableResource resource : resources) {
+            String filename = resource.getFilename();
+            if (!filename.startsWith(prefix)) {
+                continue;
+            }
+            for (String suffix : suffixes) {
+                if (filename.endsWith(suffix)) {
+                    matching.add(resource);
+                    break;
+                }
+            }
+        }
+        return matching;
+    }
+
+    /**
+     * List the files of {@code classpath:} and {@code filesystem:} locations, for migration types
+     * Flyway does not scan itself. {@code module:} locations are skipped with a warning.
+     *
+     * @param kind what the locations hold, for messages only
+     */
+    static List<LoadableResource> scan(String[] locations, ClassLoader classLoader, Charset encoding, String kind) {
+        List<LoadableResource> resources = new ArrayList<>();
+        for (String location : locations) {
+            if (location.startsWith(FILESYSTEM_PREFIX)) {
+                addFilesystemResources(Paths.get(location.substring(FILESYSTEM_PREFIX.length())), classLoader,
+                        resources, encoding);
+            } else if (location.startsWith(ModuleMigrationCache.MODULE_PREFIX)) {
+                FlywayLogger.warnf("Skipping %s location %s: module locations are not supported", kind, location);
+            } else {
+                String path = location.startsWith(CLASSPATH_PREFIX) ? location.substring(CLASSPATH_PREFIX.length()) : location;
+                addClasspathResources(path, classLoader, resources, encoding);
+            }
+        }
+        return resources;
+    }
+
+    private static ModuleLoader moduleLoader(ClassLoader classLoader) {
+        Module module = classLoader != null ? Module.forClassLoader(classLoader, true) : null;
+        return module != null ? module.getModuleLoader() : Module.getBootModuleLoader();
+    }
+
+    private static void addClasspathResources(String path, ClassLoader classLoader,
+                                              List<LoadableResource> resources, Charset encoding) {
+        String base = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        try {
+            for (URL url : Collections.list(classLoader.getResources(base))) {
+                if ("vfs".equals(url.getProtocol())) {
+                    VirtualFile root = VFS.getChild(url.toURI());
+                    for (VirtualFile file : root.getChildrenRecursively()) {
+                        if (file.isFile()) {
+                            String relativePath = file.getPathNameRelativeTo(root);
+                            resources.add(new StreamResource(base + '/' + relativePath, file.getPathName(),
+                                    relativePath, Compression.decompressing(relativePath, file::openStream, classLoader),
+                                    encoding));
+                        }
+                    }
+                } else if ("file".equals(url.getProtocol())) {
+                    addFilesystemResources(Paths.get(url.toURI()), classLoader, resources, encoding);
+                } else if ("jar".equals(url.getProtocol())) {
+                    addJarResources(url, base, classLoader, resources, encoding);
+                } else {
+                    FlywayLogger.warnf("Unsupported URL protocol for location classpath:%s: %s", base, url);
+                }
+            }
+        } catch (IOException | URISyntaxException e) {
+            throw new FlywayException("Unable to scan location classpath:" + base + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * List the entries below a {@code jar:} URL, as returned for locations in the jar resource roots
+     * of static modules. The jar file is the JDK's cached instance and stays open.
+     */
+    private static void addJarResources(URL url, String base, ClassLoader classLoader,
+                                        List<LoadableResource> resources, Charset encoding) throws IOException {
+        JarURLConnection connection = (JarURLConnection) url.openConnection();
+        JarFile jar = connection.getJarFile();
+        String entryName = connection.getEntryName();
+        String prefix = entryName == null || entryName.isEmpty() ? ""
+                : entryName.endsWith("/") ? entryName : entryName + '/';
+        for (JarEntry entry : Collections.list(jar.entries())) {
+            String name = entry.getName();
+            if (entry.isDirectory() || !name.startsWith(prefix)) {
+                continue;
+            }
+            String relativePath = name.substring(prefix.length());
+            resources.add(new StreamResource(base + '/' + relativePath, connection.getJarFileURL() + "!/" + name,
+                    relativePath, Compression.decompressing(relativePath, () -> jar.getInputStream(entry), classLoader),
+                    encoding));
+        }
+    }
+
+    private static void addFilesystemResources(Path root, ClassLoader classLoader,
+                                               List<LoadableResource> resources, Charset encoding) {
+        if (!Files.isDirectory(root)) {
+            FlywayLogger.warnf("Skipping filesystem location %s: not a directory", root);
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(Files::isRegularFile).forEach(file -> {
+                String relativePath = root.relativize(file).toString().replace('\\', '/');
+                resources.add(new StreamResource(file.toString(), file.toString(), relativePath,
+                        Compression.decompressing(relativePath, () -> Files.newInputStream(file), classLoader), encoding));
+            });
+        } catch (IOException e) {
+            throw new FlywayException("Unable to scan location filesystem:" + root + ": " + e.getMessage(), e);
+        }
+    }
+}
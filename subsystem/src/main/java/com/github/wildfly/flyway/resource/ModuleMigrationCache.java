@@ -0,0 +1,145 @@
+package com.github.wildfly.flyway.resource;
+
+import com.github.wildfly.flyway.logging.FlywayLogger;
+import org.flywaydb.core.api.FlywayException;
+import org.jboss.modules.Module;
+import org.jboss.modules.ModuleLoadException;
+import org.jboss.modules.ModuleLoader;
+import org.jboss.modules.Resource;
+import org.jboss.modules.filter.PathFilters;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Server-wide cache of the migration scripts of JBoss modules referenced through
+ * {@code module:<module-name>[/<path>]} locations.
+ *
+ * <p>The first deployment referencing a module scans it and reads every script once; all
+ * further deployments reuse the cached names and contents. An entry is invalidated only when
+ * the module is replaced, i.e. when the module loader returns a different {@link Module}
+ * instance than the one the entry was built from (module redeployed or the server's module
+ * graph relinked). The module itself is only weakly referenced so an undeployed deployment
+ * module is not kept alive by the cache.</p>
+ *
+ * <p>Checksums are not cached: Flyway computes them from the resource content when it resolves
+ * migrations and has no way to take them from the resource. They are computed from the cached
+ * bytes, without touching the module.</p>
+ */
+public final class ModuleMigrationCache {
+
+    /** Location prefix selecting a JBoss module. */
+    public static final String MODULE_PREFIX = "module:";
+
+    private static final String DEFAULT_PATH = "db/migration";
+
+    private static final Map<String, Entry> CACHE = new ConcurrentHashMap<>();
+
+    private ModuleMigrationCache() {
+        // Utility class
+    }
+
+    /**
+     * A script of a cached module.
+     */
+    static final class Script {
+        final String path;
+        final String relativePath;
+        final byte[] content;
+
+        Script(String path, String relativePath, byte[] content) {
+            this.path = path;
+            this.relativePath = relativePath;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Returns the scripts below the path of a {@code module:} location, scanning and reading
+     * the module only if it is not cached yet or has been replaced since.
+     *
+     * @param location the location, e.g. {@code module:com.example.schema/db/common}
+     * @param moduleLoader the loader to resolve the module with (the deployment's, so that
+     *                     deployment modules can be referenced as well)
+     * @return the cached scripts, never {@code null}
+     */
+    static List<Script> getScripts(String location, ModuleLoader moduleLoader) {
+        String spec = location.substring(MODULE_PREFIX.length());
+        int slash = spec.indexOf('/');
+        String moduleName = slash < 0 ? spec : spec.substring(0, slash);
+        String path = slash < 0 ? DEFAULT_PATH : trimSlashes(spec.substring(slash + 1));
+
+        Module module;
+        try {
+            module = moduleLoader.loadModule(moduleName);
+        } catch (ModuleLoadException e) {
+            throw new FlywayException("Unable to load module '" + moduleName + "' of location " + location, e);
+        }
+
+        String key = moduleName + '/' + path;
+        Entry entry = CACHE.compute(key, (k, cached) -> cached != null && cached.module.get() == module
+                ? cached
+                : scan(module, moduleName, path));
+        return entry.scripts;
+    }
+
+    /**
+     * Drop all cached modules. Called when the subsystem configuration is reloaded.
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    private static Entry scan(Module module, String moduleName, String path) {
+        long startTime = FlywayLogger.startOperation("module.scan");
+        List<Script> scripts = new ArrayList<>();
+        try {
+            Iterator<Resource> resources = module.iterateResources(PathFilters.isOrIsChildOf(path));
+            while (resources.hasNext()) {
+                Resource resource = resources.next();
+                String name = resource.getName();
+                if (name.endsWith("/")) {
+                    continue;
+                }
+                try (InputStream in = resource.openStream()) {
+                    String relativePath = path.isEmpty() ? name : name.substring(path.length() + 1);
+                    scripts.add(new Script(name, relativePath, in.readAllBytes()));
+                }
+            }
+        } catch (ModuleLoadException | IOException e) {
+            throw new FlywayException("Unable to scan module '" + moduleName + "' for migrations: " + e.getMessage(), e);
+        } finally {
+            FlywayLogger.endOperation("module.scan", startTime);
+        }
+        FlywayLogger.infof("Cached %d migration resources of module %s (%s)", scripts.size(), moduleName, path);
+        return new Entry(module, List.copyOf(scripts));
+    }
+
+    private static String trimSlashes(String path) {
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(start, end);
+    }
+
+    private static final class Entry {
+        private final WeakReference<Module> module;
+        private final List<Script> scripts;
+
+        Entry(Module module, List<Script> scripts) {
+            this.module = new WeakReference<>(module);
+            this.scripts = scripts;
+        }
+    }
+}
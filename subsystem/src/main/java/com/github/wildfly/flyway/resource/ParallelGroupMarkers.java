@@ -0,0 +1,106 @@
+package com.github.wildfly.flyway.resource;
+
+import com.github.wildfly.flyway.logging.FlywayLogger;
+import org.flywaydb.core.api.configuration.Configuration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The marker table of parallel groups, {@code <history table>_parallel}: one row per member
+ * whose work a parallel group has committed but whose schema history row is not written yet.
+ *
+ * <p>A member inserts its marker in the transaction of its own work, and Flyway's transaction
+ * that records the member deletes it, so a marker exists exactly while the work is committed
+ * and the history row is not. A run after a crash or a failed history insert finds the marker
+ * and records the member instead of executing it again.</p>
+ */
+class ParallelGroupMarkers {
+
+    private final String table;
+
+    ParallelGroupMarkers(String table) {
+        this.table = table;
+    }
+
+    /**
+     * @return the markers of the history table of {@code configuration}, in its default schema
+     */
+    static ParallelGroupMarkers of(Configuration configuration) {
+        String schema = configuration.getDefaultSchema();
+        if (schema == null && configuration.getSchemas().length > 0) {
+            schema = configuration.getSchemas()[0];
+        }
+        String table = configuration.getTable() + "_parallel";
+        return new ParallelGroupMarkers(schema != null ? schema + "." + table : table);
+    }
+
+    /**
+     * Create the table if it does not exist. Runs on a connection in auto-commit mode.
+     */
+    void ensureTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeQuery("SELECT version FROM " + table + " WHERE 1 = 0").close();
+            return;
+        } catch (SQLException e) {
+            FlywayLogger.debugf("Parallel group marker table %s not readable (%s), creating it", table, e.getMessage());
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + table + " ("
+                    + "version VARCHAR(50) NOT NULL PRIMARY KEY, "
+                    + "group_name VARCHAR(200) NOT NULL, "
+                    + "installed_on TIMESTAMP NOT NULL)");
+        } catch (SQLException e) {
+            // Another node may have created it in the meantime
+            try (Statement statement = connection.createStatement()) {
+                statement.executeQuery("SELECT version FROM " + table + " WHERE 1 = 0").close();
+            } catch (SQLException again) {
+                e.addSuppressed(again);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return the versions with a committed marker
+     */
+    Set<String> load(Connection connection) throws SQLException {
+        Set<String> versions = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT version FROM " + table)) {
+            while (resultSet.next()) {
+                versions.add(resultSet.getString(1));
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Insert the marker of {@code version} in the current transaction.
+     */
+    void insert(Connection connection, String version, String group) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO " + table + " (version, group_name, installed_on) VALUES (?, ?, ?)")) {
+            insert.setString(1, version);
+            insert.setString(2, group);
+            insert.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            insert.executeUpdate();
+        }
+    }
+
+    /**
+     * Delete the marker of {@code version} in the current transaction.
+     */
+    void delete(Connection connection, String version) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table + " WHERE version = ?")) {
+            delete.setString(1, version);
+            delete.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.github.wildfly.flyway.resource;
+
+import com.github.wildfly.flyway.logging.FlywayLogger;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.migration.Context;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Consecutive pending streamed migrations that declare the same parallel group.
+ *
+ * <p>When Flyway executes the first member, the members run concurrently in batches of up to
+ * {@code threads}, each on its own connection of the datasource and in its own transaction. The
+ * transactions of a batch are committed together once every member of the batch has succeeded,
+ * and rolled back together otherwise; a failed batch ends the group. Flyway then records the
+ * members one by one, in version order, as it reaches them; the committed members only confirm
+ * that their work is done, and a member of the failed batch reports the failure.</p>
+ *
+ * <p>Every member commits a marker with its work, which Flyway's transaction recording the member
+ * deletes (see {@link ParallelGroupMarkers}). A member whose marker is found is recorded without
+ * being executed again, so a crash or rollback between a group's commit and its history rows does
+ * not run the scripts twice.</p>
+ */
+final class ParallelMigrationGroup {
+
+    private final String name;
+    private final List<StreamingSqlMigration> members;
+    private final int threads;
+    private final ParallelGroupMarkers markers;
+    private final Set<String> committed = ConcurrentHashMap.newKeySet();
+    private final Map<String, Exception> failures = new ConcurrentHashMap<>();
+    private boolean ran;
+
+    ParallelMigrationGroup(String name, List<StreamingSqlMigration> members, int threads) {
+        this(name, members, threads, null);
+    }
+
+    /**
+     * @param markers the marker table, or {@code null} for the one of the history table
+     */
+    ParallelMigrationGroup(String name, List<StreamingSqlMigration> members, int threads,
+                           ParallelGroupMarkers markers) {
+        this.name = name;
+        this.members = List.copyOf(members);
+        this.threads = Math.max(1, threads);
+        this.markers = markers;
+    }
+
+    synchronized void migrate(StreamingSqlMigration member, Context context) throws Exception {
+        Configuration configuration = context.getConfiguration();
+        ParallelGroupMarkers markers = this.markers != null ? this.markers : ParallelGroupMarkers.of(configuration);
+        if (!ran) {
+            ran = true;
+            runAll(configuration, markers);
+        }
+        String version = member.getVersion().getVersion();
+        if (committed.contains(version)) {
+            // Flyway records the member in this transaction, which makes the marker obsolete
+            markers.delete(context.getConnection(), version);
+            FlywayLogger.debugf("Migration %s was applied with parallel group %s", version, name);
+            return;
+        }
+        Exception failure = failures.get(version);
+        if (failure != null) {
+            throw failure;
+        }
+        // Not run with the group (its batch was not reached)
+        member.execute(configuration, context.getConnection());
+    }
+
+    private void runAll(Configuration configuration, ParallelGroupMarkers markers) throws Exception {
+        DataSource dataSource = configuration.getDataSource();
+        if (dataSource == null) {
+            throw new FlywayException("Parallel group " + name + " needs a datasource");
+        }
+        Set<String> marked;
+        try (Connection connection = dataSource.getConnection()) {
+            markers.ensureTable(connection);
+            marked = markers.load(connection);
+        }
+        List<StreamingSqlMigration> pending = new ArrayList<>();
+        for (StreamingSqlMigration member : members) {
+            String version = member.getVersion().getVersion();
+            if (marked.contains(version)) {
+                committed.add(version);
+            } else {
+                pending.add(member);
+            }
+        }
+        if (!committed.isEmpty()) {
+            FlywayLogger.infof("Recording %d migrations of parallel group %s committed by an earlier run",
+                    committed.size(), name);
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        int recorded = committed.size();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, pending.size()), daemonThreads());
+        try {
+            for (int from = 0; from < pending.size(); from += threads) {
+                List<StreamingSqlMigration> batch = pending.subList(from, Math.min(pending.size(), from + threads));
+                if (!runBatch(batch, executor, dataSource, configuration, markers)) {
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        FlywayLogger.infof("Executed %d of %d migrations of parallel group %s in %d ms",
+                committed.size() - recorded, pending.size(), name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    /**
+     * @return whether all members of {@code batch} were committed
+     */
+    private boolean runBatch(List<StreamingSqlMigration> batch, ExecutorService executor, DataSource dataSource,
+                             Configuration configuration, ParallelGroupMarkers markers) {
+        List<Future<Connection>> futures = new ArrayList<>();
+        for (StreamingSqlMigration member : batch) {
+            futures.add(executor.submit(() -> execute(member, dataSource, configuration, markers)));
+        }
+        List<Connection> connections = new ArrayList<>();
+        Exception failure = null;
+        for (Future<Connection> future : futures) {
+            try {
+                connections.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = addFailure(failure, e);
+            } catch (ExecutionException e) {
+                failure = addFailure(failure, e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            }
+        }
+        if (failure != null) {
+            rollback(connections);
+            for (StreamingSqlMigration member : batch) {
+                failures.put(member.getVersion().getVersion(), failure);
+            }
+            return false;
+        }
+        return commit(batch, connections);
+    }
+
+    /**
+     * @return the connection with the uncommitted work and marker of {@code member}
+     */
+    private Connection execute(StreamingSqlMigration member, DataSource dataSource, Configuration configuration,
+                               ParallelGroupMarkers markers) throws Exception {
+        Connection connection = dataSource.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            member.execute(configuration, connection);
+            markers.insert(connection, member.getVersion().getVersion(), name);
+            return connection;
+        } catch (Exception e) {
+            try {
+                connection.rollback();
+            } finally {
+                connection.close();
+            }
+            throw e;
+        }
+    }
+
+    private boolean commit(List<StreamingSqlMigration> batch, List<Connection> connections) {
+        SQLException failure = null;
+        for (int i = 0; i < batch.size(); i++) {
+            String version = batch.get(i).getVersion().getVersion();
+            Connection connection = connections.get(i);
+            try {
+                if (failure == null) {
+                    connection.commit();
+                    committed.add(version);
+                } else {
+                    connection.rollback();
+                }
+            } catch (SQLException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            } finally {
+                close(connection);
+            }
+        }
+        if (failure == null) {
+            return true;
+        }
+        // The members committed so far keep their markers and are recorded when Flyway reaches them
+        SQLException commitFailure = new SQLException("Commit of parallel group " + name + " failed",
+                failure.getSQLState(), failure);
+        for (StreamingSqlMigration member : batch) {
+            String version = member.getVersion().getVersion();
+            if (!committed.contains(version)) {
+                failures.put(version, commitFailure);
+            }
+        }
+        return false;
+    }
+
+    private void rollback(List<Connection> connections) {
+        for (Connection connection : connections) {
+            try {
+                connection.rollback();
+            } catch (SQLException e) {
+                FlywayLogger.debugf("Rollback of parallel group %s failed: %s", name, e.getMessage());
+            } finally {
+                close(connection);
+            }
+        }
+    }
+
+    private void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            FlywayLogger.debugf("Closing connection of parallel group %s failed: %s", name, e.getMessage());
+        }
+    }
+
+    private static Exception addFailure(Exception failure, Exception e) {
+        if (failure == null) {
+            return e;
+        }
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    private ThreadFactory daemonThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "flyway-parallel-" + name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
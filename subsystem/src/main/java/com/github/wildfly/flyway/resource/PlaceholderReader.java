@@ -0,0 +1,136 @@
+package com.github.wildfly.flyway.resource;
+
+import org.flywaydb.core.api.FlywayException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Map;
+
+/**
+ * Reader that replaces Flyway placeholders ({@code ${name}} with the default prefix and suffix)
+ * while the script is read, holding at most one placeholder in memory.
+ *
+ * <p>Text that starts like a placeholder but has no suffix within {@value #MAX_NAME_LENGTH}
+ * characters, before the end of the line or of the input is passed through unchanged. A
+ * placeholder without a value fails like it does in Flyway.</p>
+ */
+final class PlaceholderReader extends Reader {
+
+    static final int MAX_NAME_LENGTH = 256;
+
+    private final Reader in;
+    private final String prefix;
+    private final String suffix;
+    private final Map<String, String> placeholders;
+    private final String resourceName;
+
+    /** Characters read ahead and given back, read again last in first out. */
+    private final char[] pushback;
+    private int pushed;
+
+    /** Replacement value being returned. */
+    private String value = "";
+    private int valuePos;
+
+    PlaceholderReader(Reader in, String prefix, String suffix, Map<String, String> placeholders,
+                      String resourceName) {
+        this.in = in;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.placeholders = placeholders;
+        this.resourceName = resourceName;
+        this.pushback = new char[prefix.length() + MAX_NAME_LENGTH + suffix.length()];
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (true) {
+            if (valuePos < value.length()) {
+                return value.charAt(valuePos++);
+            }
+            int c = next();
+            if (c != prefix.charAt(0)) {
+                return c;
+            }
+            String name = placeholder();
+            if (name == null) {
+                return c;
+            }
+            String replacement = placeholders.get(name);
+            if (replacement == null) {
+                throw new FlywayException("No value provided for placeholder: " + prefix + name + suffix
+                        + " in " + resourceName + ". Check your Flyway placeholder configuration.");
+            }
+            value = replacement;
+            valuePos = 0;
+        }
+    }
+
+    /**
+     * Called after the first prefix character has been read.
+     *
+     * @return the name of the placeholder, with everything up to the suffix consumed; or
+     *         {@code null} with everything after the first prefix character given back
+     */
+    private String placeholder() throws IOException {
+        StringBuilder text = new StringBuilder(prefix.length() + 16);
+        text.append(prefix.charAt(0));
+        while (text.length() < prefix.length()) {
+            int c = next();
+            if (c == -1) {
+                return giveBack(text);
+            }
+            text.append((char) c);
+            if (c != prefix.charAt(text.length() - 1)) {
+                return giveBack(text);
+            }
+        }
+        while (text.length() < pushback.length) {
+            int c = next();
+            if (c == -1 || c == '\n' || c == '\r') {
+                if (c != -1) {
+                    text.append((char) c);
+                }
+                return giveBack(text);
+            }
+            text.append((char) c);
+            if (text.length() >= prefix.length() + suffix.length()
+                    && text.lastIndexOf(suffix) == text.length() - suffix.length()) {
+                return text.substring(prefix.length(), text.length() - suffix.length());
+            }
+        }
+        return giveBack(text);
+    }
+
+    private String giveBack(StringBuilder text) {
+        for (int i = text.length() - 1; i >= 1; i--) {
+            pushback[pushed++] = text.charAt(i);
+        }
+        return null;
+    }
+
+    private int next() throws IOException {
+        return pushed > 0 ? pushback[--pushed] : in.read();
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < length) {
+            int c = read();
+            if (c == -1) {
+                return count == 0 ? -1 : count;
+            }
+            buffer[offset + count++] = (char) c;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
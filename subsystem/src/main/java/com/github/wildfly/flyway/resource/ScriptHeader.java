@@ -0,0 +1,44 @@
+package com.github.wildfly.flyway.resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads subsystem directives from the leading comments of a SQL script, e.g.
+ * {@code -- flyway:parallel-group=reference-data}. Only comment and blank lines before the first
+ * statement are searched, so directives cost a few lines of I/O per script.
+ */
+public final class ScriptHeader {
+
+    private static final int MAX_HEADER_LINES = 20;
+
+    private ScriptHeader() {
+    }
+
+    /**
+     * @param reader the script; closed by this method
+     * @param name   the directive name without the {@code flyway:} prefix
+     * @return the value of the directive, or {@code null} if the header does not declare it
+     */
+    public static String directive(Reader reader, String name) throws IOException {
+        Pattern directive = Pattern.compile("--\\s*flyway:" + Pattern.quote(name) + "\\s*=\\s*([\\w.-]+)");
+        try (BufferedReader lines = reader instanceof BufferedReader
+                ? (BufferedReader) reader : new BufferedReader(reader)) {
+            String line;
+            for (int i = 0; i < MAX_HEADER_LINES && (line = lines.readLine()) != null; i++) {
+                line = line.trim();
+                Matcher matcher = directive.matcher(line);
+                if (matcher.matches()) {
+                    return matcher.group(1);
+                }
+                if (!line.isEmpty() && !line.startsWith("--")) {
+                    break;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.github.wildfly.flyway.resource;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits an SQL script into {@code ;}-terminated statements while it is read. Only the statement
+ * being read is held in memory.
+ *
+ * <p>Semicolons inside string literals ({@code '...'}), quoted identifiers ({@code "..."}),
+ * comments ({@code --} and {@code /* *}{@code /}) and PostgreSQL dollar-quoted bodies
+ * ({@code $$...$$}, {@code $tag$...$tag$}) do not end a statement. Comments and whitespace before a
+ * statement are dropped. Delimiter changes ({@code DELIMITER}, {@code GO}, a {@code /} line) are not
+ * supported.</p>
+ *
+ * <p>A backslash escapes the next character in PostgreSQL escape strings ({@code E'...'}) and, for
+ * MySQL and MariaDB, in all string literals, as with their default {@code sql_mode}.</p>
+ */
+final class SqlStatementReader {
+
+    private final Reader in;
+    private final boolean backslashEscapes;
+    private final StringBuilder statement = new StringBuilder();
+    private int peeked = -2;
+    private int line = 1;
+    private int statementLine;
+
+    SqlStatementReader(Reader in) {
+        this(in, false);
+    }
+
+    /**
+     * @param backslashEscapes whether a backslash escapes the next character in every string
+     *                         literal, as in MySQL and MariaDB
+     */
+    SqlStatementReader(Reader in, boolean backslashEscapes) {
+        this.in = in;
+        this.backslashEscapes = backslashEscapes;
+    }
+
+    /**
+     * @return the next statement without its terminating {@code ;}, or {@code null} at the end of
+     *         the script
+     */
+    String next() throws IOException {
+        statement.setLength(0);
+        int c;
+        while ((c = read()) != -1) {
+            boolean empty = statement.length() == 0;
+            if (c == ';') {
+                if (!empty) {
+                    return finish();
+                }
+                continue;
+            }
+            if (c == '-' && peek() == '-') {
+                skipOrCopy(c, empty);
+                copyUntil("\n", empty);
+                continue;
+            }
+            if (c == '/' && peek() == '*') {
+                skipOrCopy(c, empty);
+                skipOrCopy(read(), empty);
+                copyUntil("*/", empty);
+                continue;
+            }
+            if (empty) {
+                if (Character.isWhitespace(c)) {
+                    continue;
+                }
+                statementLine = line;
+            }
+            statement.append((char) c);
+            if (c == '\'') {
+                copyQuoted(c, backslashEscapes || isEscapeStringPrefix());
+            } else if (c == '"') {
+                copyQuoted(c, backslashEscapes);
+            } else if (c == '$' && !isIdentifierPart(statement, statement.length() - 2)) {
+                dollarQuote();
+            }
+        }
+        return statement.length() > 0 ? finish() : null;
+    }
+
+    /**
+     * @return the line the statement last returned by {@link #next()} starts in, 1-based
+     */
+    int getStatementLine() {
+        return statementLine;
+    }
+
+    private String finish() {
+        int end = statement.length();
+        while (end > 0 && Character.isWhitespace(statement.charAt(end - 1))) {
+            end--;
+        }
+        return statement.substring(0, end);
+    }
+
+    /** After a {@code $}: copies a dollar-quoted body if a tag follows, else nothing. */
+    private void dollarQuote() throws IOException {
+        int tagStart = statement.length() - 1;
+        while (true) {
+            int c = peek();
+            if (c == '$') {
+                statement.append((char) read());
+                copyUntil(statement.substring(tagStart), false);
+                return;
+            }
+            if (c == -1 || !(Character.isLetterOrDigit(c) || c == '_')
+                    || (Character.isDigit(c) && statement.length() - 1 == tagStart)) {
+                // $1 parameter or a lone $, not a quote
+                return;
+            }
+            statement.append((char) read());
+        }
+    }
+
+    /** Whether the quote just appended opens a PostgreSQL escape string, {@code E'...'}. */
+    private boolean isEscapeStringPrefix() {
+        int prefix = statement.length() - 2;
+        return prefix >= 0 && (statement.charAt(prefix) == 'E' || statement.charAt(prefix) == 'e')
+                && !isIdentifierPart(statement, prefix - 1);
+    }
+
+    /** Copies up to and including the closing {@code quote}, or to the end of the input. */
+    private void copyQuoted(int quote, boolean escapes) throws IOException {
+        int c;
+        while ((c = read()) != -1) {
+            statement.append((char) c);
+            if (escapes && c == '\\') {
+                int escaped = read();
+                if (escaped == -1) {
+                    return;
+                }
+                statement.append((char) escaped);
+            } else if (c == quote) {
+                return;
+            }
+        }
+    }
+
+    /** Copies (or skips) up to and including {@code end}, or to the end of the input. */
+    private void copyUntil(String end, boolean skip) throws IOException {
+        int matched = 0;
+        int c;
+        while ((c = read()) != -1) {
+            skipOrCopy(c, skip);
+            if (c == end.charAt(matched)) {
+                if (++matched == end.length()) {
+                    return;
+                }
+            } else {
+                matched = c == end.charAt(0) ? 1 : 0;
+            }
+        }
+    }
+
+    private void skipOrCopy(int c, boolean skip) {
+        if (!skip) {
+            statement.append((char) c);
+        }
+    }
+
+    private static boolean isIdentifierPart(CharSequence text, int index) {
+        if (index < 0) {
+            return false;
+        }
+        char c = text.charAt(index);
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = in.read();
+        }
+        return peeked;
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (peeked != -2) {
+            c = peeked;
+            peeked = -2;
+        } else {
+            c = in.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+}
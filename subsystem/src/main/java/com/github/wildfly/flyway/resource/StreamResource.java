@@ -0,0 +1,78 @@
+package com.github.wildfly.flyway.resource;
+
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.resource.LoadableResource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * Flyway resource whose content is read from an {@link InputStream} on every {@link #read()}.
+ * Used for module resources (backed by cached bytes) and deployment resources (backed by VFS
+ * or the filesystem) handed to Flyway by {@link MigrationResourceProvider}, and for the CSV files
+ * of {@link CsvDataMigration}.
+ */
+final class StreamResource extends LoadableResource {
+
+    /** Opens the content of a resource. */
+    @FunctionalInterface
+    interface Content {
+        InputStream open() throws IOException;
+    }
+
+    private final String absolutePath;
+    private final String absolutePathOnDisk;
+    private final String relativePath;
+    private final Content content;
+    private final Charset encoding;
+
+    StreamResource(String absolutePath, String absolutePathOnDisk, String relativePath,
+                   Content content, Charset encoding) {
+        this.absolutePath = absolutePath;
+        this.absolutePathOnDisk = absolutePathOnDisk;
+        this.relativePath = relativePath;
+        this.content = content;
+        this.encoding = encoding;
+    }
+
+    @Override
+    public Reader read() {
+        try {
+            return new BufferedReader(new InputStreamReader(content.open(), encoding));
+        } catch (IOException e) {
+            throw new FlywayException("Unable to read migration resource " + absolutePath + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the raw content, for resources that are not read as text
+     */
+    InputStream open() throws IOException {
+        return content.open();
+    }
+
+    @Override
+    public String getAbsolutePath() {
+        return absolutePath;
+    }
+
+    @Override
+    public String getAbsolutePathOnDisk() {
+        return absolutePathOnDisk;
+    }
+
+    @Override
+    public String getFilename() {
+        int slash = relativePath.lastIndexOf('/');
+        return slash < 0 ? relativePath : relativePath.substring(slash + 1);
+    }
+
+    @Override
+    public String getRelativePath() {
+        return relativePath;
+    }
+}
@@ -0,0 +1,322 @@
+package com.github.wildfly.flyway.resource;
+
+import com.github.wildfly.flyway.config.SpringBootPropertyResolver;
+import com.github.wildfly.flyway.logging.FlywayLogger;
+import org.flywaydb.core.api.CoreMigrationType;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.flywaydb.core.api.resolver.ResolvedMigration;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.flywaydb.core.extensibility.MigrationType;
+import org.flywaydb.core.internal.jdbc.StatementInterceptor;
+import org.flywaydb.core.internal.resolver.ChecksumCalculator;
+import org.flywaydb.core.internal.resolver.ResolvedMigrationImpl;
+import org.flywaydb.core.internal.resolver.java.JavaMigrationExecutor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Versioned SQL migration that is executed while it is read, for scripts too large to be held in
+ * memory.
+ *
+ * <p>Flyway parses a script completely, and keeps all its statements, before executing the first
+ * one. Scripts in the stream locations ({@code V<version>__<description>.sql}, with the configured
+ * prefix, separator and suffixes) are instead read through a buffer, placeholders are replaced by
+ * {@link PlaceholderReader} and statements split by {@link SqlStatementReader} as the text passes,
+ * and each statement is executed before the next is read. Peak memory is the largest statement.</p>
+ *
+ * <p>Statements must end with {@code ;}. Scripts with procedural blocks or delimiter changes belong
+ * in the regular locations. Script name, type and checksum are those Flyway records for the same
+ * file as a regular SQL migration, so a script can move between the regular and the stream
+ * locations without failing validation.</p>
+ *
+ * <p>With {@code parallel-threads} set, a script may declare a parallel group in a leading comment
+ * ({@code -- flyway:parallel-group=<name>}); consecutive pending scripts of the same group are run
+ * concurrently by a {@link ParallelMigrationGroup}.</p>
+ */
+public final class StreamingSqlMigration implements JavaMigration {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_LOGGED_STATEMENT = 200;
+
+    private final StreamResource resource;
+    private final MigrationVersion version;
+    private final String description;
+    private final Charset encoding;
+    private final String parallelGroupName;
+    private final int parallelThreads;
+    private volatile Integer checksum;
+    private volatile ParallelMigrationGroup parallelGroup;
+
+    private StreamingSqlMigration(StreamResource resource, MigrationVersion version, String description,
+                                  Charset encoding, String parallelGroupName, int parallelThreads) {
+        this.resource = resource;
+        this.version = version;
+        this.description = description;
+        this.encoding = encoding;
+        this.parallelGroupName = parallelGroupName;
+        this.parallelThreads = parallelThreads;
+    }
+
+    /**
+     * Find the scripts of the given locations.
+     *
+     * @param locations   {@code classpath:} or {@code filesystem:} locations
+     * @param classLoader the deployment classloader
+     * @param prefix      versioned migration prefix, usually {@code V}
+     * @param separator   separator of version and description, usually {@code __}
+     * @param suffixes    script suffixes, usually {@code .sql}
+     * @param parallelThreads maximum concurrent scripts of a parallel group, {@code 0} to ignore
+     *                        parallel group declarations
+     */
+    public static List<JavaMigration> find(String[] locations, ClassLoader classLoader, Charset encoding,
+                                           String prefix, String separator, String[] suffixes,
+                                           int parallelThreads) {
+        List<LoadableResource> resources = MigrationResourceProvider.scan(locations, classLoader, encoding, "stream");
+        Pattern name = namePattern(prefix, separator, suffixes);
+        List<JavaMigration> migrations = new ArrayList<>();
+        for (LoadableResource resource : resources) {
+            StreamingSqlMigration migration = of((StreamResource) resource, name, encoding, parallelThreads);
+            if (migration != null) {
+                migrations.add(migration);
+            }
+        }
+        return Collections.unmodifiableList(migrations);
+    }
+
+    static Pattern namePattern(String prefix, String separator, String[] suffixes) {
+        StringBuilder alternatives = new StringBuilder();
+        for (String suffix : suffixes) {
+            alternatives.append(alternatives.length() == 0 ? "" : "|").append(Pattern.quote(suffix.trim()));
+        }
+        return Pattern.compile(Pattern.quote(prefix) + "(.+?)" + Pattern.quote(separator)
+                + "(.+?)(?:" + alternatives + ")");
+    }
+
+    /**
+     * @return the migration for {@code resource}, or {@code null} if its name does not match
+     */
+    static StreamingSqlMigration of(StreamResource resource, Pattern name, Charset encoding, int parallelThreads) {
+        Matcher matcher = name.matcher(resource.getFilename());
+        if (!matcher.matches()) {
+            return null;
+        }
+        MigrationVersion version;
+        try {
+            version = MigrationVersion.fromVersion(matcher.group(1));
+        } catch (FlywayException e) {
+            throw new FlywayException("Invalid version in streaming SQL migration " + resource.getAbsolutePath()
+                    + ": " + e.getMessage(), e);
+        }
+        String parallelGroupName = parallelThreads > 0 ? readParallelGroup(resource, encoding) : null;
+        return new StreamingSqlMigration(resource, version, matcher.group(2).replace('_', ' '), encoding,
+                parallelGroupName, parallelThreads);
+    }
+
+    /**
+     * @return the parallel group declared in the leading comments of the script, or {@code null}
+     */
+    static String readParallelGroup(StreamResource resource, Charset encoding) {
+        try {
+            return ScriptHeader.directive(new InputStreamReader(resource.open(), encoding), "parallel-group");
+        } catch (IOException e) {
+            throw new FlywayException("Unable to read streaming SQL migration " + resource.getAbsolutePath()
+                    + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Form the parallel groups of a migration run: runs of at least two consecutive pending
+     * migrations that declare the same group. Call before each run, as the pending migrations and
+     * therefore the groups change.
+     *
+     * @param javaMigrations the Java migrations of the configuration
+     * @param pending        the pending migrations in execution order
+     * @return the number of groups formed
+     */
+    public static int planParallelGroups(JavaMigration[] javaMigrations, MigrationInfo[] pending) {
+        Map<MigrationVersion, StreamingSqlMigration> streamed = new HashMap<>();
+        for (JavaMigration migration : javaMigrations) {
+            if (migration instanceof StreamingSqlMigration) {
+                StreamingSqlMigration script = (StreamingSqlMigration) migration;
+                script.parallelGroup = null;
+                if (script.parallelGroupName != null) {
+                    streamed.put(script.version, script);
+                }
+            }
+        }
+        if (streamed.isEmpty()) {
+            return 0;
+        }
+        List<List<StreamingSqlMigration>> runs = new ArrayList<>();
+        List<StreamingSqlMigration> run = new ArrayList<>();
+        for (MigrationInfo info : pending) {
+            StreamingSqlMigration script = info.getVersion() != null ? streamed.get(info.getVersion()) : null;
+            if (script == null || !run.isEmpty() && !run.get(0).parallelGroupName.equals(script.parallelGroupName)) {
+                runs.add(run);
+                run = new ArrayList<>();
+            }
+            if (script != null) {
+                run.add(script);
+            }
+        }
+        runs.add(run);
+
+        Map<String, Integer> groups = new LinkedHashMap<>();
+        for (List<StreamingSqlMigration> members : runs) {
+            if (members.size() < 2) {
+                continue;
+            }
+            String name = members.get(0).parallelGroupName;
+            ParallelMigrationGroup group = new ParallelMigrationGroup(name, members, members.get(0).parallelThreads);
+            for (StreamingSqlMigration member : members) {
+                member.parallelGroup = group;
+            }
+            groups.merge(name, members.size(), Integer::sum);
+        }
+        groups.forEach((name, size) -> FlywayLogger.debugf("Parallel group %s: %d migrations", name, size));
+        return groups.size();
+    }
+
+    @Override
+    public MigrationVersion getVersion() {
+        return version;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public Integer getChecksum() {
+        Integer result = checksum;
+        if (result == null) {
+            result = ChecksumCalculator.calculate(resource);
+            checksum = result;
+        }
+        return result;
+    }
+
+    @Override
+    public MigrationType getType() {
+        return CoreMigrationType.SQL;
+    }
+
+    @Override
+    public ResolvedMigration getResolvedMigration(Configuration configuration,
+                                                  StatementInterceptor statementInterceptor) {
+        return new ResolvedMigrationImpl(version, description, resource.getRelativePath(), getChecksum(), null,
+                getType(), resource.getAbsolutePathOnDisk(), new JavaMigrationExecutor(this, statementInterceptor));
+    }
+
+    /**
+     * @return the declared parallel group, {@code null} if none or if parallel groups are disabled
+     */
+    String getParallelGroupName() {
+        return parallelGroupName;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        ParallelMigrationGroup group = parallelGroup;
+        if (group != null) {
+            group.migrate(this, context);
+        } else {
+            execute(context.getConfiguration(), context.getConnection());
+        }
+    }
+
+    /**
+     * Execute the script on {@code connection}, leaving the transaction to the caller.
+     */
+    void execute(Configuration configuration, Connection connection) throws Exception {
+        long startTime = System.nanoTime();
+        long statements = 0;
+        Reader reader = new BufferedReader(new InputStreamReader(open(), encoding), BUFFER_SIZE);
+        try {
+            if (configuration.isPlaceholderReplacement()) {
+                reader = new PlaceholderReader(reader, configuration.getPlaceholderPrefix(),
+                        configuration.getPlaceholderSuffix(), placeholders(configuration, connection),
+                        resource.getFilename());
+            }
+            String vendor = SpringBootPropertyResolver.detectVendor(connection.getMetaData().getURL());
+            SqlStatementReader sql = new SqlStatementReader(reader,
+                    "mysql".equals(vendor) || "mariadb".equals(vendor));
+            try (Statement statement = connection.createStatement()) {
+                String next;
+                while ((next = sql.next()) != null) {
+                    try {
+                        statement.execute(next);
+                    } catch (SQLException e) {
+                        throw new SQLException("Statement at line " + sql.getStatementLine() + " of "
+                                + resource.getFilename() + " failed: " + abbreviate(next) + ": " + e.getMessage(),
+                                e.getSQLState(), e.getErrorCode(), e);
+                    }
+                    statements++;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        FlywayLogger.infof("Executed %d statements of %s in %d ms (streamed)", statements, resource.getFilename(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    private InputStream open() throws IOException {
+        return resource.open();
+    }
+
+    /**
+     * The configured placeholders and Flyway's built-in ones that do not need Flyway internals.
+     */
+    private Map<String, String> placeholders(Configuration configuration, Connection connection)
+            throws SQLException {
+        Map<String, String> placeholders = new HashMap<>(configuration.getPlaceholders());
+        String defaultSchema = configuration.getDefaultSchema();
+        if (defaultSchema == null && configuration.getSchemas().length > 0) {
+            defaultSchema = configuration.getSchemas()[0];
+        }
+        placeholders.putIfAbsent("flyway:defaultSchema", defaultSchema != null ? defaultSchema : connection.getSchema());
+        placeholders.putIfAbsent("flyway:user", connection.getMetaData().getUserName());
+        placeholders.putIfAbsent("flyway:database", connection.getCatalog());
+        placeholders.putIfAbsent("flyway:timestamp", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+        placeholders.putIfAbsent("flyway:filename", resource.getFilename());
+        placeholders.putIfAbsent("flyway:table", configuration.getTable());
+        placeholders.values().removeIf(value -> value == null);
+        return placeholders;
+    }
+
+    private static String abbreviate(String statement) {
+        return statement.length() <= MAX_LOGGED_STATEMENT
+                ? statement : statement.substring(0, MAX_LOGGED_STATEMENT) + "...";
+    }
+}
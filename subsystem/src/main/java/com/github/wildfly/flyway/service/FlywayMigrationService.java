@@ -1,14 +1,22 @@
 package com.github.wildfly.flyway.service;
 
+import com.github.wildfly.flyway.audit.AuditEvent;
+import com.github.wildfly.flyway.audit.MigrationAuditLog;
+import com.github.wildfly.flyway.backfill.BackfillMigration;
+import com.github.wildfly.flyway.backfill.BackfillScheduler;
+import com.github.wildfly.flyway.config.FlywayConfiguration;
 import com.github.wildfly.flyway.config.FlywayConfigurationBuilder;
 import com.github.wildfly.flyway.config.FlywayConfigurationBuilder.ConfigurationResult;
+import com.github.wildfly.flyway.jdbc.MeteredDataSource;
 import com.github.wildfly.flyway.logging.FlywayLogger;
 import org.flywaydb.core.Flyway;
 import org.flywaydb.core.api.FlywayException;
 import org.flywaydb.core.api.MigrationInfo;
 import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.output.MigrateOutput;
 import org.flywaydb.core.api.output.MigrateResult;
 import org.jboss.msc.Service;
+import org.jboss.msc.service.ServiceName;
 import org.jboss.msc.service.StartContext;
 import org.jboss.msc.service.StartException;
 import org.jboss.msc.service.StopContext;
@@ -16,7 +24,14 @@ import org.jboss.msc.service.StopContext;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -26,12 +41,83 @@ import java.util.function.Supplier;
  * Service that executes Flyway migrations.
  * This service is only responsible for executing migrations - all configuration
  * logic is handled by FlywayDeploymentProcessor and FlywayConfigurationBuilder.
+ *
+ * <p>The service is installed under the well-known name returned by {@link #serviceName(ServiceName)}
+ * and is registered as a next-phase dependency of its deployment, so persistence units and
+ * {@code @Startup} beans of the deployment are only installed once migration has completed.
+ * Code that cannot express an MSC dependency can await {@link #migrationCompletion(String)}.</p>
  */
 public class FlywayMigrationService implements Service {
 
     private static final int CONNECTION_TIMEOUT_SECONDS = 30;
 
+    /**
+     * Completion of the current migration run, keyed by deployment name. Entries exist only
+     * between {@link #register(List)} and {@link #unregister(String)} of a deployment.
+     */
+    private static final ConcurrentMap<String, CompletableFuture<MigrateResult>> COMPLETIONS = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the well-known name of the migration service of a deployment unit.
+     * Other deployments declare MSC dependencies on this name via {@code flyway.depends-on}.
+     *
+     * @param deploymentUnitServiceName the service name of the owning deployment unit
+     * @return the migration service name
+     */
+    public static ServiceName serviceName(ServiceName deploymentUnitServiceName) {
+        return deploymentUnitServiceName.append("flyway", "migration");
+    }
+
+    /**
+     * Returns a stage that completes when the migration of the given deployment has finished,
+     * without blocking the caller. The stage completes with the {@link MigrateResult}, with
+     * {@code null} if Flyway is disabled for the deployment, or exceptionally if the migration
+     * failed. It may be requested before the migration service has started, but only once the
+     * migration service of the deployment has been installed; for any other name the stage
+     * fails with an {@link IllegalStateException}.
+     *
+     * <p>Dependent actions registered with the non-async methods run on the MSC thread that
+     * completed the migration; use the {@code *Async} variants for anything non-trivial.</p>
+     *
+     * @param deploymentName the deployment name, e.g. {@code myapp.war}
+     * @return a read-only completion stage
+     */
+    public static CompletionStage<MigrateResult> migrationCompletion(String deploymentName) {
+        CompletableFuture<MigrateResult> completion = COMPLETIONS.get(deploymentName);
+        if (completion == null) {
+            return CompletableFuture.failedStage(new IllegalStateException(
+                    "No Flyway migration is installed for deployment: " + deploymentName));
+        }
+        return completion.minimalCompletionStage();
+    }
+
+    /**
+     * Registers the deployments of a migration service that is about to be installed, so that
+     * {@link #migrationCompletion(String)} can be awaited before the service starts.
+     *
+     * @param deploymentNames the names of all deployments covered by the migration service
+     */
+    public static void register(List<String> deploymentNames) {
+        for (String name : deploymentNames) {
+            COMPLETIONS.putIfAbsent(name, new CompletableFuture<>());
+        }
+    }
+
+    /**
+     * Drops the completion of an undeployed deployment. Callers still waiting on it are
+     * failed with a {@link java.util.concurrent.CancellationException}.
+     *
+     * @param deploymentName the deployment name
+     */
+    public static void unregister(String deploymentName) {
+        CompletableFuture<MigrateResult> completion = COMPLETIONS.remove(deploymentName);
+        if (completion != null) {
+            completion.cancel(false);
+        }
+    }
+
     private final String deploymentName;
+    private final List<String> deploymentNames;
     private final Supplier<DataSource> dataSourceSupplier;
     private final ClassLoader deploymentClassLoader;
     private final ConfigurationResult configuration;
@@ -43,12 +129,27 @@ public class FlywayMigrationService implements Service {
 
     private volatile Flyway flyway;
     private volatile MigrateResult lastMigrationResult;
+    private volatile List<CompletableFuture<MigrateResult>> completions = Collections.emptyList();
 
     public FlywayMigrationService(String deploymentName,
                                   Supplier<DataSource> dataSourceSupplier,
                                   ClassLoader deploymentClassLoader,
                                   ConfigurationResult configuration) {
-        this.deploymentName = deploymentName;
+        this(Collections.singletonList(deploymentName), dataSourceSupplier, deploymentClassLoader, configuration);
+    }
+
+    /**
+     * Creates a service that runs the migrations of several (sub)deployments in one Flyway run,
+     * used when EAR subdeployments share a datasource and history table.
+     *
+     * @param deploymentNames the names of all deployments covered by this run
+     */
+    public FlywayMigrationService(List<String> deploymentNames,
+                                  Supplier<DataSource> dataSourceSupplier,
+                                  ClassLoader deploymentClassLoader,
+                                  ConfigurationResult configuration) {
+        this.deploymentNames = List.copyOf(deploymentNames);
+        this.deploymentName = String.join(", ", this.deploymentNames);
         this.dataSourceSupplier = dataSourceSupplier;
         this.deploymentClassLoader = deploymentClassLoader;
         this.configuration = configuration;
@@ -63,13 +164,28 @@ public class FlywayMigrationService implements Service {
 
         FlywayLogger.infof("Starting Flyway migration service for deployment: %s", deploymentName);
 
+        // Reuse a pending stage that callers may already be waiting on; replace a finished one
+        // left behind by a previous (failed) run of this deployment. Deployments that were not
+        // registered, or were undeployed meanwhile, get a stage nobody else can see.
+        List<CompletableFuture<MigrateResult>> runCompletions = new ArrayList<>();
+        for (String name : deploymentNames) {
+            CompletableFuture<MigrateResult> completion = COMPLETIONS.computeIfPresent(name,
+                    (key, existing) -> existing.isDone() ? new CompletableFuture<>() : existing);
+            runCompletions.add(completion != null ? completion : new CompletableFuture<>());
+        }
+        completions = runCompletions;
+
         lock.writeLock().lock();
+        // Tag Flyway's and our own log lines with the deployment and datasource
+        FlywayLogger.MigrationContext logContext =
+                FlywayLogger.migrationContext(deploymentName, configuration.getDatasourceJndiName());
         try {
             // Get datasource
             DataSource dataSource = dataSourceSupplier.get();
             if (dataSource == null) {
                 throw new StartException("DataSource is not available for deployment: " + deploymentName);
             }
+            dataSource = MeteredDataSource.wrap(dataSource, configuration.getMigrationDatasourceJndiName());
 
             FlywayLogger.infof("DataSource obtained successfully for deployment: %s", deploymentName);
 
@@ -77,11 +193,11 @@ public class FlywayMigrationService implements Service {
             testDatabaseConnection(dataSource);
 
             // Check if Flyway is enabled
-            Map<String, String> properties = configuration.getFlywayProperties();
-            String enabledValue = properties.get("spring.flyway.enabled");
-            if (!"true".equalsIgnoreCase(enabledValue)) {
+            FlywayConfiguration flywayConfiguration = configuration.getFlywayConfiguration();
+            if (!flywayConfiguration.isEnabled()) {
                 FlywayLogger.infof("Flyway is disabled for deployment: %s", deploymentName);
                 started.set(false); // Reset started flag
+                completeAll(null, null);
                 return;
             }
 
@@ -99,31 +215,50 @@ public class FlywayMigrationService implements Service {
             // Apply configuration from ConfigurationResult.
             // connectRetries default (3) and any user-provided value are owned by
             // FlywayConfiguration.applyAdvanced(), so the service must not preset it.
-            FlywayConfigurationBuilder.applyToFlyway(flywayConfig, dataSource, deploymentClassLoader, properties);
+            FlywayConfigurationBuilder.applyToFlyway(flywayConfig, dataSource, deploymentClassLoader,
+                    flywayConfiguration);
 
             // Log configured locations
-            String locationsProperty = properties.get("spring.flyway.locations");
+            String locationsProperty = flywayConfiguration.getProperties().get("spring.flyway.locations");
             FlywayLogger.infof("Configured Flyway locations: %s",
                     locationsProperty != null ? locationsProperty : "default (classpath:db/migration)");
 
+            // Backfill classes are checked before anything is migrated
+            List<BackfillMigration> backfills = BackfillScheduler.load(flywayConfiguration.getBackfills(),
+                    deploymentClassLoader != null ? deploymentClassLoader : getClass().getClassLoader());
+
             // Load Flyway
+            long loadStart = System.nanoTime();
             flyway = flywayConfig.load();
+            FlywayLogger.debugf("Flyway loaded in %d ms for deployment: %s",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart), deploymentName);
 
             // Execute migration
             executeMigration();
 
+            // Data backfills run in the background and do not hold up the deployment
+            BackfillScheduler.start(deploymentName, dataSource, backfills, deploymentClassLoader,
+                    flywayConfiguration);
+            completeAll(lastMigrationResult, null);
+
         } catch (StartException e) {
             started.set(false); // Reset on failure
+            completeAll(null, e);
             throw e;
         } catch (FlywayException e) {
             started.set(false); // Reset on failure
             FlywayLogger.errorf(e, "Flyway migration failed for deployment: %s", deploymentName);
-            throw new StartException("Flyway migration failed for deployment: " + deploymentName, e);
+            StartException failure = new StartException("Flyway migration failed for deployment: " + deploymentName, e);
+            completeAll(null, failure);
+            throw failure;
         } catch (Exception e) {
             started.set(false); // Reset on failure
             FlywayLogger.errorf(e, "Unexpected error during Flyway migration for deployment: %s", deploymentName);
-            throw new StartException("Unexpected error during Flyway migration", e);
+            StartException failure = new StartException("Unexpected error during Flyway migration", e);
+            completeAll(null, failure);
+            throw failure;
         } finally {
+            logContext.close();
             lock.writeLock().unlock();
         }
     }
@@ -144,10 +279,20 @@ public class FlywayMigrationService implements Service {
 
             flyway = null;
             lastMigrationResult = null;
+            // Callers arriving after the stop wait for the next run rather than seeing this one
+            for (int i = 0; i < deploymentNames.size(); i++) {
+                if (completions.get(i).isDone()) {
+                    COMPLETIONS.replace(deploymentNames.get(i), completions.get(i), new CompletableFuture<>());
+                }
+            }
 
         } finally {
             lock.writeLock().unlock();
         }
+
+        // A running backfill chunk commits first; the stop completes from the backfill thread
+        context.asynchronous();
+        BackfillScheduler.stop(deploymentName, context::complete);
     }
 
     public Flyway getFlyway() {
@@ -178,6 +323,16 @@ public class FlywayMigrationService implements Service {
 
     // ===== Private Helper Methods =====
 
+    private void completeAll(MigrateResult result, Throwable failure) {
+        for (CompletableFuture<MigrateResult> completion : completions) {
+            if (failure != null) {
+                completion.completeExceptionally(failure);
+            } else {
+                completion.complete(result);
+            }
+        }
+    }
+
     private void testDatabaseConnection(DataSource dataSource) throws StartException {
         try (Connection connection = dataSource.getConnection()) {
             if (!connection.isValid(CONNECTION_TIMEOUT_SECONDS)) {
@@ -199,6 +354,7 @@ public class FlywayMigrationService implements Service {
             throw new StartException("Migration already in progress for deployment: " + deploymentName);
         }
 
+        long auditStart = System.currentTimeMillis();
         try {
             FlywayLogger.infof("Starting database migration for deployment: %s", deploymentName);
 
@@ -214,7 +370,7 @@ public class FlywayMigrationService implements Service {
             }
 
             // Execute migration
-            lastMigrationResult = flyway.migrate();
+            lastMigrationResult = MigrationRunner.migrate(flyway, configuration.getFlywayConfiguration());
 
             // Log results
             if (lastMigrationResult.success) {
@@ -222,23 +378,31 @@ public class FlywayMigrationService implements Service {
                         lastMigrationResult.migrationsExecuted, deploymentName);
 
                 // Log applied migrations
-                if (lastMigrationResult.migrationsExecuted > 0) {
-                    MigrationInfo[] applied = flyway.info().applied();
-                    for (int i = applied.length - lastMigrationResult.migrationsExecuted; i < applied.length; i++) {
-                        if (i >= 0 && i < applied.length) {
-                            MigrationInfo info = applied[i];
-                            FlywayLogger.infof("  Applied: %s - %s", info.getVersion(), info.getDescription());
-                        }
+                if (lastMigrationResult.migrations != null) {
+                    for (MigrateOutput output : lastMigrationResult.migrations) {
+                        FlywayLogger.infof("  Applied: %s - %s", output.version, output.description);
                     }
                 }
+                MigrationAuditLog.recordSuccess(AuditEvent.Source.DEPLOYMENT, deploymentName,
+                        configuration.getDatasourceJndiName(), auditStart, flyway, lastMigrationResult);
             } else {
                 FlywayLogger.errorf("Migration failed for deployment: %s", deploymentName);
-                throw new StartException("Migration execution failed");
+                StartException failure = new StartException("Migration execution failed");
+                MigrationAuditLog.recordFailure(AuditEvent.Source.DEPLOYMENT, deploymentName,
+                        configuration.getDatasourceJndiName(), auditStart, failure);
+                throw failure;
             }
 
         } catch (FlywayException e) {
             FlywayLogger.errorf(e, "Flyway migration error for deployment: %s", deploymentName);
+            MigrationAuditLog.recordFailure(AuditEvent.Source.DEPLOYMENT, deploymentName,
+                    configuration.getDatasourceJndiName(), auditStart, e);
             throw new StartException("Flyway migration failed", e);
+        } catch (RuntimeException e) {
+            FlywayLogger.errorf(e, "Unexpected error during Flyway migration for deployment: %s", deploymentName);
+            MigrationAuditLog.recordFailure(AuditEvent.Source.DEPLOYMENT, deploymentName,
+                    configuration.getDatasourceJndiName(), auditStart, e);
+            throw new StartException("Unexpected error during Flyway migration", e);
         } finally {
             migrationInProgress.set(false);
         }
@@ -0,0 +1,128 @@
+package com.github.wildfly.flyway.service;
+
+import com.github.wildfly.flyway.logging.FlywayLogCreator;
+import com.github.wildfly.flyway.logging.FlywayLogger;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.extensibility.Plugin;
+
+/**
+ * Loads and initializes the Flyway core and database plugin classes on a background thread
+ * while the server boots, so the first deployment does not pay for it.
+ *
+ * <p>Flyway's {@code PluginRegister} is created per configuration and cannot be handed to
+ * Flyway from outside, so each {@code Flyway.configure(...)} still runs its own
+ * {@link ServiceLoader} discovery. What is shared is everything below it: the plugin and
+ * database-type classes are defined and initialized once by their modules, and later
+ * discoveries only instantiate them. The plugins found here are logged at debug level.</p>
+ *
+ * <p>Runs once per JVM; set the system property {@value #ENABLED_PROPERTY} to {@code false} to
+ * turn it off.</p>
+ */
+public final class FlywayPrewarm {
+
+    public static final String ENABLED_PROPERTY = "com.github.wildfly.flyway.prewarm";
+
+    /** Classes on the path of {@code configure().load()} and {@code migrate()}. */
+    private static final String[] CORE_CLASSES = {
+            "org.flywaydb.core.api.configuration.ClassicConfiguration",
+            "org.flywaydb.core.api.configuration.FluentConfiguration",
+            "org.flywaydb.core.FlywayExecutor",
+            "org.flywaydb.core.internal.database.DatabaseTypeRegister",
+            "org.flywaydb.core.internal.jdbc.JdbcConnectionFactory",
+            "org.flywaydb.core.internal.jdbc.JdbcTemplate",
+            "org.flywaydb.core.internal.resolver.CompositeMigrationResolver",
+            "org.flywaydb.core.internal.resolver.sql.SqlMigrationResolver",
+            "org.flywaydb.core.internal.scanner.Scanner",
+            "org.flywaydb.core.internal.sqlscript.SqlScriptExecutorFactory",
+            "org.flywaydb.core.internal.command.DbMigrate",
+            "org.flywaydb.core.internal.command.DbValidate",
+            "org.flywaydb.core.internal.schemahistory.SchemaHistoryFactory",
+            "org.flywaydb.core.internal.info.MigrationInfoServiceImpl",
+            "org.flywaydb.core.api.output.MigrateResult"
+    };
+
+    private static final AtomicBoolean STARTED = new AtomicBoolean();
+    private static final CountDownLatch DONE = new CountDownLatch(1);
+
+    private FlywayPrewarm() {
+    }
+
+    /**
+     * Start the warm-up thread unless it already ran or is disabled. Never blocks.
+     */
+    public static void start() {
+        if (!Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true"))) {
+            return;
+        }
+        if (!STARTED.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(FlywayPrewarm::run, "flyway-prewarm");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Wait for a started warm-up to finish.
+     *
+     * @return {@code true} if the warm-up finished within the timeout
+     */
+    public static boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return DONE.await(timeout, unit);
+    }
+
+    /**
+     * Run the warm-up on the calling thread.
+     */
+    static void run() {
+        long start = System.nanoTime();
+        try {
+            // Before any Flyway class picks a log creator of its own
+            FlywayLogCreator.install();
+            ClassLoader classLoader = Flyway.class.getClassLoader();
+            int loaded = 0;
+            for (String className : CORE_CLASSES) {
+                try {
+                    Class.forName(className, true, classLoader);
+                    loaded++;
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // Internal class moved in another Flyway version; not worth a warning
+                    FlywayLogger.debugf("Flyway warm-up skipped %s: %s", className, e);
+                }
+            }
+
+            // Defines and initializes the plugin classes of the vendor modules imported by org.flywaydb.core
+            List<String> found = new ArrayList<>();
+            Iterator<Plugin> iterator = ServiceLoader.load(Plugin.class, classLoader).iterator();
+            while (true) {
+                try {
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+                    found.add(iterator.next().getClass().getName());
+                } catch (ServiceConfigurationError e) {
+                    FlywayLogger.debugf("Flyway warm-up skipped a plugin: %s", e.getMessage());
+                }
+            }
+            // Same path as a deployment, minus the datasource
+            Flyway.configure(classLoader).load();
+
+            FlywayLogger.debugf("Flyway warm-up finished in %d ms (%d core classes, %d plugins: %s)",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), loaded, found.size(), found);
+        } catch (RuntimeException | LinkageError e) {
+            // Only an optimization; the first deployment will report a real problem
+            FlywayLogger.debugf("Flyway warm-up failed: %s", e);
+        } finally {
+            DONE.countDown();
+        }
+    }
+}
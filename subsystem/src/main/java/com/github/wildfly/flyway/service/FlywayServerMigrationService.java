@@ -0,0 +1,193 @@
+package com.github.wildfly.flyway.service;
+
+import com.github.wildfly.flyway.audit.AuditEvent;
+import com.github.wildfly.flyway.audit.MigrationAuditLog;
+import com.github.wildfly.flyway.config.FlywayConfigurationBuilder;
+import com.github.wildfly.flyway.jdbc.MeteredDataSource;
+import com.github.wildfly.flyway.logging.FlywayLogger;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.jboss.modules.Module;
+import org.jboss.modules.ModuleLoadException;
+import org.jboss.msc.Service;
+import org.jboss.msc.service.ServiceName;
+import org.jboss.msc.service.StartContext;
+import org.jboss.msc.service.StartException;
+import org.jboss.msc.service.StopContext;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Service that executes the migrations of a server-managed {@code migration=*} resource at boot,
+ * independent of any deployment.
+ *
+ * <p>Scripts are taken from the configured locations, resolved against a JBoss module when one
+ * is configured ({@code classpath:} locations) or from the filesystem ({@code filesystem:}
+ * locations). Each resource is its own MSC service, so server migrations targeting different
+ * datasources run in parallel. Deployment migration services on the same datasource depend on
+ * the server migrations registered via {@link #serviceNamesFor(String)}, so a shared schema is
+ * migrated once per server before any deployment migrates on top of it.</p>
+ */
+public class FlywayServerMigrationService implements Service {
+
+    /** Server migrations by resource name, used to wire deployment dependencies. */
+    private static final ConcurrentMap<String, Registration> REGISTRATIONS = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final String datasourceJndiName;
+    private final Supplier<DataSource> dataSourceSupplier;
+    private final String moduleName;
+    private final Map<String, String> properties;
+
+    private volatile MigrateResult lastMigrationResult;
+
+    /**
+     * @param name the name of the {@code migration=*} resource
+     * @param datasourceJndiName the JNDI name of the target datasource
+     * @param dataSourceSupplier supplier of the target datasource
+     * @param moduleName the JBoss module containing the scripts, or {@code null} to use
+     *                   {@code filesystem:} locations only
+     * @param properties Flyway properties in {@code spring.flyway.*} form
+     */
+    public FlywayServerMigrationService(String name,
+                                        String datasourceJndiName,
+                                        Supplier<DataSource> dataSourceSupplier,
+                                        String moduleName,
+                                        Map<String, String> properties) {
+        this.name = name;
+        this.datasourceJndiName = datasourceJndiName;
+        this.dataSourceSupplier = dataSourceSupplier;
+        this.moduleName = moduleName;
+        this.properties = Map.copyOf(properties);
+    }
+
+    /**
+     * Register a server migration so that deployments on the same datasource wait for it. Called
+     * before its service is installed, so that no deployment on the datasource misses it.
+     *
+     * @param name the name of the {@code migration=*} resource
+     * @param datasourceJndiName the JNDI name of the target datasource
+     * @param serviceName the service name of the server migration
+     */
+    public static void register(String name, String datasourceJndiName, ServiceName serviceName) {
+        REGISTRATIONS.put(name, new Registration(datasourceJndiName, serviceName));
+    }
+
+    public static void unregister(String name) {
+        REGISTRATIONS.remove(name);
+    }
+
+    /**
+     * Returns the service names of all server migrations targeting the given datasource, however
+     * its JNDI name is spelled.
+     */
+    public static List<ServiceName> serviceNamesFor(String datasourceJndiName) {
+        String normalized = normalizeJndiName(datasourceJndiName);
+        List<ServiceName> serviceNames = new ArrayList<>();
+        for (Registration registration : REGISTRATIONS.values()) {
+            if (normalizeJndiName(registration.datasourceJndiName).equals(normalized)) {
+                serviceNames.add(registration.serviceName);
+            }
+        }
+        return serviceNames;
+    }
+
+    /**
+     * Spell a datasource JNDI name one way: {@code java:/DS}, {@code java:jboss/DS} and a bare
+     * {@code DS} all name the same datasource.
+     */
+    public static String normalizeJndiName(String jndiName) {
+        String name = jndiName.trim();
+        if (name.startsWith("java:jboss/")) {
+            return name;
+        }
+        if (name.startsWith("java:/")) {
+            return "java:jboss/" + name.substring("java:/".length());
+        }
+        return name.startsWith("java:") ? name : "java:jboss/" + name;
+    }
+
+    @Override
+    public void start(StartContext context) throws StartException {
+        FlywayLogger.infof("Starting server-managed Flyway migration: %s", name);
+        long startTime = FlywayLogger.startOperation("server-migration." + name);
+        FlywayLogger.MigrationContext logContext = FlywayLogger.migrationContext(name, datasourceJndiName);
+
+        try {
+            DataSource dataSource = dataSourceSupplier.get();
+            if (dataSource == null) {
+                throw new StartException("DataSource is not available for server migration: " + name);
+            }
+            dataSource = MeteredDataSource.wrap(dataSource, datasourceJndiName);
+
+            ClassLoader classLoader = resolveClassLoader();
+            FluentConfiguration flywayConfig = Flyway.configure(classLoader);
+            FlywayConfigurationBuilder.applyToFlyway(flywayConfig, dataSource, classLoader, properties);
+
+            Flyway flyway = flywayConfig.load();
+            MigrateResult result = MigrationRunner.migrate(flyway, properties);
+            if (!result.success) {
+                StartException failure = new StartException("Migration execution failed for server migration: " + name);
+                MigrationAuditLog.recordFailure(AuditEvent.Source.SERVER_MIGRATION, name, datasourceJndiName,
+                        startTime, failure);
+                throw failure;
+            }
+            lastMigrationResult = result;
+            MigrationAuditLog.recordSuccess(AuditEvent.Source.SERVER_MIGRATION, name, datasourceJndiName,
+                    startTime, flyway, result);
+            FlywayLogger.infof("Successfully executed %d migrations for server migration: %s",
+                    result.migrationsExecuted, name);
+
+        } catch (ModuleLoadException e) {
+            throw new StartException("Failed to load module '" + moduleName + "' for server migration: " + name, e);
+        } catch (FlywayException e) {
+            FlywayLogger.errorf(e, "Flyway migration failed for server migration: %s", name);
+            MigrationAuditLog.recordFailure(AuditEvent.Source.SERVER_MIGRATION, name, datasourceJndiName,
+                    startTime, e);
+            throw new StartException("Flyway migration failed for server migration: " + name, e);
+        } catch (RuntimeException e) {
+            FlywayLogger.errorf(e, "Unexpected error during server migration: %s", name);
+            MigrationAuditLog.recordFailure(AuditEvent.Source.SERVER_MIGRATION, name, datasourceJndiName,
+                    startTime, e);
+            throw new StartException("Unexpected error during server migration: " + name, e);
+        } finally {
+            logContext.close();
+            FlywayLogger.endOperation("server-migration." + name, startTime);
+        }
+    }
+
+    @Override
+    public void stop(StopContext context) {
+        FlywayLogger.debugf("Stopping server-managed Flyway migration: %s", name);
+        lastMigrationResult = null;
+    }
+
+    public MigrateResult getLastMigrationResult() {
+        return lastMigrationResult;
+    }
+
+    private ClassLoader resolveClassLoader() throws ModuleLoadException {
+        if (moduleName == null) {
+            return FlywayServerMigrationService.class.getClassLoader();
+        }
+        return Module.getBootModuleLoader().loadModule(moduleName).getClassLoader();
+    }
+
+    private static final class Registration {
+        private final String datasourceJndiName;
+        private final ServiceName serviceName;
+
+        Registration(String datasourceJndiName, ServiceName serviceName) {
+            this.datasourceJndiName = datasourceJndiName;
+            this.serviceName = serviceName;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.github.wildfly.flyway.service;
+
+import com.github.wildfly.flyway.config.FlywayConfiguration;
+import com.github.wildfly.flyway.config.SpringBootPropertyResolver;
+import com.github.wildfly.flyway.jdbc.RetryPolicy;
+import com.github.wildfly.flyway.logging.FlywayLogger;
+import com.github.wildfly.flyway.resource.StreamingSqlMigration;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationInfoService;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.output.MigrateOutput;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.flywaydb.core.api.output.ValidateResult;
+import org.flywaydb.core.api.pattern.ValidatePattern;
+import org.flywaydb.core.api.resolver.ResolvedMigration;
+import org.flywaydb.core.internal.info.MigrationInfoImpl;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the migrate command of the migration services, with the subsystem's execution options.
+ *
+ * <p>With {@code commit-chunk-size}, pending versioned migrations are applied in transactions of
+ * up to that many migrations, then the pending repeatable migrations. Each chunk is one grouped
+ * Flyway run whose {@code target} is the last version of the chunk, so lock hold time and
+ * transaction log growth are bounded while the per-migration commit and history round trips of
+ * {@code group=false} are saved. The chunks are planned once, from the pending migrations before
+ * the first chunk. A non-transactional migration ends a chunk and runs on its own. Validation runs
+ * once, before the first chunk. SQL repeatable migrations are held back until all versioned
+ * migrations are applied, as in a single run. Being separate runs, every chunk fires the
+ * {@code beforeMigrate} and {@code afterMigrate} callbacks of its own.</p>
+ *
+ * <p>With {@code parallel-threads}, the parallel groups of streamed migrations are formed from the
+ * pending migrations before the run.</p>
+ *
+ * <p>A run that fails on a deadlock, a serialization failure or a lock timeout (typically one set
+ * by a session profile) is repeated after a jittered exponential back-off, as decided by the
+ * {@link RetryPolicy}. The repeated run resumes at the failed migration, so each migration gets
+ * its own attempts. Only transactional migrations on databases that roll back a failed migration
+ * including its DDL are repeated.</p>
+ */
+public final class MigrationRunner {
+
+    /** A repeatable prefix that matches no script, to keep repeatables out of intermediate chunks. */
+    private static final String NO_REPEATABLES = "\u0000";
+
+    private MigrationRunner() {
+    }
+
+    /**
+     * Migrate in commit chunks if {@code spring.flyway.commit-chunk-size} is set, in one run otherwise,
+     * repeating the run after a deadlock or lock timeout.
+     *
+     * @param properties Flyway properties in {@code spring.flyway.*} form
+     */
+    public static MigrateResult migrate(Flyway flyway, Map<String, String> properties) {
+        return migrate(flyway, new FlywayConfiguration(properties));
+    }
+
+    /**
+     * Migrate with an already parsed configuration.
+     *
+     * @see #migrate(Flyway, Map)
+     */
+    public static MigrateResult migrate(Flyway flyway, FlywayConfiguration configuration) {
+        RetryPolicy retryPolicy = configuration.getRetryPolicy();
+        String vendor = null;
+        int applied = -1;
+        int attempt = 0;
+        while (true) {
+            try {
+                return migrateOnce(flyway, configuration);
+            } catch (FlywayException e) {
+                if (vendor == null) {
+                    vendor = vendor(flyway.getConfiguration().getDataSource());
+                }
+                RetryPolicy.Reason reason = retryPolicy.classify(e, vendor);
+                if (reason == null) {
+                    throw e;
+                }
+                MigrationInfoService info;
+                try {
+                    info = flyway.info();
+                } catch (FlywayException infoFailure) {
+                    e.addSuppressed(infoFailure);
+                    throw e;
+                }
+                MigrationInfo[] pending = info.pending();
+                if (pending.length > 0 && !isTransactional(pending[0])) {
+                    throw e;
+                }
+                // A run that got further failed on a later migration, which starts its own attempts
+                int nowApplied = info.applied().length;
+                attempt = nowApplied != applied ? 1 : attempt + 1;
+                applied = nowApplied;
+                int maxAttempts = retryPolicy.maxAttempts(reason);
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                long backoff = retryPolicy.backoffMillis(attempt);
+                FlywayLogger.warnf("Migration %s failed on a %s, retrying in %d ms (attempt %d of %d): %s",
+                        pending.length > 0 ? pending[0].getScript() : "run",
+                        reason == RetryPolicy.Reason.DEADLOCK ? "deadlock" : "lock timeout",
+                        backoff, attempt + 1, maxAttempts, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static MigrateResult migrateOnce(Flyway flyway, FlywayConfiguration configuration) {
+        int chunkSize = configuration.getCommitChunkSize();
+        if (configuration.getParallelThreads() <= 0 && chunkSize <= 0) {
+            return flyway.migrate();
+        }
+        MigrationInfo[] pending = flyway.info().pending();
+        if (configuration.getParallelThreads() > 0) {
+            int groups = StreamingSqlMigration.planParallelGroups(flyway.getConfiguration().getJavaMigrations(),
+                    pending);
+            FlywayLogger.debugf("Running %d parallel groups with up to %d threads", groups,
+                    configuration.getParallelThreads());
+        }
+        return chunkSize > 0 ? migrate(flyway, pending, chunkSize) : flyway.migrate();
+    }
+
+    /**
+     * @param flyway    the configured Flyway instance; its target bounds the last chunk
+     * @param pending   the pending migrations the chunks are planned from
+     * @param chunkSize migrations per transaction, at least {@code 1}
+     * @return the result of the last chunk with the migrations and warnings of all chunks
+     */
+    static MigrateResult migrate(Flyway flyway, MigrationInfo[] pending, int chunkSize) {
+        Configuration configuration = flyway.getConfiguration();
+        if (configuration.isOutOfOrder()) {
+            // An out-of-order migration below the current version cannot be reached by a target step
+            FlywayLogger.debugf("Commit chunks are not used with out-of-order migrations");
+            return flyway.migrate();
+        }
+        if (configuration.isValidateOnMigrate()) {
+            validate(configuration);
+        }
+
+        List<MigrateOutput> migrations = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        MigrateResult first = null;
+        MigrateResult last = null;
+        int executed = 0;
+        int chunks = 0;
+        // The last run has no step: it applies the repeatable migrations
+        List<MigrationVersion> steps = new ArrayList<>(chunkTargets(pending, chunkSize));
+        steps.add(null);
+        for (MigrationVersion step : steps) {
+            FluentConfiguration chunk = Flyway.configure(configuration.getClassLoader())
+                    .configuration(configuration)
+                    .validateOnMigrate(false);
+            if (step != null) {
+                chunk.group(true)
+                        .target(step)
+                        .repeatableSqlMigrationPrefix(NO_REPEATABLES)
+                        .validateMigrationNaming(false);
+            }
+            MigrateResult result = chunk.load().migrate();
+            chunks++;
+            if (first == null) {
+                first = result;
+            }
+            last = result;
+            executed += result.migrationsExecuted;
+            if (result.migrations != null) {
+                migrations.addAll(result.migrations);
+            }
+            if (result.warnings != null) {
+                warnings.addAll(result.warnings);
+            }
+            if (!result.success || step == null) {
+                break;
+            }
+            if (result.migrationsExecuted == 0) {
+                throw new FlywayException("No migration applied up to target " + step + " of commit chunk " + chunks);
+            }
+            FlywayLogger.debugf("Committed migration chunk %d up to version %s", chunks, step);
+        }
+
+        FlywayLogger.infof("Applied %d migrations in %d runs of up to %d migrations per transaction",
+                executed, chunks, chunkSize);
+        last.initialSchemaVersion = first.initialSchemaVersion;
+        last.migrationsExecuted = executed;
+        last.migrations = migrations;
+        last.warnings = warnings;
+        return last;
+    }
+
+    /**
+     * @return the version of the last migration of each chunk, in order; empty if no versioned
+     *         migration is pending
+     */
+    static List<MigrationVersion> chunkTargets(MigrationInfo[] pending, int chunkSize) {
+        List<MigrationVersion> targets = new ArrayList<>();
+        MigrationVersion target = null;
+        int count = 0;
+        for (MigrationInfo info : pending) {
+            if (info.getVersion() == null) {
+                continue;
+            }
+            boolean transactional = isTransactional(info);
+            if (count > 0 && !transactional) {
+                targets.add(target);
+                count = 0;
+            }
+            target = info.getVersion();
+            count++;
+            if (count >= chunkSize || !transactional) {
+                targets.add(target);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            targets.add(target);
+        }
+        return targets;
+    }
+
+    private static String vendor(DataSource dataSource) {
+        if (dataSource == null) {
+            return null;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            return SpringBootPropertyResolver.detectVendor(connection.getMetaData().getURL());
+        } catch (SQLException e) {
+            FlywayLogger.debugf("Unable to detect database vendor: %s", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Validate as {@code migrate} would: pending migrations are expected.
+     */
+    private static void validate(Configuration configuration) {
+        List<ValidatePattern> patterns = new ArrayList<>(Arrays.asList(configuration.getIgnoreMigrationPatterns()));
+        patterns.add(ValidatePattern.fromPattern("*:pending"));
+        ValidateResult result = Flyway.configure(configuration.getClassLoader())
+                .configuration(configuration)
+                .ignoreMigrationPatterns(patterns.toArray(new ValidatePattern[0]))
+                .load()
+                .validateWithResult();
+        if (!result.validationSuccessful) {
+            throw new FlywayException("Validate failed: " + result.getAllErrorMessages());
+        }
+    }
+
+    private static boolean isTransactional(MigrationInfo info) {
+        // The resolved migration is only exposed by Flyway's implementation of MigrationInfo
+        ResolvedMigration resolved = info instanceof MigrationInfoImpl
+                ? ((MigrationInfoImpl) info).getResolvedMigration() : null;
+        return resolved == null || resolved.getExecutor() == null
+                || resolved.getExecutor().canExecuteInTransaction();
+    }
+}
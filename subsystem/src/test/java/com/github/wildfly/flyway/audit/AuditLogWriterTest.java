@@ -0,0 +1,140 @@
+package com.github.wildfly.flyway.audit;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.output.MigrateOutput;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link AuditLogWriter} and the JSON form of {@link AuditEvent}.
+ */
+public class AuditLogWriterTest {
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("flyway-audit");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testEventsWrittenAsJsonLines() throws IOException {
+        Path file = dir.resolve(MigrationAuditLog.FILE_NAME);
+        AuditLogWriter writer = new AuditLogWriter(file, 16, 4, AuditLogWriter.FsyncPolicy.ALWAYS, 1024 * 1024, 2);
+        writer.start();
+
+        MigrateResult result = new MigrateResult("11.0", "testdb", "public", "postgresql");
+        result.initialSchemaVersion = "1";
+        result.targetSchemaVersion = "2";
+        result.migrationsExecuted = 1;
+        assertTrue(writer.offer(AuditEvent.success(AuditEvent.Source.DEPLOYMENT, "app.war",
+                "java:jboss/datasources/AppDS", 42, result, null)));
+        assertTrue(writer.offer(AuditEvent.failure(AuditEvent.Source.OPERATION, "main",
+                "AppDS", 7, new IllegalStateException("bad \"quote\"\nline"))));
+        writer.shutdown(5000);
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"source\":\"deployment\""));
+        assertTrue(lines.get(0).contains("\"outcome\":\"success\""));
+        assertTrue(lines.get(0).contains("\"targetSchemaVersion\":\"2\""));
+        assertTrue(lines.get(0).contains("\"migrationsExecuted\":1"));
+        assertTrue(lines.get(1).contains("\"source\":\"operation\""));
+        assertTrue(lines.get(1).contains("\"outcome\":\"failure\""));
+        assertTrue(lines.get(1).contains("\"error\":\"bad \\\"quote\\\"\\nline\""));
+    }
+
+    @Test
+    public void testMigrationsTakenFromResult() {
+        MigrateResult result = new MigrateResult("11.0", "testdb", "public", "postgresql");
+        result.migrationsExecuted = 1;
+        result.migrations.add(output("2", "add orders", "/opt/app/db/migration/V2__add_orders.sql"));
+
+        // The history also holds an entry another node applied after this run
+        MigrationInfo own = history("2", "V2__add_orders.sql", 42);
+        MigrationInfo other = history("3", "V3__other_node.sql", 7);
+        String json = AuditEvent.success(AuditEvent.Source.DEPLOYMENT, "app.war", "AppDS", 10, result,
+                new MigrationInfo[]{own, other}).toJson();
+        assertTrue(json, json.contains("\"version\":\"2\""));
+        assertTrue(json, json.contains("\"script\":\"V2__add_orders.sql\""));
+        assertTrue(json, json.contains("\"checksum\":42"));
+        assertTrue(json, json.contains("\"installedBy\":\"app\""));
+        assertFalse(json, json.contains("V3__other_node.sql"));
+
+        // Without the history the script path of the result is used
+        json = AuditEvent.success(AuditEvent.Source.DEPLOYMENT, "app.war", "AppDS", 10, result, null).toJson();
+        assertTrue(json, json.contains("\"script\":\"/opt/app/db/migration/V2__add_orders.sql\""));
+        assertTrue(json, json.contains("\"checksum\":null"));
+    }
+
+    private static MigrateOutput output(String version, String description, String filepath) {
+        MigrateOutput output = mock(MigrateOutput.class);
+        output.version = version;
+        output.description = description;
+        output.type = "SQL";
+        output.filepath = filepath;
+        output.executionTime = 5;
+        return output;
+    }
+
+    private static MigrationInfo history(String version, String script, int checksum) {
+        MigrationInfo info = mock(MigrationInfo.class);
+        when(info.getVersion()).thenReturn(MigrationVersion.fromVersion(version));
+        when(info.getScript()).thenReturn(script);
+        when(info.getChecksum()).thenReturn(checksum);
+        when(info.getInstalledBy()).thenReturn("app");
+        return info;
+    }
+
+    @Test
+    public void testRotationKeepsConfiguredBackups() throws IOException {
+        Path file = dir.resolve(MigrationAuditLog.FILE_NAME);
+        // Small enough that every batch after the first rotates
+        AuditLogWriter writer = new AuditLogWriter(file, 64, 1, AuditLogWriter.FsyncPolicy.NEVER, 100, 2);
+        writer.start();
+        for (int i = 0; i < 5; i++) {
+            assertTrue(writer.offer(AuditEvent.failure(AuditEvent.Source.DEPLOYMENT, "app" + i + ".war",
+                    null, i, null)));
+        }
+        writer.shutdown(5000);
+
+        assertTrue(Files.exists(file));
+        assertTrue(Files.exists(dir.resolve(MigrationAuditLog.FILE_NAME + ".1")));
+        assertTrue(Files.exists(dir.resolve(MigrationAuditLog.FILE_NAME + ".2")));
+        assertFalse(Files.exists(dir.resolve(MigrationAuditLog.FILE_NAME + ".3")));
+        assertTrue(Files.readAllLines(file, StandardCharsets.UTF_8).get(0).contains("app4.war"));
+    }
+
+    @Test
+    public void testFullQueueDropsInsteadOfBlocking() {
+        Path file = dir.resolve(MigrationAuditLog.FILE_NAME);
+        // Not started, so nothing drains the queue
+        AuditLogWriter writer = new AuditLogWriter(file, 1, 1, AuditLogWriter.FsyncPolicy.NEVER, 1024, 0);
+        assertTrue(writer.offer(AuditEvent.failure(AuditEvent.Source.DEPLOYMENT, "a.war", null, 0, null)));
+        assertFalse(writer.offer(AuditEvent.failure(AuditEvent.Source.DEPLOYMENT, "b.war", null, 0, null)));
+        assertEquals(1, writer.getDropped());
+    }
+}
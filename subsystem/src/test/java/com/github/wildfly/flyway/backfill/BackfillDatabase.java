@@ -0,0 +1,224 @@
+package com.github.wildfly.flyway.backfill;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.sql.DataSource;
+
+/**
+ * A fake database for backfill tests: one table of sorted keys and the checkpoint table, whose
+ * rows only become visible to other connections on commit. Updating a checkpoint locks it until
+ * the end of the transaction.
+ */
+final class BackfillDatabase {
+
+    final List<Object> keys;
+    final int keyType;
+    /** Committed checkpoints: name to {last_key, rows_processed, completed}. */
+    final Map<String, Object[]> checkpoints = Collections.synchronizedMap(new HashMap<>());
+    /** Values bound to the key column: {value, SQL type}. */
+    final List<Object[]> binds = Collections.synchronizedList(new ArrayList<>());
+    volatile boolean checkpointTable;
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    BackfillDatabase(int keyType, Object... keys) {
+        this.keyType = keyType;
+        this.keys = Arrays.asList(keys);
+    }
+
+    DataSource dataSource() {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> "getConnection".equals(method.getName()) ? connection() : null);
+    }
+
+    Connection connection() {
+        Map<String, Object[]> pending = new HashMap<>();
+        List<ReentrantLock> held = new ArrayList<>();
+        boolean[] autoCommit = {true};
+        Runnable release = () -> {
+            held.forEach(ReentrantLock::unlock);
+            held.clear();
+        };
+        Runnable commit = () -> {
+            checkpoints.putAll(pending);
+            pending.clear();
+            release.run();
+        };
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAutoCommit":
+                            return autoCommit[0];
+                        case "setAutoCommit":
+                            autoCommit[0] = (Boolean) args[0];
+                            return null;
+                        case "commit":
+                            commit.run();
+                            return null;
+                        case "rollback":
+                            pending.clear();
+                            release.run();
+                            return null;
+                        case "createStatement":
+                            return statement();
+                        case "prepareStatement":
+                            return prepared((String) args[0], pending, held, autoCommit, commit);
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private Statement statement() {
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "execute":
+                            checkpointTable = true;
+                            return Boolean.FALSE;
+                        case "executeQuery":
+                            String sql = (String) args[0];
+                            if (sql.startsWith("SELECT name FROM") && !checkpointTable) {
+                                throw new SQLException("Table not found", "42P01");
+                            }
+                            return resultSet(Collections.emptyList());
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private PreparedStatement prepared(String sql, Map<String, Object[]> pending, List<ReentrantLock> held,
+                                       boolean[] autoCommit, Runnable commit) {
+        Map<Integer, Object> parameters = new HashMap<>();
+        int[] maxRows = {Integer.MAX_VALUE};
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setObject":
+                            binds.add(new Object[]{args[1], args.length > 2 ? args[2] : null});
+                            parameters.put((Integer) args[0], args[1]);
+                            return null;
+                        case "setString":
+                        case "setLong":
+                        case "setInt":
+                        case "setTimestamp":
+                            parameters.put((Integer) args[0], args[1]);
+                            return null;
+                        case "setMaxRows":
+                            maxRows[0] = (Integer) args[0];
+                            return null;
+                        case "executeQuery":
+                            return query(sql, parameters, pending, maxRows[0]);
+                        case "executeUpdate":
+                            int count = update(sql, parameters, pending, held);
+                            if (autoCommit[0]) {
+                                commit.run();
+                            }
+                            return count;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private ResultSet query(String sql, Map<Integer, Object> parameters, Map<String, Object[]> pending,
+                            int maxRows) {
+        List<Object[]> rows = new ArrayList<>();
+        if (sql.startsWith("SELECT last_key")) {
+            Object[] checkpoint = checkpoint((String) parameters.get(1), pending);
+            if (checkpoint != null) {
+                rows.add(checkpoint);
+            }
+            return resultSet(rows);
+        }
+        @SuppressWarnings("unchecked")
+        Comparable<Object> lower = (Comparable<Object>) parameters.get(1);
+        for (Object key : keys) {
+            if (rows.size() < maxRows && (lower == null || lower.compareTo(key) < 0)) {
+                rows.add(new Object[]{key});
+            }
+        }
+        return resultSet(rows);
+    }
+
+    private int update(String sql, Map<Integer, Object> parameters, Map<String, Object[]> pending,
+                       List<ReentrantLock> held) throws SQLException, InterruptedException {
+        if (sql.contains("SET updated_at = ?")) {
+            String name = (String) parameters.get(2);
+            if (checkpoint(name, pending) == null) {
+                return 0;
+            }
+            ReentrantLock lock = locks.computeIfAbsent(name, key -> new ReentrantLock());
+            if (!lock.isHeldByCurrentThread()) {
+                if (!lock.tryLock(5, TimeUnit.SECONDS)) {
+                    throw new SQLException("Lock timeout", "55P03");
+                }
+                held.add(lock);
+            }
+        } else if (sql.startsWith("UPDATE")) {
+            String name = (String) parameters.get(5);
+            if (checkpoint(name, pending) == null) {
+                return 0;
+            }
+            pending.put(name, new Object[]{parameters.get(1), parameters.get(2), parameters.get(3)});
+        } else {
+            String name = (String) parameters.get(1);
+            synchronized (checkpoints) {
+                if (checkpoint(name, pending) != null) {
+                    throw new SQLException("Duplicate key " + name, "23505");
+                }
+                pending.put(name, new Object[]{parameters.get(2), parameters.get(3), parameters.get(4)});
+            }
+        }
+        return 1;
+    }
+
+    private Object[] checkpoint(String name, Map<String, Object[]> pending) {
+        Object[] checkpoint = pending.get(name);
+        return checkpoint != null ? checkpoint : checkpoints.get(name);
+    }
+
+    private ResultSet resultSet(List<Object[]> rows) {
+        int[] row = {-1};
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class},
+                (proxy, method, args) -> "getColumnType".equals(method.getName()) ? keyType : null);
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++row[0] < rows.size();
+                        case "getMetaData":
+                            return metaData;
+                        case "getObject":
+                            return rows.get(row[0])[(Integer) args[0] - 1];
+                        case "getString":
+                            Object value = rows.get(row[0])[(Integer) args[0] - 1];
+                            return value != null ? String.valueOf(value) : null;
+                        case "getLong":
+                            return ((Number) rows.get(row[0])[(Integer) args[0] - 1]).longValue();
+                        case "getInt":
+                            return ((Number) rows.get(row[0])[(Integer) args[0] - 1]).intValue();
+                        case "getBigDecimal":
+                            return new BigDecimal(String.valueOf(rows.get(row[0])[(Integer) args[0] - 1]));
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,203 @@
+package com.github.wildfly.flyway.backfill;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link BackfillRunner}, against a {@link BackfillDatabase}.
+ */
+public class BackfillRunnerTest {
+
+    private static BackfillRunner runner(BackfillDatabase database, Chunks chunks) {
+        return new BackfillRunner("app.war", chunks, database.dataSource(),
+                new BackfillCheckpoints("backfill_checkpoints"), new Throttle(0, 0));
+    }
+
+    @Test
+    public void testPagesFromBeginningAndCompletes() {
+        BackfillDatabase database = new BackfillDatabase(Types.BIGINT, 1L, 2L, 3L, 4L, 5L);
+        Chunks chunks = new Chunks(2);
+        BackfillRunner runner = runner(database, chunks);
+        runner.run();
+
+        assertTrue(database.checkpointTable);
+        assertEquals(Arrays.asList("null..2", "2..4", "4..5"), chunks.ranges);
+        assertArrayEquals(new Object[]{"5", 5L, 1}, database.checkpoints.get("fill"));
+        BackfillStatus status = runner.status();
+        assertEquals(BackfillStatus.State.COMPLETED, status.getState());
+        assertEquals(5, status.getRowsProcessed());
+        assertEquals(3, status.getRowsChanged());
+    }
+
+    @Test
+    public void testCompletedBackfillNotRunAgain() {
+        BackfillDatabase database = new BackfillDatabase(Types.BIGINT, 1L, 2L);
+        database.checkpointTable = true;
+        database.checkpoints.put("fill", new Object[]{"2", 2L, 1});
+        Chunks chunks = new Chunks(1);
+        BackfillRunner runner = runner(database, chunks);
+        runner.run();
+
+        assertTrue(chunks.ranges.isEmpty());
+        assertEquals(BackfillStatus.State.COMPLETED, runner.status().getState());
+    }
+
+    @Test
+    public void testFailedChunkKeepsLastCheckpoint() {
+        BackfillDatabase database = new BackfillDatabase(Types.BIGINT, 1L, 2L, 3L, 4L);
+        Chunks chunks = new Chunks(2);
+        chunks.failAfter = 1;
+        BackfillRunner runner = runner(database, chunks);
+        runner.run();
+
+        assertEquals(BackfillStatus.State.FAILED, runner.status().getState());
+        assertEquals("chunk failed", runner.status().getFailure());
+        // The failed chunk was rolled back; the next start repeats it
+        assertArrayEquals(new Object[]{"2", 2L, 0}, database.checkpoints.get("fill"));
+
+        chunks.failAfter = Integer.MAX_VALUE;
+        chunks.ranges.clear();
+        runner(database, chunks).run();
+        assertEquals(Collections.singletonList("2..4"), chunks.ranges);
+    }
+
+    @Test
+    public void testResumeRestoresKeyWithColumnType() {
+        BackfillDatabase database = new BackfillDatabase(Types.BIGINT, 1L, 2L, 3L, 4L, 5L, 6L, 7L);
+        database.checkpointTable = true;
+        database.checkpoints.put("fill", new Object[]{"3", 3L, 0});
+        Chunks chunks = new Chunks(2);
+        runner(database, chunks).run();
+
+        assertEquals(Arrays.asList("3..5", "5..7"), chunks.ranges);
+        assertEquals(Long.class, chunks.lowerTypes.get(0));
+        for (Object[] bind : database.binds) {
+            assertEquals(Long.class, bind[0].getClass());
+            assertEquals(Types.BIGINT, bind[1]);
+        }
+        assertArrayEquals(new Object[]{"7", 7L, 1}, database.checkpoints.get("fill"));
+    }
+
+    @Test
+    public void testResumeKeepsCharacterKeys() {
+        BackfillDatabase database = new BackfillDatabase(Types.VARCHAR, "a", "b", "c");
+        database.checkpointTable = true;
+        database.checkpoints.put("fill", new Object[]{"a", 1L, 0});
+        Chunks chunks = new Chunks(5);
+        runner(database, chunks).run();
+
+        assertEquals(Collections.singletonList("a..c"), chunks.ranges);
+        assertEquals(Types.VARCHAR, database.binds.get(0)[1]);
+        assertArrayEquals(new Object[]{"c", 3L, 1}, database.checkpoints.get("fill"));
+    }
+
+    @Test
+    public void testNodesTakeTurnsOnSameBackfill() throws Exception {
+        Object[] keys = new Object[40];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (long) i + 1;
+        }
+        BackfillDatabase database = new BackfillDatabase(Types.BIGINT, keys);
+        Chunks chunks = new Chunks(3);
+        Thread first = new Thread(runner(database, chunks)::run);
+        Thread second = new Thread(runner(database, chunks)::run);
+        first.start();
+        second.start();
+        first.join(10_000);
+        second.join(10_000);
+
+        // Every range is processed once, whichever node ran it
+        List<String> expected = new ArrayList<>();
+        for (long lower = 0; lower < keys.length; lower += 3) {
+            expected.add((lower == 0 ? "null" : String.valueOf(lower)) + ".." + Math.min(lower + 3, keys.length));
+        }
+        List<String> ranges = new ArrayList<>(chunks.ranges);
+        ranges.sort(Comparator.comparingLong(range -> Long.parseLong(range.substring(range.indexOf("..") + 2))));
+        assertEquals(expected, ranges);
+        assertArrayEquals(new Object[]{"40", 40L, 1}, database.checkpoints.get("fill"));
+    }
+
+    @Test
+    public void testStopEndsThrottlePause() throws Exception {
+        BackfillDatabase database = new BackfillDatabase(Types.BIGINT, 1L, 2L, 3L);
+        Chunks chunks = new Chunks(1);
+        // One row per second: the runner pauses for a second after the first chunk
+        BackfillRunner runner = new BackfillRunner("app.war", chunks, database.dataSource(),
+                new BackfillCheckpoints("backfill_checkpoints"), new Throttle(1, 0));
+        Thread thread = new Thread(runner::run);
+        thread.start();
+        while (chunks.ranges.isEmpty()) {
+            Thread.sleep(10);
+        }
+        long start = System.nanoTime();
+        runner.stop();
+        thread.join(5_000);
+        assertFalse(thread.isAlive());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 900);
+        assertEquals(BackfillStatus.State.STOPPED, runner.status().getState());
+        assertArrayEquals(new Object[]{"1", 1L, 0}, database.checkpoints.get("fill"));
+    }
+
+    /** A backfill with a public no-arg constructor, as listed in {@code spring.flyway.backfills}. */
+    public static final class Fill extends Chunks {
+        public Fill() {
+            super(1000);
+        }
+    }
+
+    /** Records the chunks it is called with. */
+    static class Chunks implements BackfillMigration {
+        final List<String> ranges = Collections.synchronizedList(new ArrayList<>());
+        final List<Class<?>> lowerTypes = Collections.synchronizedList(new ArrayList<>());
+        private final int chunkSize;
+        volatile int failAfter = Integer.MAX_VALUE;
+
+        Chunks(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public String getName() {
+            return "fill";
+        }
+
+        @Override
+        public String getTable() {
+            return "orders";
+        }
+
+        @Override
+        public String getKeyColumn() {
+            return "id";
+        }
+
+        @Override
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        @Override
+        public int processChunk(Connection connection, Object lowerExclusive, Object upperInclusive)
+                throws SQLException {
+            if (ranges.size() >= failAfter) {
+                throw new SQLException("chunk failed", "22000");
+            }
+            ranges.add(lowerExclusive + ".." + upperInclusive);
+            lowerTypes.add(lowerExclusive != null ? lowerExclusive.getClass() : null);
+            return 1;
+        }
+    }
+}
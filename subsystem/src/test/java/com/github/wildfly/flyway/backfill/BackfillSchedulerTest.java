@@ -0,0 +1,70 @@
+package com.github.wildfly.flyway.backfill;
+
+import com.github.wildfly.flyway.config.FlywayConfiguration;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link BackfillScheduler}.
+ */
+public class BackfillSchedulerTest {
+
+    @Test
+    public void testLoadInstantiatesBackfills() {
+        List<BackfillMigration> migrations = BackfillScheduler.load(
+                new String[]{BackfillRunnerTest.Fill.class.getName()}, getClass().getClassLoader());
+        assertEquals(1, migrations.size());
+        assertTrue(migrations.get(0) instanceof BackfillRunnerTest.Fill);
+    }
+
+    @Test
+    public void testFinishedBackfillsReportedUntilStop() throws Exception {
+        BackfillDatabase database = new BackfillDatabase(Types.BIGINT, 1L, 2L, 3L);
+        BackfillRunnerTest.Chunks chunks = new BackfillRunnerTest.Chunks(1);
+        chunks.failAfter = 2;
+        BackfillScheduler.start("finished.war", database.dataSource(), Collections.singletonList(chunks),
+                getClass().getClassLoader(), new FlywayConfiguration(Collections.emptyMap()));
+
+        BackfillStatus status = null;
+        for (int i = 0; i < 500 && (status == null || status.getState() != BackfillStatus.State.FAILED); i++) {
+            Thread.sleep(10);
+            status = statusOf("finished.war");
+        }
+        assertNotNull(status);
+        assertEquals(BackfillStatus.State.FAILED, status.getState());
+        assertEquals("chunk failed", status.getFailure());
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        BackfillScheduler.stop("finished.war", stopped::countDown);
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        assertNull(statusOf("finished.war"));
+    }
+
+    private static BackfillStatus statusOf(String deploymentName) {
+        for (BackfillStatus status : BackfillScheduler.status()) {
+            if (deploymentName.equals(status.getDeployment())) {
+                return status;
+            }
+        }
+        return null;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingClassRejected() {
+        BackfillScheduler.load(new String[]{"com.example.Missing"}, getClass().getClassLoader());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherTypeRejected() {
+        BackfillScheduler.load(new String[]{String.class.getName()}, getClass().getClassLoader());
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.wildfly.flyway.backfill;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link Throttle}.
+ */
+public class ThrottleTest {
+
+    @Test
+    public void testUnlimitedNeverWaits() {
+        Throttle throttle = new Throttle(0, 500);
+        assertEquals(0, throttle.afterChunk(1000, 10));
+        assertEquals(0, throttle.getRate());
+    }
+
+    @Test
+    public void testRateLimitSpacesChunks() {
+        Throttle throttle = new Throttle(1000, 500);
+        // 1000 rows at 1000 rows/s take one second; 100 ms were spent in the chunk
+        assertEquals(900, throttle.afterChunk(1000, 100));
+        assertEquals(1000, throttle.getRate());
+    }
+
+    @Test
+    public void testSlowChunkHalvesRate() {
+        Throttle throttle = new Throttle(0, 500);
+        // 1000 rows in 2 s were observed, so the rate drops to half of 500 rows/s
+        long pause = throttle.afterChunk(1000, 2000);
+        assertEquals(250, throttle.getRate());
+        assertEquals(2000, pause);
+
+        throttle.afterChunk(1000, 2000);
+        assertEquals(125, throttle.getRate());
+    }
+
+    @Test
+    public void testFastChunksRecoverUpToLimit() {
+        Throttle throttle = new Throttle(1000, 500);
+        throttle.afterChunk(1000, 1000);
+        assertEquals(500, throttle.getRate());
+
+        throttle.afterChunk(100, 10);
+        assertEquals(625, throttle.getRate());
+        for (int i = 0; i < 10; i++) {
+            throttle.afterChunk(100, 10);
+        }
+        assertEquals(1000, throttle.getRate());
+    }
+
+    @Test
+    public void testRateNeverDropsToZero() {
+        Throttle throttle = new Throttle(0, 500);
+        for (int i = 0; i < 50; i++) {
+            throttle.afterChunk(1, 10_000);
+        }
+        assertEquals(1, throttle.getRate());
+        assertTrue(throttle.afterChunk(1, 10_000) >= 0);
+    }
+}
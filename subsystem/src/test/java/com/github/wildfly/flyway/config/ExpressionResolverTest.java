@@ -0,0 +1,76 @@
+package com.github.wildfly.flyway.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the fallback expression resolution in {@link ExpressionResolver}.
+ */
+public class ExpressionResolverTest {
+
+    private static final String PROPERTY = "flyway.test.expression";
+    private static final String OTHER_PROPERTY = "flyway.test.expression.other";
+
+    @Before
+    public void setUp() {
+        System.clearProperty(PROPERTY);
+        System.clearProperty(OTHER_PROPERTY);
+    }
+
+    @After
+    public void tearDown() {
+        setUp();
+    }
+
+    @Test
+    public void testLiteralValueReturnedAsIs() {
+        String value = "classpath:db/migration";
+        assertSame(value, ExpressionResolver.resolve(value));
+        assertNull(ExpressionResolver.resolve(null));
+    }
+
+    @Test
+    public void testSystemProperty() {
+        System.setProperty(PROPERTY, "app");
+        assertEquals("app", ExpressionResolver.resolve("${" + PROPERTY + "}"));
+        assertEquals("db/app/migration", ExpressionResolver.resolve("db/${sys." + PROPERTY + "}/migration"));
+    }
+
+    @Test
+    public void testDefaultValues() {
+        assertEquals("public", ExpressionResolver.resolve("${" + PROPERTY + ":public}"));
+        assertEquals("", ExpressionResolver.resolve("${" + PROPERTY + "}"));
+        assertEquals("fallback", ExpressionResolver.resolve("${env.FLYWAY_TEST_UNSET_VARIABLE:fallback}"));
+        assertEquals("a:b", ExpressionResolver.resolve("${" + PROPERTY + ":a:b}"));
+    }
+
+    @Test
+    public void testMultipleExpressions() {
+        System.setProperty(PROPERTY, "one");
+        System.setProperty(OTHER_PROPERTY, "two");
+        assertEquals("one-two-three",
+                ExpressionResolver.resolve("${" + PROPERTY + "}-${" + OTHER_PROPERTY + "}-${missing.value:three}"));
+    }
+
+    @Test
+    public void testNestedDefaults() {
+        assertEquals("public",
+                ExpressionResolver.resolve("${" + PROPERTY + ":${" + OTHER_PROPERTY + ":public}}"));
+
+        System.setProperty(OTHER_PROPERTY, "tenant");
+        assertEquals("schema_tenant",
+                ExpressionResolver.resolve("${" + PROPERTY + ":schema_${" + OTHER_PROPERTY + ":x}}"));
+
+        System.setProperty(PROPERTY, "explicit");
+        assertEquals("explicit",
+                ExpressionResolver.resolve("${" + PROPERTY + ":schema_${" + OTHER_PROPERTY + ":x}}"));
+    }
+
+    @Test
+    public void testUnterminatedExpressionKeptLiterally() {
+        System.setProperty(PROPERTY, "app");
+        assertEquals("app/${unterminated", ExpressionResolver.resolve("${" + PROPERTY + "}/${unterminated"));
+    }
+}
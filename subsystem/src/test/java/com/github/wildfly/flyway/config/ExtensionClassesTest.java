@@ -0,0 +1,110 @@
+package com.github.wildfly.flyway.config;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.jboss.as.server.deployment.annotation.CompositeIndex;
+import org.jboss.jandex.Indexer;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ExtensionClasses}.
+ */
+public class ExtensionClassesTest {
+
+    public static class RecordingCallback implements Callback {
+        @Override
+        public boolean supports(Event event, Context context) {
+            return false;
+        }
+
+        @Override
+        public boolean canHandleInTransaction(Event event, Context context) {
+            return true;
+        }
+
+        @Override
+        public void handle(Event event, Context context) {
+        }
+
+        @Override
+        public String getCallbackName() {
+            return "recording";
+        }
+    }
+
+    public static class SubclassedCallback extends RecordingCallback {
+    }
+
+    public abstract static class AbstractCallback implements Callback {
+    }
+
+    public static class NotACallback {
+    }
+
+    private static List<CompositeIndex> index(Class<?>... classes) throws IOException {
+        Indexer indexer = new Indexer();
+        for (Class<?> clazz : classes) {
+            indexer.indexClass(clazz);
+        }
+        return Collections.singletonList(new CompositeIndex(Collections.singletonList(indexer.complete())));
+    }
+
+    private static Map<String, String> callbacks(String value) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(FlywayConfiguration.CALLBACKS, value);
+        return properties;
+    }
+
+    @Test
+    public void testIndexedCallbacksValidated() throws IOException {
+        List<CompositeIndex> indexes = index(RecordingCallback.class, SubclassedCallback.class,
+                AbstractCallback.class, NotACallback.class);
+        ExtensionClasses classes = ExtensionClasses.of(callbacks(
+                RecordingCallback.class.getName() + ", " + SubclassedCallback.class.getName() + ","
+                        + AbstractCallback.class.getName() + "," + NotACallback.class.getName()),
+                "test.war", indexes);
+
+        assertEquals(List.of(RecordingCallback.class.getName(), SubclassedCallback.class.getName()),
+                classes.getCallbacks());
+        assertTrue(classes.getResolvers().isEmpty());
+    }
+
+    @Test
+    public void testUnindexedNamesKeptForLoadTime() throws IOException {
+        ExtensionClasses classes = ExtensionClasses.of(callbacks("com.example.ModuleCallback"), "test.war",
+                index(NotACallback.class));
+
+        assertEquals(List.of("com.example.ModuleCallback"), classes.getCallbacks());
+    }
+
+    @Test
+    public void testNoExtensions() throws IOException {
+        assertSame(ExtensionClasses.NONE, ExtensionClasses.of(new HashMap<>()));
+        assertSame(ExtensionClasses.NONE, ExtensionClasses.of(callbacks(" , "), "test.war", index()));
+    }
+
+    @Test
+    public void testInstancesLoadedOnConfigurationClassLoader() {
+        ExtensionClasses classes = ExtensionClasses.of(callbacks(
+                RecordingCallback.class.getName() + ",com.example.Missing," + NotACallback.class.getName()));
+        FluentConfiguration config = Flyway.configure(getClass().getClassLoader());
+
+        classes.applyTo(config);
+
+        Callback[] registered = config.getCallbacks();
+        assertEquals(1, registered.length);
+        assertTrue(registered[0] instanceof RecordingCallback);
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.wildfly.flyway.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FlywayConfiguration}.
+ */
+public class FlywayConfigurationTest {
+
+    private void apply(Map<String, String> properties) {
+        new FlywayConfiguration(properties).applyTo(Flyway.configure(getClass().getClassLoader()));
+    }
+
+    @Test(expected = FlywayException.class)
+    public void testParallelGroupsRejectedWithGroup() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(FlywayConfiguration.PARALLEL_THREADS, "4");
+        properties.put(FlywayConfiguration.GROUP, "true");
+        apply(properties);
+    }
+
+    @Test(expected = FlywayException.class)
+    public void testParallelGroupsRejectedWithCommitChunks() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(FlywayConfiguration.PARALLEL_THREADS, "4");
+        properties.put(FlywayConfiguration.COMMIT_CHUNK_SIZE, "50");
+        apply(properties);
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.wildfly.flyway.config;
+
+import com.github.wildfly.flyway.config.FlywayConfigurationBuilder.ConfigurationResult;
+import java.util.Map;
+import java.util.Properties;
+import org.jboss.metadata.property.PropertyReplacer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the precompiled {@link SubsystemConfiguration} template and how
+ * {@link FlywayConfigurationBuilder} overlays and interns it.
+ */
+public class SubsystemConfigurationTest {
+
+    @Before
+    public void setUp() {
+        Properties subsystem = new Properties();
+        subsystem.setProperty("enabled", "true");
+        subsystem.setProperty("default-datasource", "java:jboss/datasources/ExampleDS");
+        subsystem.setProperty("baseline-on-migrate", "true");
+        subsystem.setProperty("unrelated", "ignored");
+        SubsystemConfigurationHolder.setConfiguration(subsystem);
+    }
+
+    @After
+    public void tearDown() {
+        SubsystemConfigurationHolder.setConfiguration(new Properties());
+    }
+
+    @Test
+    public void testCompileMapsAttributesToFlywayKeys() {
+        SubsystemConfiguration template = SubsystemConfigurationHolder.getTemplate();
+        Map<String, String> properties = template.getFlywayProperties();
+
+        assertEquals("true", properties.get(FlywayConfiguration.BASELINE_ON_MIGRATE));
+        assertEquals("java:jboss/datasources/ExampleDS", properties.get("spring.flyway.datasource"));
+        assertFalse(properties.containsKey("unrelated"));
+        assertEquals("java:jboss/datasources/ExampleDS", template.getDefaultDatasource());
+        assertTrue(template.isEnabled());
+        assertEquals(4, template.size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testTemplateIsImmutable() {
+        SubsystemConfigurationHolder.getTemplate().getFlywayProperties().put(FlywayConfiguration.TABLE, "x");
+    }
+
+    @Test
+    public void testDeploymentWithoutOverridesSharesTemplate() throws Exception {
+        ConfigurationResult result = new FlywayConfigurationBuilder("a.war", null, new Properties()).build();
+
+        assertSame(SubsystemConfigurationHolder.getTemplate().getFlywayProperties(), result.getFlywayProperties());
+        assertTrue(result.isFromSubsystem());
+    }
+
+    @Test
+    public void testOverlayDoesNotModifyTemplate() throws Exception {
+        Properties deployment = new Properties();
+        deployment.setProperty("flyway.table", "custom_history");
+
+        ConfigurationResult result = new FlywayConfigurationBuilder("a.war", null, deployment).build();
+
+        assertEquals("custom_history", result.getFlywayProperties().get(FlywayConfiguration.TABLE));
+        assertNull(SubsystemConfigurationHolder.getTemplate().getFlywayProperties().get(FlywayConfiguration.TABLE));
+    }
+
+    @Test
+    public void testIdenticalEffectiveConfigurationsAreInterned() throws Exception {
+        Properties first = new Properties();
+        first.setProperty("flyway.table", "custom_history");
+        Properties second = new Properties();
+        second.setProperty("spring.flyway.table", "custom_history");
+        Properties other = new Properties();
+        other.setProperty("flyway.table", "other_history");
+
+        Map<String, String> a = new FlywayConfigurationBuilder("a.war", null, first).build().getFlywayProperties();
+        Map<String, String> b = new FlywayConfigurationBuilder("b.war", null, second).build().getFlywayProperties();
+        Map<String, String> c = new FlywayConfigurationBuilder("c.war", null, other).build().getFlywayProperties();
+
+        assertSame(a, b);
+        assertNotSame(a, c);
+    }
+
+    @Test
+    public void testIdenticalDeploymentsShareParsedConfiguration() throws Exception {
+        Properties first = new Properties();
+        first.setProperty("flyway.commit-chunk-size", "5");
+        Properties second = new Properties();
+        second.setProperty("spring.flyway.commit-chunk-size", "5");
+
+        ConfigurationResult a = new FlywayConfigurationBuilder("a.war", null, first).build();
+        ConfigurationResult b = new FlywayConfigurationBuilder("b.war", null, second).build();
+        ConfigurationResult plain = new FlywayConfigurationBuilder("c.war", null, new Properties()).build();
+
+        assertSame(a.getFlywayConfiguration(), b.getFlywayConfiguration());
+        assertEquals(5, a.getFlywayConfiguration().getCommitChunkSize());
+        assertSame(SubsystemConfigurationHolder.getTemplate().getFlywayConfiguration(), plain.getFlywayConfiguration());
+        assertSame(a.getFlywayProperties(), a.withExtensionClasses(null).getFlywayProperties());
+    }
+
+    @Test
+    public void testReloadCompilesNewTemplate() throws Exception {
+        SubsystemConfiguration before = SubsystemConfigurationHolder.getTemplate();
+        Properties deployment = new Properties();
+        deployment.setProperty("flyway.table", "custom_history");
+        Map<String, String> interned = new FlywayConfigurationBuilder("a.war", null, deployment).build()
+                .getFlywayProperties();
+
+        setUp();
+
+        assertNotSame(before, SubsystemConfigurationHolder.getTemplate());
+        assertNotSame(interned, new FlywayConfigurationBuilder("a.war", null, deployment).build()
+                .getFlywayProperties());
+    }
+
+    @Test
+    public void testExpressionsMemoizedUntilReload() throws Exception {
+        String expression = "${flyway.test.template.schema:default}";
+        Properties deployment = new Properties();
+        deployment.setProperty("flyway.schemas", expression);
+        try {
+            assertEquals("default", new FlywayConfigurationBuilder("a.war", null, deployment).build()
+                    .getFlywayProperties().get(FlywayConfiguration.SCHEMAS));
+
+            System.setProperty("flyway.test.template.schema", "changed");
+            assertEquals("default", new FlywayConfigurationBuilder("b.war", null, deployment).build()
+                    .getFlywayProperties().get(FlywayConfiguration.SCHEMAS));
+
+            setUp();
+            assertEquals("changed", new FlywayConfigurationBuilder("a.war", null, deployment).build()
+                    .getFlywayProperties().get(FlywayConfiguration.SCHEMAS));
+        } finally {
+            System.clearProperty("flyway.test.template.schema");
+        }
+    }
+
+    @Test
+    public void testPropertyReplacerResultsNotSharedByDeployments() throws Exception {
+        // Each deployment's replacer also reads its own META-INF/jboss.properties
+        String expression = "${app.schema}";
+        Properties deployment = new Properties();
+        deployment.setProperty("flyway.schemas", expression);
+        PropertyReplacer first = mock(PropertyReplacer.class);
+        when(first.replaceProperties(expression)).thenReturn("orders");
+        PropertyReplacer second = mock(PropertyReplacer.class);
+        when(second.replaceProperties(expression)).thenReturn("billing");
+
+        assertEquals("orders", new FlywayConfigurationBuilder("a.war", first, deployment).build()
+                .getFlywayProperties().get(FlywayConfiguration.SCHEMAS));
+        assertEquals("billing", new FlywayConfigurationBuilder("b.war", second, deployment).build()
+                .getFlywayProperties().get(FlywayConfiguration.SCHEMAS));
+        verify(first, times(1)).replaceProperties(expression);
+        verify(second, times(1)).replaceProperties(expression);
+    }
+
+    @Test
+    public void testEmptyTemplateDefaultsToEnabled() {
+        SubsystemConfigurationHolder.setConfiguration(null);
+        SubsystemConfiguration template = SubsystemConfigurationHolder.getTemplate();
+
+        assertEquals("true", template.getFlywayProperties().get(FlywayConfiguration.ENABLED));
+        assertNull(template.getDefaultDatasource());
+        assertEquals(0, template.size());
+    }
+}
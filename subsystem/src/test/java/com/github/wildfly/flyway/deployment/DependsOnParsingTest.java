@@ -0,0 +1,36 @@
+package com.github.wildfly.flyway.deployment;
+
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the production parsing of {@code flyway.depends-on} in
+ * {@link FlywayDeploymentProcessor#parseDependsOn(String)}.
+ */
+public class DependsOnParsingTest {
+
+    @Test
+    public void testSingleDeployment() {
+        assertEquals(Arrays.asList("schema-owner.war"),
+                FlywayDeploymentProcessor.parseDependsOn("schema-owner.war"));
+    }
+
+    @Test
+    public void testMultipleDeploymentsKeepOrder() {
+        assertEquals(Arrays.asList("a.war", "b.ear", "c.jar"),
+                FlywayDeploymentProcessor.parseDependsOn(" a.war, b.ear ,c.jar "));
+    }
+
+    @Test
+    public void testBlankEntriesAndDuplicatesDropped() {
+        assertEquals(Arrays.asList("a.war", "b.war"),
+                FlywayDeploymentProcessor.parseDependsOn("a.war,, ,b.war,a.war"));
+    }
+
+    @Test
+    public void testNullAndBlankReturnEmpty() {
+        assertTrue(FlywayDeploymentProcessor.parseDependsOn(null).isEmpty());
+        assertTrue(FlywayDeploymentProcessor.parseDependsOn("  ").isEmpty());
+    }
+}
@@ -0,0 +1,162 @@
+package com.github.wildfly.flyway.deployment;
+
+import com.github.wildfly.flyway.config.ExtensionClassesTest;
+import com.github.wildfly.flyway.config.FlywayConfiguration;
+import com.github.wildfly.flyway.config.FlywayConfigurationBuilder.ConfigurationResult;
+import com.github.wildfly.flyway.deployment.FlywayDeploymentProcessor.MigrationUnit;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.jboss.as.server.deployment.Attachments;
+import org.jboss.as.server.deployment.DeploymentUnit;
+import org.jboss.as.server.deployment.annotation.CompositeIndex;
+import org.jboss.jandex.Indexer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests how {@link FlywayDeploymentProcessor} merges the migration units of an EAR into runs,
+ * which run sees the migrations shipped in EAR/lib, and how a run's callbacks are validated.
+ */
+public class RunMergingTest {
+
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("flyway-ear");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static MigrationUnit unit(String name, String datasource, String... properties) {
+        Map<String, String> flywayProperties = new HashMap<>();
+        for (int i = 0; i < properties.length; i += 2) {
+            flywayProperties.put(properties[i], properties[i + 1]);
+        }
+        return new MigrationUnit(mock(DeploymentUnit.class), name,
+                new ConfigurationResult(datasource, flywayProperties, false));
+    }
+
+    private static List<List<String>> runs(MigrationUnit... units) {
+        List<List<String>> names = new ArrayList<>();
+        for (List<MigrationUnit> run : FlywayDeploymentProcessor.groupRuns(Arrays.asList(units))) {
+            List<String> runNames = new ArrayList<>();
+            run.forEach(unit -> runNames.add(unit.name));
+            names.add(runNames);
+        }
+        return names;
+    }
+
+    /** A directory holding {@code db/migration/<script>}, as an exploded jar. */
+    private URL jar(String name, String script) throws IOException {
+        Path dir = root.resolve(name);
+        Files.createDirectories(dir.resolve("db/migration"));
+        Files.write(dir.resolve("db/migration").resolve(script), "SELECT 1;".getBytes());
+        return dir.toUri().toURL();
+    }
+
+    private static List<String> migrations(ClassLoader classLoader) throws IOException {
+        List<String> urls = new ArrayList<>();
+        for (URL url : Collections.list(classLoader.getResources("db/migration"))) {
+            urls.add(url.toExternalForm().replaceFirst(".*/([^/]+)/db/migration/?$", "$1"));
+        }
+        return urls;
+    }
+
+    @Test
+    public void testSpellingsOfOneDatasourceMergeIntoOneRun() {
+        assertEquals(Collections.singletonList(Arrays.asList("shop.ear", "shop.ear/orders.war", "shop.ear/billing.jar")),
+                runs(unit("shop.ear", "java:jboss/datasources/ShopDS"),
+                        unit("shop.ear/orders.war", "java:/datasources/ShopDS"),
+                        unit("shop.ear/billing.jar", "datasources/ShopDS")));
+    }
+
+    @Test
+    public void testSchemaListSpellingsMerge() {
+        assertEquals(1, runs(unit("shop.ear/orders.war", "java:/ShopDS", FlywayConfiguration.SCHEMAS, "shop, audit"),
+                unit("shop.ear/billing.jar", "java:jboss/ShopDS", FlywayConfiguration.SCHEMAS, "shop,audit,")).size());
+    }
+
+    @Test
+    public void testDifferentDatasourcesSchemasOrTablesRunSeparately() {
+        assertEquals(Arrays.asList(Arrays.asList("shop.ear", "shop.ear/billing.jar"),
+                        Collections.singletonList("shop.ear/orders.war"),
+                        Collections.singletonList("shop.ear/audit.jar"),
+                        Collections.singletonList("shop.ear/reports.war")),
+                runs(unit("shop.ear", "java:jboss/ShopDS"),
+                        unit("shop.ear/orders.war", "java:jboss/OrdersDS"),
+                        unit("shop.ear/billing.jar", "java:/ShopDS"),
+                        unit("shop.ear/audit.jar", "java:jboss/ShopDS", FlywayConfiguration.SCHEMAS, "audit"),
+                        unit("shop.ear/reports.war", "java:jboss/ShopDS", FlywayConfiguration.TABLE, "reports_history")));
+    }
+
+    @Test
+    public void testMergedRunScansSharedLibraryOnce() throws IOException {
+        URL lib = jar("lib", "V1__shared.sql");
+        try (URLClassLoader orders = new URLClassLoader(new URL[]{jar("orders", "V2__orders.sql"), lib}, null);
+             URLClassLoader billing = new URLClassLoader(new URL[]{jar("billing", "V3__billing.sql"), lib}, null)) {
+            assertEquals(Arrays.asList("orders", "lib", "billing"),
+                    migrations(new MergedDeploymentClassLoader(Arrays.asList(orders, billing))));
+        }
+    }
+
+    @Test
+    public void testSubdeploymentRunDoesNotSeeSharedLibrary() throws IOException {
+        URL lib = jar("lib", "V1__shared.sql");
+        try (URLClassLoader ear = new URLClassLoader(new URL[]{lib}, null);
+             URLClassLoader orders = new URLClassLoader(new URL[]{jar("orders", "V2__orders.sql"), lib}, null);
+             URLClassLoader reports = new URLClassLoader(new URL[]{lib}, null)) {
+            ClassLoader ordersRun = new MergedDeploymentClassLoader(Collections.singletonList(orders), ear);
+            assertEquals(Collections.singletonList("orders"), migrations(ordersRun));
+            assertNotNull(ordersRun.getResource("db/migration/V2__orders.sql"));
+            assertNull(ordersRun.getResource("db/migration/V1__shared.sql"));
+
+            // A subdeployment without migrations of its own does not get a run for EAR/lib
+            ClassLoader reportsRun = new MergedDeploymentClassLoader(Collections.singletonList(reports), ear);
+            assertNull(reportsRun.getResource("db/migration"));
+        }
+    }
+
+    @Test
+    public void testSubdeploymentWithoutIndexChecksCallbacksWhenLoaded() throws IOException {
+        // The top-level pass runs before the subdeployments have their composite index
+        Indexer indexer = new Indexer();
+        indexer.indexClass(ExtensionClassesTest.NotACallback.class);
+        DeploymentUnit ear = mock(DeploymentUnit.class);
+        when(ear.getAttachment(Attachments.COMPOSITE_ANNOTATION_INDEX))
+                .thenReturn(new CompositeIndex(Collections.singletonList(indexer.complete())));
+        String callbacks = ExtensionClassesTest.NotACallback.class.getName() + ",com.example.orders.AuditCallback";
+        Map<String, String> properties = Collections.singletonMap(FlywayConfiguration.CALLBACKS, callbacks);
+        ConfigurationResult config = new ConfigurationResult("java:jboss/ShopDS", properties, false);
+
+        ConfigurationResult validated = FlywayDeploymentProcessor.withExtensionClasses(config, Arrays.asList(
+                new MigrationUnit(ear, "shop.ear", config),
+                new MigrationUnit(mock(DeploymentUnit.class), "shop.ear/orders.war", config)));
+        // The EAR's class fails the index check; the subdeployment's is left to the class loader
+        assertEquals(Collections.singletonList("com.example.orders.AuditCallback"),
+                validated.getExtensionClasses().getCallbacks());
+    }
+}
@@ -19,11 +19,14 @@ public class BasicFlywayTest {
     @Test
     public void testNamespace() {
         assertEquals("urn:wildfly:flyway:1.0", FlywaySubsystemNamespace.FLYWAY_1_0.getUriString());
+        assertEquals("urn:wildfly:flyway:1.1", FlywaySubsystemNamespace.FLYWAY_1_1.getUriString());
+        assertEquals(FlywaySubsystemNamespace.FLYWAY_1_1, FlywaySubsystemNamespace.CURRENT);
     }
 
     @Test
     public void testParserInstance() {
-        assertNotNull(FlywaySubsystemParser.INSTANCE);
+        assertNotNull(FlywaySubsystemParser.VERSION_1_0);
+        assertNotNull(FlywaySubsystemParser.VERSION_1_1);
     }
 
     @Test
@@ -17,6 +17,7 @@ import static org.junit.Assert.*;
 public class FlywaySubsystemParsingTest {
     
     private static final String NAMESPACE = "urn:wildfly:flyway:1.0";
+    private static final String NAMESPACE_1_1 = "urn:wildfly:flyway:1.1";
     
     @Test
     public void testMinimalSubsystem() throws Exception {
@@ -76,10 +77,55 @@ public class FlywaySubsystemParsingTest {
                 addOp.get("default-datasource").asString());
     }
     
+    @Test
+    public void testSubsystemWithSessionProfileAndAuditLog() throws Exception {
+        String xml = "<subsystem xmlns=\"" + NAMESPACE_1_1 + "\" audit-log-enabled=\"true\" session-profile=\"online\"/>";
+        ModelNode addOp = parse(xml).get(0);
+
+        assertEquals("true", addOp.get("audit-log-enabled").asString());
+        assertEquals("online", addOp.get("session-profile").asString());
+    }
+
+    @Test(expected = javax.xml.stream.XMLStreamException.class)
+    public void testSessionProfileRejectedInVersion10() throws Exception {
+        parse("<subsystem xmlns=\"" + NAMESPACE + "\" session-profile=\"online\"/>");
+    }
+
+    @Test(expected = javax.xml.stream.XMLStreamException.class)
+    public void testServerMigrationRejectedInVersion10() throws Exception {
+        parse("<subsystem xmlns=\"" + NAMESPACE + "\"><migration name=\"common\"/></subsystem>");
+    }
+
+    @Test
+    public void testSubsystemWithServerMigration() throws Exception {
+        String xml = "<subsystem xmlns=\"" + NAMESPACE_1_1 + "\">" +
+                "<migration name=\"common\" datasource=\"java:jboss/datasources/MyDS\" " +
+                "module=\"com.example.schema\" locations=\"classpath:db/common\"/>" +
+                "</subsystem>";
+        List<ModelNode> operations = parse(xml);
+
+        assertEquals("Should have subsystem and migration operations", 2, operations.size());
+
+        ModelNode migrationAdd = operations.get(1);
+        assertEquals("Should be ADD operation", "add", migrationAdd.get("operation").asString());
+        assertEquals("Should be for the migration resource", "common",
+                migrationAdd.get("address").get(1).get("migration").asString());
+        assertEquals("java:jboss/datasources/MyDS", migrationAdd.get("datasource").asString());
+        assertEquals("com.example.schema", migrationAdd.get("module").asString());
+        assertEquals("classpath:db/common", migrationAdd.get("locations").asString());
+    }
+
+    @Test(expected = javax.xml.stream.XMLStreamException.class)
+    public void testServerMigrationRequiresName() throws Exception {
+        parse("<subsystem xmlns=\"" + NAMESPACE_1_1 + "\"><migration datasource=\"java:/MyDS\"/></subsystem>");
+    }
+
     private List<ModelNode> parse(String xml) throws Exception {
         XMLMapper mapper = XMLMapper.Factory.create();
-        QName rootElement = new QName(FlywaySubsystemNamespace.FLYWAY_1_0.getUriString(), "subsystem");
-        mapper.registerRootElement(rootElement, FlywaySubsystemParser.INSTANCE);
+        mapper.registerRootElement(new QName(FlywaySubsystemNamespace.FLYWAY_1_0.getUriString(), "subsystem"),
+                FlywaySubsystemParser.VERSION_1_0);
+        mapper.registerRootElement(new QName(FlywaySubsystemNamespace.FLYWAY_1_1.getUriString(), "subsystem"),
+                FlywaySubsystemParser.VERSION_1_1);
         
         XMLInputFactory inputFactory = XMLInputFactory.newInstance();
         XMLStreamReader reader = inputFactory.createXMLStreamReader(new StringReader(xml));
@@ -49,7 +49,7 @@ public class FlywaySubsystemTestCase extends AbstractSubsystemBaseTest {
         String persisted = services.getPersistedSubsystemXml();
         assertNotNull("Persisted XML should not be null", persisted);
         assertTrue("Persisted XML should contain the namespace",
-                persisted.contains(FlywaySubsystemNamespace.FLYWAY_1_0.getUriString()));
+                persisted.contains(FlywaySubsystemNamespace.CURRENT.getUriString()));
     }
 
     /**
@@ -128,7 +128,7 @@ public class FlywaySubsystemTestCase extends AbstractSubsystemBaseTest {
         assertNotNull("Marshalled XML should not be null", marshalledXml);
         assertTrue("Marshalled XML should contain subsystem element", marshalledXml.contains("subsystem"));
         assertTrue("Marshalled XML should contain correct namespace",
-                marshalledXml.contains(FlywaySubsystemNamespace.FLYWAY_1_0.getUriString()));
+                marshalledXml.contains(FlywaySubsystemNamespace.CURRENT.getUriString()));
     }
 
     /**
@@ -199,6 +199,50 @@ public class FlywaySubsystemTestCase extends AbstractSubsystemBaseTest {
                 persisted.contains("${env.FLYWAY_ENABLED:true}"));
     }
 
+    /**
+     * A 1.1 configuration with server migrations survives parse, persist and parse again.
+     */
+    @Test
+    public void testVersion11RoundTrip() throws Exception {
+        String xml = "<subsystem xmlns=\"" + FlywaySubsystemNamespace.FLYWAY_1_1.getUriString() + "\""
+                + " audit-log-enabled=\"true\" session-profile=\"online\">"
+                + "<migration name=\"common\" datasource=\"java:jboss/datasources/MyDS\""
+                + " module=\"com.example.schema\" locations=\"classpath:db/common\"/>"
+                + "<migration name=\"reporting\" enabled=\"false\"/>"
+                + "</subsystem>";
+
+        KernelServices services = super.createKernelServicesBuilder(createAdditionalInitialization())
+                .setSubsystemXml(xml)
+                .build();
+        assertTrue("Subsystem should boot", services.isSuccessfulBoot());
+        String persisted = services.getPersistedSubsystemXml();
+        assertTrue(persisted, persisted.contains("session-profile=\"online\""));
+        assertTrue(persisted, persisted.contains("name=\"reporting\""));
+
+        KernelServices reparsed = super.createKernelServicesBuilder(createAdditionalInitialization())
+                .setSubsystemXml(persisted)
+                .build();
+        assertTrue("Persisted subsystem should boot", reparsed.isSuccessfulBoot());
+        compare(services.readWholeModel(), reparsed.readWholeModel());
+    }
+
+    /**
+     * A 1.0 configuration is read and persisted in the current namespace.
+     */
+    @Test
+    public void testVersion10PersistedAsCurrent() throws Exception {
+        String xml = "<subsystem xmlns=\"" + FlywaySubsystemNamespace.FLYWAY_1_0.getUriString() + "\""
+                + " default-datasource=\"java:jboss/datasources/MyDS\" table=\"schema_history\"/>";
+
+        KernelServices services = super.createKernelServicesBuilder(createAdditionalInitialization())
+                .setSubsystemXml(xml)
+                .build();
+        assertTrue("Subsystem should boot", services.isSuccessfulBoot());
+        String persisted = services.getPersistedSubsystemXml();
+        assertTrue(persisted, persisted.contains(FlywaySubsystemNamespace.CURRENT.getUriString()));
+        assertTrue(persisted, persisted.contains("table=\"schema_history\""));
+    }
+
     /**
      * Tests invalid configurations that should fail.
      */
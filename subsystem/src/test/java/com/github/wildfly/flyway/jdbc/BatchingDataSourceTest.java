@@ -0,0 +1,231 @@
+package com.github.wildfly.flyway.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link BatchingDataSource}, against a connection that logs what reaches the database.
+ */
+public class BatchingDataSourceTest {
+
+    private final List<String> log = new ArrayList<>();
+    /** Position in a batch whose row fails, or {@code -1}. */
+    private int failingRow = -1;
+    /** Whether the driver executes the rest of a batch after a failing row. */
+    private boolean continueAfterFailure;
+
+    private Connection connection(int batchSize) throws SQLException {
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> "getConnection".equals(method.getName()) ? database() : null);
+        return BatchingDataSource.wrap(dataSource, batchSize).getConnection();
+    }
+
+    private Connection database() {
+        DatabaseMetaData metaData = (DatabaseMetaData) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DatabaseMetaData.class},
+                (proxy, method, args) -> "getDatabaseProductName".equals(method.getName()) ? "H2" : null);
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMetaData":
+                            return metaData;
+                        case "createStatement":
+                            return statement();
+                        case "prepareStatement":
+                            return prepared((String) args[0]);
+                        case "commit":
+                        case "rollback":
+                            log.add(method.getName());
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private Statement statement() {
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "execute":
+                            log.add((String) args[0]);
+                            return Boolean.FALSE;
+                        case "getGeneratedKeys":
+                            log.add("getGeneratedKeys");
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private PreparedStatement prepared(String template) {
+        List<String> row = new ArrayList<>();
+        List<String> rows = new ArrayList<>();
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setString":
+                        case "setBigDecimal":
+                            row.add(String.valueOf(args[1]));
+                            return null;
+                        case "setNull":
+                            row.add("NULL");
+                            return null;
+                        case "addBatch":
+                            rows.add(String.join(",", row));
+                            row.clear();
+                            return null;
+                        case "clearBatch":
+                            rows.clear();
+                            return null;
+                        case "executeBatch":
+                            List<String> sent = new ArrayList<>(rows);
+                            rows.clear();
+                            if (failingRow >= 0 && failingRow < sent.size()) {
+                                int[] counts = new int[continueAfterFailure ? sent.size() : failingRow];
+                                Arrays.fill(counts, 1);
+                                if (continueAfterFailure) {
+                                    counts[failingRow] = Statement.EXECUTE_FAILED;
+                                }
+                                throw new BatchUpdateException("duplicate key", "23505", 1, counts);
+                            }
+                            log.add(template + " " + sent);
+                            int[] counts = new int[sent.size()];
+                            Arrays.fill(counts, 1);
+                            return counts;
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    private static void execute(Connection connection, String... sql) throws SQLException {
+        for (String statement : sql) {
+            try (Statement created = connection.createStatement()) {
+                created.execute(statement);
+            }
+        }
+    }
+
+    @Test
+    public void testInsertsSentBeforeOtherStatement() throws Exception {
+        Connection connection = connection(100);
+        execute(connection,
+                "INSERT INTO country (code, name) VALUES ('DE', 'Germany')",
+                "INSERT INTO country (code, name) VALUES ('FR', NULL)",
+                "UPDATE country SET name = 'France' WHERE code = 'FR'");
+        assertEquals(Arrays.asList(
+                "INSERT INTO country (code, name) VALUES (?, ?) [DE,Germany, FR,NULL]",
+                "UPDATE country SET name = 'France' WHERE code = 'FR'"), log);
+    }
+
+    @Test
+    public void testBatchSentBeforeCommitAndWhenFull() throws Exception {
+        Connection connection = connection(2);
+        connection.setAutoCommit(false);
+        execute(connection,
+                "INSERT INTO t (a) VALUES (1)",
+                "INSERT INTO t (a) VALUES (2)",
+                "INSERT INTO t (a) VALUES (3)",
+                "INSERT INTO u (a) VALUES (4)");
+        connection.commit();
+        assertEquals(Arrays.asList(
+                "INSERT INTO t (a) VALUES (?) [1, 2]",
+                "INSERT INTO t (a) VALUES (?) [3]",
+                "INSERT INTO u (a) VALUES (?) [4]",
+                "commit"), log);
+    }
+
+    @Test
+    public void testRollbackDiscardsBatch() throws Exception {
+        Connection connection = connection(100);
+        connection.setAutoCommit(false);
+        execute(connection, "INSERT INTO t (a) VALUES (1)", "INSERT INTO t (a) VALUES (2)");
+        connection.rollback();
+        execute(connection, "INSERT INTO t (a) VALUES (3)");
+        connection.commit();
+        assertEquals(Arrays.asList("rollback", "INSERT INTO t (a) VALUES (?) [3]", "commit"), log);
+    }
+
+    @Test
+    public void testUpdateCountOfBatchedInsert() throws Exception {
+        Connection connection = connection(100);
+        Statement statement = connection.createStatement();
+        assertFalse(statement.execute("INSERT INTO t (a) VALUES (1)"));
+        assertEquals(1, statement.getUpdateCount());
+        assertNull(statement.getResultSet());
+        assertFalse(statement.getMoreResults());
+        assertEquals(-1, statement.getUpdateCount());
+        assertEquals(1, connection.createStatement().executeUpdate("INSERT INTO t (a) VALUES (2)"));
+        assertEquals(Collections.emptyList(), log);
+    }
+
+    @Test
+    public void testFailedBatchNamesInsert() throws Exception {
+        failingRow = 1;
+        Connection connection = connection(100);
+        connection.setAutoCommit(false);
+        execute(connection,
+                "INSERT INTO t (a) VALUES (1)",
+                "INSERT INTO t (a) VALUES (2)",
+                "INSERT INTO t (a) VALUES (3)");
+        try {
+            connection.commit();
+            fail("Expected the batch to fail");
+        } catch (SQLException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith(
+                    "INSERT 2 of a batch of 3 failed: INSERT INTO t (a) VALUES (2)"));
+            assertEquals("23505", expected.getSQLState());
+            assertTrue(expected.getCause() instanceof BatchUpdateException);
+        }
+        assertTrue(log.isEmpty());
+    }
+
+    @Test
+    public void testFailedBatchNamesInsertWhenDriverContinues() throws Exception {
+        failingRow = 2;
+        continueAfterFailure = true;
+        Connection connection = connection(100);
+        try {
+            execute(connection,
+                    "INSERT INTO t (a) VALUES (1)",
+                    "INSERT INTO t (a) VALUES (2)",
+                    "INSERT INTO t (a) VALUES (3)",
+                    "INSERT INTO t (a) VALUES (4)",
+                    "DELETE FROM t");
+            fail("Expected the batch to fail");
+        } catch (SQLException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().startsWith(
+                    "INSERT 3 of a batch of 4 failed: INSERT INTO t (a) VALUES (3)"));
+        }
+        assertTrue(log.isEmpty());
+    }
+
+    @Test
+    public void testGeneratedKeysSendBatchFirst() throws Exception {
+        Connection connection = connection(100);
+        Statement statement = connection.createStatement();
+        statement.execute("INSERT INTO t (a) VALUES (1)");
+        statement.getGeneratedKeys();
+        assertEquals(Arrays.asList("INSERT INTO t (a) VALUES (?) [1]", "getGeneratedKeys"), log);
+    }
+}
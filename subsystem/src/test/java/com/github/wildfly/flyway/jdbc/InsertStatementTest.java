@@ -0,0 +1,58 @@
+package com.github.wildfly.flyway.jdbc;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link InsertStatement}.
+ */
+public class InsertStatementTest {
+
+    @Test
+    public void testSingleRowInsertParameterized() {
+        InsertStatement insert = InsertStatement.parse(
+                "INSERT INTO ref.country (code, name, population) VALUES ('DE', 'Germany', 83200000)");
+        assertNotNull(insert);
+        assertEquals("INSERT INTO ref.country (code, name, population) VALUES (?, ?, ?)", insert.getTemplate());
+        assertEquals(Arrays.asList("DE", "Germany", new BigDecimal("83200000")), insert.getValues());
+    }
+
+    @Test
+    public void testStructurallyIdenticalStatementsShareTemplate() {
+        InsertStatement first = InsertStatement.parse("insert into country(code,name) values('FR','France');");
+        InsertStatement second = InsertStatement.parse("INSERT INTO country (code, name)\n  VALUES ('IT', 'It''s Italy')");
+        assertEquals(first.getTemplate(), second.getTemplate());
+        assertEquals("It's Italy", second.getValues().get(1));
+    }
+
+    @Test
+    public void testLiterals() {
+        InsertStatement insert = InsertStatement.parse(
+                "-- reference data\nINSERT INTO t VALUES (NULL, -1.5e3, .25, '', \"x\")");
+        assertNull("identifiers are not values", insert);
+
+        insert = InsertStatement.parse("/* seed */ INSERT INTO \"T\" (\"A\", [b], `c`) VALUES (null, -1.5e3, .25)");
+        assertNotNull(insert);
+        assertEquals("INSERT INTO \"T\" (\"A\", [b], `c`) VALUES (?, ?, ?)", insert.getTemplate());
+        assertEquals(Arrays.asList(InsertStatement.NULL, new BigDecimal("-1.5e3"), new BigDecimal(".25")),
+                insert.getValues());
+    }
+
+    @Test
+    public void testNotBatchable() {
+        assertNull(InsertStatement.parse("UPDATE t SET a = 1"));
+        assertNull(InsertStatement.parse("INSERT INTO t (a) VALUES (1), (2)"));
+        assertNull(InsertStatement.parse("INSERT INTO t (a) SELECT a FROM u"));
+        assertNull(InsertStatement.parse("INSERT INTO t (a) VALUES (now())"));
+        assertNull(InsertStatement.parse("INSERT INTO t (a) VALUES (E'x')"));
+        assertNull(InsertStatement.parse("INSERT INTO t (a) VALUES ('a\\'b')"));
+        assertNull(InsertStatement.parse("INSERT INTO t (a) VALUES ('x'::date)"));
+        assertNull(InsertStatement.parse("INSERT INTO t (a) VALUES (1) RETURNING id"));
+        assertNull(InsertStatement.parse("INSERT INTO t (a) VALUES ('unterminated)"));
+    }
+}
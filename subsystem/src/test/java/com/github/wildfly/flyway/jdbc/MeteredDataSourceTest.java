@@ -0,0 +1,97 @@
+package com.github.wildfly.flyway.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import javax.sql.DataSource;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link MeteredDataSource}.
+ */
+public class MeteredDataSourceTest {
+
+    private static Connection connection() {
+        return (Connection) Proxy.newProxyInstance(MeteredDataSourceTest.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) ->
+                        "isClosed".equals(method.getName()) ? Boolean.FALSE : null);
+    }
+
+    /**
+     * @param available connections handed out before the pool reports a timeout
+     */
+    private static DataSource pool(int available) {
+        int[] remaining = {available};
+        return (DataSource) Proxy.newProxyInstance(MeteredDataSourceTest.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    if ("getConnection".equals(method.getName())) {
+                        if (remaining[0]-- <= 0) {
+                            throw new SQLTransientConnectionException("No managed connections available");
+                        }
+                        return connection();
+                    }
+                    return null;
+                });
+    }
+
+    private static MeteredDataSource.Metrics metrics(String name) {
+        for (MeteredDataSource.Metrics metrics : MeteredDataSource.metrics()) {
+            if (metrics.getName().equals(name)) {
+                return metrics;
+            }
+        }
+        throw new AssertionError("No metrics for " + name);
+    }
+
+    @Test
+    public void testCountsBorrowsAndHeldConnections() throws SQLException {
+        String name = "java:jboss/datasources/HeldDS";
+        DataSource dataSource = MeteredDataSource.wrap(pool(3), name);
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+        assertEquals(2, metrics(name).getActive());
+
+        first.close();
+        first.close();
+        assertEquals(1, metrics(name).getActive());
+        assertFalse(second.isClosed());
+        second.close();
+
+        dataSource.getConnection().close();
+        MeteredDataSource.Metrics metrics = metrics(name);
+        assertEquals(3, metrics.getBorrows());
+        assertEquals(0, metrics.getActive());
+        assertEquals(2, metrics.getPeakActive());
+        assertEquals(0, metrics.getFailures());
+    }
+
+    @Test
+    public void testCountsFailedBorrows() throws SQLException {
+        String name = "java:jboss/datasources/ExhaustedDS";
+        DataSource dataSource = MeteredDataSource.wrap(pool(1), name);
+        dataSource.getConnection();
+        try {
+            dataSource.getConnection();
+            fail("Expected a pool timeout");
+        } catch (SQLTransientConnectionException expected) {
+            // reported to the caller unchanged
+        }
+        assertEquals(1, metrics(name).getBorrows());
+        assertEquals(1, metrics(name).getFailures());
+        assertEquals(1, metrics(name).getActive());
+    }
+
+    @Test
+    public void testRewrapSharesMetrics() throws SQLException {
+        String name = "java:jboss/datasources/SharedDS";
+        DataSource dataSource = MeteredDataSource.wrap(MeteredDataSource.wrap(pool(2), name), name);
+        dataSource.getConnection().close();
+        MeteredDataSource.wrap(pool(1), name).getConnection().close();
+        assertEquals(2, metrics(name).getBorrows());
+    }
+}
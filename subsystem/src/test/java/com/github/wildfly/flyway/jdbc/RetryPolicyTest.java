@@ -0,0 +1,81 @@
+package com.github.wildfly.flyway.jdbc;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RetryPolicy}.
+ */
+public class RetryPolicyTest {
+
+    private final RetryPolicy policy = new RetryPolicy(3, 2, 500, 10_000, Arrays.asList("40001", "40P01"));
+
+    @Test
+    public void testDeadlocksAndSerializationFailures() {
+        assertEquals(RetryPolicy.Reason.DEADLOCK, policy.classify(new FlywayException("Migration failed",
+                new SQLException("deadlock detected", "40P01")), "postgresql"));
+        assertEquals(RetryPolicy.Reason.DEADLOCK, policy.classify(
+                new SQLException("could not serialize access", "40001"), "postgresql"));
+        // Reported as a deadlock by error code only
+        assertEquals(RetryPolicy.Reason.DEADLOCK, policy.classify(
+                new SQLException("Transaction was deadlocked", "S0001", 1205), "sqlserver"));
+    }
+
+    @Test
+    public void testLockTimeouts() {
+        assertEquals(RetryPolicy.Reason.LOCK_TIMEOUT, policy.classify(
+                new SQLException("could not obtain lock", "55P03"), "postgresql"));
+        assertEquals(RetryPolicy.Reason.LOCK_TIMEOUT, policy.classify(
+                new SQLException("Lock request time out period exceeded", "S0001", 1222), "sqlserver"));
+    }
+
+    @Test
+    public void testNothingRetriedWithoutTransactionalDdl() {
+        assertNull(policy.classify(new SQLException("Deadlock found", "40001", 1213), "mysql"));
+        assertNull(policy.classify(new SQLException("Lock wait timeout exceeded", "HY000", 1205), "mariadb"));
+        assertNull(policy.classify(new SQLException("ORA-00060: deadlock detected", "61000", 60), "oracle"));
+        assertNull(policy.classify(new SQLException("deadlock detected", "40P01"), null));
+    }
+
+    @Test
+    public void testOtherFailuresAreNotRetried() {
+        assertNull(policy.classify(new SQLException("syntax error", "42601"), "postgresql"));
+        assertNull(policy.classify(new FlywayException("Validate failed"), "postgresql"));
+        assertNull(new RetryPolicy(3, 2, 500, 10_000, Arrays.asList("40P01")).classify(
+                new SQLException("could not serialize access", "40001"), "postgresql"));
+    }
+
+    @Test
+    public void testAttemptsPerReason() {
+        assertEquals(3, policy.maxAttempts(RetryPolicy.Reason.DEADLOCK));
+        assertEquals(3, policy.maxAttempts(RetryPolicy.Reason.LOCK_TIMEOUT));
+        assertEquals(1, new RetryPolicy(0, 0, 500, 10_000, Arrays.asList("40001"))
+                .maxAttempts(RetryPolicy.Reason.LOCK_TIMEOUT));
+    }
+
+    @Test
+    public void testJitteredExponentialBackoff() {
+        assertEquals(250, policy.backoffMillis(1, 0.0));
+        assertEquals(500, policy.backoffMillis(1, 1.0));
+        assertEquals(1000, policy.backoffMillis(3, 0.0));
+        assertEquals(2000, policy.backoffMillis(3, 1.0));
+        assertEquals(10_000, policy.backoffMillis(10, 1.0));
+        assertEquals(10_000, policy.backoffMillis(100, 1.0));
+        long backoff = policy.backoffMillis(2);
+        assertTrue(backoff >= 500 && backoff <= 1000);
+    }
+
+    @Test
+    public void testRetriedOnlyWhereFailedMigrationsRollBack() {
+        assertTrue(RetryPolicy.canRetry("postgresql"));
+        assertFalse(RetryPolicy.canRetry("mysql"));
+        assertFalse(RetryPolicy.canRetry(null));
+    }
+}
@@ -0,0 +1,143 @@
+package com.github.wildfly.flyway.jdbc;
+
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.ResourceProvider;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link SessionProfileCallback}, against a connection that keeps the session settings
+ * the statements change.
+ */
+public class SessionProfileCallbackTest {
+
+    private static final String PREFIX = "spring.flyway.session-profiles.";
+
+    private final Map<String, String> session = new HashMap<>();
+
+    private Context context(String url, String script, String header) throws SQLException {
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getURL()).thenReturn(url);
+        Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMetaData":
+                            return metaData;
+                        case "createStatement":
+                            return statement();
+                        default:
+                            return null;
+                    }
+                });
+        LoadableResource resource = mock(LoadableResource.class);
+        when(resource.read()).thenAnswer(invocation -> new StringReader(header));
+        ResourceProvider provider = mock(ResourceProvider.class);
+        when(provider.getResource(script)).thenReturn(resource);
+        Configuration configuration = mock(Configuration.class);
+        when(configuration.getResourceProvider()).thenReturn(provider);
+        MigrationInfo info = mock(MigrationInfo.class);
+        when(info.getScript()).thenReturn(script);
+        Context context = mock(Context.class);
+        when(context.getConnection()).thenReturn(connection);
+        when(context.getConfiguration()).thenReturn(configuration);
+        when(context.getMigrationInfo()).thenReturn(info);
+        return context;
+    }
+
+    /**
+     * {@code SET [SESSION] name = value} changes a setting, {@code = DEFAULT} and
+     * {@code RESET name} restore it, {@code RESET ALL} restores all of them.
+     */
+    private Statement statement() {
+        return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> {
+                    if ("execute".equals(method.getName())) {
+                        String sql = (String) args[0];
+                        if (sql.equals("RESET ALL")) {
+                            session.clear();
+                        } else if (sql.startsWith("RESET ")) {
+                            session.remove(sql.substring(6));
+                        } else {
+                            String[] setting = sql.replaceFirst("^SET (SESSION )?", "").split("\\s*=\\s*", 2);
+                            if ("DEFAULT".equals(setting[1])) {
+                                session.remove(setting[0]);
+                            } else {
+                                session.put(setting[0], setting[1]);
+                            }
+                        }
+                        return Boolean.FALSE;
+                    }
+                    return null;
+                });
+    }
+
+    private static SessionProfileCallback callback(String base) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(PREFIX + "reporting.sql.postgresql", "SET search_path = reporting");
+        return new SessionProfileCallback(SessionProfile.fromProperties(properties, PREFIX), base);
+    }
+
+    private static void run(SessionProfileCallback callback, Context context, Event... events) {
+        for (Event event : events) {
+            assertTrue(event.name(), callback.supports(event, context));
+            callback.handle(event, context);
+        }
+    }
+
+    @Test
+    public void testPostgresqlSessionCleanAfterMigrate() throws Exception {
+        Context context = context("jdbc:postgresql://db/app", "V1__report.sql",
+                "-- flyway:session-profile=reporting\nSELECT 1;\n");
+        SessionProfileCallback callback = callback(SessionProfile.HEAVY_DDL);
+        run(callback, context, Event.BEFORE_MIGRATE, Event.BEFORE_EACH_MIGRATE);
+        assertEquals("reporting", session.get("search_path"));
+        assertEquals("'2GB'", session.get("maintenance_work_mem"));
+
+        run(callback, context, Event.AFTER_EACH_MIGRATE, Event.AFTER_MIGRATE);
+        // The SET of the reporting profile's raw statement is undone as well
+        assertTrue(session.toString(), session.isEmpty());
+    }
+
+    @Test
+    public void testSettingOutsideProfileSurvivesReset() throws Exception {
+        // As set by the datasource's new-connection-sql
+        session.put("application_name", "'shop'");
+        Context context = context("jdbc:postgresql://db/app", "V1__report.sql",
+                "-- flyway:session-profile=reporting\nSELECT 1;\n");
+        SessionProfileCallback callback = callback(SessionProfile.ONLINE);
+        run(callback, context, Event.BEFORE_MIGRATE, Event.BEFORE_EACH_MIGRATE,
+                Event.AFTER_EACH_MIGRATE, Event.AFTER_MIGRATE);
+        assertEquals(Collections.singletonMap("application_name", "'shop'"), session);
+    }
+
+    @Test
+    public void testMysqlSessionCleanAfterFailedRun() throws Exception {
+        Context context = context("jdbc:mysql://db/app", "V1__index.sql",
+                "-- flyway:session-profile=heavy-ddl\nCREATE INDEX i ON t (c);\n");
+        SessionProfileCallback callback = callback(SessionProfile.ONLINE);
+        run(callback, context, Event.BEFORE_MIGRATE, Event.BEFORE_EACH_MIGRATE);
+        assertEquals("0", session.get("max_execution_time"));
+        assertEquals("5", session.get("innodb_lock_wait_timeout"));
+
+        // The run failed before the per-script profile was reset
+        run(callback, context, Event.AFTER_MIGRATE_ERROR);
+        assertTrue(session.toString(), session.isEmpty());
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.wildfly.flyway.jdbc;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SessionProfile}.
+ */
+public class SessionProfileTest {
+
+    private static final String PREFIX = "spring.flyway.session-profiles.";
+
+    @Test
+    public void testBuiltInHeavyDdlOnPostgresql() {
+        SessionProfile profile = SessionProfile.fromProperties(Collections.emptyMap(), PREFIX)
+                .get(SessionProfile.HEAVY_DDL);
+        assertEquals(Arrays.asList(
+                "SET lock_timeout = '5000ms'",
+                "SET statement_timeout = '0ms'",
+                "SET work_mem = '256MB'",
+                "SET maintenance_work_mem = '2GB'"), profile.applyStatements("postgresql"));
+        assertEquals(Arrays.asList(
+                "RESET lock_timeout",
+                "RESET statement_timeout",
+                "RESET work_mem",
+                "RESET maintenance_work_mem"), profile.resetStatements("postgresql"));
+    }
+
+    @Test
+    public void testVendorsWithoutMemorySettings() {
+        SessionProfile profile = SessionProfile.fromProperties(Collections.emptyMap(), PREFIX)
+                .get(SessionProfile.HEAVY_DDL);
+        assertEquals(Arrays.asList(
+                "SET SESSION lock_wait_timeout = 5",
+                "SET SESSION innodb_lock_wait_timeout = 5",
+                "SET SESSION max_execution_time = 0"), profile.applyStatements("mysql"));
+        assertEquals(Collections.singletonList("SET LOCK_TIMEOUT 5000"), profile.applyStatements("sqlserver"));
+        assertEquals(Collections.singletonList("ALTER SESSION SET ddl_lock_timeout = 5"),
+                profile.applyStatements("oracle"));
+        assertTrue(profile.applyStatements(null).isEmpty());
+    }
+
+    @Test
+    public void testPropertiesOverrideAndDefineProfiles() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(PREFIX + "online.lock-timeout", "2s");
+        properties.put(PREFIX + "reporting.statement-timeout", "10min");
+        properties.put(PREFIX + "reporting.sql.postgresql", "SET search_path = reporting; SET jit = off;");
+        properties.put("spring.flyway.session-profile", "reporting");
+        Map<String, SessionProfile> profiles = SessionProfile.fromProperties(properties, PREFIX);
+
+        assertEquals(Collections.singletonList("SET lock_timeout = '2000ms'"),
+                profiles.get(SessionProfile.ONLINE).applyStatements("postgresql"));
+        assertEquals(Arrays.asList(
+                "SET statement_timeout = '600000ms'",
+                "SET search_path = reporting",
+                "SET jit = off"), profiles.get("reporting").applyStatements("postgresql"));
+        assertEquals(Collections.singletonList("SET SESSION max_execution_time = 600000"),
+                profiles.get("reporting").applyStatements("mysql"));
+        assertTrue(profiles.get(SessionProfile.DEFAULT).applyStatements("postgresql").isEmpty());
+    }
+
+    @Test(expected = FlywayException.class)
+    public void testInvalidDuration() {
+        Map<String, String> properties = Collections.singletonMap(PREFIX + "online.lock-timeout", "soon");
+        SessionProfile.fromProperties(properties, PREFIX).get(SessionProfile.ONLINE).applyStatements("postgresql");
+    }
+
+    @Test
+    public void testLockTimeoutDetection() {
+        assertTrue(SessionProfile.isLockTimeout(new FlywayException("Migration failed",
+                new SQLException("canceling statement due to lock timeout", "55P03"))));
+        assertTrue(SessionProfile.isLockTimeout(new SQLException("Lock wait timeout exceeded", "HY000", 1205)));
+        assertFalse(SessionProfile.isLockTimeout(new SQLException("syntax error", "42601")));
+        assertFalse(SessionProfile.isLockTimeout(new FlywayException("Validate failed")));
+    }
+}
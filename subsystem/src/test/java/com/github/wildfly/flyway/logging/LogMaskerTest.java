@@ -0,0 +1,76 @@
+package com.github.wildfly.flyway.logging;
+
+import java.util.regex.Pattern;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the masking rules of {@link LogMasker} with the default patterns.
+ */
+public class LogMaskerTest {
+
+    @Test
+    public void testJdbcUrlCredentialsMasked() {
+        assertEquals("jdbc:postgresql://app:***@db:5432/app?ssl=true&token=***",
+                LogMasker.maskJdbcUrl("jdbc:postgresql://app:secret@db:5432/app?ssl=true&token=abc"));
+        assertEquals("jdbc:sqlserver://db:1433;databaseName=app;user=app;password=***",
+                LogMasker.maskJdbcUrl("jdbc:sqlserver://db:1433;databaseName=app;user=app;password=secret"));
+        assertEquals("jdbc:mysql://db/app?PWD=***", LogMasker.maskJdbcUrl("jdbc:mysql://db/app?PWD=x"));
+    }
+
+    @Test
+    public void testJdbcUrlWithoutCredentialsUnchanged() {
+        assertEquals("jdbc:h2:mem:test", LogMasker.maskJdbcUrl("jdbc:h2:mem:test"));
+        assertNull(LogMasker.maskJdbcUrl(null));
+    }
+
+    @Test
+    public void testRepeatedValuesCached() {
+        String url = "jdbc:postgresql://app:secret@db/app";
+        assertSame(LogMasker.maskJdbcUrl(url), LogMasker.maskJdbcUrl(url));
+    }
+
+    @Test
+    public void testCredentialsNotKeptInCache() {
+        String url = "jdbc:postgresql://app:hunter2@db/cache-test?password=hunter2";
+        String clean = "jdbc:postgresql://db/cache-test";
+        LogMasker.maskJdbcUrl(url);
+        LogMasker.maskJdbcUrl(clean);
+
+        assertFalse(LogMasker.JDBC_URLS.containsKey(url));
+        assertTrue(LogMasker.JDBC_URLS.containsKey(clean));
+        for (String masked : LogMasker.MASKED_JDBC_URLS.values()) {
+            assertFalse(masked, masked.contains("hunter2"));
+        }
+    }
+
+    @Test
+    public void testDataSourceMasked() {
+        assertEquals("java:jboss/datasources/***", LogMasker.maskDataSource("java:jboss/datasources/ExampleDS"));
+        assertEquals("java:/ExampleDS", LogMasker.maskDataSource("java:/ExampleDS"));
+        assertNull(LogMasker.maskDataSource(null));
+    }
+
+    @Test
+    public void testSensitivePropertyMasked() {
+        assertEquals("***", LogMasker.maskProperty("spring.flyway.jdbc-properties.password", "secret"));
+        assertEquals("***", LogMasker.maskProperty("flyway.placeholders.API_TOKEN", "abc"));
+        assertEquals("classpath:db/migration", LogMasker.maskProperty("flyway.locations", "classpath:db/migration"));
+        assertNull(LogMasker.maskProperty("flyway.password", null));
+    }
+
+    @Test
+    public void testLazyArgumentMasksOnFormatting() {
+        Object argument = LogMasker.lazyDataSource("java:jboss/datasources/ExampleDS");
+        assertEquals("java:jboss/datasources/***", String.format("%s", argument));
+        assertEquals("***", LogMasker.lazyProperty("flyway.password", "secret").toString());
+    }
+
+    @Test
+    public void testParameterPattern() {
+        Pattern pattern = LogMasker.parameterPattern(" sessionId , apiKey ");
+        assertEquals("a?sessionid=***&APIKEY=***&b=1",
+                pattern.matcher("a?sessionid=1&APIKEY=2&b=1").replaceAll("$1=***"));
+        assertNull(LogMasker.parameterPattern(""));
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.wildfly.flyway.resource;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link Compression}.
+ */
+public class CompressionTest {
+
+    private static final String SCRIPT = "CREATE TABLE t (id INT);\nINSERT INTO t VALUES (1);\n";
+
+    private static StreamResource resource(String filename, byte[] bytes) {
+        return new StreamResource("db/migration/" + filename, "db/migration/" + filename, filename,
+                Compression.decompressing(filename, () -> new ByteArrayInputStream(bytes),
+                        CompressionTest.class.getClassLoader()),
+                StandardCharsets.UTF_8);
+    }
+
+    private static String text(StreamResource resource) throws IOException {
+        try (BufferedReader reader = (BufferedReader) resource.read()) {
+            return reader.lines().collect(Collectors.joining("\n", "", "\n"));
+        }
+    }
+
+    @Test
+    public void testGzipReadDecompressed() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(SCRIPT.getBytes(StandardCharsets.UTF_8));
+        }
+
+        StreamResource plain = resource("V1__init.sql", SCRIPT.getBytes(StandardCharsets.UTF_8));
+        StreamResource gzip = resource("V1__init.sql.gz", compressed.toByteArray());
+
+        assertEquals(SCRIPT, text(gzip));
+        assertEquals(text(plain), text(gzip));
+    }
+
+    @Test
+    public void testUncompressedContentUnchanged() {
+        StreamResource.Content content = () -> new ByteArrayInputStream(new byte[0]);
+        assertSame(content, Compression.decompressing("V1__init.sql", content, null));
+    }
+
+    @Test
+    public void testCompressedSuffixes() {
+        assertTrue(Compression.hasCompressedSuffix(new String[]{".sql", " .sql.gz"}));
+        assertTrue(Compression.hasCompressedSuffix(new String[]{".sql.zst"}));
+        assertFalse(Compression.hasCompressedSuffix(new String[]{".sql", ".ddl"}));
+    }
+
+    @Test
+    public void testZstdWithoutDecoder() {
+        StreamResource.Content content = Compression.decompressing("V1__init.sql.zst",
+                () -> new ByteArrayInputStream(new byte[]{0x28, (byte) 0xb5, 0x2f, (byte) 0xfd}),
+                new ClassLoader(null) {
+                });
+        try {
+            content.open().close();
+            fail("decoded without a Zstandard decoder");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("aircompressor"));
+        }
+    }
+}
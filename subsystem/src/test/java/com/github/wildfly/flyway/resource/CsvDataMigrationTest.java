@@ -0,0 +1,215 @@
+package com.github.wildfly.flyway.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+import org.flywaydb.core.api.FlywayException;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link CsvDataMigration}, loading into a connection that records the batches it
+ * receives.
+ */
+public class CsvDataMigrationTest {
+
+    private static final Pattern NAME = CsvDataMigration.namePattern("V", "__");
+
+    /** The SQL prepared, then one entry per executed batch with its rows. */
+    private final List<String> log = new ArrayList<>();
+    /** Types the values were bound with. */
+    private final List<Integer> types = new ArrayList<>();
+    private boolean failBatches;
+
+    private static StreamResource resource(String filename, byte[] bytes) {
+        return new StreamResource("db/data/" + filename, "db/data/" + filename, filename,
+                Compression.decompressing(filename, () -> new ByteArrayInputStream(bytes),
+                        CsvDataMigrationTest.class.getClassLoader()),
+                StandardCharsets.UTF_8);
+    }
+
+    private static StreamResource resource(String filename, String content) {
+        return resource(filename, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static CsvDataMigration migration(String filename, String content, int batchSize) {
+        return CsvDataMigration.of(resource(filename, content), NAME, StandardCharsets.UTF_8, batchSize);
+    }
+
+    private Context context(String url) throws SQLException {
+        Connection[] connection = new Connection[1];
+        DatabaseMetaData metaData = (DatabaseMetaData) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{DatabaseMetaData.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getURL":
+                            return url;
+                        case "getConnection":
+                            return connection[0];
+                        default:
+                            return null;
+                    }
+                });
+        connection[0] = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getMetaData":
+                            return metaData;
+                        case "prepareStatement":
+                            log.add((String) args[0]);
+                            return statement();
+                        case "unwrap":
+                            throw new SQLException("Not a wrapper for " + args[0]);
+                        default:
+                            return null;
+                    }
+                });
+        Context context = mock(Context.class);
+        when(context.getConnection()).thenReturn(connection[0]);
+        return context;
+    }
+
+    private PreparedStatement statement() {
+        List<String> row = new ArrayList<>();
+        List<String> rows = new ArrayList<>();
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setString":
+                            types.add(Types.VARCHAR);
+                            row.add((String) args[1]);
+                            return null;
+                        case "setObject":
+                            types.add((Integer) args[2]);
+                            row.add((String) args[1]);
+                            return null;
+                        case "setNull":
+                            types.add((Integer) args[1]);
+                            row.add("NULL");
+                            return null;
+                        case "addBatch":
+                            rows.add(String.join("|", row));
+                            row.clear();
+                            return null;
+                        case "executeBatch":
+                            if (failBatches) {
+                                throw new BatchUpdateException("value too long", "22001", 0, new int[0]);
+                            }
+                            log.add(rows.toString());
+                            rows.clear();
+                            return new int[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @Test
+    public void testVersionAndTableFromFileName() {
+        CsvDataMigration migration = migration("V2_1__ref.country.csv.gz", "", 500);
+        assertEquals(MigrationVersion.fromVersion("2.1"), migration.getVersion());
+        assertEquals("ref.country", migration.getDescription());
+        assertEquals(MigrationVersion.fromVersion("10"), migration("V10__country.csv.zst", "", 500).getVersion());
+        assertEquals("country", migration("V3__country.csv", "", 500).getDescription());
+
+        assertNull(migration("R__country.csv", "", 500));
+        assertNull(migration("V3__country.txt", "", 500));
+        assertNull(migration("V3__country.csv.bz2", "", 500));
+        try {
+            migration("V3__country;drop.csv", "", 500);
+            fail("invalid table name accepted");
+        } catch (FlywayException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("country;drop"));
+        }
+    }
+
+    @Test
+    public void testBatchInsertElsewhere() throws Exception {
+        migration("V1__ref.country.csv", "code,name\nDE,Germany\nFR,\nIT,Italy\n", 2)
+                .migrate(context("jdbc:h2:mem:test"));
+        assertEquals(Arrays.asList(
+                "INSERT INTO ref.country (code, name) VALUES (?, ?)",
+                "[DE|Germany, FR|NULL]",
+                "[IT|Italy]"), log);
+        assertEquals(Arrays.asList(Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+                Types.VARCHAR, Types.VARCHAR), types);
+    }
+
+    @Test
+    public void testBatchInsertWithoutPostgresqlDriver() throws Exception {
+        // The driver's copy API is not on the class path: the rows are inserted, untyped as COPY would read them
+        migration("V1__country.csv", "code,population\nDE,83200000\nXX,\n", 100)
+                .migrate(context("jdbc:postgresql://db/app"));
+        assertEquals(Arrays.asList("INSERT INTO country (code, population) VALUES (?, ?)",
+                "[DE|83200000, XX|NULL]"), log);
+        assertEquals(Arrays.asList(Types.OTHER, Types.OTHER, Types.OTHER, Types.OTHER), types);
+    }
+
+    @Test
+    public void testRecordsMustMatchHeader() throws Exception {
+        try {
+            migration("V1__t.csv", "a,b\n1,2\n3\n", 100).migrate(context("jdbc:h2:mem:test"));
+            fail("short record accepted");
+        } catch (FlywayException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("V1__t.csv line 3 has 1 fields"));
+        }
+        try {
+            migration("V1__t.csv", "a,b;drop\n1,2\n", 100).migrate(context("jdbc:h2:mem:test"));
+            fail("invalid column accepted");
+        } catch (FlywayException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("b;drop"));
+        }
+    }
+
+    @Test
+    public void testFailedBatchNamesRows() throws Exception {
+        failBatches = true;
+        try {
+            migration("V1__t.csv", "a\n1\n2\n3\n", 2).migrate(context("jdbc:h2:mem:test"));
+            fail("failed batch not reported");
+        } catch (SQLException expected) {
+            assertEquals("Loading rows 1 to 2 of V1__t.csv into t failed: value too long", expected.getMessage());
+            assertEquals("22001", expected.getSQLState());
+        }
+    }
+
+    @Test
+    public void testChecksumIsCrc32OfUncompressedContent() throws IOException {
+        String content = "id,name\n1,one\n";
+        CRC32 crc = new CRC32();
+        crc.update(content.getBytes(StandardCharsets.UTF_8));
+        Integer expected = (int) crc.getValue();
+
+        assertEquals(expected, migration("V1__t.csv", content, 1).getChecksum());
+        // Stable across instances and independent of compression and batch size
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(expected, CsvDataMigration.of(resource("V1__t.csv.gz", gzipped.toByteArray()), NAME,
+                StandardCharsets.UTF_8, 500).getChecksum());
+        assertNotEquals(expected, migration("V1__t.csv", "id,name\n1,two\n", 1).getChecksum());
+    }
+}
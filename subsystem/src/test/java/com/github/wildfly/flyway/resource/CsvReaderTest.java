@@ -0,0 +1,64 @@
+package com.github.wildfly.flyway.resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link CsvReader}.
+ */
+public class CsvReaderTest {
+
+    private static CsvReader reader(String csv) {
+        return new CsvReader(new BufferedReader(new StringReader(csv)));
+    }
+
+    @Test
+    public void testRecords() throws IOException {
+        CsvReader csv = reader("code,name,population\r\nDE,Germany,83200000\nFR,,\n");
+        assertEquals(Arrays.asList("code", "name", "population"), csv.next());
+        assertEquals(Arrays.asList("DE", "Germany", "83200000"), csv.next());
+        assertEquals(2, csv.getRecordLine());
+        assertEquals(Arrays.asList("FR", null, null), csv.next());
+        assertNull(csv.next());
+    }
+
+    @Test
+    public void testQuotedFields() throws IOException {
+        CsvReader csv = reader("\"a,b\",\"say \"\"hi\"\"\",\"\"\n\"multi\nline\",x,\"\"");
+        assertEquals(Arrays.asList("a,b", "say \"hi\"", ""), csv.next());
+        assertEquals(Arrays.asList("multi\nline", "x", ""), csv.next());
+        assertEquals(2, csv.getRecordLine());
+        assertNull(csv.next());
+    }
+
+    @Test
+    public void testRemainingStartsAtNextRecord() throws IOException {
+        CsvReader csv = reader("id,name\r\n1,one\n");
+        csv.next();
+        assertEquals("1,one", csv.remaining().readLine());
+    }
+
+    @Test
+    public void testMalformedInput() {
+        try {
+            reader("\"open,1\n").next();
+            fail("unterminated quote accepted");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("line 1"));
+        }
+        try {
+            reader("\"a\"b,1\n").next();
+            fail("text after closing quote accepted");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("after quoted field"));
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.wildfly.flyway.resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests for {@link MigrationResourceProvider}.
+ */
+public class MigrationResourceProviderTest {
+
+    private Path dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("flyway-resources");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private Path jar(String... entries) throws IOException {
+        Path jar = dir.resolve("schema.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (int i = 0; i < entries.length; i += 2) {
+                out.putNextEntry(new JarEntry(entries[i]));
+                if (entries[i + 1] != null) {
+                    out.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+                }
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static String text(LoadableResource resource) throws IOException {
+        try (BufferedReader reader = new BufferedReader(resource.read())) {
+            return reader.lines().collect(Collectors.joining("\n"));
+        }
+    }
+
+    @Test
+    public void testClasspathLocationInJar() throws IOException {
+        Path jar = jar("db/", null, "db/migration/", null,
+                "db/migration/V1__init.sql", "CREATE TABLE t (id INT);",
+                "db/migration/sub/V2__more.sql", "SELECT 1;",
+                "db/other/V3__elsewhere.sql", "SELECT 2;");
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+            MigrationResourceProvider provider = MigrationResourceProvider.create(
+                    new String[]{"classpath:db/migration"}, loader, StandardCharsets.UTF_8);
+
+            List<String> paths = new ArrayList<>();
+            for (LoadableResource resource : provider.getResources("V", new String[]{".sql"})) {
+                paths.add(resource.getAbsolutePath());
+            }
+            paths.sort(null);
+            assertEquals(List.of("db/migration/V1__init.sql", "db/migration/sub/V2__more.sql"), paths);
+
+            LoadableResource resource = provider.getResource("V1__init.sql");
+            assertNotNull(resource);
+            assertEquals("CREATE TABLE t (id INT);", text(resource));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.github.wildfly.flyway.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.flywaydb.core.api.FlywayException;
+import org.jboss.modules.LocalModuleLoader;
+import org.jboss.modules.ModuleLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link ModuleMigrationCache}, against static modules in a temporary module root.
+ */
+public class ModuleMigrationCacheTest {
+
+    private static final String LOCATION = "module:com.example.schema";
+
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("flyway-modules");
+        Path dir = moduleDir();
+        Files.createDirectories(dir.resolve("scripts/db/migration"));
+        Files.write(dir.resolve("module.xml"), ("<module xmlns=\"urn:jboss:module:1.9\" name=\"com.example.schema\">"
+                + "<resources><resource-root path=\"scripts\"/></resources></module>")
+                .getBytes(StandardCharsets.UTF_8));
+        addScript("V1__init.sql", "CREATE TABLE t (id INT);\n");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        ModuleMigrationCache.clear();
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private Path moduleDir() {
+        return root.resolve("com/example/schema/main");
+    }
+
+    private void addScript(String name, String content) throws IOException {
+        Files.write(moduleDir().resolve("scripts/db/migration").resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private ModuleLoader loader() {
+        return new LocalModuleLoader(new File[]{root.toFile()});
+    }
+
+    @Test
+    public void testScriptsReadFromModule() {
+        List<ModuleMigrationCache.Script> scripts = ModuleMigrationCache.getScripts(LOCATION, loader());
+
+        assertEquals(1, scripts.size());
+        assertEquals("db/migration/V1__init.sql", scripts.get(0).path);
+        assertEquals("V1__init.sql", scripts.get(0).relativePath);
+        assertArrayEquals("CREATE TABLE t (id INT);\n".getBytes(StandardCharsets.UTF_8), scripts.get(0).content);
+    }
+
+    @Test
+    public void testUnchangedModuleNotScannedAgain() throws IOException {
+        ModuleLoader loader = loader();
+        List<ModuleMigrationCache.Script> first = ModuleMigrationCache.getScripts(LOCATION, loader);
+        // Not seen while the module is the same instance
+        addScript("V2__more.sql", "SELECT 1;\n");
+
+        List<ModuleMigrationCache.Script> second = ModuleMigrationCache.getScripts(LOCATION, loader);
+        assertSame(first, second);
+        // The default path and the same path spelled out share the entry
+        assertSame(first, ModuleMigrationCache.getScripts(LOCATION + "/db/migration/", loader));
+    }
+
+    @Test
+    public void testReplacedModuleScannedAgain() throws IOException {
+        List<ModuleMigrationCache.Script> first = ModuleMigrationCache.getScripts(LOCATION, loader());
+        addScript("V2__more.sql", "SELECT 1;\n");
+
+        // Another loader links a new module instance, as after a module is redeployed
+        List<ModuleMigrationCache.Script> second = ModuleMigrationCache.getScripts(LOCATION, loader());
+        assertNotSame(first, second);
+        assertEquals(2, second.size());
+    }
+
+    @Test
+    public void testClearDropsEntries() {
+        ModuleLoader loader = loader();
+        List<ModuleMigrationCache.Script> first = ModuleMigrationCache.getScripts(LOCATION, loader);
+        ModuleMigrationCache.clear();
+
+        assertNotSame(first, ModuleMigrationCache.getScripts(LOCATION, loader));
+    }
+
+    @Test(expected = FlywayException.class)
+    public void testUnknownModule() {
+        ModuleMigrationCache.getScripts("module:com.example.missing", loader());
+    }
+}
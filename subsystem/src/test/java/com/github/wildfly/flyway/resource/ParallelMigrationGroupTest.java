@@ -0,0 +1,281 @@
+package com.github.wildfly.flyway.resource;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import org.flywaydb.core.api.configuration.Configuration;
+import org.flywaydb.core.api.migration.Context;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link ParallelMigrationGroup}, against a fake database that keeps committed
+ * statements and markers apart from uncommitted ones.
+ */
+public class ParallelMigrationGroupTest {
+
+    private static final Pattern NAME = StreamingSqlMigration.namePattern("V", "__", new String[]{".sql"});
+
+    private final Database database = new Database();
+
+    private static List<StreamingSqlMigration> scripts(String... statements) {
+        List<StreamingSqlMigration> scripts = new ArrayList<>();
+        for (int i = 0; i < statements.length; i++) {
+            String filename = "V" + (i + 1) + "__load.sql";
+            byte[] bytes = ("-- flyway:parallel-group=g\n" + statements[i] + ";\n").getBytes(StandardCharsets.UTF_8);
+            StreamResource resource = new StreamResource("db/stream/" + filename, "db/stream/" + filename, filename,
+                    () -> new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+            scripts.add(StreamingSqlMigration.of(resource, NAME, StandardCharsets.UTF_8, 2));
+        }
+        return scripts;
+    }
+
+    private ParallelMigrationGroup group(List<StreamingSqlMigration> members) {
+        return new ParallelMigrationGroup("g", members, 2, new ParallelGroupMarkers("t_parallel"));
+    }
+
+    /**
+     * Flyway's transaction of one member: the migration and the history row.
+     */
+    private void migrate(ParallelMigrationGroup group, StreamingSqlMigration member, boolean recorded)
+            throws Exception {
+        Connection connection = database.connection();
+        connection.setAutoCommit(false);
+        Configuration configuration = mock(Configuration.class);
+        when(configuration.getDataSource()).thenReturn(database.dataSource());
+        Context context = mock(Context.class);
+        when(context.getConfiguration()).thenReturn(configuration);
+        when(context.getConnection()).thenReturn(connection);
+        try {
+            group.migrate(member, context);
+            if (recorded) {
+                connection.commit();
+            } else {
+                connection.rollback();
+            }
+        } catch (Exception e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void testMembersRunOnceAndMarkersRemovedWithHistory() throws Exception {
+        List<StreamingSqlMigration> members = scripts("INSERT a", "INSERT b", "INSERT c");
+        ParallelMigrationGroup group = group(members);
+        migrate(group, members.get(0), true);
+        assertEquals(new HashSet<>(Arrays.asList("INSERT a", "INSERT b", "INSERT c")), new HashSet<>(database.data));
+        assertEquals(new HashSet<>(Arrays.asList("2", "3")), database.markers);
+
+        migrate(group, members.get(1), true);
+        migrate(group, members.get(2), true);
+        assertEquals(3, database.data.size());
+        assertTrue(database.markers.isEmpty());
+    }
+
+    @Test
+    public void testRolledBackHistoryDoesNotRunGroupAgain() throws Exception {
+        List<StreamingSqlMigration> members = scripts("INSERT a", "INSERT b");
+        // The group commits, then the transaction with the first history row is lost (crash or rollback)
+        migrate(group(members), members.get(0), false);
+        assertEquals(new HashSet<>(Arrays.asList("1", "2")), database.markers);
+
+        // The next run finds the markers and records both members without executing them again
+        List<StreamingSqlMigration> again = scripts("INSERT a", "INSERT b");
+        ParallelMigrationGroup group = group(again);
+        migrate(group, again.get(0), true);
+        migrate(group, again.get(1), true);
+        assertEquals(Arrays.asList("INSERT a", "INSERT b"), sorted(database.data));
+        assertTrue(database.markers.isEmpty());
+    }
+
+    @Test
+    public void testFailedBatchRolledBackTogether() throws Exception {
+        List<StreamingSqlMigration> members = scripts("INSERT a", "FAIL b");
+        try {
+            migrate(group(members), members.get(0), true);
+            fail("Expected the failure of the second member");
+        } catch (SQLException expected) {
+            assertTrue(expected.getMessage().contains("FAIL b"));
+        }
+        assertTrue(database.data.isEmpty());
+        assertTrue(database.markers.isEmpty());
+        assertEquals(0, database.open);
+    }
+
+    @Test
+    public void testEarlierBatchesStayCommittedAfterFailure() throws Exception {
+        List<StreamingSqlMigration> members = scripts("INSERT a", "INSERT b", "FAIL c");
+        ParallelMigrationGroup group = group(members);
+        migrate(group, members.get(0), true);
+        migrate(group, members.get(1), true);
+        try {
+            migrate(group, members.get(2), true);
+            fail("Expected the failure of the third member");
+        } catch (SQLException expected) {
+            assertTrue(expected.getMessage().contains("FAIL c"));
+        }
+        assertEquals(Arrays.asList("INSERT a", "INSERT b"), sorted(database.data));
+        assertTrue(database.markers.isEmpty());
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Statements are kept as data rows; statements starting with {@code FAIL} fail. The marker
+     * table is the only table queried.
+     */
+    private static final class Database {
+        final List<String> data = Collections.synchronizedList(new ArrayList<>());
+        final Set<String> markers = Collections.synchronizedSet(new HashSet<>());
+        volatile int open;
+
+        DataSource dataSource() {
+            return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                    (proxy, method, args) -> "getConnection".equals(method.getName()) ? connection() : null);
+        }
+
+        synchronized Connection connection() {
+            open++;
+            List<String> pendingData = new ArrayList<>();
+            Set<String> inserted = new HashSet<>();
+            Set<String> deleted = new HashSet<>();
+            boolean[] autoCommit = {true};
+            Runnable commit = () -> {
+                data.addAll(pendingData);
+                markers.addAll(inserted);
+                markers.removeAll(deleted);
+                pendingData.clear();
+                inserted.clear();
+                deleted.clear();
+            };
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "setAutoCommit":
+                                autoCommit[0] = (Boolean) args[0];
+                                return null;
+                            case "commit":
+                                commit.run();
+                                return null;
+                            case "rollback":
+                                pendingData.clear();
+                                inserted.clear();
+                                deleted.clear();
+                                return null;
+                            case "close":
+                                synchronized (this) {
+                                    open--;
+                                }
+                                return null;
+                            case "getMetaData":
+                                return Proxy.newProxyInstance(getClass().getClassLoader(),
+                                        new Class<?>[]{DatabaseMetaData.class}, (metaData, getter, none) ->
+                                                "getURL".equals(getter.getName()) ? "jdbc:postgresql://db/app" : null);
+                            case "createStatement":
+                                return statement(pendingData, autoCommit, commit);
+                            case "prepareStatement":
+                                return prepared((String) args[0], inserted, deleted, autoCommit, commit);
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private Statement statement(List<String> pendingData, boolean[] autoCommit, Runnable commit) {
+            return (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "execute":
+                                String sql = (String) args[0];
+                                if (sql.startsWith("FAIL")) {
+                                    throw new SQLException("Failed: " + sql, "42000");
+                                }
+                                pendingData.add(sql);
+                                if (autoCommit[0]) {
+                                    commit.run();
+                                }
+                                return Boolean.FALSE;
+                            case "executeQuery":
+                                return resultSet(((String) args[0]).contains("1 = 0")
+                                        ? Collections.emptyList() : new ArrayList<>(markers));
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private PreparedStatement prepared(String sql, Set<String> inserted, Set<String> deleted,
+                                           boolean[] autoCommit, Runnable commit) {
+            String[] version = new String[1];
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "setString":
+                                if ((Integer) args[0] == 1) {
+                                    version[0] = (String) args[1];
+                                }
+                                return null;
+                            case "executeUpdate":
+                                if (sql.startsWith("INSERT")) {
+                                    inserted.add(version[0]);
+                                } else {
+                                    deleted.add(version[0]);
+                                }
+                                if (autoCommit[0]) {
+                                    commit.run();
+                                }
+                                return 1;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private static ResultSet resultSet(List<String> rows) {
+            Iterator<String> iterator = rows.iterator();
+            String[] current = new String[1];
+            return (ResultSet) Proxy.newProxyInstance(Database.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "next":
+                                if (!iterator.hasNext()) {
+                                    return Boolean.FALSE;
+                                }
+                                current[0] = iterator.next();
+                                return Boolean.TRUE;
+                            case "getString":
+                                return current[0];
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+}
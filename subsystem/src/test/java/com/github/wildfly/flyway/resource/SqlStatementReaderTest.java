@@ -0,0 +1,122 @@
+package com.github.wildfly.flyway.resource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link SqlStatementReader} and {@link PlaceholderReader}.
+ */
+public class SqlStatementReaderTest {
+
+    private static List<String> statements(Reader script) throws IOException {
+        return statements(script, false);
+    }
+
+    private static List<String> statements(Reader script, boolean backslashEscapes) throws IOException {
+        SqlStatementReader reader = new SqlStatementReader(script, backslashEscapes);
+        List<String> statements = new ArrayList<>();
+        String statement;
+        while ((statement = reader.next()) != null) {
+            statements.add(statement);
+        }
+        return statements;
+    }
+
+    private static String replace(String text, Map<String, String> placeholders) throws IOException {
+        StringBuilder result = new StringBuilder();
+        try (Reader reader = new PlaceholderReader(new StringReader(text), "${", "}", placeholders, "V1__test.sql")) {
+            int c;
+            while ((c = reader.read()) != -1) {
+                result.append((char) c);
+            }
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void testSplitsStatements() throws IOException {
+        assertEquals(Arrays.asList("CREATE TABLE t (id INT)", "INSERT INTO t VALUES (1)", "SELECT 1"),
+                statements(new StringReader("-- header\nCREATE TABLE t (id INT);\n\n"
+                        + "/* seed; data */ INSERT INTO t VALUES (1);;\nSELECT 1;\n-- trailing")));
+    }
+
+    @Test
+    public void testSemicolonsInLiteralsAndComments() throws IOException {
+        List<String> statements = statements(new StringReader(
+                "INSERT INTO t VALUES ('a;b', 'it''s;', \"c;d\"); -- x;\n"
+                        + "SELECT 1 /* ; */ FROM t -- not; the end\n;"));
+        assertEquals(2, statements.size());
+        assertEquals("INSERT INTO t VALUES ('a;b', 'it''s;', \"c;d\")", statements.get(0));
+        assertEquals("SELECT 1 /* ; */ FROM t -- not; the end", statements.get(1));
+    }
+
+    @Test
+    public void testMysqlBackslashEscapes() throws IOException {
+        List<String> statements = statements(new StringReader(
+                "INSERT INTO t VALUES ('it\\'s; fine', \"say \\\"hi\\\";\", 'c:\\\\');\nSELECT 1;"), true);
+        assertEquals(Arrays.asList("INSERT INTO t VALUES ('it\\'s; fine', \"say \\\"hi\\\";\", 'c:\\\\')",
+                "SELECT 1"), statements);
+    }
+
+    @Test
+    public void testBackslashOnlyEscapesInEscapeStrings() throws IOException {
+        // Standard strings end at the quote after the backslash; E'...' strings do not
+        assertEquals(Arrays.asList("SELECT 'c:\\'", "SELECT E'it\\'s; fine'", "SELECT 1"),
+                statements(new StringReader("SELECT 'c:\\'; SELECT E'it\\'s; fine'; SELECT 1;")));
+        assertEquals(Arrays.asList("SELECT TYPE'x\\'", "SELECT 1"),
+                statements(new StringReader("SELECT TYPE'x\\'; SELECT 1;")));
+    }
+
+    @Test
+    public void testDollarQuotedBodies() throws IOException {
+        List<String> statements = statements(new StringReader(
+                "CREATE FUNCTION f() RETURNS INT AS $$ BEGIN RETURN 1; END; $$ LANGUAGE plpgsql;\n"
+                        + "DO $body$ BEGIN PERFORM 1; END $body$;\n"
+                        + "PREPARE p AS SELECT $1; SELECT V$SESSION FROM dual;"));
+        assertEquals(4, statements.size());
+        assertTrue(statements.get(0).endsWith("$$ LANGUAGE plpgsql"));
+        assertEquals("DO $body$ BEGIN PERFORM 1; END $body$", statements.get(1));
+        assertEquals("PREPARE p AS SELECT $1", statements.get(2));
+    }
+
+    @Test
+    public void testStatementLine() throws IOException {
+        SqlStatementReader reader = new SqlStatementReader(new StringReader("SELECT 1;\n\n-- c\nSELECT\n2;"));
+        reader.next();
+        assertEquals(1, reader.getStatementLine());
+        assertEquals("SELECT\n2", reader.next());
+        assertEquals(4, reader.getStatementLine());
+    }
+
+    @Test
+    public void testPlaceholders() throws IOException {
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("schema", "app");
+        placeholders.put("owner", "${schema}");
+        assertEquals("CREATE TABLE app.t; -- ${schema}", replace("CREATE TABLE ${schema}.t; -- ${owner}", placeholders));
+        assertEquals("$$ $1 ${ not closed\n$", replace("$$ $1 ${ not closed\n$", placeholders));
+        assertEquals("$app", replace("$${schema}", placeholders));
+    }
+
+    @Test
+    public void testMissingPlaceholder() throws IOException {
+        try {
+            replace("SELECT ${missing}", new HashMap<>());
+            fail("missing placeholder accepted");
+        } catch (FlywayException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("${missing}"));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.github.wildfly.flyway.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.ResourceProvider;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.flywaydb.core.api.resolver.MigrationResolver;
+import org.flywaydb.core.api.resolver.ResolvedMigration;
+import org.flywaydb.core.api.resource.LoadableResource;
+import org.flywaydb.core.internal.resolver.sql.SqlMigrationResolver;
+import org.flywaydb.core.internal.resource.filesystem.FileSystemResource;
+import org.flywaydb.core.internal.sqlscript.SqlScript;
+import org.flywaydb.core.internal.sqlscript.SqlScriptFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link StreamingSqlMigration}.
+ */
+public class StreamingSqlMigrationTest {
+
+    private static final Pattern NAME = StreamingSqlMigration.namePattern("V", "__", new String[]{".sql"});
+
+    private static StreamResource resource(String filename, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return new StreamResource("db/stream/" + filename, "db/stream/" + filename, filename,
+                () -> new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+    }
+
+    private static String group(String content) {
+        return StreamingSqlMigration.readParallelGroup(resource("V1__t.sql", content), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testParallelGroupInLeadingComment() {
+        assertEquals("reference-data", group("-- flyway:parallel-group=reference-data\nCREATE TABLE a (id INT);\n"));
+        assertEquals("g1", group("\n-- Countries\n--   flyway:parallel-group = g1  \nINSERT INTO a VALUES (1);\n"));
+    }
+
+    @Test
+    public void testParallelGroupOnlyBeforeFirstStatement() {
+        assertNull(group("CREATE TABLE a (id INT);\n-- flyway:parallel-group=late\n"));
+        assertNull(group("-- no group\nCREATE TABLE a (id INT);\n"));
+        assertNull(group(""));
+    }
+
+    @Test
+    public void testGroupIgnoredUnlessEnabled() {
+        StreamResource resource = resource("V2__load_a.sql", "-- flyway:parallel-group=g\nSELECT 1;\n");
+        StreamingSqlMigration migration = StreamingSqlMigration.of(resource, NAME, StandardCharsets.UTF_8, 0);
+        assertEquals("2", migration.getVersion().getVersion());
+        assertEquals("load a", migration.getDescription());
+        assertNull(migration.getParallelGroupName());
+
+        migration = StreamingSqlMigration.of(resource, NAME, StandardCharsets.UTF_8, 4);
+        assertEquals("g", migration.getParallelGroupName());
+    }
+
+    /**
+     * The streamed migration is recorded exactly as Flyway records the same file as a regular
+     * SQL migration, including a byte order mark and CRLF line endings.
+     */
+    @Test
+    public void testScriptTypeAndChecksumMatchFlywaySqlMigration() throws IOException {
+        Path dir = Files.createTempDirectory("flyway-stream");
+        try {
+            Path file = dir.resolve("orders/V3__load_orders.sql");
+            Files.createDirectories(file.getParent());
+            Files.write(file, "\uFEFF-- orders\r\nCREATE TABLE o (id INT);\r\nINSERT INTO o VALUES ('a\\'b');\r\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            FluentConfiguration configuration = Flyway.configure().locations("filesystem:" + dir);
+
+            LoadableResource resource = new FileSystemResource(configuration.getLocations()[0], file.toString(),
+                    StandardCharsets.UTF_8, false);
+            ResourceProvider resources = mock(ResourceProvider.class);
+            when(resources.getResources(any(), any())).thenAnswer(invocation ->
+                    "V".equals(invocation.getArgument(0)) ? Collections.singletonList(resource) : Collections.emptyList());
+            SqlScriptFactory scripts = mock(SqlScriptFactory.class);
+            when(scripts.createSqlScript(any(), anyBoolean(), any())).thenReturn(mock(SqlScript.class));
+            List<ResolvedMigration> sql = new SqlMigrationResolver(resources, null, scripts, configuration, null)
+                    .resolveMigrations(new MigrationResolver.Context(configuration, resources, scripts, null, null));
+
+            List<JavaMigration> streamed = StreamingSqlMigration.find(new String[]{"filesystem:" + dir},
+                    getClass().getClassLoader(), StandardCharsets.UTF_8, "V", "__", new String[]{".sql"}, 0);
+            ResolvedMigration expected = sql.get(0);
+            ResolvedMigration actual = streamed.get(0).getResolvedMigration(configuration, null);
+            assertEquals(expected.getVersion(), actual.getVersion());
+            assertEquals(expected.getDescription(), actual.getDescription());
+            assertEquals(expected.getScript(), actual.getScript());
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getChecksum(), actual.getChecksum());
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.github.wildfly.flyway.service;
+
+import com.github.wildfly.flyway.config.FlywayConfiguration;
+import com.github.wildfly.flyway.config.FlywayConfigurationBuilder.ConfigurationResult;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import javax.sql.DataSource;
+import org.jboss.msc.service.StartContext;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the migration completion stages of {@link FlywayMigrationService}.
+ */
+public class FlywayMigrationServiceTest {
+
+    @After
+    public void unregister() {
+        FlywayMigrationService.unregister("app.war");
+        FlywayMigrationService.unregister("other.war");
+    }
+
+    /** A service for a deployment with Flyway disabled, which completes as soon as it starts. */
+    private static FlywayMigrationService disabledService(String deploymentName) throws SQLException {
+        DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+        when(metaData.getDatabaseProductName()).thenReturn("H2");
+        Connection connection = mock(Connection.class);
+        when(connection.isValid(anyInt())).thenReturn(true);
+        when(connection.getMetaData()).thenReturn(metaData);
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(FlywayMigrationServiceTest.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> "getConnection".equals(method.getName()) ? connection : null);
+        ConfigurationResult configuration = mock(ConfigurationResult.class);
+        when(configuration.getDatasourceJndiName()).thenReturn("java:jboss/datasources/AppDS");
+        when(configuration.getMigrationDatasourceJndiName()).thenReturn("java:jboss/datasources/AppDS");
+        when(configuration.getFlywayConfiguration()).thenReturn(
+                new FlywayConfiguration(Collections.singletonMap(FlywayConfiguration.ENABLED, "false")));
+        return new FlywayMigrationService(deploymentName, () -> dataSource, null, configuration);
+    }
+
+    private static Throwable failure(CompletionStage<?> stage) throws InterruptedException {
+        try {
+            stage.toCompletableFuture().get();
+            fail("Stage should have failed");
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (CancellationException e) {
+            return e;
+        }
+    }
+
+    @Test
+    public void testUnknownDeploymentFails() throws Exception {
+        assertTrue(failure(FlywayMigrationService.migrationCompletion("app.war")) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testRegisteredDeploymentCompletesOnStart() throws Exception {
+        FlywayMigrationService.register(Collections.singletonList("app.war"));
+        CompletableFuture<?> completion = FlywayMigrationService.migrationCompletion("app.war").toCompletableFuture();
+        assertFalse(completion.isDone());
+
+        disabledService("app.war").start(mock(StartContext.class));
+        assertNull(completion.get());
+    }
+
+    @Test
+    public void testUnregisterCancelsAndForgetsDeployment() throws Exception {
+        FlywayMigrationService.register(Collections.singletonList("app.war"));
+        CompletionStage<?> pending = FlywayMigrationService.migrationCompletion("app.war");
+
+        FlywayMigrationService.unregister("app.war");
+        assertTrue(failure(pending) instanceof CancellationException);
+        assertTrue(failure(FlywayMigrationService.migrationCompletion("app.war")) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testStartDoesNotRegisterDeployment() throws Exception {
+        // Requests for names that never get a migration service must not leave stages behind
+        assertTrue(failure(FlywayMigrationService.migrationCompletion("other.war")) instanceof IllegalStateException);
+        disabledService("other.war").start(mock(StartContext.class));
+        assertTrue(failure(FlywayMigrationService.migrationCompletion("other.war")) instanceof IllegalStateException);
+    }
+}
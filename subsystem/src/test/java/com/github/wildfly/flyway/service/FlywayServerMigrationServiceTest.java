@@ -0,0 +1,37 @@
+package com.github.wildfly.flyway.service;
+
+import java.util.Collections;
+import org.jboss.msc.service.ServiceName;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the server migration registry of {@link FlywayServerMigrationService}.
+ */
+public class FlywayServerMigrationServiceTest {
+
+    @Test
+    public void testJndiAliasesNormalized() {
+        assertEquals("java:jboss/datasources/AppDS",
+                FlywayServerMigrationService.normalizeJndiName("java:/datasources/AppDS"));
+        assertEquals("java:jboss/datasources/AppDS",
+                FlywayServerMigrationService.normalizeJndiName(" java:jboss/datasources/AppDS "));
+        assertEquals("java:jboss/AppDS", FlywayServerMigrationService.normalizeJndiName("AppDS"));
+        assertEquals("java:global/AppDS", FlywayServerMigrationService.normalizeJndiName("java:global/AppDS"));
+    }
+
+    @Test
+    public void testDeploymentsFindServerMigrationUnderAlias() {
+        ServiceName serviceName = ServiceName.of("flyway", "server-migration", "common");
+        FlywayServerMigrationService.register("common", "java:/AppDS", serviceName);
+        try {
+            assertEquals(Collections.singletonList(serviceName),
+                    FlywayServerMigrationService.serviceNamesFor("java:jboss/AppDS"));
+            assertTrue(FlywayServerMigrationService.serviceNamesFor("java:jboss/OtherDS").isEmpty());
+        } finally {
+            FlywayServerMigrationService.unregister("common");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.wildfly.flyway.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.executor.MigrationExecutor;
+import org.flywaydb.core.api.resolver.ResolvedMigration;
+import org.flywaydb.core.internal.info.MigrationInfoImpl;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the commit chunk planning of {@link MigrationRunner}.
+ */
+public class MigrationRunnerTest {
+
+    private static MigrationInfo versioned(String version, boolean transactional) {
+        MigrationInfoImpl info = mock(MigrationInfoImpl.class);
+        when(info.getVersion()).thenReturn(MigrationVersion.fromVersion(version));
+        if (!transactional) {
+            MigrationExecutor executor = mock(MigrationExecutor.class);
+            when(executor.canExecuteInTransaction()).thenReturn(false);
+            ResolvedMigration resolved = mock(ResolvedMigration.class);
+            when(resolved.getExecutor()).thenReturn(executor);
+            when(info.getResolvedMigration()).thenReturn(resolved);
+        }
+        return info;
+    }
+
+    private static MigrationInfo repeatable() {
+        return mock(MigrationInfo.class);
+    }
+
+    private static List<String> targets(int chunkSize, MigrationInfo... pending) {
+        List<String> targets = new ArrayList<>();
+        for (MigrationVersion target : MigrationRunner.chunkTargets(pending, chunkSize)) {
+            targets.add(target.getVersion());
+        }
+        return targets;
+    }
+
+    @Test
+    public void testChunksOfChunkSize() {
+        assertEquals(Arrays.asList("2", "4", "5"), targets(2,
+                versioned("1", true), versioned("2", true), versioned("3", true),
+                versioned("4", true), versioned("5", true)));
+        assertEquals(Collections.singletonList("3"), targets(10,
+                versioned("1", true), versioned("2", true), versioned("3", true)));
+    }
+
+    @Test
+    public void testNonTransactionalMigrationRunsAlone() {
+        assertEquals(Arrays.asList("1", "2", "4"), targets(3,
+                versioned("1", true), versioned("2", false), versioned("3", true), versioned("4", true)));
+        assertEquals(Arrays.asList("1", "2"), targets(3, versioned("1", false), versioned("2", false)));
+    }
+
+    @Test
+    public void testRepeatablesAreNotTargets() {
+        assertEquals(Collections.singletonList("2"), targets(5,
+                versioned("1", true), repeatable(), versioned("2", true), repeatable()));
+        assertTrue(targets(5, repeatable()).isEmpty());
+        assertTrue(targets(5).isEmpty());
+    }
+}
@@ -0,0 +1,203 @@
+package com.github.wildfly.flyway.test.cds;
+
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Measures the boot time of the provisioned server with and without a dynamic AppCDS archive
+ * and checks that the archive covers the Flyway modules listed in the feature pack's
+ * {@code flyway-cds.classlist}.
+ *
+ * <p>Boots the server {@value #RUNS} times per variant plus one training run, so it only runs with
+ * {@code -Dflyway.cds.test=true}. The servers use their own base directory and a port offset and do
+ * not interfere with the Arquillian-managed server.</p>
+ */
+@EnabledIfSystemProperty(named = "flyway.cds.test", matches = "true")
+@DisabledOnOs(OS.WINDOWS)
+public class ClassDataSharingBootTest {
+
+    private static final Logger LOGGER = Logger.getLogger(ClassDataSharingBootTest.class);
+
+    private static final int RUNS = 3;
+    private static final String STARTED = "WFLYSRV0025";
+    private static final long BOOT_TIMEOUT_SECONDS = 120;
+
+    /** Allowed slowdown of the median CDS boot before the test fails; boot times are noisy. */
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("flyway.cds.tolerance", "0.10"));
+
+    private static Path jbossHome;
+    private static Path workDir;
+    private static Set<String> moduleClasses;
+
+    @BeforeAll
+    public static void setUp() throws IOException {
+        jbossHome = Paths.get(System.getProperty("jboss.home"));
+        workDir = Paths.get(System.getProperty("flyway.cds.dir"));
+        Path classlist = Paths.get(System.getProperty("flyway.cds.classlist"));
+        assertTrue(Files.isRegularFile(classlist), "Class list not built: " + classlist);
+        try (Stream<String> lines = Files.lines(classlist)) {
+            moduleClasses = lines.map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .map(line -> line.replace('/', '.'))
+                    .collect(Collectors.toSet());
+        }
+        Files.createDirectories(workDir);
+        copy(jbossHome.resolve("standalone"), workDir.resolve("standalone"));
+    }
+
+    @Test
+    public void testBootTimeWithArchive() throws Exception {
+        Path archive = workDir.resolve("flyway.jsa");
+        Path classLoadLog = workDir.resolve("class-load.log");
+        Files.deleteIfExists(archive);
+
+        List<Long> baseline = new ArrayList<>();
+        for (int i = 0; i < RUNS; i++) {
+            baseline.add(boot());
+        }
+
+        // Training run: the archive is written when the JVM exits
+        boot("-XX:ArchiveClassesAtExit=" + archive);
+        assertTrue(Files.isRegularFile(archive), "Archive not written: " + archive);
+
+        List<Long> shared = new ArrayList<>();
+        for (int i = 0; i < RUNS; i++) {
+            shared.add(boot("-XX:SharedArchiveFile=" + archive,
+                    "-Xlog:class+load=info:file=" + classLoadLog));
+        }
+
+        long baselineMedian = median(baseline);
+        long sharedMedian = median(shared);
+        LOGGER.infof("Boot time without CDS %s ms (median %d), with CDS %s ms (median %d), delta %d ms",
+                baseline, baselineMedian, shared, sharedMedian, sharedMedian - baselineMedian);
+
+        // Classes of the Flyway and subsystem modules must come from the archive
+        Set<String> fromArchive = new HashSet<>();
+        Set<String> loaded = new HashSet<>();
+        try (Stream<String> lines = Files.lines(classLoadLog)) {
+            lines.forEach(line -> {
+                String className = classNameOf(line);
+                if (className != null && moduleClasses.contains(className)) {
+                    loaded.add(className);
+                    if (line.contains("source: shared objects file")) {
+                        fromArchive.add(className);
+                    }
+                }
+            });
+        }
+        String archived = fromArchive.size() + " of " + loaded.size()
+                + " loaded Flyway module classes came from the archive";
+        LOGGER.info(archived);
+        assertTrue(fromArchive.contains("com.github.wildfly.flyway.extension.FlywayExtension"),
+                "Subsystem classes not archived; " + archived);
+        assertTrue(fromArchive.contains("org.flywaydb.core.Flyway"), "Flyway core classes not archived; " + archived);
+
+        if (sharedMedian > baselineMedian * (1 + TOLERANCE)) {
+            fail("Boot with CDS archive " + shared + " ms (median " + sharedMedian + ") slower than without "
+                    + baseline + " ms (median " + baselineMedian + ")");
+        }
+    }
+
+    /**
+     * Boot the server, wait for it to report started, shut it down.
+     *
+     * @return milliseconds from launch to the started message
+     */
+    private static long boot(String... jvmOptions) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(jbossHome.resolve("bin/standalone.sh").toString());
+        command.add("-Djboss.server.base.dir=" + workDir.resolve("standalone"));
+        command.add("-Djboss.socket.binding.port-offset=300");
+
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+        builder.environment().put("JAVA_OPTS", "-Xms64m -Xmx512m -Djava.net.preferIPv4Stack=true "
+                + String.join(" ", jvmOptions));
+        builder.environment().remove("LAUNCH_JBOSS_IN_BACKGROUND");
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        long bootMs = -1;
+        try (BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (line.contains(STARTED)) {
+                    bootMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    break;
+                }
+                if (TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) > BOOT_TIMEOUT_SECONDS) {
+                    break;
+                }
+            }
+            // standalone.sh does not forward signals, so stop the JVM itself
+            process.descendants().forEach(ProcessHandle::destroy);
+            process.destroy();
+            while (output.readLine() != null) {
+                // drain until the server has exited
+            }
+        } finally {
+            if (!process.waitFor(BOOT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+            }
+        }
+        assertTrue(bootMs >= 0, "Server did not start within " + BOOT_TIMEOUT_SECONDS + " s");
+        return bootMs;
+    }
+
+    /**
+     * @return the class name of a {@code -Xlog:class+load} line, e.g.
+     *         {@code [info][class,load] org.flywaydb.core.Flyway source: shared objects file (top)}
+     */
+    private static String classNameOf(String line) {
+        int start = line.indexOf("] ");
+        int end = line.indexOf(" source:");
+        if (start < 0 || end < start) {
+            return null;
+        }
+        return line.substring(line.lastIndexOf(']', end) + 2, end);
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Path destination = target.resolve(source.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(destination);
+                } else {
+                    Files.copy(path, destination, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+}